@@ -0,0 +1,54 @@
+package bench;
+
+import commands.RemoveKeyCommand;
+import processing.BinaryCodec;
+import processing.NBChannelController;
+import processing.WireCodec;
+import utility.CommandArguments;
+import utility.ServerAnswer;
+
+import java.net.InetSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * One client sends the same count of commands in batches of different sizes, a batch of one is sent as a plain request.
+ * The commands remove keys that are not in the collection, so the collection is not changed.
+ * Arguments: host, port, count of commands, batch sizes (1, 16, 256 and 4096 by default).
+ */
+public class BatchBench {
+    private static final long FIRST_KEY = 9_000_000_000L;
+    private static final int ROUNDS = 2; // the first round warms up
+
+    public static void main(String[] args) throws Exception {
+        String host = args[0];
+        int port = Integer.parseInt(args[1]);
+        int countOfCommands = Integer.parseInt(args[2]);
+        String[] batchSizes = args.length > 3 ?
+                Arrays.copyOfRange(args, 3, args.length) : new String[] {"1", "16", "256", "4096"};
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress(host, port))) {
+            WireCodec codec = NBChannelController.clientHandshake(channel, new BinaryCodec());
+            for (int round = 0; round < ROUNDS; round++) {
+                for (String batchSize : batchSizes) {
+                    int size = Integer.parseInt(batchSize);
+                    long startNanos = System.nanoTime();
+                    int countOfAnswers = 0;
+                    for (int sent = 0; sent < countOfCommands; sent += size) {
+                        ArrayList<CommandArguments> batch = new ArrayList<>(size);
+                        for (int i = 0; i < size; i++)
+                            batch.add(Samples.command(RemoveKeyCommand.getName(), String.valueOf(FIRST_KEY + sent + i)));
+                        NBChannelController.write(channel, codec,
+                                size == 1 ? batch.get(0) : CommandArguments.batchOf(batch, false));
+                        ServerAnswer answer = (ServerAnswer) NBChannelController.read(channel, codec);
+                        countOfAnswers += size == 1 ? 1 : answer.batchAnswers().size();
+                    }
+                    double millis = Samples.millisSince(startNanos);
+                    if (round == ROUNDS - 1)
+                        System.out.printf("batch of %5d: %d commands in %6.0f ms, %8.0f commands/s%n",
+                                size, countOfAnswers, millis, countOfAnswers / millis * 1000);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package bench;
+
+import data.VehicleStore;
+import processing.BitmapIndex;
+import processing.FilterExpression;
+
+import java.util.Arrays;
+
+/**
+ * Selects the elements matching combined conditions of the filter command through {@link BitmapIndex}
+ * and by the scan of the store, which tests every element, or every column on the columnar store.
+ * Prints the heap the index retains and the part of it taken by the compressed bitmaps.
+ * The fastest of several rounds is reported.
+ * Argument: size of the collection, 1000000 by default. The store is chosen by the system property 'vehicleStore'.
+ */
+public class BitmapBench {
+    private static final int ROUNDS = 10;
+    private static final String[][] FILTERS = {
+            {"fuel_type<=2", "and", "vehicle_type=1", "and", "engine_power>=100", "and", "engine_power<=120"},
+            {"fuel_type=3", "and", "vehicle_type=2", "and",
+                    "distance_travelled>=500000", "and", "distance_travelled<=505000"},
+            {"fuel_type=1", "and", "engine_power=500", "or", "vehicle_type=3", "and", "engine_power=7"},
+            {"engine_power>=500"},
+    };
+
+    public static void main(String[] args) throws InterruptedException {
+        int countOfElements = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        VehicleStore store = Samples.fill(VehicleStore.create(), countOfElements);
+        long heapBefore = StoreBench.usedHeap();
+        long startNanos = System.nanoTime();
+        BitmapIndex bitmapIndex = new BitmapIndex(store);
+        double buildMillis = Samples.millisSince(startNanos);
+        System.out.printf("%d elements, index built in %.0f ms, retains %.1f MB of heap, bitmaps %.1f MB%n",
+                countOfElements, buildMillis, (StoreBench.usedHeap() - heapBefore) / 1e6,
+                bitmapIndex.bitmapsSizeInBytes() / 1e6);
+        for (String[] words : FILTERS) {
+            FilterExpression filter = FilterExpression.parse(words);
+            double bitmapMillis = Double.MAX_VALUE;
+            double scanMillis = Double.MAX_VALUE;
+            long[] selected = null;
+            for (int round = 0; round < ROUNDS; round++) {
+                startNanos = System.nanoTime();
+                selected = bitmapIndex.select(filter);
+                bitmapMillis = Math.min(bitmapMillis, Samples.millisSince(startNanos));
+                startNanos = System.nanoTime();
+                long[] scanned = scan(store, filter);
+                scanMillis = Math.min(scanMillis, Samples.millisSince(startNanos));
+                if (!Arrays.equals(selected, scanned))
+                    throw new IllegalStateException("Selected " + selected.length + " and " + scanned.length + " keys");
+            }
+            System.out.printf("%-95s %7d elements: bitmaps %7.2f ms, scan %7.2f ms%n",
+                    String.join(" ", words), selected.length, bitmapMillis, scanMillis);
+        }
+    }
+
+    private static long[] scan(VehicleStore store, FilterExpression filter) {
+        return store.keysInRanges(filter.toRanges());
+    }
+}
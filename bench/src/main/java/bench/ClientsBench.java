@@ -0,0 +1,82 @@
+package bench;
+
+import commands.RemoveKeyCommand;
+import processing.BinaryCodec;
+import processing.NBChannelController;
+import processing.WireCodec;
+import utility.CommandArguments;
+import utility.ServerAnswer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Many clients connected at once, each sends a request and waits for its answer, round after round.
+ * Run it against the selector server and against the server started with '--blocking' to compare the two modes.
+ * The requests remove keys that are not in the collection, so the collection is not changed.
+ * Arguments: host, port, count of clients, count of rounds.
+ */
+public class ClientsBench {
+    private static final long FIRST_KEY = 9_000_000_000L;
+
+    public static void main(String[] args) throws Exception {
+        String host = args[0];
+        int port = Integer.parseInt(args[1]);
+        int countOfClients = Integer.parseInt(args[2]);
+        int countOfRounds = Integer.parseInt(args[3]);
+        ExecutorService clients = Executors.newFixedThreadPool(countOfClients);
+        CountDownLatch connected = new CountDownLatch(countOfClients);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<long[]>> results = new ArrayList<>();
+        for (int client = 0; client < countOfClients; client++) {
+            long firstKey = FIRST_KEY + (long) client * countOfRounds;
+            results.add(clients.submit(() -> exchange(host, port, firstKey, countOfRounds, connected, start)));
+        }
+        connected.await();
+        long startNanos = System.nanoTime();
+        start.countDown();
+        long[] latencies = new long[countOfClients * countOfRounds];
+        int position = 0;
+        for (Future<long[]> result : results) {
+            long[] clientLatencies = result.get();
+            System.arraycopy(clientLatencies, 0, latencies, position, clientLatencies.length);
+            position += clientLatencies.length;
+        }
+        double totalMillis = Samples.millisSince(startNanos);
+        clients.shutdown();
+        Arrays.sort(latencies);
+        System.out.printf("%d clients x %d rounds: %.0f ms, %.0f requests/s, latency p50 %.2f ms, p99 %.2f ms%n",
+                countOfClients, countOfRounds, totalMillis, latencies.length / totalMillis * 1000,
+                latencies[latencies.length / 2] / 1e6, latencies[latencies.length * 99 / 100] / 1e6);
+    }
+
+    private static long[] exchange(String host, int port, long firstKey, int countOfRounds,
+                                   CountDownLatch connected, CountDownLatch start)
+            throws IOException, InterruptedException {
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress(host, port))) {
+            WireCodec codec = NBChannelController.clientHandshake(channel, new BinaryCodec());
+            connected.countDown();
+            start.await();
+            long[] latencies = new long[countOfRounds];
+            for (int round = 0; round < countOfRounds; round++) {
+                CommandArguments request = Samples.command(RemoveKeyCommand.getName(), String.valueOf(firstKey + round));
+                request.setRequestId(round + 1);
+                long sentNanos = System.nanoTime();
+                NBChannelController.write(channel, codec, request);
+                ServerAnswer answer = (ServerAnswer) NBChannelController.read(channel, codec);
+                latencies[round] = System.nanoTime() - sentNanos;
+                if (answer.requestId() != round + 1)
+                    throw new IllegalStateException("Answer to another request: " + answer.requestId());
+            }
+            return latencies;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package bench;
+
+import mods.AnswerType;
+import mods.ClientRequestType;
+import mods.ExecuteMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import processing.BinaryCodec;
+import processing.JavaSerializationCodec;
+import processing.WireCodec;
+import utility.CommandArguments;
+import utility.ServerAnswer;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to encode and decode the insert request and its answer, for every codec.
+ * The setup prints the size of both encoded objects.
+ * Run: {@code java -jar bench/target/benchmarks.jar CodecBench}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBench {
+    @Param({"JavaSerializationCodec", "BinaryCodec"})
+    public String codecName;
+    private WireCodec codec;
+    private CommandArguments request;
+    private ServerAnswer answer;
+
+    @Setup
+    public void createObjects() throws IOException {
+        codec = switch (codecName) {
+            case "JavaSerializationCodec" -> new JavaSerializationCodec();
+            case "BinaryCodec" -> new BinaryCodec();
+            default -> throw new IllegalArgumentException("Unknown codec: " + codecName);
+        };
+        request = new CommandArguments("insert", new String[] {"12345"},
+                new String[] {"name", "1.5", "2.5", "100", "1000", "CAR", "NUCLEAR"},
+                ClientRequestType.COMMAND_EXECUTION, ExecuteMode.SCRIPT_MODE);
+        ArrayList<String> output = new ArrayList<>(List.of("Command 'insert 12345':", "Element was successfully inserted"));
+        answer = new ServerAnswer(output, new ArrayList<>(), true, AnswerType.EXECUTION_RESPONSE, 1);
+        System.out.printf("%n%s: request %d bytes, answer %d bytes%n",
+                codecName, codec.encode(request).length, codec.encode(answer).length);
+    }
+
+    @Benchmark
+    public Serializable requestRoundTrip() throws IOException {
+        return roundTrip(request);
+    }
+
+    @Benchmark
+    public Serializable answerRoundTrip() throws IOException {
+        return roundTrip(answer);
+    }
+
+    private Serializable roundTrip(Serializable object) throws IOException {
+        return codec.decode(ByteBuffer.wrap(codec.encode(object)));
+    }
+}
@@ -0,0 +1,70 @@
+package bench;
+
+import processing.BufferedDataBase;
+import utility.FileHandler;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Compaction of the log next to a loaded collection: inserts new elements until a segment is finished,
+ * then waits until the background thread has folded it into the snapshot, and reports how long it took
+ * and how much the live heap grew meanwhile, sampled by full collections, where a copy of the collection would stay.
+ * Run it with '-DwalCompactionSize' to choose the size of the folded segment, 16 MB by default.
+ * Arguments: size of the collection.
+ */
+public class CompactionBench {
+    private static final int SAMPLE_MILLIS = 100;
+
+    public static void main(String[] args) throws Exception {
+        int countOfElements = Integer.parseInt(args[0]);
+        if (System.getProperty("walCompactionSize") == null)
+            System.setProperty("walCompactionSize", String.valueOf(16 << 20));
+        BufferedDataBase dataBase = Samples.openDataBase(countOfElements);
+
+        Random random = new Random(3);
+        long key = 7L * countOfElements;
+        int countOfInserts = 0;
+        long startNanos = System.nanoTime();
+        while (countOfSegments() < 2) {
+            dataBase.insert(Samples.command("insert", String.valueOf(key++),
+                    Samples.vehicle(random, Samples.FIRST_ID + countOfElements + countOfInserts)));
+            countOfInserts++;
+        }
+        double insertMillis = Samples.millisSince(startNanos);
+        startNanos = System.nanoTime();
+        long liveHeapBefore = liveHeap();
+        long liveHeapPeak = liveHeapBefore;
+        while (countOfSegments() > 1) {
+            Thread.sleep(SAMPLE_MILLIS);
+            liveHeapPeak = Math.max(liveHeapPeak, liveHeap());
+        }
+        double compactionMillis = Samples.millisSince(startNanos);
+        System.out.printf("%d elements, %d inserts in %.0f ms: compaction %.0f ms, live heap %.0f MB, grew %.0f MB at most%n",
+                countOfElements, countOfInserts, insertMillis, compactionMillis,
+                liveHeapBefore / 1e6, (liveHeapPeak - liveHeapBefore) / 1e6);
+    }
+
+    /**
+     * Full collection stops the compaction as well, so the compaction takes longer than without sampling.
+     */
+    private static long liveHeap() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static int countOfSegments() throws IOException {
+        Path dataBasePath = FileHandler.getDataBasePath();
+        int count = 0;
+        try (DirectoryStream<Path> logSegments =
+                     Files.newDirectoryStream(dataBasePath.getParent(), dataBasePath.getFileName() + ".*.wal")) {
+            for (Path ignored : logSegments)
+                count++;
+        }
+        return count;
+    }
+}
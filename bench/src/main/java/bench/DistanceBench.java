@@ -0,0 +1,89 @@
+package bench;
+
+import data.Vehicle;
+import data.VehicleStore;
+import processing.DistanceIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Finds the keys of elements with distance travelled above a threshold, as remove_greater does,
+ * and counts the elements in a range of distances, as count_by_distance_travelled does,
+ * through {@link DistanceIndex} and by a scan over all elements.
+ * The threshold leaves about one element in a thousand, as a cleanup that runs every few seconds would find.
+ * The fastest of several rounds is reported.
+ * Arguments: sizes of the collection, 10000, 100000 and 1000000 by default.
+ * The store is chosen by the system property 'vehicleStore'.
+ */
+public class DistanceBench {
+    private static final int MAX_DISTANCE = 1_000_000; // distances of the samples are below it
+    private static final int LOOKUPS = 100;
+    private static final int ROUNDS = 5;
+    private static volatile long sink; // keeps the found keys in use
+
+    public static void main(String[] args) {
+        String[] sizes = args.length > 0 ? args : new String[] {"10000", "100000", "1000000"};
+        for (String size : sizes) {
+            int countOfElements = Integer.parseInt(size);
+            VehicleStore store = Samples.fill(VehicleStore.create(), countOfElements);
+            long startNanos = System.nanoTime();
+            DistanceIndex distanceIndex = new DistanceIndex(store);
+            double buildMillis = Samples.millisSince(startNanos);
+            Random random = new Random(3);
+            double scanMillis = Double.MAX_VALUE;
+            double indexMillis = Double.MAX_VALUE;
+            double scanCountMillis = Double.MAX_VALUE;
+            double indexCountMillis = Double.MAX_VALUE;
+            for (int round = 0; round < ROUNDS; round++) {
+                long threshold = MAX_DISTANCE - MAX_DISTANCE / 1000 - random.nextInt(100);
+                startNanos = System.nanoTime();
+                for (int i = 0; i < LOOKUPS; i++)
+                    sink = scanGreaterThan(store, threshold).size();
+                scanMillis = Math.min(scanMillis, Samples.millisSince(startNanos) / LOOKUPS);
+                long scanned = sink;
+                startNanos = System.nanoTime();
+                for (int i = 0; i < LOOKUPS; i++)
+                    sink = distanceIndex.keysGreaterThan(threshold).size();
+                indexMillis = Math.min(indexMillis, Samples.millisSince(startNanos) / LOOKUPS);
+                if (sink != scanned)
+                    throw new IllegalStateException("Found " + scanned + " and " + sink + " keys");
+
+                long from = random.nextInt(MAX_DISTANCE / 2);
+                long to = from + MAX_DISTANCE / 4;
+                startNanos = System.nanoTime();
+                for (int i = 0; i < LOOKUPS; i++)
+                    sink = scanCountBetween(store, from, to);
+                scanCountMillis = Math.min(scanCountMillis, Samples.millisSince(startNanos) / LOOKUPS);
+                scanned = sink;
+                startNanos = System.nanoTime();
+                for (int i = 0; i < LOOKUPS; i++)
+                    sink = distanceIndex.countBetween(from, to);
+                indexCountMillis = Math.min(indexCountMillis, Samples.millisSince(startNanos) / LOOKUPS);
+                if (sink != scanned)
+                    throw new IllegalStateException("Counted " + scanned + " and " + sink + " elements");
+            }
+            System.out.printf("%8d elements: greater keys scan %8.3f ms, index %7.4f ms; " +
+                            "count of a quarter scan %8.3f ms, index %7.4f ms; index built in %5.0f ms%n",
+                    countOfElements, scanMillis, indexMillis, scanCountMillis, indexCountMillis, buildMillis);
+        }
+    }
+
+    private static List<Long> scanGreaterThan(VehicleStore store, long distanceTravelled) {
+        List<Long> keys = new ArrayList<>();
+        for (Map.Entry<Long, Vehicle> element : store.inKeyOrder().entrySet())
+            if (element.getValue().getDistanceTravelled() > distanceTravelled)
+                keys.add(element.getKey());
+        return keys;
+    }
+
+    private static long scanCountBetween(VehicleStore store, long from, long to) {
+        long count = 0;
+        for (Vehicle vehicle : store.inKeyOrder().values())
+            if (vehicle.getDistanceTravelled() >= from && vehicle.getDistanceTravelled() <= to)
+                count++;
+        return count;
+    }
+}
@@ -0,0 +1,61 @@
+package bench;
+
+import data.Vehicle;
+import data.VehicleStore;
+import processing.EnginePowerIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Finds the keys of elements with a given engine power, as remove_all_by_engine_power and filter_by_engine_power do,
+ * through {@link EnginePowerIndex} and by a scan over all elements.
+ * The fastest of several rounds is reported.
+ * Arguments: sizes of the collection, 10000, 100000 and 1000000 by default.
+ * The store is chosen by the system property 'vehicleStore'.
+ */
+public class EnginePowerBench {
+    private static final int LOOKUPS = 100;
+    private static final int ROUNDS = 5;
+    private static volatile int sink; // keeps the found keys in use
+
+    public static void main(String[] args) {
+        String[] sizes = args.length > 0 ? args : new String[] {"10000", "100000", "1000000"};
+        for (String size : sizes) {
+            int countOfElements = Integer.parseInt(size);
+            VehicleStore store = Samples.fill(VehicleStore.create(), countOfElements);
+            long startNanos = System.nanoTime();
+            EnginePowerIndex enginePowerIndex = new EnginePowerIndex(store);
+            double buildMillis = Samples.millisSince(startNanos);
+            Random random = new Random(2);
+            double scanMillis = Double.MAX_VALUE;
+            double indexMillis = Double.MAX_VALUE;
+            for (int round = 0; round < ROUNDS; round++) {
+                int enginePower = 1 + random.nextInt(999);
+                startNanos = System.nanoTime();
+                for (int i = 0; i < LOOKUPS; i++)
+                    sink = scanForKeys(store, enginePower).size();
+                scanMillis = Math.min(scanMillis, Samples.millisSince(startNanos) / LOOKUPS);
+                int scanned = sink;
+                startNanos = System.nanoTime();
+                for (int i = 0; i < LOOKUPS; i++)
+                    sink = enginePowerIndex.keysOf(enginePower).size();
+                indexMillis = Math.min(indexMillis, Samples.millisSince(startNanos) / LOOKUPS);
+                if (sink != scanned)
+                    throw new IllegalStateException("Found " + scanned + " and " + sink + " keys");
+            }
+            System.out.printf("%8d elements (~%d per engine power): scan %8.3f ms, index %7.4f ms, index built in %5.0f ms%n",
+                    countOfElements, countOfElements / 999, scanMillis, indexMillis, buildMillis);
+        }
+    }
+
+    private static List<Long> scanForKeys(VehicleStore store, int enginePower) {
+        List<Long> keys = new ArrayList<>();
+        for (Map.Entry<Long, Vehicle> element : store.inKeyOrder().entrySet())
+            if (element.getValue().getEnginePower() == enginePower)
+                keys.add(element.getKey());
+        return keys;
+    }
+}
@@ -0,0 +1,156 @@
+package bench;
+
+import org.apache.commons.lang3.ArrayUtils;
+import processing.NBChannelController;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends one frame over a loopback connection with the current gathering write of a header and the wrapped object,
+ * with the copy of the object into one direct frame buffer used before it, and with the first framing,
+ * which split the object into 81 byte packages and joined them on reading.
+ * The packages are sent only for frames up to 1 MB, their joining is quadratic.
+ * Prints the time and the read and write system calls of the reading and the writing thread,
+ * taken from '/proc/thread-self/io' (Linux only).
+ * Arguments: frame sizes in bytes, 1 KB, 64 KB, 1 MB and 50 MB by default.
+ */
+public class FrameBench {
+    private static final int PACKAGE_SIZE = 81;
+    private static final int MAX_PACKAGED_SIZE = 1 << 20;
+    private static final int ROUNDS = 5;
+    private static final Path THREAD_IO = Path.of("/proc/thread-self/io");
+    private static long[] countingCalls = {0, 0};  // system calls of one reading of the counters
+
+    private interface FrameWriter {
+        void write(SocketChannel channel, byte[] objectBytes) throws IOException;
+    }
+
+    private interface FrameReader {
+        byte[] read(SocketChannel channel) throws IOException;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String[] sizes = args.length > 0 ? args : new String[] {"1024", "65536", "1048576", "52428800"};
+        for (int i = 0; i < 2; i++) { // the first reading loads classes
+            countingCalls = new long[] {0, 0};
+            long[] before = systemCalls();
+            countingCalls = callsSince(before);
+        }
+        try (ServerSocketChannel serverSocket = ServerSocketChannel.open()) {
+            serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            try (SocketChannel reader = SocketChannel.open(serverSocket.getLocalAddress());
+                 SocketChannel writer = serverSocket.accept()) {
+                for (String size : sizes) {
+                    byte[] objectBytes = new byte[Integer.parseInt(size)];
+                    if (objectBytes.length <= MAX_PACKAGED_SIZE)
+                        measure("packages", writer, reader, objectBytes,
+                                FrameBench::writePackages, FrameBench::readPackages);
+                    measure("copied", writer, reader, objectBytes,
+                            FrameBench::writeCopied, NBChannelController::readFrame);
+                    measure("gathering", writer, reader, objectBytes,
+                            NBChannelController::writeFrame, NBChannelController::readFrame);
+                }
+            }
+        }
+    }
+
+    private static void measure(String framing, SocketChannel writer, SocketChannel reader, byte[] objectBytes,
+                                FrameWriter frameWriter, FrameReader frameReader) throws Exception {
+        double millis = 0;
+        long[] readerCalls = {};
+        AtomicLong writerCalls = new AtomicLong();
+        for (int round = 0; round < ROUNDS; round++) { // the last round is reported
+            Thread writing = new Thread(() -> {
+                try {
+                    long[] before = systemCalls();
+                    frameWriter.write(writer, objectBytes);
+                    writerCalls.set(callsSince(before)[1]);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            });
+            long startNanos = System.nanoTime();
+            writing.start();
+            long[] before = systemCalls();
+            byte[] read = frameReader.read(reader);
+            readerCalls = callsSince(before);
+            writing.join();
+            millis = Samples.millisSince(startNanos);
+            if (read.length != objectBytes.length)
+                throw new IllegalStateException("Read " + read.length + " bytes of " + objectBytes.length);
+        }
+        System.out.printf("%9d bytes, %-9s: %9.2f ms, writer %7d write calls, reader %7d read calls%n",
+                objectBytes.length, framing, millis, writerCalls.get(), readerCalls[0]);
+    }
+
+    /**
+     * @return Read and write system calls of the current thread since the given counters,
+     * without the reading of the counters.
+     */
+    private static long[] callsSince(long[] before) throws IOException {
+        long[] after = systemCalls();
+        return new long[] {after[0] - before[0] - countingCalls[0], after[1] - before[1] - countingCalls[1]};
+    }
+
+    /**
+     * @return Read and write system calls of the current thread so far.
+     */
+    private static long[] systemCalls() throws IOException {
+        long reads = 0;
+        long writes = 0;
+        for (String line : Files.readAllLines(THREAD_IO)) {
+            if (line.startsWith("syscr:"))
+                reads = Long.parseLong(line.substring(6).trim());
+            if (line.startsWith("syscw:"))
+                writes = Long.parseLong(line.substring(6).trim());
+        }
+        return new long[] {reads, writes};
+    }
+
+    /**
+     * Framing used before the gathering write: the length and the object copied into one direct buffer.
+     */
+    private static void writeCopied(SocketChannel channel, byte[] objectBytes) throws IOException {
+        ByteBuffer frame = ByteBuffer.allocateDirect(Integer.BYTES + objectBytes.length);
+        writeFully(channel, frame.putInt(objectBytes.length).put(objectBytes).flip());
+    }
+
+    private static void writePackages(SocketChannel channel, byte[] objectBytes) throws IOException {
+        writeFully(channel, ByteBuffer.allocate(Integer.BYTES).putInt(0, objectBytes.length));
+        for (int offset = 0; offset < objectBytes.length; offset += PACKAGE_SIZE) {
+            byte[] objectPackage = new byte[Math.min(PACKAGE_SIZE, objectBytes.length - offset)];
+            System.arraycopy(objectBytes, offset, objectPackage, 0, objectPackage.length);
+            writeFully(channel, ByteBuffer.wrap(objectPackage));
+        }
+    }
+
+    private static byte[] readPackages(SocketChannel channel) throws IOException {
+        ByteBuffer lengthBuffer = readFully(channel, Integer.BYTES);
+        int length = lengthBuffer.getInt(0);
+        byte[] objectBytes = {};
+        for (int offset = 0; offset < length; offset += PACKAGE_SIZE)
+            objectBytes = ArrayUtils.addAll(objectBytes,
+                    readFully(channel, Math.min(PACKAGE_SIZE, length - offset)).array());
+        return objectBytes;
+    }
+
+    private static void writeFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+
+    private static ByteBuffer readFully(SocketChannel channel, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining())
+            channel.read(buffer);
+        return buffer;
+    }
+}
@@ -0,0 +1,81 @@
+package bench;
+
+import data.FuelType;
+import data.Vehicle;
+import data.VehicleStore;
+import processing.EnumIndex;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counts the elements of a fuel type, as count_by_fuel_type does, and selects the keys of the fuel types
+ * below a given one in key order, as filter_less_than_fuel_type does,
+ * through {@link EnumIndex} and by a scan over all elements.
+ * The fastest of several rounds is reported.
+ * Arguments: sizes of the collection, 10000, 100000 and 1000000 by default.
+ * The store is chosen by the system property 'vehicleStore'.
+ */
+public class FuelTypeBench {
+    private static final int ROUNDS = 5;
+    private static volatile long sink; // keeps the results in use
+
+    public static void main(String[] args) {
+        String[] sizes = args.length > 0 ? args : new String[] {"10000", "100000", "1000000"};
+        for (String size : sizes) {
+            int countOfElements = Integer.parseInt(size);
+            VehicleStore store = Samples.fill(VehicleStore.create(), countOfElements);
+            long startNanos = System.nanoTime();
+            EnumIndex<FuelType> fuelTypeIndex = new EnumIndex<>(FuelType.class, store, store::getFuelType);
+            double buildMillis = Samples.millisSince(startNanos);
+            double scanCountMillis = Double.MAX_VALUE;
+            double indexCountMillis = Double.MAX_VALUE;
+            double scanKeysMillis = Double.MAX_VALUE;
+            double indexKeysMillis = Double.MAX_VALUE;
+            EnumSet<FuelType> lessThanNuclear = EnumSet.of(FuelType.ALCOHOL, FuelType.MANPOWER);
+            for (int round = 0; round < ROUNDS; round++) {
+                startNanos = System.nanoTime();
+                sink = scanCount(store, FuelType.MANPOWER);
+                scanCountMillis = Math.min(scanCountMillis, Samples.millisSince(startNanos));
+                long scanned = sink;
+                startNanos = System.nanoTime();
+                sink = fuelTypeIndex.countOf(FuelType.MANPOWER);
+                indexCountMillis = Math.min(indexCountMillis, Samples.millisSince(startNanos));
+                if (sink != scanned)
+                    throw new IllegalStateException("Counted " + scanned + " and " + sink + " elements");
+
+                startNanos = System.nanoTime();
+                List<Long> scannedKeys = scanKeys(store, lessThanNuclear);
+                scanKeysMillis = Math.min(scanKeysMillis, Samples.millisSince(startNanos));
+                startNanos = System.nanoTime();
+                List<Long> indexedKeys = fuelTypeIndex.keysOf(lessThanNuclear);
+                indexKeysMillis = Math.min(indexKeysMillis, Samples.millisSince(startNanos));
+                if (!indexedKeys.equals(scannedKeys))
+                    throw new IllegalStateException("Selected different keys");
+                sink = indexedKeys.size();
+            }
+            System.out.printf("%8d elements: count scan %8.3f ms, counter %7.4f ms; " +
+                            "keys of %d elements below nuclear scan %8.3f ms, merge %8.3f ms; index built in %5.0f ms%n",
+                    countOfElements, scanCountMillis, indexCountMillis, sink, scanKeysMillis, indexKeysMillis,
+                    buildMillis);
+        }
+    }
+
+    private static long scanCount(VehicleStore store, FuelType fuelType) {
+        long count = 0;
+        for (Vehicle vehicle : store.inKeyOrder().values())
+            if (vehicle.getFuelType() == fuelType)
+                count++;
+        return count;
+    }
+
+    private static List<Long> scanKeys(VehicleStore store, EnumSet<FuelType> fuelTypes) {
+        List<Long> keys = new ArrayList<>();
+        for (Map.Entry<Long, Vehicle> element : store.inKeyOrder().entrySet())
+            if (element.getValue().getFuelType() != null && fuelTypes.contains(element.getValue().getFuelType()))
+                keys.add(element.getKey());
+        return keys;
+    }
+}
@@ -0,0 +1,94 @@
+package bench;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import mods.MessageType;
+import processing.BufferedDataBase;
+import utility.MessageHolder;
+
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+/**
+ * Work of the garbage collector for the collection the server keeps: the collection is opened with the chosen
+ * store and all the indexes, then the bench reports the heap it holds and the pause of a full collection,
+ * and the pauses during a churn of updates that replace elements and move them in every index.
+ * Pauses are taken from the notifications of the collectors, the concurrent cycles of a collector are not pauses.
+ * Run it with a small '-Xmx' to see which stores fit a collection larger than the heap budget,
+ * the log is compacted only if '-DwalCompactionSize' is given.
+ * Arguments: name of the store, size of the collection, count of updates of the churn (2000000 by default).
+ */
+public class GcBench {
+    private static long countOfPauses;
+    private static long pauseMillis;
+    private static long longestPauseMillis;
+
+    public static void main(String[] args) throws Exception {
+        String storeName = args[0];
+        int countOfElements = Integer.parseInt(args[1]);
+        int countOfUpdates = args.length > 2 ? Integer.parseInt(args[2]) : 2_000_000;
+        System.setProperty("vehicleStore", storeName);
+        if (System.getProperty("walCompactionSize") == null)
+            System.setProperty("walCompactionSize", String.valueOf(Long.MAX_VALUE));
+        listenToPauses();
+        long heapBefore = StoreBench.usedHeap();
+        long directBefore = StoreBench.usedDirectMemory();
+        long startNanos = System.nanoTime();
+        BufferedDataBase dataBase = Samples.openDataBase(countOfElements);
+        double loadMillis = Samples.millisSince(startNanos);
+        long heapBytes = StoreBench.usedHeap() - heapBefore;
+        long directBytes = StoreBench.usedDirectMemory() - directBefore;
+        startNanos = System.nanoTime();
+        System.gc();
+        double fullCollectionMillis = Samples.millisSince(startNanos);
+        System.out.printf("%s, %d elements with indexes: written and opened in %.0f ms, heap %.0f MB, direct %.0f MB, "
+                        + "full collection %.0f ms%n",
+                storeName, countOfElements, loadMillis, heapBytes / 1e6, directBytes / 1e6, fullCollectionMillis);
+
+        Random random = new Random(2);
+        long[] pausesBefore = pausesSinceLast();
+        startNanos = System.nanoTime();
+        for (int i = 0; i < countOfUpdates; i++) {
+            long id = Samples.FIRST_ID + random.nextInt(countOfElements);
+            dataBase.update(Samples.command("update", String.valueOf(id), Samples.vehicle(random, id)));
+            if (i % 1000 == 0)
+                MessageHolder.clearMessages(MessageType.OUTPUT_INFO);
+        }
+        double churnMillis = Samples.millisSince(startNanos);
+        long[] pausesAfter = pausesSinceLast();
+        System.out.printf("churn of %d updates: %.0f ms, %d pauses, %d ms paused, longest pause %d ms%n",
+                countOfUpdates, churnMillis, pausesAfter[0] - pausesBefore[0], pausesAfter[1] - pausesBefore[1],
+                pausesAfter[2]);
+    }
+
+    private static void listenToPauses() {
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            ((NotificationEmitter) collector).addNotificationListener((notification, handback) -> {
+                if (!notification.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION))
+                    return;
+                GarbageCollectionNotificationInfo info =
+                        GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+                if (info.getGcName().contains("Concurrent") || info.getGcCause().equals("System.gc()"))
+                    return;
+                long duration = info.getGcInfo().getDuration();
+                synchronized (GcBench.class) {
+                    countOfPauses++;
+                    pauseMillis += duration;
+                    longestPauseMillis = Math.max(longestPauseMillis, duration);
+                }
+            }, null, null);
+        }
+    }
+
+    /**
+     * @return Count of pauses and milliseconds spent in them since the start, and the longest pause
+     * since the previous call, without the collections the bench asked for.
+     */
+    private static synchronized long[] pausesSinceLast() {
+        long[] pauses = {countOfPauses, pauseMillis, longestPauseMillis};
+        longestPauseMillis = 0;
+        return pauses;
+    }
+}
@@ -0,0 +1,89 @@
+package bench;
+
+import utility.IdAllocator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Gives ids to a growing collection with every {@link IdAllocator} and with the former generation,
+ * which drew random digits and checked the id against every element of the collection.
+ * Every allocator then gives the same count of ids from several threads at once to another collection.
+ * Arguments: count of ids for the allocators (5000000 by default), for the former generation (20000 by default)
+ * and count of threads (4 by default).
+ */
+public class IdAllocatorBench {
+    private static final String[] ALLOCATORS = {"sequential", "random"};
+    private static final int ID_LENGTH = 10;
+
+    public static void main(String[] args) throws Exception {
+        int countOfIds = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        int countOfScanningIds = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        int countOfThreads = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        Random random = new Random(1);
+        ConcurrentHashMap<Long, Long> usedIds = new ConcurrentHashMap<>();
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < countOfScanningIds; i++)
+            usedIds.put(scanningNextId(random, usedIds), (long) i);
+        report("former scanning", 1, countOfScanningIds, startNanos);
+        for (String allocator : ALLOCATORS) {
+            System.setProperty("idAllocator", allocator);
+            for (int threads : new int[] {1, countOfThreads}) {
+                IdAllocator idAllocator = IdAllocator.create(0);
+                usedIds = new ConcurrentHashMap<>(countOfIds * 2);
+                startNanos = System.nanoTime();
+                allocate(idAllocator, usedIds, countOfIds, threads);
+                report(allocator, threads, countOfIds, startNanos);
+                if (usedIds.size() != countOfIds)
+                    throw new IllegalStateException("Ids given twice: " + (countOfIds - usedIds.size()));
+            }
+        }
+    }
+
+    private static void allocate(IdAllocator idAllocator, ConcurrentHashMap<Long, Long> usedIds,
+                                 int countOfIds, int countOfThreads) throws Exception {
+        ExecutorService threads = Executors.newFixedThreadPool(countOfThreads);
+        List<Future<?>> results = new ArrayList<>();
+        for (int thread = 0; thread < countOfThreads; thread++) {
+            long firstElement = (long) thread * countOfIds / countOfThreads;
+            long lastElement = (long) (thread + 1) * countOfIds / countOfThreads;
+            results.add(threads.submit(() -> {
+                for (long element = firstElement; element < lastElement; element++)
+                    usedIds.put(idAllocator.nextId(usedIds::containsKey), element);
+            }));
+        }
+        for (Future<?> result : results)
+            result.get();
+        threads.shutdown();
+    }
+
+    private static long scanningNextId(Random random, ConcurrentHashMap<Long, Long> usedIds) {
+        long id;
+        do {
+            StringBuilder digits = new StringBuilder(ID_LENGTH);
+            digits.append(1 + random.nextInt(9));
+            for (int i = 1; i < ID_LENGTH; i++)
+                digits.append(random.nextInt(10));
+            id = Long.parseLong(digits.toString());
+        } while (isUsed(id, usedIds));
+        return id;
+    }
+
+    private static boolean isUsed(long id, ConcurrentHashMap<Long, Long> usedIds) {
+        for (long usedId : usedIds.keySet())
+            if (usedId == id)
+                return true;
+        return false;
+    }
+
+    private static void report(String generation, int countOfThreads, int countOfIds, long startNanos) {
+        double millis = Samples.millisSince(startNanos);
+        System.out.printf("%-16s %2d threads %8d ids in %8.0f ms, %10.0f ids/s%n",
+                generation, countOfThreads, countOfIds, millis, countOfIds / millis * 1000);
+    }
+}
@@ -0,0 +1,116 @@
+package bench;
+
+import commands.UpdateCommand;
+import data.VehicleStore;
+import mods.MessageType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import processing.BufferedDataBase;
+import utility.CommandArguments;
+import utility.IdentifierHandler;
+import utility.MessageHolder;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finds the key of an element by its id, as update does, through the id index of {@link IdentifierHandler}
+ * and by the former scan over all elements, and samples the latency of the whole 'update id' command,
+ * which finds the key by the index and moves the element in every index of the collection.
+ * The updates run on a collection written to the file of the 'SAVE_PATH' variable, which is overwritten,
+ * with the 'periodic' sync of the log, so the forces of the log do not hide the work of the indexes.
+ * Run: {@code java -jar bench/target/benchmarks.jar IdIndexBench}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-DwalSync=periodic")
+public class IdIndexBench {
+    private static final int PREPARED_COMMANDS = 1 << 16;
+
+    @State(Scope.Benchmark)
+    public static class Lookups {
+        @Param({"10000", "100000", "1000000"})
+        public int countOfElements;
+        private VehicleStore store;
+        private IdentifierHandler identifierHandler;
+        private final Random random = new Random(2);
+
+        @Setup
+        public void fill() {
+            store = Samples.fill(VehicleStore.create(), countOfElements);
+            identifierHandler = new IdentifierHandler(store);
+        }
+
+        long nextId() {
+            return Samples.FIRST_ID + random.nextInt(countOfElements);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Updates {
+        @Param({"10000", "100000", "1000000"})
+        public int countOfElements;
+        private BufferedDataBase dataBase;
+        private final CommandArguments[] commands = new CommandArguments[PREPARED_COMMANDS];
+        private int next;
+
+        @Setup
+        public void open() throws IOException {
+            dataBase = Samples.openDataBase(countOfElements);
+            Random random = new Random(3);
+            for (int i = 0; i < commands.length; i++) {
+                long id = Samples.FIRST_ID + random.nextInt(countOfElements);
+                commands[i] = Samples.command(UpdateCommand.getName(), String.valueOf(id),
+                        Samples.vehicle(random, id));
+            }
+        }
+
+        CommandArguments nextCommand() {
+            next = (next + 1) & (PREPARED_COMMANDS - 1);
+            return commands[next];
+        }
+    }
+
+    @Benchmark
+    public long indexLookup(Lookups lookups) {
+        return lookups.identifierHandler.getKeyById(lookups.nextId());
+    }
+
+    @Benchmark
+    @Measurement(iterations = 3, time = 1)
+    public long scanLookup(Lookups lookups) {
+        return scanForKey(lookups.store, lookups.nextId());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public boolean update(Updates updates) {
+        boolean isUpdated = updates.dataBase.update(updates.nextCommand());
+        if (!isUpdated)
+            throw new IllegalStateException("Update failed: " + MessageHolder.getUserErrors());
+        MessageHolder.clearMessages(MessageType.OUTPUT_INFO); // as the server does after every command
+        return isUpdated;
+    }
+
+    private static long scanForKey(VehicleStore store, long id) {
+        long[] foundKey = {-1};
+        store.forEachKey(key -> {
+            if (store.getId(key) == id)
+                foundKey[0] = key;
+        });
+        return foundKey[0];
+    }
+}
@@ -0,0 +1,89 @@
+package bench;
+
+import commands.InfoCommand;
+import mods.ClientRequestType;
+import mods.ExecuteMode;
+import processing.BinaryCodec;
+import processing.NBChannelController;
+import processing.WireCodec;
+import utility.CommandArguments;
+import utility.ServerAnswer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency of 'info' while another client keeps the server busy with a long reading command.
+ * The info client measures alone first, then with the long command repeated by a second connection,
+ * so the percentiles show whether the long command holds the cheap one back.
+ * Start the server on a collection large enough for the long command to take a while.
+ * Arguments: host, port, count of info requests, words of the long command ('filter engine_power>=1' by default).
+ */
+public class InfoLatencyBench {
+    public static void main(String[] args) throws Exception {
+        String host = args[0];
+        int port = Integer.parseInt(args[1]);
+        int countOfRequests = Integer.parseInt(args[2]);
+        String[] longCommand = args.length > 3 ?
+                Arrays.copyOfRange(args, 3, args.length) : new String[] {"filter", "engine_power>=1"};
+        report("alone", measure(host, port, countOfRequests));
+
+        AtomicBoolean isRunning = new AtomicBoolean(true);
+        AtomicLong countOfLongCommands = new AtomicLong();
+        Thread scanner = new Thread(() -> {
+            try (SocketChannel channel = SocketChannel.open(new InetSocketAddress(host, port))) {
+                WireCodec codec = NBChannelController.clientHandshake(channel, new BinaryCodec());
+                for (long requestId = 1; isRunning.get(); requestId++) {
+                    NBChannelController.write(channel, codec, request(longCommand[0],
+                            Arrays.copyOfRange(longCommand, 1, longCommand.length), requestId));
+                    NBChannelController.read(channel, codec);
+                    countOfLongCommands.incrementAndGet();
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }, "long-command");
+        scanner.start();
+        while (countOfLongCommands.get() == 0 && scanner.isAlive())
+            Thread.sleep(10);
+        long[] latencies = measure(host, port, countOfRequests);
+        isRunning.set(false);
+        scanner.join();
+        report(String.format("next to %d runs of '%s'", countOfLongCommands.get(), String.join(" ", longCommand)),
+                latencies);
+    }
+
+    private static long[] measure(String host, int port, int countOfRequests) throws IOException {
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress(host, port))) {
+            WireCodec codec = NBChannelController.clientHandshake(channel, new BinaryCodec());
+            long[] latencies = new long[countOfRequests];
+            for (int i = 0; i < countOfRequests; i++) {
+                long sentNanos = System.nanoTime();
+                NBChannelController.write(channel, codec, request(InfoCommand.getName(), new String[] {}, i + 1));
+                ServerAnswer answer = (ServerAnswer) NBChannelController.read(channel, codec);
+                latencies[i] = System.nanoTime() - sentNanos;
+                if (answer.requestId() != i + 1 || !answer.commandExitStatus())
+                    throw new IllegalStateException("Info failed: " + answer.userErrors());
+            }
+            return latencies;
+        }
+    }
+
+    private static CommandArguments request(String commandName, String[] arguments, long requestId) {
+        CommandArguments request = new CommandArguments(commandName, arguments, null,
+                ClientRequestType.COMMAND_EXECUTION, ExecuteMode.COMMAND_MODE);
+        request.setRequestId(requestId);
+        return request;
+    }
+
+    private static void report(String condition, long[] latencies) {
+        Arrays.sort(latencies);
+        System.out.printf("info %s: p50 %.2f ms, p99 %.2f ms, max %.2f ms%n", condition,
+                latencies[latencies.length / 2] / 1e6, latencies[latencies.length * 99 / 100] / 1e6,
+                latencies[latencies.length - 1] / 1e6);
+    }
+}
@@ -0,0 +1,119 @@
+package bench;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import data.MapVehicleStore;
+import data.Vehicle;
+import data.VehicleStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import utility.JsonReader;
+import utility.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads and writes the collection as json with the hand-written adapters, through {@link JsonReader}
+ * and {@link JsonWriter}, and with the reflective binding of Gson, on the same text held in memory.
+ * Bytes allocated per operation are shown by the gc profiler:
+ * {@code java -jar bench/target/benchmarks.jar JsonBench -prof gc}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonBench {
+    @Param({"adapters", "reflection"})
+    public String bindingName;
+    @Param({"100000"})
+    public int countOfElements;
+    private Binding binding;
+    private String json;
+    private VehicleStore store;
+
+    private interface Binding {
+        VehicleStore read(String json) throws IOException;
+
+        String write(VehicleStore store) throws IOException;
+    }
+
+    private static class Adapters implements Binding {
+        public VehicleStore read(String json) throws IOException {
+            VehicleStore store = new MapVehicleStore();
+            new JsonReader(new StringReader(json)).readDataBase(store::put);
+            return store;
+        }
+
+        public String write(VehicleStore store) throws IOException {
+            StringWriter writer = new StringWriter();
+            new JsonWriter(store.inKeyOrder()).writeDataBase(writer);
+            return writer.toString();
+        }
+    }
+
+    private static class Reflection implements Binding {
+        private final Gson gson = new Gson();
+        private final TypeAdapter<Vehicle> vehicleAdapter = gson.getAdapter(Vehicle.class);
+
+        public VehicleStore read(String json) throws IOException {
+            VehicleStore store = new MapVehicleStore();
+            com.google.gson.stream.JsonReader jsonReader = gson.newJsonReader(new StringReader(json));
+            jsonReader.beginObject();
+            while (jsonReader.hasNext())
+                store.put(Long.parseLong(jsonReader.nextName()), vehicleAdapter.read(jsonReader));
+            jsonReader.endObject();
+            return store;
+        }
+
+        public String write(VehicleStore store) throws IOException {
+            StringWriter writer = new StringWriter();
+            com.google.gson.stream.JsonWriter jsonWriter = gson.newJsonWriter(writer);
+            jsonWriter.beginObject();
+            for (Map.Entry<Long, Vehicle> entry : store.inKeyOrder().entrySet()) {
+                jsonWriter.name(String.valueOf(entry.getKey()));
+                vehicleAdapter.write(jsonWriter, entry.getValue());
+            }
+            jsonWriter.endObject();
+            jsonWriter.flush();
+            return writer.toString();
+        }
+    }
+
+    @Setup
+    public void writeCollection() throws IOException {
+        binding = switch (bindingName) {
+            case "adapters" -> new Adapters();
+            case "reflection" -> new Reflection();
+            default -> throw new IllegalArgumentException("Unknown binding: " + bindingName);
+        };
+        store = Samples.fill(new MapVehicleStore(), countOfElements);
+        json = new Adapters().write(store);
+        if (!binding.write(binding.read(json)).equals(json))
+            throw new IllegalStateException("The bindings do not give the same json");
+    }
+
+    @Benchmark
+    public VehicleStore read() throws IOException {
+        return binding.read(json);
+    }
+
+    @Benchmark
+    public String write() throws IOException {
+        return binding.write(store);
+    }
+}
@@ -0,0 +1,85 @@
+package bench;
+
+import data.Vehicle;
+import data.VehicleStore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reads a page of elements in key order, as show does, and removes the elements above a key, as remove_greater_key does,
+ * from the sorted store and from a hash map copied into a {@link TreeMap} as before.
+ * The fastest of several rounds is reported.
+ * Arguments: sizes of the collection, 10000, 100000 and 1000000 by default.
+ * The store is chosen by the system property 'vehicleStore'.
+ */
+public class KeyOrderBench {
+    private static final int PAGE_SIZE = 100;
+    private static final int ROUNDS = 10;
+    private static volatile int sink; // keeps the read pages in use
+
+    public static void main(String[] args) {
+        String[] sizes = args.length > 0 ? args : new String[] {"10000", "100000", "1000000"};
+        for (String size : sizes) {
+            int countOfElements = Integer.parseInt(size);
+            VehicleStore store = Samples.fill(VehicleStore.create(), countOfElements);
+            ConcurrentHashMap<Long, Vehicle> hashMap = new ConcurrentHashMap<>(store.inKeyOrder());
+            long middleKey = countOfElements / 2 * 7L;
+            double copyingMillis = Double.MAX_VALUE;
+            double sortedMillis = Double.MAX_VALUE;
+            for (int round = 0; round < ROUNDS; round++) {
+                long startNanos = System.nanoTime();
+                sink = copyingPage(hashMap, middleKey).size();
+                copyingMillis = Math.min(copyingMillis, Samples.millisSince(startNanos));
+                startNanos = System.nanoTime();
+                sink = sortedPage(store, middleKey).size();
+                sortedMillis = Math.min(sortedMillis, Samples.millisSince(startNanos));
+            }
+            double copyingRemoveMillis = Double.MAX_VALUE;
+            double sortedRemoveMillis = Double.MAX_VALUE;
+            int countOfRemoved = countOfElements / 100;
+            for (int round = 1; round <= ROUNDS; round++) { // every round removes the last percent of what is left
+                long greatestKeptKey = (countOfElements - round * countOfRemoved - 1) * 7L;
+                long startNanos = System.nanoTime();
+                int copyingRemoved = copyingRemoveAfter(hashMap, greatestKeptKey);
+                copyingRemoveMillis = Math.min(copyingRemoveMillis, Samples.millisSince(startNanos));
+                startNanos = System.nanoTime();
+                int sortedRemoved = store.removeKeysAfter(greatestKeptKey, key -> { });
+                sortedRemoveMillis = Math.min(sortedRemoveMillis, Samples.millisSince(startNanos));
+                if (copyingRemoved != countOfRemoved || sortedRemoved != countOfRemoved)
+                    throw new IllegalStateException("Removed " + copyingRemoved + " and " + sortedRemoved);
+            }
+            System.out.printf("%8d elements: show page copying %8.3f ms, sorted %6.3f ms; " +
+                            "remove %d greater keys copying %8.3f ms, sorted %6.3f ms%n",
+                    countOfElements, copyingMillis, sortedMillis,
+                    countOfRemoved, copyingRemoveMillis, sortedRemoveMillis);
+        }
+    }
+
+    private static List<Vehicle> copyingPage(Map<Long, Vehicle> hashMap, long afterKey) {
+        List<Vehicle> page = new ArrayList<>(PAGE_SIZE);
+        for (Vehicle vehicle : new TreeMap<>(hashMap).tailMap(afterKey, false).values()) {
+            if (page.size() == PAGE_SIZE)
+                break;
+            page.add(vehicle);
+        }
+        return page;
+    }
+
+    private static List<Vehicle> sortedPage(VehicleStore store, long afterKey) {
+        List<Vehicle> page = new ArrayList<>(PAGE_SIZE);
+        for (long key : store.keysAfter(afterKey, PAGE_SIZE))
+            page.add(store.get(key));
+        return page;
+    }
+
+    private static int copyingRemoveAfter(Map<Long, Vehicle> hashMap, long afterKey) {
+        List<Long> greaterKeys = new ArrayList<>(new TreeMap<>(hashMap).tailMap(afterKey, false).keySet());
+        for (long key : greaterKeys)
+            hashMap.remove(key);
+        return greaterKeys.size();
+    }
+}
@@ -0,0 +1,144 @@
+package bench;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import data.Vehicle;
+import data.VehicleStore;
+import utility.JsonReader;
+import utility.JsonWriter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Loads a generated collection file of about 1 GB with the streaming {@link JsonReader} into the store
+ * chosen by the system property 'vehicleStore', as the server does, or as before,
+ * reading the whole text into a string and binding it to a map by reflection.
+ * Prints the time, the peak of the heap during the load, summed over the heap pools, and the heap and direct memory
+ * retained by the loaded collection, all above the memory used before the load;
+ * run every way in its own JVM with the heap the server would get.
+ * The file is generated element by element without holding the collection, once for every size,
+ * and kept in the temporary directory for the next runs.
+ * Arguments: 'streaming' or 'former', size of the collection (4250000 by default, about 1 GB).
+ */
+public class LoadBench {
+    private static volatile Object sink; // keeps the collection until the retained heap is measured
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String way = args[0];
+        int countOfElements = args.length > 1 ? Integer.parseInt(args[1]) : 4_250_000;
+        Path file = generate(countOfElements);
+        long heapBefore = StoreBench.usedHeap();
+        long directBefore = StoreBench.usedDirectMemory();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+            pool.resetPeakUsage();
+        long startNanos = System.nanoTime();
+        Object collection;
+        try {
+            collection = switch (way) {
+                case "streaming" -> loadStreaming(file);
+                case "former" -> loadFormer(file);
+                default -> throw new IllegalArgumentException("Unknown way of loading: " + way);
+            };
+        } catch (OutOfMemoryError e) {
+            collection = null;
+        }
+        double millis = Samples.millisSince(startNanos);
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+            if (pool.getType() == MemoryType.HEAP)
+                peakHeap += pool.getPeakUsage().getUsed();
+        long retainedHeap = StoreBench.usedHeap() - heapBefore;
+        long retainedDirect = StoreBench.usedDirectMemory() - directBefore;
+        System.out.printf("%-9s %d elements from %.0f MB, max heap %.0f MB: %s in %.0f ms, " +
+                        "heap peak %.0f MB, retained heap %.0f MB, direct %.0f MB%n",
+                way, countOfElements, Files.size(file) / 1e6, Runtime.getRuntime().maxMemory() / 1e6,
+                collection == null ? "out of memory" : "loaded", millis,
+                (peakHeap - heapBefore) / 1e6, retainedHeap / 1e6, retainedDirect / 1e6);
+        sink = collection;
+    }
+
+    /**
+     * @return File with the collection filled as by {@link Samples#fill(VehicleStore, int)}.
+     */
+    private static Path generate(int countOfElements) throws IOException {
+        Path file = Path.of(System.getProperty("java.io.tmpdir"), "collection-" + countOfElements + ".json");
+        if (Files.exists(file))
+            return file;
+        Path temporaryFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temporaryFile, StandardCharsets.UTF_8)) {
+            new JsonWriter(generated(countOfElements)).writeDataBase(writer);
+        }
+        return Files.move(temporaryFile, file, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return Map that makes its elements while it is iterated, in key order.
+     */
+    private static Map<Long, Vehicle> generated(int countOfElements) {
+        return new AbstractMap<>() {
+            @Override
+            public Set<Entry<Long, Vehicle>> entrySet() {
+                return new AbstractSet<>() {
+                    @Override
+                    public Iterator<Entry<Long, Vehicle>> iterator() {
+                        Random random = new Random(1);
+                        return new Iterator<>() {
+                            private int next;
+
+                            @Override
+                            public boolean hasNext() {
+                                return next < countOfElements;
+                            }
+
+                            @Override
+                            public Entry<Long, Vehicle> next() {
+                                Vehicle vehicle = Samples.vehicle(random, Samples.FIRST_ID + next);
+                                return new SimpleImmutableEntry<>(next++ * 7L, vehicle);
+                            }
+                        };
+                    }
+
+                    @Override
+                    public int size() {
+                        return countOfElements;
+                    }
+                };
+            }
+        };
+    }
+
+    private static VehicleStore loadStreaming(Path file) throws IOException {
+        VehicleStore store = StoreBench.create(System.getProperty("vehicleStore", "map"));
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            new JsonReader(reader).readDataBase(store::put);
+        }
+        return store;
+    }
+
+    private static ConcurrentHashMap<Long, Vehicle> loadFormer(Path file) throws IOException {
+        StringBuilder text = new StringBuilder();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null)
+                text.append(line).append("\n");
+        }
+        return new Gson().fromJson(text.toString(), new TypeToken<ConcurrentHashMap<Long, Vehicle>>() {}.getType());
+    }
+}
@@ -0,0 +1,66 @@
+package bench;
+
+import commands.InsertCommand;
+import commands.SaveCommand;
+import processing.BufferedDataBase;
+import utility.FileHandler;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Cost of a durable change with the write-ahead log next to the cost of saving the whole collection,
+ * which every change needed to be durable before the log.
+ * Each insert waits until its record is forced, the collection is then saved once by 'save'.
+ * Run it with '-DwalSync' to choose the sync policy, 'always' by default; the log is not compacted meanwhile.
+ * Arguments: count of inserts, sizes of the collection, 10000, 100000 and 1000000 by default.
+ */
+public class LogBench {
+    public static void main(String[] args) throws Exception {
+        int countOfInserts = Integer.parseInt(args[0]);
+        String[] sizes = args.length > 1 ? Arrays.copyOfRange(args, 1, args.length) :
+                new String[] {"10000", "100000", "1000000"};
+        if (System.getProperty("walSync") == null)
+            System.setProperty("walSync", "always");
+        if (System.getProperty("walCompactionSize") == null)
+            System.setProperty("walCompactionSize", String.valueOf(Long.MAX_VALUE));
+        for (String size : sizes) {
+            int countOfElements = Integer.parseInt(size);
+            BufferedDataBase dataBase = Samples.openDataBase(countOfElements);
+            Random random = new Random(4);
+            long logSizeBefore = logSize();
+            long startNanos = System.nanoTime();
+            for (int i = 0; i < countOfInserts; i++) {
+                dataBase.insert(Samples.command(InsertCommand.getName(), String.valueOf(7L * countOfElements + i),
+                        Samples.vehicle(random, Samples.FIRST_ID + countOfElements + i)));
+                if (!dataBase.durableChanges().join())
+                    throw new IllegalStateException("Insert is not durable");
+            }
+            double insertMillis = Samples.millisSince(startNanos) / countOfInserts;
+            long recordSize = (logSize() - logSizeBefore) / countOfInserts;
+
+            startNanos = System.nanoTime();
+            if (!dataBase.save(Samples.command(SaveCommand.getName())))
+                throw new IllegalStateException("Collection is not saved");
+            double saveMillis = Samples.millisSince(startNanos);
+            System.out.printf("%8d elements: durable insert %.3f ms, %d bytes of log; " +
+                            "save of the collection %.0f ms, %.0f MB%n", countOfElements, insertMillis, recordSize,
+                    saveMillis, Files.size(FileHandler.getDataBasePath()) / 1e6);
+        }
+    }
+
+    private static long logSize() throws IOException {
+        Path dataBasePath = FileHandler.getDataBasePath();
+        long size = 0;
+        try (DirectoryStream<Path> logSegments =
+                     Files.newDirectoryStream(dataBasePath.getParent(), dataBasePath.getFileName() + ".*.wal")) {
+            for (Path logSegment : logSegments)
+                size += Files.size(logSegment);
+        }
+        return size;
+    }
+}
@@ -0,0 +1,70 @@
+package bench;
+
+import commands.RemoveKeyCommand;
+import processing.BinaryCodec;
+import processing.NBChannelController;
+import processing.WireCodec;
+import utility.CommandArguments;
+import utility.ServerAnswer;
+
+import java.net.InetSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+
+/**
+ * One client sends the same count of commands with different counts of requests in flight,
+ * a depth of one waits for every answer before the next request as the client did before pipelining.
+ * Answers are checked to come in the order of the requests.
+ * The commands remove keys that are not in the collection, so the collection is not changed.
+ * Arguments: host, port, count of commands, pipeline depths (1, 4, 16 and 64 by default).
+ */
+public class PipelineBench {
+    private static final long FIRST_KEY = 9_000_000_000L;
+    private static final int ROUNDS = 2; // the first round warms up
+
+    public static void main(String[] args) throws Exception {
+        String host = args[0];
+        int port = Integer.parseInt(args[1]);
+        int countOfCommands = Integer.parseInt(args[2]);
+        String[] depths = args.length > 3 ?
+                Arrays.copyOfRange(args, 3, args.length) : new String[] {"1", "4", "16", "64"};
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress(host, port))) {
+            channel.socket().setTcpNoDelay(true);
+            WireCodec codec = NBChannelController.clientHandshake(channel, new BinaryCodec());
+            long requestId = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                for (String depth : depths) {
+                    int inFlightLimit = Integer.parseInt(depth);
+                    long startNanos = System.nanoTime();
+                    long firstRequestId = requestId + 1;
+                    long expectedId = firstRequestId;
+                    for (int sent = 0; sent < countOfCommands; sent++) {
+                        if (requestId - expectedId + 1 == inFlightLimit)
+                            expectedId = receive(channel, codec, expectedId);
+                        CommandArguments request =
+                                Samples.command(RemoveKeyCommand.getName(), String.valueOf(FIRST_KEY + sent));
+                        request.setRequestId(++requestId);
+                        NBChannelController.write(channel, codec, request);
+                    }
+                    while (expectedId <= requestId)
+                        expectedId = receive(channel, codec, expectedId);
+                    double millis = Samples.millisSince(startNanos);
+                    if (round == ROUNDS - 1)
+                        System.out.printf("depth %3d: %d commands in %6.0f ms, %8.0f commands/s%n",
+                                inFlightLimit, expectedId - firstRequestId, millis, countOfCommands / millis * 1000);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Id of the request whose answer comes next.
+     */
+    private static long receive(SocketChannel channel, WireCodec codec, long expectedId) throws Exception {
+        ServerAnswer answer = (ServerAnswer) NBChannelController.read(channel, codec);
+        if (answer.requestId() != expectedId)
+            throw new IllegalStateException(String.format("Answer to %d came instead of %d",
+                    answer.requestId(), expectedId));
+        return expectedId + 1;
+    }
+}
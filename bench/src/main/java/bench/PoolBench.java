@@ -0,0 +1,115 @@
+package bench;
+
+import processing.BufferPool;
+import processing.NBChannelController;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Random;
+
+/**
+ * Reads a sustained stream of frames of mixed sizes over a loopback connection into buffers of a {@link BufferPool},
+ * as the server does, and into heap buffers allocated for the length field and the object of every frame,
+ * as it did before the pool.
+ * Prints the rate, the bytes allocated by the reading thread per frame, the collections meanwhile
+ * and, for the pool, its hit rate and the bytes it holds.
+ * Arguments: count of frames, largest object in bytes (64 KB by default).
+ */
+public class PoolBench {
+    private static final int LENGTH_FIELD_SIZE = Integer.BYTES;
+    private static final int ROUNDS = 2; // the first round warms up
+
+    private interface FrameReader {
+        void read(SocketChannel channel) throws IOException;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int countOfFrames = Integer.parseInt(args[0]);
+        int maxObjectSize = args.length > 1 ? Integer.parseInt(args[1]) : 1 << 16;
+        Random random = new Random(7);
+        byte[][] objects = new byte[64][];
+        for (int i = 0; i < objects.length; i++)
+            objects[i] = new byte[1 + random.nextInt(maxObjectSize)];
+        BufferPool pool = new BufferPool(maxObjectSize + LENGTH_FIELD_SIZE, 64L << 20);
+        ByteBuffer lengthBuffer = ByteBuffer.allocateDirect(LENGTH_FIELD_SIZE);
+        try (ServerSocketChannel serverSocket = ServerSocketChannel.open()) {
+            serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            try (SocketChannel reader = SocketChannel.open(serverSocket.getLocalAddress());
+                 SocketChannel writer = serverSocket.accept()) {
+                for (int round = 0; round < ROUNDS; round++) {
+                    boolean isReported = round == ROUNDS - 1;
+                    measure("allocated", isReported, writer, reader, objects, countOfFrames, channel -> {
+                        ByteBuffer length = ByteBuffer.allocate(LENGTH_FIELD_SIZE);
+                        readFully(channel, length);
+                        readFully(channel, ByteBuffer.allocate(length.getInt(0)));
+                    });
+                    measure("pooled", isReported, writer, reader, objects, countOfFrames, channel -> {
+                        readFully(channel, lengthBuffer.clear());
+                        ByteBuffer objectBuffer = pool.acquire(lengthBuffer.getInt(0));
+                        try {
+                            readFully(channel, objectBuffer);
+                        } finally {
+                            pool.release(objectBuffer);
+                        }
+                    });
+                }
+            }
+        }
+        System.out.printf("pool hit rate %.1f%%, %.1f MB held, %d buffers dropped%n",
+                pool.getHitRate() * 100, pool.getBytesHeld() / 1e6, pool.getDroppedBuffers());
+    }
+
+    private static void measure(String name, boolean isReported, SocketChannel writer, SocketChannel reader,
+                                byte[][] objects, int countOfFrames, FrameReader frameReader) throws Exception {
+        Thread writing = new Thread(() -> {
+            try {
+                for (int i = 0; i < countOfFrames; i++)
+                    NBChannelController.writeFrame(writer, objects[i % objects.length]);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }, "writer");
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long[] collectionsBefore = collections();
+        long startBytes = threads.getCurrentThreadAllocatedBytes();
+        long startNanos = System.nanoTime();
+        writing.start();
+        for (int i = 0; i < countOfFrames; i++)
+            frameReader.read(reader);
+        double millis = Samples.millisSince(startNanos);
+        long allocatedBytes = threads.getCurrentThreadAllocatedBytes() - startBytes;
+        writing.join();
+        long[] collectionsAfter = collections();
+        if (isReported)
+            System.out.printf("%-9s: %d frames in %5.0f ms, %7.0f frames/s, %8.0f bytes allocated per frame, " +
+                            "%d collections in %d ms%n", name, countOfFrames, millis, countOfFrames / millis * 1000,
+                    (double) allocatedBytes / countOfFrames, collectionsAfter[0] - collectionsBefore[0],
+                    collectionsAfter[1] - collectionsBefore[1]);
+    }
+
+    /**
+     * @return Count of collections and their total time in ms, summed over the collectors.
+     */
+    private static long[] collections() {
+        long[] collections = {0, 0};
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            collections[0] += collector.getCollectionCount();
+            collections[1] += collector.getCollectionTime();
+        }
+        return collections;
+    }
+
+    private static void readFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) == -1)
+                throw new IOException("Channel closed");
+        }
+    }
+}
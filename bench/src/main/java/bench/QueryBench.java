@@ -0,0 +1,81 @@
+package bench;
+
+import commands.CountByDistanceTravelledCommand;
+import commands.CountByEnginePowerCommand;
+import commands.CountByFuelTypeCommand;
+import commands.FilterCommand;
+import mods.MessageType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import processing.BufferedDataBase;
+import utility.CommandArguments;
+import utility.MessageHolder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Answers the counting commands and a selective filter on the map store, through the indexes on the heap,
+ * and on the columnar store, by scans of its columns.
+ * The collection is written to the file of the 'SAVE_PATH' variable, which is overwritten.
+ * Run: {@code java -jar bench/target/benchmarks.jar QueryBench}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryBench {
+    @Param({"map", "columnar"})
+    public String vehicleStore;
+    @Param({"1000000"})
+    public int countOfElements;
+    private BufferedDataBase dataBase;
+    private final CommandArguments countByEnginePower = Samples.command(CountByEnginePowerCommand.getName(), "500");
+    private final CommandArguments countByDistance =
+            Samples.command(CountByDistanceTravelledCommand.getName(), "500000", "505000");
+    private final CommandArguments countByFuelType = Samples.command(CountByFuelTypeCommand.getName(), "2");
+    private final CommandArguments filter = Samples.command(FilterCommand.getName(),
+            "fuel_type=3", "and", "vehicle_type=2", "and", "engine_power>=100", "and", "engine_power<=102");
+
+    @Setup
+    public void open() throws IOException {
+        System.setProperty("vehicleStore", vehicleStore);
+        dataBase = Samples.openDataBase(countOfElements);
+    }
+
+    @Benchmark
+    public boolean countByEnginePower() {
+        return answered(dataBase.countByEnginePower(countByEnginePower));
+    }
+
+    @Benchmark
+    public boolean countByDistanceTravelled() {
+        return answered(dataBase.countByDistanceTravelled(countByDistance));
+    }
+
+    @Benchmark
+    public boolean countByFuelType() {
+        return answered(dataBase.countByFuelType(countByFuelType));
+    }
+
+    @Benchmark
+    public boolean filter() {
+        return answered(dataBase.filter(filter));
+    }
+
+    private static boolean answered(boolean isDone) {
+        MessageHolder.clearMessages(MessageType.OUTPUT_INFO); // as the server does after every command
+        return isDone;
+    }
+}
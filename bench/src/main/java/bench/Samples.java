@@ -0,0 +1,108 @@
+package bench;
+
+import data.Coordinates;
+import data.FuelType;
+import data.Vehicle;
+import data.VehicleStore;
+import data.VehicleType;
+import mods.ClientRequestType;
+import mods.ExecuteMode;
+import processing.BufferedDataBase;
+import utility.CommandArguments;
+import utility.FileHandler;
+import utility.JsonWriter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Requests and elements the harnesses are built from.
+ */
+public class Samples {
+    public static final long FIRST_ID = 1_000_000_000L;
+    private static final String CREATION_DATE = "02/04/2023 - 13:30:07 MSK";
+
+    private Samples() {
+    }
+
+    public static CommandArguments command(String commandName, String... arguments) {
+        return new CommandArguments(commandName, arguments, null,
+                ClientRequestType.COMMAND_EXECUTION, ExecuteMode.COMMAND_MODE);
+    }
+
+    /**
+     * @return Command with the changeable fields of the element as extra arguments, as the client sends it.
+     */
+    public static CommandArguments command(String commandName, String argument, Vehicle vehicle) {
+        String[] fields = {vehicle.getName(), String.valueOf(vehicle.getCoordinates().getX()),
+                String.valueOf(vehicle.getCoordinates().getY()), String.valueOf(vehicle.getEnginePower()),
+                String.valueOf(vehicle.getDistanceTravelled()), vehicle.getType().name(), vehicle.getFuelType().name()};
+        return new CommandArguments(commandName, new String[] {argument}, fields,
+                ClientRequestType.COMMAND_EXECUTION, ExecuteMode.COMMAND_MODE);
+    }
+
+    /**
+     * @return Element with the given id and random fields, engine power is below 1000,
+     * distance travelled is below 1000000.
+     */
+    public static Vehicle vehicle(Random random, long id) {
+        return vehicle(random, id, "vehicle-" + id);
+    }
+
+    private static Vehicle vehicle(Random random, long id, String name) {
+        return new Vehicle(id, name, new Coordinates(random.nextFloat(), random.nextDouble()),
+                CREATION_DATE, 1 + random.nextInt(999), random.nextInt(1_000_000),
+                VehicleType.values()[random.nextInt(VehicleType.values().length)],
+                FuelType.values()[random.nextInt(FuelType.values().length)]);
+    }
+
+    /**
+     * Fills the store with elements under the keys 0, 7, 14 and so on, their ids go up from {@link #FIRST_ID}.
+     */
+    public static VehicleStore fill(VehicleStore store, int countOfElements) {
+        return fill(store, countOfElements, countOfElements);
+    }
+
+    /**
+     * Same as {@link #fill(VehicleStore, int)}, but the elements share the given count of names.
+     */
+    public static VehicleStore fill(VehicleStore store, int countOfElements, int countOfNames) {
+        Random random = new Random(1);
+        for (int i = 0; i < countOfElements; i++)
+            store.put(i * 7L, vehicle(random, FIRST_ID + i, "vehicle-" + i % countOfNames));
+        return store;
+    }
+
+    /**
+     * Writes a collection filled by {@link #fill(VehicleStore, int)} to the file of the 'SAVE_PATH' variable,
+     * element by element, drops its log and opens it with all the indexes, as the server does.
+     */
+    public static BufferedDataBase openDataBase(int countOfElements) throws IOException {
+        Path dataBasePath = FileHandler.getDataBasePath();
+        try (DirectoryStream<Path> logSegments =
+                     Files.newDirectoryStream(dataBasePath.getParent(), dataBasePath.getFileName() + ".*.wal")) {
+            for (Path logSegment : logSegments)
+                Files.delete(logSegment);
+        }
+        try (Writer writer = Files.newBufferedWriter(dataBasePath, StandardCharsets.UTF_8)) {
+            JsonWriter.writeDataBase(writer, consumer -> {
+                Random random = new Random(1);
+                for (int i = 0; i < countOfElements; i++)
+                    consumer.accept(i * 7L, vehicle(random, FIRST_ID + i, "vehicle-" + i));
+            });
+        }
+        return new BufferedDataBase();
+    }
+
+    /**
+     * @return Time since the given moment in milliseconds.
+     */
+    public static double millisSince(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1e6;
+    }
+}
@@ -0,0 +1,63 @@
+package bench;
+
+import data.VehicleStore;
+import utility.FileHandler;
+import utility.JsonWriter;
+
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Saves the collection by streaming it into a temporary file that is forced and renamed over the file,
+ * and the way it was saved before: the whole document built as a string, then written over the file.
+ * Reports the time, the bytes allocated by the thread and the largest document held at once.
+ * The fastest of several rounds is reported.
+ * Arguments: sizes of the collection, 100000 and 1000000 by default.
+ * The file is the one of the 'SAVE_PATH' variable, the document string is written next to it.
+ */
+public class SaveBench {
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) throws Exception {
+        String[] sizes = args.length > 0 ? args : new String[] {"100000", "1000000"};
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Path dataBasePath = FileHandler.getDataBasePath();
+        Path documentPath = dataBasePath.resolveSibling(dataBasePath.getFileName() + ".document");
+        for (String size : sizes) {
+            int countOfElements = Integer.parseInt(size);
+            VehicleStore store = Samples.fill(VehicleStore.create(), countOfElements);
+            double streamMillis = Double.MAX_VALUE;
+            long streamBytes = Long.MAX_VALUE;
+            double documentMillis = Double.MAX_VALUE;
+            long documentBytes = Long.MAX_VALUE;
+            int documentLength = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                long startBytes = threads.getCurrentThreadAllocatedBytes();
+                long startNanos = System.nanoTime();
+                if (!FileHandler.saveDataBase(store.inKeyOrder()))
+                    throw new IllegalStateException("Collection is not saved");
+                streamMillis = Math.min(streamMillis, Samples.millisSince(startNanos));
+                streamBytes = Math.min(streamBytes, threads.getCurrentThreadAllocatedBytes() - startBytes);
+
+                startBytes = threads.getCurrentThreadAllocatedBytes();
+                startNanos = System.nanoTime();
+                StringWriter document = new StringWriter();
+                new JsonWriter(store.inKeyOrder()).writeDataBase(document);
+                String text = document.toString();
+                Files.writeString(documentPath, text, StandardCharsets.UTF_8);
+                documentMillis = Math.min(documentMillis, Samples.millisSince(startNanos));
+                documentBytes = Math.min(documentBytes, threads.getCurrentThreadAllocatedBytes() - startBytes);
+                documentLength = text.length();
+            }
+            Files.deleteIfExists(documentPath);
+            System.out.printf("%8d elements, %.0f MB file: streamed and renamed %6.0f ms, %6.0f MB allocated; " +
+                            "document string %6.0f ms, %6.0f MB allocated, %.0f MB string held%n",
+                    countOfElements, Files.size(dataBasePath) / 1e6, streamMillis, streamBytes / 1e6,
+                    documentMillis, documentBytes / 1e6, documentLength / 1e6);
+        }
+    }
+}
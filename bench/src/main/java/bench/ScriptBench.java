@@ -0,0 +1,57 @@
+package bench;
+
+import commands.ExecuteScriptCommand;
+import commands.RemoveKeyCommand;
+import mods.ClientRequestType;
+import mods.ExecuteMode;
+import processing.BinaryCodec;
+import processing.NBChannelController;
+import processing.WireCodec;
+import utility.CommandArguments;
+import utility.ServerAnswer;
+
+import java.net.InetSocketAddress;
+import java.nio.channels.SocketChannel;
+
+/**
+ * One client runs the same script twice: line by line, a request and an answer per command,
+ * as the client did before scripts were executed on the server, and uploaded whole in one 'execute_script' request.
+ * The commands remove keys that are not in the collection, so the collection is not changed.
+ * Arguments: host, port, count of script lines.
+ */
+public class ScriptBench {
+    private static final long FIRST_KEY = 9_000_000_000L;
+    private static final int ROUNDS = 2; // the first round warms up
+
+    public static void main(String[] args) throws Exception {
+        String host = args[0];
+        int port = Integer.parseInt(args[1]);
+        int countOfLines = Integer.parseInt(args[2]);
+        String[] scriptLines = new String[countOfLines];
+        for (int i = 0; i < countOfLines; i++)
+            scriptLines[i] = RemoveKeyCommand.getName() + " " + (FIRST_KEY + i);
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress(host, port))) {
+            WireCodec codec = NBChannelController.clientHandshake(channel, new BinaryCodec());
+            for (int round = 0; round < ROUNDS; round++) {
+                long startNanos = System.nanoTime();
+                for (int i = 0; i < countOfLines; i++) {
+                    NBChannelController.write(channel, codec,
+                            Samples.command(RemoveKeyCommand.getName(), String.valueOf(FIRST_KEY + i)));
+                    NBChannelController.read(channel, codec);
+                }
+                double lineMillis = Samples.millisSince(startNanos);
+
+                startNanos = System.nanoTime();
+                NBChannelController.write(channel, codec, new CommandArguments(ExecuteScriptCommand.getName(),
+                        new String[] {"bench.txt"}, scriptLines, ClientRequestType.COMMAND_EXECUTION,
+                        ExecuteMode.COMMAND_MODE));
+                ServerAnswer answer = (ServerAnswer) NBChannelController.read(channel, codec);
+                double uploadMillis = Samples.millisSince(startNanos);
+                if (round == ROUNDS - 1)
+                    System.out.printf("%d lines: line by line %.0f ms, uploaded %.0f ms in one answer of %d messages%n",
+                            countOfLines, lineMillis, uploadMillis,
+                            answer.outputInfo().size() + answer.userErrors().size());
+            }
+        }
+    }
+}
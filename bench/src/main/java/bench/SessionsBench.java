@@ -0,0 +1,85 @@
+package bench;
+
+import commands.RemoveKeyCommand;
+import processing.BinaryCodec;
+import processing.NBChannelController;
+import processing.WireCodec;
+import utility.CommandArguments;
+import utility.ServerAnswer;
+
+import java.net.InetSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Growing counts of clients connected at once, every client sends all its requests before reading any answer,
+ * so requests of many sessions are in flight together, and checks that every answer names its own key.
+ * Reports the throughput and the count of answers that belong to another request, which has to stay zero.
+ * The requests remove keys that are not in the collection, so the collection is not changed.
+ * Arguments: host, port, count of requests of every client, counts of clients (1, 10, 100 and 500 by default).
+ */
+public class SessionsBench {
+    private static final long FIRST_KEY = 9_000_000_000L;
+
+    public static void main(String[] args) throws Exception {
+        String host = args[0];
+        int port = Integer.parseInt(args[1]);
+        int countOfRequests = Integer.parseInt(args[2]);
+        String[] countsOfClients = args.length > 3 ?
+                Arrays.copyOfRange(args, 3, args.length) : new String[] {"1", "10", "100", "500"};
+        for (String clients : countsOfClients) {
+            int countOfClients = Integer.parseInt(clients);
+            ExecutorService executor = Executors.newFixedThreadPool(countOfClients);
+            CountDownLatch connected = new CountDownLatch(countOfClients);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int client = 0; client < countOfClients; client++) {
+                long firstKey = FIRST_KEY + (long) client * countOfRequests;
+                results.add(executor.submit(() ->
+                        exchange(host, port, firstKey, countOfRequests, connected, start)));
+            }
+            connected.await();
+            long startNanos = System.nanoTime();
+            start.countDown();
+            int countOfForeignAnswers = 0;
+            for (Future<Integer> result : results)
+                countOfForeignAnswers += result.get();
+            double millis = Samples.millisSince(startNanos);
+            executor.shutdown();
+            System.out.printf("%4d sessions x %d requests: %6.0f ms, %8.0f requests/s, %d answers to other requests%n",
+                    countOfClients, countOfRequests, millis, (double) countOfClients * countOfRequests / millis * 1000,
+                    countOfForeignAnswers);
+        }
+    }
+
+    /**
+     * @return Count of answers that do not name the key of their request.
+     */
+    private static int exchange(String host, int port, long firstKey, int countOfRequests,
+                                CountDownLatch connected, CountDownLatch start) throws Exception {
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress(host, port))) {
+            WireCodec codec = NBChannelController.clientHandshake(channel, new BinaryCodec());
+            connected.countDown();
+            start.await();
+            for (int i = 0; i < countOfRequests; i++) {
+                CommandArguments request = Samples.command(RemoveKeyCommand.getName(), String.valueOf(firstKey + i));
+                request.setRequestId(i + 1);
+                NBChannelController.write(channel, codec, request);
+            }
+            int countOfForeignAnswers = 0;
+            for (int i = 0; i < countOfRequests; i++) {
+                ServerAnswer answer = (ServerAnswer) NBChannelController.read(channel, codec);
+                String ownCommand = String.format("Command '%s %s':", RemoveKeyCommand.getName(), firstKey + i);
+                if (answer.requestId() != i + 1 || !answer.userErrors().contains(ownCommand))
+                    countOfForeignAnswers++;
+            }
+            return countOfForeignAnswers;
+        }
+    }
+}
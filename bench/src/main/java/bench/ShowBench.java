@@ -0,0 +1,62 @@
+package bench;
+
+import commands.ShowCommand;
+import mods.MessageType;
+import processing.BufferedDataBase;
+import utility.MessageHolder;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * One page of show on collections of different sizes: the time, the bytes allocated by the thread
+ * and the messages of the answer should not grow with the collection.
+ * The whole collection is then read page by page with the continuation tokens, as the client does.
+ * Arguments: sizes of the collection, 100000 and 1000000 by default.
+ */
+public class ShowBench {
+    private static final int ROUNDS = 10; // the fastest round is reported
+
+    public static void main(String[] args) throws Exception {
+        String[] sizes = args.length > 0 ? args : new String[] {"100000", "1000000"};
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (String size : sizes) {
+            int countOfElements = Integer.parseInt(size);
+            BufferedDataBase dataBase = Samples.openDataBase(countOfElements);
+            String middleToken = String.valueOf(countOfElements / 2 * 7L);
+            double pageMillis = Double.MAX_VALUE;
+            long pageBytes = Long.MAX_VALUE;
+            int countOfMessages = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                clearAnswer();
+                long startBytes = threads.getCurrentThreadAllocatedBytes();
+                long startNanos = System.nanoTime();
+                dataBase.show(Samples.command(ShowCommand.getName(), middleToken));
+                pageMillis = Math.min(pageMillis, Samples.millisSince(startNanos));
+                pageBytes = Math.min(pageBytes, threads.getCurrentThreadAllocatedBytes() - startBytes);
+                countOfMessages = MessageHolder.getOutputInfo().size();
+            }
+
+            clearAnswer();
+            long startNanos = System.nanoTime();
+            dataBase.show(Samples.command(ShowCommand.getName()));
+            int countOfPages = 1;
+            String token;
+            while ((token = MessageHolder.getContinuation()) != null) {
+                clearAnswer();
+                dataBase.show(Samples.command(ShowCommand.getName(), token));
+                countOfPages++;
+            }
+            double walkMillis = Samples.millisSince(startNanos);
+            clearAnswer();
+            System.out.printf("%8d elements: page %.3f ms, %.0f KB allocated, %d messages; " +
+                            "%d pages of the whole collection in %.0f ms%n",
+                    countOfElements, pageMillis, pageBytes / 1024.0, countOfMessages, countOfPages, walkMillis);
+        }
+    }
+
+    private static void clearAnswer() {
+        MessageHolder.clearMessages(MessageType.OUTPUT_INFO);
+        MessageHolder.clearContinuation();
+    }
+}
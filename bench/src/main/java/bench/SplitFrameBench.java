@@ -0,0 +1,98 @@
+package bench;
+
+import commands.InfoCommand;
+import commands.RemoveKeyCommand;
+import processing.BinaryCodec;
+import processing.NBChannelController;
+import processing.WireCodec;
+import utility.CommandArguments;
+import utility.ServerAnswer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A slow client sends a large batch in small pieces with a pause after each, as over a slow link,
+ * while a fast client keeps asking 'info' on its own connection.
+ * The selector collects the pieces of the batch across its wakeups, so the fast client has to be answered meanwhile
+ * and the batch has to be answered whole.
+ * The commands of the batch remove keys that are not in the collection, so the collection is not changed.
+ * Arguments: host, port, count of commands in the batch, size of a piece in bytes, pause after a piece in ms.
+ */
+public class SplitFrameBench {
+    private static final long FIRST_KEY = 9_000_000_000L;
+
+    public static void main(String[] args) throws Exception {
+        String host = args[0];
+        int port = Integer.parseInt(args[1]);
+        int countOfCommands = Integer.parseInt(args[2]);
+        int pieceSize = Integer.parseInt(args[3]);
+        int pauseMillis = Integer.parseInt(args[4]);
+
+        AtomicBoolean isSending = new AtomicBoolean(true);
+        long[][] latencies = new long[1][];
+        Thread fastClient = new Thread(() -> {
+            try {
+                latencies[0] = askInfo(host, port, isSending);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }, "fast-client");
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress(host, port))) {
+            WireCodec codec = NBChannelController.clientHandshake(channel, new BinaryCodec());
+            ArrayList<CommandArguments> batch = new ArrayList<>(countOfCommands);
+            for (int i = 0; i < countOfCommands; i++)
+                batch.add(Samples.command(RemoveKeyCommand.getName(), String.valueOf(FIRST_KEY + i)));
+            ByteBuffer[] frame = NBChannelController.toFrame(codec.encode(CommandArguments.batchOf(batch, false)));
+            ByteBuffer frameBytes = ByteBuffer.allocate(frame[0].remaining() + frame[1].remaining())
+                    .put(frame[0]).put(frame[1]).flip();
+            int countOfPieces = (frameBytes.remaining() + pieceSize - 1) / pieceSize;
+
+            fastClient.start();
+            long startNanos = System.nanoTime();
+            while (frameBytes.hasRemaining()) {
+                ByteBuffer piece = frameBytes.slice(frameBytes.position(), Math.min(pieceSize, frameBytes.remaining()));
+                while (piece.hasRemaining())
+                    channel.write(piece);
+                frameBytes.position(frameBytes.position() + piece.position());
+                Thread.sleep(pauseMillis);
+            }
+            ServerAnswer answer = (ServerAnswer) NBChannelController.read(channel, codec);
+            double batchMillis = Samples.millisSince(startNanos);
+            isSending.set(false);
+            fastClient.join();
+            System.out.printf("batch of %d commands, %d bytes in %d pieces: answered in %.0f ms with %d answers%n",
+                    countOfCommands, frameBytes.limit(), countOfPieces, batchMillis, answer.batchAnswers().size());
+        }
+        long[] infoLatencies = latencies[0];
+        Arrays.sort(infoLatencies);
+        System.out.printf("info meanwhile: %d answers, p50 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+                infoLatencies.length, infoLatencies[infoLatencies.length / 2] / 1e6,
+                infoLatencies[infoLatencies.length * 99 / 100] / 1e6, infoLatencies[infoLatencies.length - 1] / 1e6);
+    }
+
+    /**
+     * @return Latencies of the 'info' requests sent until the batch is answered.
+     */
+    private static long[] askInfo(String host, int port, AtomicBoolean isSending) throws IOException {
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress(host, port))) {
+            WireCodec codec = NBChannelController.clientHandshake(channel, new BinaryCodec());
+            long[] latencies = new long[1024];
+            int countOfRequests = 0;
+            while (isSending.get()) {
+                long sentNanos = System.nanoTime();
+                NBChannelController.write(channel, codec, Samples.command(InfoCommand.getName()));
+                NBChannelController.read(channel, codec);
+                if (countOfRequests == latencies.length)
+                    latencies = Arrays.copyOf(latencies, latencies.length * 2);
+                latencies[countOfRequests++] = System.nanoTime() - sentNanos;
+            }
+            return Arrays.copyOf(latencies, countOfRequests);
+        }
+    }
+}
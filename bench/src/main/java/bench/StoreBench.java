@@ -0,0 +1,95 @@
+package bench;
+
+import data.ColumnarVehicleStore;
+import data.MapVehicleStore;
+import data.OffHeapVehicleStore;
+import data.VehicleStore;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * Memory taken by every store for the same elements, and the time of a scan over two fields,
+ * of reading a page of keys and of building elements by key.
+ * Every store is measured with a unique name for each element and with names shared by many elements.
+ * The fastest of several rounds is reported.
+ * Arguments: size of the collection (1000000 by default), names of the stores (map, columnar and offheap by default).
+ */
+public class StoreBench {
+    private static final int ROUNDS = 5;
+    private static final int GETS = 100_000;
+    private static final int PAGE_SIZE = 100;
+    private static final int SHARED_NAMES = 1000; // every store is also measured with names repeated this often
+    private static volatile long sink; // keeps the results in use
+
+    public static void main(String[] args) throws InterruptedException {
+        int countOfElements = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        String[] storeNames = args.length > 1 ?
+                Arrays.copyOfRange(args, 1, args.length) : new String[] {"map", "columnar", "offheap"};
+        for (String storeName : storeNames) {
+            measure(storeName, countOfElements, countOfElements);
+            measure(storeName, countOfElements, SHARED_NAMES);
+        }
+    }
+
+    private static void measure(String storeName, int countOfElements, int countOfNames)
+            throws InterruptedException {
+        long heapBefore = usedHeap();
+        long directBefore = usedDirectMemory();
+        VehicleStore store = Samples.fill(create(storeName), countOfElements, countOfNames);
+        double heapBytes = (usedHeap() - heapBefore) / (double) countOfElements;
+        double directBytes = (usedDirectMemory() - directBefore) / (double) countOfElements;
+        double scanMillis = Double.MAX_VALUE;
+        double pageMillis = Double.MAX_VALUE;
+        double getNanos = Double.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long startNanos = System.nanoTime();
+            long[] matched = {0};
+            store.forEachKey(key -> {
+                if (store.getDistanceTravelled(key) > 500_000 && store.getEnginePower(key) < 500)
+                    matched[0]++;
+            });
+            sink = matched[0];
+            scanMillis = Math.min(scanMillis, Samples.millisSince(startNanos));
+            startNanos = System.nanoTime();
+            long[] page = store.keysAfter(countOfElements / 2 * 7L, PAGE_SIZE);
+            pageMillis = Math.min(pageMillis, Samples.millisSince(startNanos));
+            startNanos = System.nanoTime();
+            for (int i = 0; i < GETS; i++)
+                sink = store.get(page[i % page.length]).getName().length();
+            getNanos = Math.min(getNanos, (System.nanoTime() - startNanos) / (double) GETS);
+        }
+        System.out.printf("%-8s %d elements, %7d names: heap %6.1f B/element, direct %6.1f B/element; " +
+                        "scan %7.1f ms, page %6.3f ms, get %5.0f ns%n",
+                storeName, countOfElements, countOfNames, heapBytes, directBytes, scanMillis, pageMillis, getNanos);
+        store.clear();
+    }
+
+    static VehicleStore create(String storeName) {
+        return switch (storeName) {
+            case "map" -> new MapVehicleStore();
+            case "columnar" -> new ColumnarVehicleStore();
+            case "offheap" -> new OffHeapVehicleStore();
+            default -> throw new IllegalArgumentException("Unknown vehicle store: " + storeName);
+        };
+    }
+
+    /**
+     * Also lets the cleaner free the direct buffers that became unreachable.
+     */
+    static long usedHeap() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    static long usedDirectMemory() {
+        for (BufferPoolMXBean bufferPool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class))
+            if (bufferPool.getName().equals("direct"))
+                return bufferPool.getMemoryUsed();
+        return 0;
+    }
+}
@@ -0,0 +1,101 @@
+package bench;
+
+import commands.InsertCommand;
+import mods.ClientRequestType;
+import mods.ExecuteMode;
+import processing.BinaryCodec;
+import processing.NBChannelController;
+import processing.WireCodec;
+import utility.CommandArguments;
+import utility.ServerAnswer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Clients insert elements through the server, each sends an insert and waits for its answer,
+ * which the server gives only when the insert is durable by the sync policy of its log.
+ * Start the server with '-DwalSync=always', 'group' or 'periodic' on a fresh copy of the collection,
+ * each count of clients inserts its own keys.
+ * Arguments: host, port, count of inserts of every client, counts of clients (1, 8, 64 and 256 by default).
+ */
+public class WalBench {
+    private static final long FIRST_KEY = 2_000_000_000L;
+
+    public static void main(String[] args) throws Exception {
+        String host = args[0];
+        int port = Integer.parseInt(args[1]);
+        int countOfInserts = Integer.parseInt(args[2]);
+        String[] countsOfClients = args.length > 3 ?
+                Arrays.copyOfRange(args, 3, args.length) : new String[] {"1", "8", "64", "256"};
+        long firstKey = FIRST_KEY;
+        for (String countOfClients : countsOfClients) {
+            measure(host, port, Integer.parseInt(countOfClients), countOfInserts, firstKey);
+            firstKey += (long) Integer.parseInt(countOfClients) * countOfInserts;
+        }
+    }
+
+    private static void measure(String host, int port, int countOfClients, int countOfInserts, long firstKey)
+            throws Exception {
+        ExecutorService clients = Executors.newFixedThreadPool(countOfClients);
+        CountDownLatch connected = new CountDownLatch(countOfClients);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<long[]>> results = new ArrayList<>();
+        for (int client = 0; client < countOfClients; client++) {
+            long clientFirstKey = firstKey + (long) client * countOfInserts;
+            results.add(clients.submit(() ->
+                    insert(host, port, clientFirstKey, countOfInserts, connected, start)));
+        }
+        connected.await();
+        long startNanos = System.nanoTime();
+        start.countDown();
+        long[] latencies = new long[countOfClients * countOfInserts];
+        int position = 0;
+        for (Future<long[]> result : results) {
+            long[] clientLatencies = result.get();
+            System.arraycopy(clientLatencies, 0, latencies, position, clientLatencies.length);
+            position += clientLatencies.length;
+        }
+        double totalMillis = Samples.millisSince(startNanos);
+        clients.shutdown();
+        Arrays.sort(latencies);
+        System.out.printf("%3d clients x %d inserts: %.0f ms, %.0f acknowledged inserts/s, " +
+                        "latency p50 %.2f ms, p99 %.2f ms%n",
+                countOfClients, countOfInserts, totalMillis, latencies.length / totalMillis * 1000,
+                latencies[latencies.length / 2] / 1e6, latencies[latencies.length * 99 / 100] / 1e6);
+    }
+
+    private static long[] insert(String host, int port, long firstKey, int countOfInserts,
+                                 CountDownLatch connected, CountDownLatch start)
+            throws IOException, InterruptedException {
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress(host, port))) {
+            WireCodec codec = NBChannelController.clientHandshake(channel, new BinaryCodec());
+            connected.countDown();
+            start.await();
+            long[] latencies = new long[countOfInserts];
+            for (int i = 0; i < countOfInserts; i++) {
+                long key = firstKey + i;
+                CommandArguments request = new CommandArguments(InsertCommand.getName(),
+                        new String[] {String.valueOf(key)},
+                        new String[] {"vehicle-" + key, "1", "2", "3", "4", "1", "1"},
+                        ClientRequestType.COMMAND_EXECUTION, ExecuteMode.COMMAND_MODE);
+                request.setRequestId(i + 1);
+                long sentNanos = System.nanoTime();
+                NBChannelController.write(channel, codec, request);
+                ServerAnswer answer = (ServerAnswer) NBChannelController.read(channel, codec);
+                latencies[i] = System.nanoTime() - sentNanos;
+                if (answer.requestId() != i + 1 || !answer.commandExitStatus())
+                    throw new IllegalStateException("Insert of key " + key + " failed: " + answer.userErrors());
+            }
+            return latencies;
+        }
+    }
+}
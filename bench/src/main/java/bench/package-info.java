@@ -0,0 +1,13 @@
+/**
+ * Measurement harnesses. Classes with {@code @Benchmark} methods run under JMH,
+ * the others, which drive a server or need a whole JVM per run, are started by their own main method.
+ * The module is built only with the 'bench' profile into one jar with JMH and the server:
+ * <pre>
+ * mvn -B -Pbench package -DskipTests
+ * java -jar bench/target/benchmarks.jar CodecBench
+ * java -cp bench/target/benchmarks.jar bench.WalBench localhost 4711 200
+ * </pre>
+ * Harnesses that talk to a server take its host and port, the server is started as usual.
+ * Harnesses that open the collection file need the 'SAVE_PATH' variable, point it to a copy, they change the collection.
+ */
+package bench;
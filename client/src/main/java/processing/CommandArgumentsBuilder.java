@@ -1,16 +1,13 @@
 package processing;
 
 import commands.ExecuteScriptCommand;
-import commands.ExitCommand;
-import commands.InsertCommand;
-import commands.UpdateCommand;
-import data.Vehicle;
 import mods.AnswerType;
-import mods.ClientRequestType;
 import mods.ExecuteMode;
+import mods.MessageType;
 import user.Client;
 import utility.CommandArguments;
 import utility.FileHandler;
+import utility.MessageHolder;
 
 import java.io.File;
 import java.util.*;
@@ -18,10 +15,20 @@ import java.util.*;
 public class CommandArgumentsBuilder {
     public final Scanner scanner;
     private final AnswerType answerType;
+    private final boolean isExpandingScripts;
 
     public CommandArgumentsBuilder(Scanner scanner, AnswerType answerType) {
+        this(scanner, answerType, false);
+    }
+
+    /**
+     * @param isExpandingScripts if true, commands of a script are sent one by one to be pipelined,
+     *                           otherwise the whole script is uploaded in one request.
+     */
+    public CommandArgumentsBuilder(Scanner scanner, AnswerType answerType, boolean isExpandingScripts) {
         this.scanner = scanner;
         this.answerType = answerType;
+        this.isExpandingScripts = isExpandingScripts;
     }
 
     public ArrayList<CommandArguments> userEnter() {
@@ -38,91 +45,53 @@ public class CommandArgumentsBuilder {
     }
 
     private ArrayList<CommandArguments> commandProcessing(String nextLine, ExecuteMode executeMode, File currentScriptFile) {
-        if (nextLine.trim().equals(""))
+        CommandArguments newCommandArguments = ScriptParser.parseLine(nextLine, executeMode);
+        if (newCommandArguments == null)
             return new ArrayList<>();
-        UserLineSeparator userLineSeparator = new UserLineSeparator(nextLine);
-        String nextCommand = userLineSeparator.getCommand();
-        String[] arguments = userLineSeparator.getArguments();
-        String[] extraArguments = null;
-        CommandArguments newCommandArguments = 
-                        new CommandArguments(nextCommand, arguments, extraArguments,
-                                            ClientRequestType.COMMAND_EXECUTION, executeMode);
         newCommandArguments.setScriptFile(currentScriptFile);
-        if (nextCommand.equals(ExecuteScriptCommand.getName())) // if it's execute_script command, start script processing
-            return scriptProcessing(newCommandArguments);
         ArrayList<CommandArguments> commandArgumentsArrayList = new ArrayList<>();
         CommandValidator commandValidator = new CommandValidator(answerType);
         if (commandValidator.validate(newCommandArguments)) {// add command only if it's correct
-            commandArgumentsArrayList.add(newCommandArguments);
+            if (!newCommandArguments.getCommandName().equals(ExecuteScriptCommand.getName()))
+                commandArgumentsArrayList.add(newCommandArguments);
+            else if (isExpandingScripts)
+                commandArgumentsArrayList.addAll(expandScript(newCommandArguments));
+            else
+                commandArgumentsArrayList.add(uploadScript(newCommandArguments));
         }
         return commandArgumentsArrayList;
     }
 
     /**
-     * Separates a command from its arguments.
+     * Makes commands of the script lines. Nested scripts are uploaded and executed by the server,
+     * a nested call of the script itself is reported as recursion.
      */
-    private static class UserLineSeparator {
-        private final String command;
-        private final String[] arguments;
-        public UserLineSeparator(String nextLine) {
-            String[] nextSplitedLine = nextLine.trim().split("\\s+");
-            this.arguments = new String[nextSplitedLine.length - 1];
-            for (int i = 1; i < nextSplitedLine.length; i++) {
-                this.arguments[i - 1] = nextSplitedLine[i];
-            }
-            this.command = nextSplitedLine[0];
-        }
-        public String getCommand() {
-            return command;
-        }
-        public String[] getArguments() {
-            return arguments;
-        }
-    }
-
-    private ArrayList<CommandArguments> scriptProcessing(CommandArguments commandArguments) {
-        CommandValidator commandValidator = new CommandValidator(answerType);
-        if (!commandValidator.validate(commandArguments))
-            return new ArrayList<>();
-        File currentScriptFile = commandArguments.getScriptFile();
-        ArrayList<String> scriptLines = FileHandler.readScriptFile(commandArguments.getScriptFile());
+    private ArrayList<CommandArguments> expandScript(CommandArguments commandArguments) {
+        File scriptFile = commandArguments.getScriptFile();
         ArrayList<CommandArguments> scriptCommands = new ArrayList<>();
-        int countOfScriptLines = scriptLines.size();
-        for (int line = 0; line < countOfScriptLines; line++) {
-            String scriptLine = scriptLines.get(line);
-            if (scriptLine.trim().equals(""))
-                continue;
-            scriptCommands.addAll(commandProcessing(scriptLine, ExecuteMode.SCRIPT_MODE, currentScriptFile));
-            if (!scriptCommands.isEmpty()) {
-                CommandArguments lastCommandArguments = scriptCommands.get(scriptCommands.size() - 1);
-                if (lastCommandArguments.getCommandName().equals(ExitCommand.getName()) &&
-                    lastCommandArguments.getScriptFile().getName().equals(currentScriptFile.getName())) { // exit from script, stop adding commands (only if the last command from current scrip file)
-                    break;
-                }
-                if ((lastCommandArguments.getCommandName().equals(InsertCommand.getName()) || 
-                    lastCommandArguments.getCommandName().equals(UpdateCommand.getName())) &&
-                    lastCommandArguments.getScriptFile().getName().equals(currentScriptFile.getName()) &&
-                    lastCommandArguments.getExtraArguments() == null) {
-                    String[] extraArguments = readExtraArguments(Vehicle.getCountOfChangeableFields(),
-                                                                     line, countOfScriptLines, scriptLines);
-                    lastCommandArguments.setExtraArguments(extraArguments);
-                    line += Vehicle.getCountOfChangeableFields();
-                }
+        for (CommandArguments scriptCommand :
+                ScriptParser.parseScript(FileHandler.readScriptFile(scriptFile), scriptFile)) {
+            if (!scriptCommand.getCommandName().equals(ExecuteScriptCommand.getName())) {
+                scriptCommands.add(scriptCommand);
+            } else if (scriptCommand.getScriptFile().getName().equals(scriptFile.getName())) {
+                MessageHolder.putMessage(String.format("Command '%s %s':",
+                        ExecuteScriptCommand.getName(), scriptFile.getName()), MessageType.USER_ERROR);
+                MessageHolder.putMessage(String.format(
+                        "Recursion on '%s' script noticed", scriptFile.getName()), MessageType.USER_ERROR);
+            } else {
+                scriptCommands.add(uploadScript(scriptCommand));
             }
         }
         return scriptCommands;
     }
 
-     /**
-     * Adds extra lines from script that are used as arguments to change the collection element.
+    /**
+     * Puts the lines of the script into the extra arguments, so the server executes the whole script
+     * in one request.
      */
-    private String[] readExtraArguments(int countOfExtraArguments, int currentLineIndex,
-                                        int countOfScriptLines, ArrayList<String> scriptLines) {
-        String[] extraArguments =
-                new String[Math.min(countOfExtraArguments, countOfScriptLines - currentLineIndex - 1)];
-        for (int i = 0, j = currentLineIndex + 1; 
-        j < currentLineIndex + countOfExtraArguments + 1 && j < countOfScriptLines; j++, i++)
-            extraArguments[i] = scriptLines.get(j).trim();
-        return extraArguments;
+    private CommandArguments uploadScript(CommandArguments commandArguments) {
+        ArrayList<String> scriptLines = FileHandler.readScriptFile(commandArguments.getScriptFile());
+        commandArguments.setExtraArguments(scriptLines.toArray(new String[0]));
+        return commandArguments;
     }
 }
@@ -4,13 +4,19 @@ import java.util.Scanner;
 
 import user.ClientManager;
 
+/**
+ * Arguments: host, port, optional pipeline depth, the count of requests sent without waiting for answers,
+ * and optional batch size, the count of script commands sent in one request.
+ */
 public class Main {
     public static void main(String[] args) {
         Scanner scanner = new Scanner(System.in);
-        ClientManager clientManager = new ClientManager(scanner);
         String[] hostAndPort = args[0].split("\\s+");
         String host = hostAndPort[0];
         int port = Integer.parseInt(args[1]);
+        int pipelineDepth = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+        int batchSize = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+        ClientManager clientManager = new ClientManager(scanner, pipelineDepth, batchSize);
         boolean processingStatus = false;
         boolean isTryReconnecting = false;
         while (!processingStatus) { // processingStatus = true, if client input 'exit', else connection failed
@@ -1,19 +1,28 @@
 package user;
 
+import processing.BinaryCodec;
 import processing.NBChannelController;
+import processing.WireCodec;
 
 import utility.CommandArguments;
 import utility.ServerAnswer;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
 import java.nio.channels.SocketChannel;
 
 public class Client {
     private static SocketChannel clientSocketChannel;
+    private final WireCodec codec;
 
+    /**
+     * Connects to the server and agrees on the codec, the binary one is preferred.
+     */
     public Client(String host, int port) throws IOException {
         clientSocketChannel = SocketChannel.open(new InetSocketAddress(host, port));
+        clientSocketChannel.setOption(StandardSocketOptions.TCP_NODELAY, true); // pipelined requests are not held back
+        codec = NBChannelController.clientHandshake(clientSocketChannel, new BinaryCodec());
     }
 
     public static void stop() {
@@ -29,10 +38,32 @@ public class Client {
     }
 
     public ServerAnswer dataExchange(CommandArguments request) {
+        if (!send(request))
+            return null;
+        return receive();
+    }
+
+    /**
+     * Writes the request without waiting for its answer.
+     * @return false, if the connection is lost.
+     */
+    public boolean send(CommandArguments request) {
+        try {
+            NBChannelController.write(clientSocketChannel, codec, request);
+        } catch (IOException e) {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Waits for the answer to the oldest request that has not been answered yet.
+     * @return Answer of the server, or null if the connection is lost.
+     */
+    public ServerAnswer receive() {
         ServerAnswer serverAnswer;
         try {
-            NBChannelController.clientWrite(clientSocketChannel, request);
-            serverAnswer = (ServerAnswer) NBChannelController.clientRead(clientSocketChannel);
+            serverAnswer = (ServerAnswer) NBChannelController.read(clientSocketChannel, codec);
         } catch (ClassCastException | IOException e) {
             return null;
         }
@@ -1,6 +1,9 @@
 package user;
 
 import commands.ExitCommand;
+import commands.InsertCommand;
+import commands.ShowCommand;
+import commands.UpdateCommand;
 import mods.*;
 import processing.CommandArgumentsBuilder;
 import processing.Console;
@@ -12,14 +15,30 @@ import utility.FileHandler;
 import java.io.IOException;
 import java.util.*;
 
+/**
+ * Sends the commands of the user to the server and prints the answers.
+ * With a pipeline depth above one, commands of scripts are sent without waiting for the previous answers,
+ * up to the depth at a time. With a batch size above one, they are sent in batch requests of up to that size.
+ * Answers come in the order of the requests and are matched by the request id.
+ */
 public class ClientManager {
     private Client client;
     private final Scanner scanner;
+    private final int pipelineDepth;
+    private final int batchSize;
+    private long lastRequestId;
     private CommandArguments commandArguments;
-    private final Queue<CommandArguments> commandArgumentsQueue = new LinkedList<>();
+    private final Deque<CommandArguments> commandArgumentsQueue = new LinkedList<>();
+    private final Queue<CommandArguments> requestsInFlight = new LinkedList<>();
 
     public ClientManager(Scanner scanner) {
+        this(scanner, 1, 1);
+    }
+
+    public ClientManager(Scanner scanner, int pipelineDepth, int batchSize) {
         this.scanner = scanner;
+        this.pipelineDepth = pipelineDepth;
+        this.batchSize = batchSize;
     }
 
     public boolean setConnection(String host, int port) {
@@ -37,8 +56,14 @@ public class ClientManager {
         ServerAnswer serverAnswer = null;
         do {
             try {
+                if (!requestsInFlight.isEmpty() || canBePipelined()) {
+                    if (!exchangePipelined())
+                        return false;
+                    continue;
+                }
                 if (commandArgumentsQueue.isEmpty()) { //if all commands have been processed, then we enter new ones
-                    CommandArgumentsBuilder commandArgumentsBuilder = new CommandArgumentsBuilder(scanner, AnswerType.EXECUTION_RESPONSE);
+                    CommandArgumentsBuilder commandArgumentsBuilder = new CommandArgumentsBuilder(scanner,
+                            AnswerType.EXECUTION_RESPONSE, isPipelining());
                     commandArgumentsQueue.addAll(commandArgumentsBuilder.userEnter());
                     Console.printUserErrors();
                     MessageHolder.clearMessages(MessageType.USER_ERROR);
@@ -60,6 +85,7 @@ public class ClientManager {
                     System.out.println("client exit");
                     break;
                 }
+                commandArguments.setRequestId(++lastRequestId);
                 serverAnswer = client.dataExchange(commandArguments);
                 if (serverAnswer == null) {
                     Client.stop();
@@ -81,6 +107,10 @@ public class ClientManager {
                 commandArgumentsQueue.remove();
                 Console.printOutputInfo(serverAnswer.outputInfo());
                 Console.printUserErrors(serverAnswer.userErrors());
+                if (serverAnswer.continuationToken() != null) // the next page is requested before other commands
+                    commandArgumentsQueue.push(new CommandArguments(commandArguments.getCommandName(),
+                            new String[] {serverAnswer.continuationToken()}, null,
+                            commandArguments.getClientRequestType(), commandArguments.getExecuteMode()));
             } catch (NoSuchElementException e) {
                 Client.stop();
                 return false;
@@ -90,4 +120,95 @@ public class ClientManager {
         Client.stop();
         return true;
     }
+
+    private boolean isPipelining() {
+        return pipelineDepth > 1 || batchSize > 1;
+    }
+
+    /**
+     * Checks if the next command may be sent before the previous ones are answered.
+     * Commands that can ask the user for the values of an element, paged 'show' and 'exit' are sent alone.
+     */
+    private boolean canBePipelined() {
+        if (!isPipelining() || commandArgumentsQueue.isEmpty())
+            return false;
+        CommandArguments nextCommand = commandArgumentsQueue.peek();
+        if (nextCommand.getCommandName().equals(ExitCommand.getName()) ||
+                nextCommand.getCommandName().equals(ShowCommand.getName()))
+            return false;
+        return nextCommand.getExecuteMode() == ExecuteMode.SCRIPT_MODE || nextCommand.getExtraArguments() != null ||
+                !(nextCommand.getCommandName().equals(InsertCommand.getName()) ||
+                        nextCommand.getCommandName().equals(UpdateCommand.getName()));
+    }
+
+    /**
+     * Sends queued commands until the pipeline is full, then receives and prints the oldest answer.
+     * @return false, if the connection is lost, the unanswered commands are queued again.
+     */
+    private boolean exchangePipelined() {
+        while (requestsInFlight.size() < pipelineDepth && canBePipelined()) {
+            CommandArguments request = takeRequest();
+            request.setRequestId(++lastRequestId);
+            requestsInFlight.add(request);
+            if (!client.send(request)) {
+                loseConnection();
+                return false;
+            }
+        }
+        ServerAnswer serverAnswer = client.receive();
+        if (serverAnswer == null || serverAnswer.requestId() != requestsInFlight.peek().getRequestId()) {
+            loseConnection();
+            return false;
+        }
+        requestsInFlight.remove();
+        if (serverAnswer.batchAnswers() == null) {
+            Console.printOutputInfo(serverAnswer.outputInfo());
+            Console.printUserErrors(serverAnswer.userErrors());
+            return true;
+        }
+        for (ServerAnswer batchAnswer : serverAnswer.batchAnswers()) {
+            Console.printOutputInfo(batchAnswer.outputInfo());
+            Console.printUserErrors(batchAnswer.userErrors());
+        }
+        return true;
+    }
+
+    /**
+     * Closes the connection and puts the commands that were sent but not answered back at the head of the queue,
+     * in the order they were sent, so they are sent again after the reconnection.
+     * The server may have executed some of them before the connection was lost, they are reported to the user.
+     */
+    private void loseConnection() {
+        Client.stop();
+        Console.println("Connection lost");
+        if (requestsInFlight.isEmpty())
+            return;
+        ArrayList<CommandArguments> unanswered = new ArrayList<>();
+        for (CommandArguments request : requestsInFlight) {
+            if (request.getClientRequestType() == ClientRequestType.BATCH)
+                unanswered.addAll(request.getBatch());
+            else
+                unanswered.add(request);
+        }
+        requestsInFlight.clear();
+        StringJoiner commandNames = new StringJoiner(", ");
+        for (CommandArguments command : unanswered)
+            commandNames.add(command.getCommandName());
+        Console.println(String.format("%d commands were not answered and will be sent again: %s",
+                unanswered.size(), commandNames));
+        for (int i = unanswered.size() - 1; i >= 0; i--)
+            commandArgumentsQueue.push(unanswered.get(i));
+    }
+
+    /**
+     * Takes the next command, or a batch of the next commands that can be pipelined.
+     */
+    private CommandArguments takeRequest() {
+        if (batchSize <= 1)
+            return commandArgumentsQueue.remove();
+        ArrayList<CommandArguments> batch = new ArrayList<>(batchSize);
+        while (batch.size() < batchSize && canBePipelined())
+            batch.add(commandArgumentsQueue.remove());
+        return batch.size() == 1 ? batch.get(0) : CommandArguments.batchOf(batch, false);
+    }
 }
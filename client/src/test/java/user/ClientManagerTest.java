@@ -0,0 +1,127 @@
+package user;
+
+import mods.AnswerType;
+import org.junit.Test;
+import processing.CodecHandshake;
+import processing.NBChannelController;
+import processing.WireCodec;
+import utility.CommandArguments;
+import utility.ServerAnswer;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the client against a server that drops the connection while pipelined commands are not answered,
+ * the commands have to be sent again after the reconnection, in their order.
+ * The test runs in 'target/test-run', scripts are looked up in 'target/scripts'.
+ */
+public class ClientManagerTest {
+    private static final int PIPELINE_DEPTH = 4;
+    private static final int COUNT_OF_COMMANDS = 7;
+    private static final long TIMEOUT_SECONDS = 30;
+
+    @Test(timeout = TIMEOUT_SECONDS * 2000)
+    public void unansweredCommandsAreSentAgainAfterReconnection() throws Exception {
+        Files.createDirectories(Path.of("../server/files")); // the reference file is read from there
+        Files.writeString(Path.of("../server/files/reference.txt"), "");
+        Files.createDirectories(Path.of("../scripts"));
+        StringBuilder script = new StringBuilder();
+        for (int key = 1; key <= COUNT_OF_COMMANDS; key++)
+            script.append("remove_key ").append(key).append("\n");
+        Files.writeString(Path.of("../scripts/pipeline.txt"), script);
+
+        ExecutorService server = Executors.newSingleThreadExecutor();
+        try (ServerSocketChannel serverSocket = ServerSocketChannel.open()) {
+            serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            int port = serverSocket.socket().getLocalPort();
+            Future<List<String>> dropped = server.submit(() -> dropAfterFirstAnswer(serverSocket));
+            ClientManager clientManager = new ClientManager(
+                    new Scanner("execute_script pipeline.txt\nexit\n"), PIPELINE_DEPTH, 1);
+            assertTrue(clientManager.setConnection(InetAddress.getLoopbackAddress().getHostAddress(), port));
+            assertFalse("connection is lost", clientManager.processRequestToServer());
+            assertEquals(List.of("1", "2", "3", "4", "5", "6"), dropped.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+            Future<List<String>> answered = server.submit(() -> answerAll(serverSocket));
+            assertTrue(clientManager.setConnection(InetAddress.getLoopbackAddress().getHostAddress(), port));
+            assertTrue("client exits", clientManager.processRequestToServer());
+            assertEquals(List.of("3", "4", "5", "6", "7"), answered.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        } finally {
+            server.shutdownNow();
+        }
+    }
+
+    /**
+     * Answers the first command, which the client sends alone, and the first of the pipelined ones,
+     * then closes the connection once the client has filled the pipeline again.
+     * @return Keys of the received commands.
+     */
+    private static List<String> dropAfterFirstAnswer(ServerSocketChannel serverSocket) throws IOException {
+        List<String> keys = new ArrayList<>();
+        try (SocketChannel client = serverSocket.accept()) {
+            WireCodec codec = handshake(client);
+            List<CommandArguments> requests = new ArrayList<>();
+            requests.add(receive(client, codec));
+            answer(client, codec, requests.get(0));
+            for (int i = 0; i < PIPELINE_DEPTH; i++)
+                requests.add(receive(client, codec));
+            answer(client, codec, requests.get(1));
+            requests.add(receive(client, codec));
+            for (CommandArguments request : requests)
+                keys.add(request.getArguments()[0]);
+        }
+        return keys;
+    }
+
+    /**
+     * Answers every request until the client disconnects.
+     * @return Keys of the received commands.
+     */
+    private static List<String> answerAll(ServerSocketChannel serverSocket) throws IOException {
+        List<String> keys = new ArrayList<>();
+        try (SocketChannel client = serverSocket.accept()) {
+            WireCodec codec = handshake(client);
+            while (true) {
+                CommandArguments request;
+                try {
+                    request = receive(client, codec);
+                } catch (IOException e) { // client exited
+                    break;
+                }
+                keys.add(request.getArguments()[0]);
+                answer(client, codec, request);
+            }
+        }
+        return keys;
+    }
+
+    private static WireCodec handshake(SocketChannel client) throws IOException {
+        WireCodec codec = CodecHandshake.accept(NBChannelController.readFrame(client));
+        NBChannelController.writeFrame(client, CodecHandshake.answer(codec));
+        return codec;
+    }
+
+    private static CommandArguments receive(SocketChannel client, WireCodec codec) throws IOException {
+        return (CommandArguments) NBChannelController.read(client, codec);
+    }
+
+    private static void answer(SocketChannel client, WireCodec codec, CommandArguments request)
+            throws IOException {
+        NBChannelController.write(client, codec, new ServerAnswer(new ArrayList<>(), new ArrayList<>(), true,
+                AnswerType.EXECUTION_RESPONSE, request.getRequestId()));
+    }
+}
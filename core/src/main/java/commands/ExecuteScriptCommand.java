@@ -23,7 +23,7 @@ public class ExecuteScriptCommand implements Command {
 
     @Override
     public boolean execute(CommandArguments commandArguments) {
-        return true;
+        return bufferedDataBase.executeScript(commandArguments);
     }
 
     public static String getName() {
@@ -0,0 +1,49 @@
+package commands;
+
+import processing.BufferedDataBase;
+import utility.CommandArguments;
+
+
+/**
+ * Acts as a wrapper for the 'filter by distance travelled' command.
+ * Calls the method containing the implementation of this command.
+ */
+public class FilterByDistanceTravelledCommand implements Command {
+    private BufferedDataBase bufferedDataBase;
+    private static final String NAME = "filter_by_distance_travelled";
+    private static final String ARGUMENTS = " <from> <to>";
+    private static final String DESCRIPTION =
+            "displays elements whose distanceTravelled field value lies between the given values inclusive";
+    private static final int COUNT_OF_ARGUMENTS = 2;
+    private static final int COUNT_OF_EXTRA_ARGUMENTS = 0;
+
+    public FilterByDistanceTravelledCommand(BufferedDataBase bufferedDataBase) {
+        this.bufferedDataBase = bufferedDataBase;
+    }
+
+    @Override
+    public boolean execute(CommandArguments commandArguments) {
+        return bufferedDataBase.filterByDistanceTravelled(commandArguments);
+    }
+
+    public static String getName() {
+        return NAME;
+    }
+
+    public static String getDescription() {
+        return DESCRIPTION;
+    }
+
+    public static int getCountOfArguments() {
+        return COUNT_OF_ARGUMENTS;
+    }
+
+    public static int getCountOfExtraArguments() {
+        return COUNT_OF_EXTRA_ARGUMENTS;
+    }
+
+    @Override
+    public String toString() {
+        return NAME + ARGUMENTS + ": " + DESCRIPTION;
+    }
+}
\ No newline at end of file
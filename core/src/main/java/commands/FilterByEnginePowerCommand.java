@@ -0,0 +1,48 @@
+package commands;
+
+import processing.BufferedDataBase;
+import utility.CommandArguments;
+
+
+/**
+ * Acts as a wrapper for the 'filter by engine power' command.
+ * Calls the method containing the implementation of this command.
+ */
+public class FilterByEnginePowerCommand implements Command {
+    private BufferedDataBase bufferedDataBase;
+    private static final String NAME = "filter_by_engine_power";
+    private static final String ARGUMENTS = " <enginePower>";
+    private static final String DESCRIPTION = "displays elements whose enginePower field value is equal to the given one";
+    private static final int COUNT_OF_ARGUMENTS = 1;
+    private static final int COUNT_OF_EXTRA_ARGUMENTS = 0;
+
+    public FilterByEnginePowerCommand(BufferedDataBase bufferedDataBase) {
+        this.bufferedDataBase = bufferedDataBase;
+    }
+
+    @Override
+    public boolean execute(CommandArguments commandArguments) {
+        return bufferedDataBase.filterByEnginePower(commandArguments);
+    }
+
+    public static String getName() {
+        return NAME;
+    }
+
+    public static String getDescription() {
+        return DESCRIPTION;
+    }
+
+    public static int getCountOfArguments() {
+        return COUNT_OF_ARGUMENTS;
+    }
+
+    public static int getCountOfExtraArguments() {
+        return COUNT_OF_EXTRA_ARGUMENTS;
+    }
+
+    @Override
+    public String toString() {
+        return NAME + ARGUMENTS + ": " + DESCRIPTION;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,49 @@
+package commands;
+
+import processing.BufferedDataBase;
+import utility.CommandArguments;
+
+
+/**
+ * Acts as a wrapper for the 'filter' command.
+ * Calls the method containing the implementation of this command.
+ */
+public class FilterCommand implements Command {
+    private BufferedDataBase bufferedDataBase;
+    private static final String NAME = "filter";
+    private static final String ARGUMENTS = " <field><operator><value> [and|or <field><operator><value>]...";
+    private static final String DESCRIPTION = "displays elements that match the condition, fields are fuel_type, vehicle_type, " +
+            "engine_power and distance_travelled, operators are <, <=, =, >=, >";
+    private static final int COUNT_OF_ARGUMENTS = 1;
+    private static final int COUNT_OF_EXTRA_ARGUMENTS = 0;
+
+    public FilterCommand(BufferedDataBase bufferedDataBase) {
+        this.bufferedDataBase = bufferedDataBase;
+    }
+
+    @Override
+    public boolean execute(CommandArguments commandArguments) {
+        return bufferedDataBase.filter(commandArguments);
+    }
+
+    public static String getName() {
+        return NAME;
+    }
+
+    public static String getDescription() {
+        return DESCRIPTION;
+    }
+
+    public static int getCountOfArguments() {
+        return COUNT_OF_ARGUMENTS;
+    }
+
+    public static int getCountOfExtraArguments() {
+        return COUNT_OF_EXTRA_ARGUMENTS;
+    }
+
+    @Override
+    public String toString() {
+        return NAME + ARGUMENTS + ": " + DESCRIPTION;
+    }
+}
\ No newline at end of file
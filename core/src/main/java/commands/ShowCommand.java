@@ -10,9 +10,10 @@ import utility.CommandArguments;
 public class ShowCommand implements Command {
     private BufferedDataBase bufferedDataBase;
     private static final String NAME = "show";
-    private static final String ARGUMENTS = "";
+    private static final String ARGUMENTS = " [<key>]";
     private static final String DESCRIPTION =
-            "prints to standard output all elements of the collection in string representation";
+            "prints to standard output all elements of the collection in string representation," +
+                    " page by page, starting after the given key";
     private static final int COUNT_OF_ARGUMENTS = 0;
     private static final int COUNT_OF_EXTRA_ARGUMENTS = 0;
 
@@ -0,0 +1,389 @@
+package data;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntUnaryOperator;
+import java.util.function.LongConsumer;
+
+/**
+ * Keeps every field of the elements in its own primitive array, an element is a row of these arrays.
+ * Names are kept once in a dictionary and referred to by their codes, a name leaves the dictionary
+ * when no element uses it. The creation date is packed by {@link CreationDates},
+ * enums are kept as their ordinals or -1 for no value.
+ * Rows stay dense: the last row is moved into the place of a removed one.
+ * Elements are built only when they are asked for by {@link #get(long)} or {@link #inKeyOrder()}.
+ * A second column keeps the keys sorted, so pages of keys in order are found by a binary search;
+ * keys put in ascending order, as the collection is loaded, are appended to it,
+ * other puts and removals move the part of it after the key.
+ * Filters scan the columns of the fields in place, see {@link #keysInRanges}.
+ * Not synchronized: the collection is changed only while no command reads it.
+ */
+public class ColumnarVehicleStore implements VehicleStore {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final VehicleType[] VEHICLE_TYPES = VehicleType.values();
+    private static final FuelType[] FUEL_TYPES = FuelType.values();
+
+    private final KeyTable rowsByKey = new KeyTable();
+    private int countOfRows;
+    private long[] keys = new long[INITIAL_CAPACITY];
+    private long[] sortedKeys = new long[INITIAL_CAPACITY]; // the first countOfRows are used
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private int[] nameCodes = new int[INITIAL_CAPACITY];
+    private float[] xs = new float[INITIAL_CAPACITY];
+    private double[] ys = new double[INITIAL_CAPACITY];
+    private long[] creationDates = new long[INITIAL_CAPACITY];
+    private int[] enginePowers = new int[INITIAL_CAPACITY];
+    private long[] distancesTravelled = new long[INITIAL_CAPACITY];
+    private byte[] typeOrdinals = new byte[INITIAL_CAPACITY];
+    private byte[] fuelTypeOrdinals = new byte[INITIAL_CAPACITY];
+
+    private final Map<String, Integer> codesByName = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+    private int[] usesOfNames = new int[INITIAL_CAPACITY];
+    private final ArrayDeque<Integer> freeNameCodes = new ArrayDeque<>();
+    private final CreationDates packedDates = new CreationDates();
+    private final Map<Long, String> creationDatesNotPacked = new HashMap<>(); // by key, dates in other formats
+
+    @Override
+    public Vehicle get(long key) {
+        int row = rowsByKey.get(key);
+        if (row < 0)
+            return null;
+        return new Vehicle(ids[row], names.get(nameCodes[row]), new Coordinates(xs[row], ys[row]),
+                creationDateOf(row), enginePowers[row], distancesTravelled[row],
+                typeOrdinals[row] < 0 ? null : VEHICLE_TYPES[typeOrdinals[row]],
+                fuelTypeOrdinals[row] < 0 ? null : FUEL_TYPES[fuelTypeOrdinals[row]]);
+    }
+
+    @Override
+    public void put(long key, Vehicle vehicle) {
+        int row = rowsByKey.get(key);
+        if (row < 0) {
+            row = countOfRows++;
+            if (row == keys.length)
+                grow();
+            rowsByKey.put(key, row);
+            keys[row] = key;
+            insertSortedKey(key, row);
+        } else {
+            releaseName(nameCodes[row]);
+        }
+        ids[row] = vehicle.getId();
+        nameCodes[row] = acquireName(vehicle.getName());
+        xs[row] = vehicle.getCoordinates().getX();
+        ys[row] = vehicle.getCoordinates().getY();
+        putCreationDate(row, key, vehicle.getCreationDate());
+        enginePowers[row] = vehicle.getEnginePower();
+        distancesTravelled[row] = vehicle.getDistanceTravelled();
+        typeOrdinals[row] = (byte) (vehicle.getType() == null ? -1 : vehicle.getType().ordinal());
+        fuelTypeOrdinals[row] = (byte) (vehicle.getFuelType() == null ? -1 : vehicle.getFuelType().ordinal());
+    }
+
+    @Override
+    public boolean remove(long key) {
+        int row = rowsByKey.get(key);
+        if (row < 0)
+            return false;
+        int position = Arrays.binarySearch(sortedKeys, 0, countOfRows, key);
+        System.arraycopy(sortedKeys, position + 1, sortedKeys, position, countOfRows - position - 1);
+        removeRow(row);
+        return true;
+    }
+
+    @Override
+    public boolean containsKey(long key) {
+        return rowsByKey.get(key) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return countOfRows;
+    }
+
+    /**
+     * Also forgets the dictionaries of names and time zones.
+     */
+    @Override
+    public void clear() {
+        rowsByKey.clear();
+        countOfRows = 0;
+        codesByName.clear();
+        names.clear();
+        usesOfNames = new int[INITIAL_CAPACITY];
+        freeNameCodes.clear();
+        packedDates.clear();
+        creationDatesNotPacked.clear();
+    }
+
+    @Override
+    public long getId(long key) {
+        return ids[rowsByKey.get(key)];
+    }
+
+    @Override
+    public int getEnginePower(long key) {
+        return enginePowers[rowsByKey.get(key)];
+    }
+
+    @Override
+    public long getDistanceTravelled(long key) {
+        return distancesTravelled[rowsByKey.get(key)];
+    }
+
+    @Override
+    public VehicleType getType(long key) {
+        byte ordinal = typeOrdinals[rowsByKey.get(key)];
+        return ordinal < 0 ? null : VEHICLE_TYPES[ordinal];
+    }
+
+    @Override
+    public FuelType getFuelType(long key) {
+        byte ordinal = fuelTypeOrdinals[rowsByKey.get(key)];
+        return ordinal < 0 ? null : FUEL_TYPES[ordinal];
+    }
+
+    /**
+     * Copies the keys after the position of the given one in the sorted column.
+     */
+    @Override
+    public long[] keysAfter(long key, int count) {
+        int from = positionAfter(key);
+        return Arrays.copyOfRange(sortedKeys, from, from + Math.min(count, countOfRows - from));
+    }
+
+    /**
+     * Removes the keys from the end of the sorted column, so it stays sorted without moving any key.
+     */
+    @Override
+    public int removeKeysAfter(long key, LongConsumer beforeRemove) {
+        int countOfRemoved = countOfRows - positionAfter(key);
+        for (int i = 0; i < countOfRemoved; i++) {
+            long removedKey = sortedKeys[countOfRows - 1];
+            beforeRemove.accept(removedKey);
+            removeRow(rowsByKey.get(removedKey));
+        }
+        return countOfRemoved;
+    }
+
+    @Override
+    public void forEachKey(LongConsumer action) {
+        for (int row = 0; row < countOfRows; row++)
+            action.accept(keys[row]);
+    }
+
+    /**
+     * Evaluates the ranges a column at a time: every range marks its rows in a bitmap by one pass over its column,
+     * the bitmaps of a group are intersected and the groups are joined.
+     */
+    @Override
+    public long[] keysInRanges(List<List<FieldRange>> alternatives) {
+        long[] rows = rowsInRanges(alternatives);
+        long[] selected = new long[countOfMarks(rows)];
+        int countOfSelected = 0;
+        for (int word = 0; word < rows.length; word++) {
+            for (long marks = rows[word]; marks != 0; marks &= marks - 1)
+                selected[countOfSelected++] = keys[word * Long.SIZE + Long.numberOfTrailingZeros(marks)];
+        }
+        Arrays.sort(selected);
+        return selected;
+    }
+
+    @Override
+    public int countInRanges(List<List<FieldRange>> alternatives) {
+        return countOfMarks(rowsInRanges(alternatives));
+    }
+
+    @Override
+    public boolean keepsColumns() {
+        return true;
+    }
+
+    /**
+     * @return Bitmap of the matching rows, a bit for every row.
+     */
+    private long[] rowsInRanges(List<List<FieldRange>> alternatives) {
+        long[] matchingRows = new long[(countOfRows + Long.SIZE - 1) / Long.SIZE];
+        for (List<FieldRange> ranges : alternatives) {
+            long[] groupRows = allRows();
+            for (FieldRange range : ranges) {
+                long[] rangeRows = rowsInRange(range);
+                for (int word = 0; word < groupRows.length; word++)
+                    groupRows[word] &= rangeRows[word];
+            }
+            for (int word = 0; word < matchingRows.length; word++)
+                matchingRows[word] |= groupRows[word];
+        }
+        return matchingRows;
+    }
+
+    private long[] allRows() {
+        long[] rows = new long[(countOfRows + Long.SIZE - 1) / Long.SIZE];
+        Arrays.fill(rows, -1L);
+        if (countOfRows % Long.SIZE != 0)
+            rows[rows.length - 1] = (1L << countOfRows) - 1;
+        return rows;
+    }
+
+    /**
+     * @return Rows whose value in the column of the range lies in it, found by one pass over the column.
+     * A value is in the range if its distance from the minimum, taken as unsigned, is within the width of the range,
+     * the bit of every row is or-ed in without a branch, so random values do not stall the scan.
+     */
+    private long[] rowsInRange(FieldRange range) {
+        int countOfRows = this.countOfRows; // kept in a local, so the loops do not read the field after every store
+        long[] rows = new long[(countOfRows + Long.SIZE - 1) / Long.SIZE];
+        if (range.min() > range.max())
+            return rows;
+        long min = range.min();
+        long width = range.max() - range.min();
+        switch (range.column()) {
+            case ENGINE_POWER -> {
+                int[] values = enginePowers;
+                for (int row = 0; row < countOfRows; row++)
+                    rows[row >>> 6] |= (Long.compareUnsigned(values[row] - min, width) <= 0 ? 1L : 0L) << row;
+            }
+            case DISTANCE_TRAVELLED -> {
+                long[] values = distancesTravelled;
+                for (int row = 0; row < countOfRows; row++)
+                    rows[row >>> 6] |= (Long.compareUnsigned(values[row] - min, width) <= 0 ? 1L : 0L) << row;
+            }
+            case VEHICLE_TYPE -> markOrdinals(rows, countOfRows, typeOrdinals, ordinalsInRange(range, VEHICLE_TYPES.length,
+                    ordinal -> VEHICLE_TYPES[ordinal].getSerialNumber()));
+            case FUEL_TYPE -> markOrdinals(rows, countOfRows, fuelTypeOrdinals, ordinalsInRange(range, FUEL_TYPES.length,
+                    ordinal -> FUEL_TYPES[ordinal].getSerialNumber()));
+        }
+        return rows;
+    }
+
+    /**
+     * @return Bits, 1 or 0, of the ordinals whose serial numbers lie in the range, shifted by one,
+     * so the first bit stands for no value and is 0.
+     */
+    private static long[] ordinalsInRange(FieldRange range, int countOfOrdinals, IntUnaryOperator serialNumbers) {
+        long[] inRange = new long[countOfOrdinals + 1];
+        for (int ordinal = 0; ordinal < countOfOrdinals; ordinal++)
+            inRange[ordinal + 1] = range.contains(serialNumbers.applyAsInt(ordinal)) ? 1 : 0;
+        return inRange;
+    }
+
+    private static void markOrdinals(long[] rows, int countOfRows, byte[] ordinals, long[] inRange) {
+        for (int row = 0; row < countOfRows; row++)
+            rows[row >>> 6] |= inRange[ordinals[row] + 1] << row;
+    }
+
+    private static int countOfMarks(long[] rows) {
+        int countOfMarks = 0;
+        for (long marks : rows)
+            countOfMarks += Long.bitCount(marks);
+        return countOfMarks;
+    }
+
+    /**
+     * @return Position of the first key greater than the given one in the sorted column.
+     */
+    private int positionAfter(long key) {
+        int position = Arrays.binarySearch(sortedKeys, 0, countOfRows, key);
+        return position >= 0 ? position + 1 : -position - 1;
+    }
+
+    /**
+     * Puts the new key into the sorted column, the row of the key is already counted.
+     */
+    private void insertSortedKey(long key, int row) {
+        if (row == 0 || sortedKeys[row - 1] < key) {
+            sortedKeys[row] = key;
+            return;
+        }
+        int position = positionAfter(key);
+        System.arraycopy(sortedKeys, position, sortedKeys, position + 1, row - position);
+        sortedKeys[position] = key;
+    }
+
+    /**
+     * @return Code of the name in the dictionary, the name is added if no element uses it yet.
+     */
+    private int acquireName(String name) {
+        Integer code = codesByName.get(name);
+        if (code == null) {
+            if (freeNameCodes.isEmpty()) {
+                code = names.size();
+                names.add(name);
+                if (code == usesOfNames.length)
+                    usesOfNames = Arrays.copyOf(usesOfNames, code * 2);
+            } else {
+                code = freeNameCodes.pop();
+                names.set(code, name);
+            }
+            codesByName.put(name, code);
+        }
+        usesOfNames[code]++;
+        return code;
+    }
+
+    private void releaseName(int code) {
+        if (--usesOfNames[code] > 0)
+            return;
+        codesByName.remove(names.get(code));
+        names.set(code, null);
+        freeNameCodes.push(code);
+    }
+
+    /**
+     * Packs the date, or keeps it as it is if it cannot be packed.
+     */
+    private void putCreationDate(int row, long key, String creationDate) {
+        creationDatesNotPacked.remove(key);
+        creationDates[row] = packedDates.pack(creationDate);
+        if (creationDates[row] == CreationDates.NOT_PACKED)
+            creationDatesNotPacked.put(key, creationDate);
+    }
+
+    private String creationDateOf(int row) {
+        if (creationDates[row] == CreationDates.NOT_PACKED)
+            return creationDatesNotPacked.get(keys[row]);
+        return packedDates.unpack(creationDates[row]);
+    }
+
+    /**
+     * Moves the last row into the place of the removed one.
+     * The caller has already taken the key out of the sorted column.
+     */
+    private void removeRow(int row) {
+        rowsByKey.remove(keys[row]);
+        creationDatesNotPacked.remove(keys[row]);
+        releaseName(nameCodes[row]);
+        int lastRow = --countOfRows;
+        if (row == lastRow)
+            return;
+        keys[row] = keys[lastRow];
+        ids[row] = ids[lastRow];
+        nameCodes[row] = nameCodes[lastRow];
+        xs[row] = xs[lastRow];
+        ys[row] = ys[lastRow];
+        creationDates[row] = creationDates[lastRow];
+        enginePowers[row] = enginePowers[lastRow];
+        distancesTravelled[row] = distancesTravelled[lastRow];
+        typeOrdinals[row] = typeOrdinals[lastRow];
+        fuelTypeOrdinals[row] = fuelTypeOrdinals[lastRow];
+        rowsByKey.put(keys[row], row);
+    }
+
+    private void grow() {
+        int capacity = keys.length * 2;
+        keys = Arrays.copyOf(keys, capacity);
+        sortedKeys = Arrays.copyOf(sortedKeys, capacity);
+        ids = Arrays.copyOf(ids, capacity);
+        nameCodes = Arrays.copyOf(nameCodes, capacity);
+        xs = Arrays.copyOf(xs, capacity);
+        ys = Arrays.copyOf(ys, capacity);
+        creationDates = Arrays.copyOf(creationDates, capacity);
+        enginePowers = Arrays.copyOf(enginePowers, capacity);
+        distancesTravelled = Arrays.copyOf(distancesTravelled, capacity);
+        typeOrdinals = Arrays.copyOf(typeOrdinals, capacity);
+        fuelTypeOrdinals = Arrays.copyOf(fuelTypeOrdinals, capacity);
+    }
+}
@@ -1,9 +1,12 @@
 package data;
 
+import java.io.Serializable;
+
 /**
  * Contains two coordinate variables for Vehicle class.
  */
-public class Coordinates {
+public class Coordinates implements Serializable {
+    private static final long serialVersionUID = 1L;
     private float x;
     private double y;
     private static final int accuracy = 5;
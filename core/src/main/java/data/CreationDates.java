@@ -0,0 +1,72 @@
+package data;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Packs creation dates of elements into longs for the stores that keep fields as primitives:
+ * epoch milliseconds in the high 48 bits and the code of the time zone in the low 16 bits.
+ * Time zones are kept once in a dictionary. The last packed date is remembered,
+ * since elements created in a row share their dates.
+ */
+class CreationDates {
+    static final long NOT_PACKED = Long.MIN_VALUE;
+    private static final DateTimeFormatter FORMATTER =
+            DateTimeFormatter.ofPattern("dd/MM/yyy - HH:mm:ss z"); // same as the dates made by ValueTransformer
+    private static final int ZONE_BITS = 16;
+    private static final long MAX_MILLIS = (1L << (Long.SIZE - ZONE_BITS - 1)) - 1;
+    private final Map<ZoneId, Integer> codesByZone = new HashMap<>();
+    private final List<ZoneId> zones = new ArrayList<>();
+    private String lastDate;
+    private long lastPackedDate;
+
+    /**
+     * @return Packed date, or {@link #NOT_PACKED} if the date cannot be made back the same from it.
+     */
+    long pack(String creationDate) {
+        if (creationDate != null && creationDate.equals(lastDate))
+            return lastPackedDate;
+        lastPackedDate = packNew(creationDate);
+        lastDate = creationDate;
+        return lastPackedDate;
+    }
+
+    private long packNew(String creationDate) {
+        ZonedDateTime dateTime;
+        try {
+            dateTime = ZonedDateTime.parse(creationDate, FORMATTER);
+        } catch (DateTimeParseException | NullPointerException e) {
+            return NOT_PACKED;
+        }
+        long millis = dateTime.toInstant().toEpochMilli();
+        if (Math.abs(millis) > MAX_MILLIS || !dateTime.format(FORMATTER).equals(creationDate))
+            return NOT_PACKED;
+        Integer zoneCode = codesByZone.get(dateTime.getZone());
+        if (zoneCode == null) {
+            if (zones.size() == 1 << ZONE_BITS)
+                return NOT_PACKED;
+            zoneCode = zones.size();
+            zones.add(dateTime.getZone());
+            codesByZone.put(dateTime.getZone(), zoneCode);
+        }
+        return millis << ZONE_BITS | zoneCode;
+    }
+
+    String unpack(long packedDate) {
+        ZoneId zone = zones.get((int) (packedDate & ((1 << ZONE_BITS) - 1)));
+        return Instant.ofEpochMilli(packedDate >> ZONE_BITS).atZone(zone).format(FORMATTER);
+    }
+
+    void clear() {
+        codesByZone.clear();
+        zones.clear();
+        lastDate = null;
+    }
+}
@@ -0,0 +1,20 @@
+package data;
+
+/**
+ * Fields of one element that filters compare, read from a {@link VehicleStore} without building the element.
+ */
+public interface ElementFields {
+    int getEnginePower();
+
+    long getDistanceTravelled();
+
+    /**
+     * @return Type, or null if the element has none.
+     */
+    VehicleType getType();
+
+    /**
+     * @return Fuel type, or null if the element has none.
+     */
+    FuelType getFuelType();
+}
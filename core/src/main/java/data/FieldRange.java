@@ -0,0 +1,48 @@
+package data;
+
+/**
+ * Condition on one field of the elements: its value lies between min and max, both included.
+ * Types are compared by their serial numbers, an element without the type does not match.
+ */
+public record FieldRange(Column column, long min, long max) {
+    /**
+     * Fields that a store can scan without building the elements.
+     */
+    public enum Column {
+        ENGINE_POWER,
+        DISTANCE_TRAVELLED,
+        VEHICLE_TYPE,
+        FUEL_TYPE
+    }
+
+    public static FieldRange of(Column column, long value) {
+        return new FieldRange(column, value, value);
+    }
+
+    /**
+     * @return Range of the values greater than the given one, empty if there are none.
+     */
+    public static FieldRange greaterThan(Column column, long value) {
+        return value == Long.MAX_VALUE ? new FieldRange(column, 1, 0) : new FieldRange(column, value + 1, Long.MAX_VALUE);
+    }
+
+    /**
+     * @return Range of the values less than the given one, empty if there are none.
+     */
+    public static FieldRange lessThan(Column column, long value) {
+        return value == Long.MIN_VALUE ? new FieldRange(column, 1, 0) : new FieldRange(column, Long.MIN_VALUE, value - 1);
+    }
+
+    public boolean holdsFor(ElementFields fields) {
+        return switch (column) {
+            case ENGINE_POWER -> contains(fields.getEnginePower());
+            case DISTANCE_TRAVELLED -> contains(fields.getDistanceTravelled());
+            case VEHICLE_TYPE -> fields.getType() != null && contains(fields.getType().getSerialNumber());
+            case FUEL_TYPE -> fields.getFuelType() != null && contains(fields.getFuelType().getSerialNumber());
+        };
+    }
+
+    public boolean contains(long value) {
+        return value >= min && value <= max;
+    }
+}
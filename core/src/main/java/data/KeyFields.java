@@ -0,0 +1,33 @@
+package data;
+
+/**
+ * Fields of the element with the current key, read from the store by key.
+ */
+class KeyFields implements ElementFields {
+    private final VehicleStore dataBase;
+    long key;
+
+    KeyFields(VehicleStore dataBase) {
+        this.dataBase = dataBase;
+    }
+
+    @Override
+    public int getEnginePower() {
+        return dataBase.getEnginePower(key);
+    }
+
+    @Override
+    public long getDistanceTravelled() {
+        return dataBase.getDistanceTravelled(key);
+    }
+
+    @Override
+    public VehicleType getType() {
+        return dataBase.getType(key);
+    }
+
+    @Override
+    public FuelType getFuelType() {
+        return dataBase.getFuelType(key);
+    }
+}
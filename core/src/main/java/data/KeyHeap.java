@@ -0,0 +1,56 @@
+package data;
+
+import java.util.Arrays;
+
+/**
+ * Bounded max-heap of keys that keeps the smallest of the offered keys,
+ * used by the stores that find keys in order by scanning all of them.
+ */
+class KeyHeap {
+    private final long[] heap;
+    private int size;
+
+    KeyHeap(int capacity) {
+        heap = new long[capacity];
+    }
+
+    void offer(long key) {
+        if (size < heap.length) {
+            int index = size++;
+            heap[index] = key;
+            while (index > 0 && heap[(index - 1) / 2] < heap[index]) {
+                swap((index - 1) / 2, index);
+                index = (index - 1) / 2;
+            }
+        } else if (size > 0 && key < heap[0]) {
+            heap[0] = key;
+            int index = 0;
+            while (true) {
+                int largest = index;
+                for (int child = 2 * index + 1; child <= 2 * index + 2 && child < size; child++) {
+                    if (heap[child] > heap[largest])
+                        largest = child;
+                }
+                if (largest == index)
+                    return;
+                swap(largest, index);
+                index = largest;
+            }
+        }
+    }
+
+    /**
+     * @return Kept keys in ascending order.
+     */
+    long[] toSortedArray() {
+        long[] keys = Arrays.copyOf(heap, size);
+        Arrays.sort(keys);
+        return keys;
+    }
+
+    private void swap(int i, int j) {
+        long key = heap[i];
+        heap[i] = heap[j];
+        heap[j] = key;
+    }
+}
@@ -0,0 +1,62 @@
+package data;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Map of the elements of a store in key order, the keys are taken when iteration starts
+ * and every element is built when it is reached, so the elements are not kept together on the heap.
+ * A named class, because Gson does not write anonymous ones.
+ */
+class KeyOrderView extends AbstractMap<Long, Vehicle> {
+    private final VehicleStore dataBase;
+
+    KeyOrderView(VehicleStore dataBase) {
+        this.dataBase = dataBase;
+    }
+
+    @Override
+    public Set<Entry<Long, Vehicle>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<Long, Vehicle>> iterator() {
+                long[] keys = dataBase.keysAfter(Long.MIN_VALUE, dataBase.size());
+                return new Iterator<>() {
+                    private int index;
+
+                    @Override
+                    public boolean hasNext() {
+                        return index < keys.length;
+                    }
+
+                    @Override
+                    public Entry<Long, Vehicle> next() {
+                        if (!hasNext())
+                            throw new NoSuchElementException();
+                        long key = keys[index++];
+                        return Map.entry(key, dataBase.get(key));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return dataBase.size();
+            }
+        };
+    }
+
+    @Override
+    public Vehicle get(Object key) {
+        return key instanceof Long ? dataBase.get((Long) key) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof Long && dataBase.containsKey((Long) key);
+    }
+}
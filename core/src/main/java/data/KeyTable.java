@@ -0,0 +1,98 @@
+package data;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash table from a key to its row, without boxing,
+ * for the stores and indexes that number their elements by rows.
+ * Removal shifts the following entries of the cluster back, so no deleted marks are left.
+ */
+public class KeyTable {
+    public static final int NO_ROW = -1;
+    private static final int INITIAL_CAPACITY = 2048;
+    private long[] slotKeys;
+    private int[] slotRows;
+    private int countOfKeys;
+
+    public KeyTable() {
+        clear();
+    }
+
+    /**
+     * @return Row of the key, or -1 if the key is absent.
+     */
+    public int get(long key) {
+        int mask = slotKeys.length - 1;
+        for (int slot = slotOf(key, mask); slotRows[slot] != NO_ROW; slot = (slot + 1) & mask) {
+            if (slotKeys[slot] == key)
+                return slotRows[slot];
+        }
+        return NO_ROW;
+    }
+
+    public void put(long key, int row) {
+        int mask = slotKeys.length - 1;
+        int slot = slotOf(key, mask);
+        while (slotRows[slot] != NO_ROW && slotKeys[slot] != key)
+            slot = (slot + 1) & mask;
+        if (slotRows[slot] == NO_ROW)
+            countOfKeys++;
+        slotKeys[slot] = key;
+        slotRows[slot] = row;
+        if (countOfKeys * 2 > slotKeys.length)
+            resize(slotKeys.length * 2);
+    }
+
+    public void remove(long key) {
+        int mask = slotKeys.length - 1;
+        int slot = slotOf(key, mask);
+        while (slotRows[slot] != NO_ROW && slotKeys[slot] != key)
+            slot = (slot + 1) & mask;
+        if (slotRows[slot] == NO_ROW)
+            return;
+        countOfKeys--;
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            if (slotRows[next] == NO_ROW)
+                break;
+            int home = slotOf(slotKeys[next], mask);
+            if (((next - home) & mask) >= ((next - slot) & mask)) { // entry may fill the hole
+                slotKeys[slot] = slotKeys[next];
+                slotRows[slot] = slotRows[next];
+                slot = next;
+            }
+        }
+        slotRows[slot] = NO_ROW;
+    }
+
+    public void clear() {
+        slotKeys = new long[INITIAL_CAPACITY];
+        slotRows = new int[INITIAL_CAPACITY];
+        Arrays.fill(slotRows, NO_ROW);
+        countOfKeys = 0;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = slotKeys;
+        int[] oldRows = slotRows;
+        slotKeys = new long[capacity];
+        slotRows = new int[capacity];
+        Arrays.fill(slotRows, NO_ROW);
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldRows[i] == NO_ROW)
+                continue;
+            int slot = slotOf(oldKeys[i], mask);
+            while (slotRows[slot] != NO_ROW)
+                slot = (slot + 1) & mask;
+            slotKeys[slot] = oldKeys[i];
+            slotRows[slot] = oldRows[i];
+        }
+    }
+
+    private static int slotOf(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
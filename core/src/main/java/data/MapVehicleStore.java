@@ -0,0 +1,110 @@
+package data;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongConsumer;
+
+/**
+ * Keeps the elements as objects in a {@link ConcurrentSkipListMap} sorted by key.
+ */
+public class MapVehicleStore implements VehicleStore {
+    private final ConcurrentSkipListMap<Long, Vehicle> dataBase = new ConcurrentSkipListMap<>();
+
+    @Override
+    public Vehicle get(long key) {
+        return dataBase.get(key);
+    }
+
+    @Override
+    public void put(long key, Vehicle vehicle) {
+        dataBase.put(key, vehicle);
+    }
+
+    @Override
+    public boolean remove(long key) {
+        return dataBase.remove(key) != null;
+    }
+
+    @Override
+    public boolean containsKey(long key) {
+        return dataBase.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return dataBase.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return dataBase.isEmpty();
+    }
+
+    @Override
+    public void clear() {
+        dataBase.clear();
+    }
+
+    @Override
+    public long getId(long key) {
+        return dataBase.get(key).getId();
+    }
+
+    @Override
+    public int getEnginePower(long key) {
+        return dataBase.get(key).getEnginePower();
+    }
+
+    @Override
+    public long getDistanceTravelled(long key) {
+        return dataBase.get(key).getDistanceTravelled();
+    }
+
+    @Override
+    public VehicleType getType(long key) {
+        return dataBase.get(key).getType();
+    }
+
+    @Override
+    public FuelType getFuelType(long key) {
+        return dataBase.get(key).getFuelType();
+    }
+
+    @Override
+    public long[] keysAfter(long key, int count) {
+        long[] keys = new long[Math.min(count, dataBase.size())];
+        int countOfKeys = 0;
+        Iterator<Long> greaterKeys = dataBase.tailMap(key, false).keySet().iterator();
+        while (countOfKeys < keys.length && greaterKeys.hasNext())
+            keys[countOfKeys++] = greaterKeys.next();
+        return countOfKeys == keys.length ? keys : Arrays.copyOf(keys, countOfKeys);
+    }
+
+    /**
+     * Clears the tail of the map as one range.
+     */
+    @Override
+    public int removeKeysAfter(long key, LongConsumer beforeRemove) {
+        ConcurrentNavigableMap<Long, Vehicle> greaterKeys = dataBase.tailMap(key, false);
+        int countOfRemoved = 0;
+        for (Long greaterKey : greaterKeys.keySet()) {
+            beforeRemove.accept(greaterKey);
+            countOfRemoved++;
+        }
+        greaterKeys.clear();
+        return countOfRemoved;
+    }
+
+    @Override
+    public void forEachKey(LongConsumer action) {
+        dataBase.keySet().forEach(action::accept);
+    }
+
+    @Override
+    public Map<Long, Vehicle> inKeyOrder() {
+        return dataBase;
+    }
+}
@@ -0,0 +1,115 @@
+package data;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Growable memory outside the heap, addressed by long offsets.
+ * Made of direct buffers of {@link #CHUNK_SIZE} bytes, so it is not limited by the size of one buffer;
+ * a value must not cross the border of a chunk. While the memory is smaller than one chunk,
+ * it is a single buffer that is doubled when it grows. New memory is filled with zeros.
+ * Reading does not change the buffers, so it may be done by several threads at once.
+ */
+class OffHeapMemory {
+    static final int CHUNK_SHIFT = 26;
+    static final int CHUNK_SIZE = 1 << CHUNK_SHIFT; // 64 MiB
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int INITIAL_SIZE = 1 << 16;
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+
+    long capacity() {
+        if (chunks.size() == 1)
+            return chunks.get(0).capacity();
+        return (long) chunks.size() << CHUNK_SHIFT;
+    }
+
+    /**
+     * Grows the memory, so that it has at least the given count of bytes.
+     */
+    void ensureCapacity(long size) {
+        while (capacity() < size) {
+            if (chunks.isEmpty()) {
+                chunks.add(allocate(INITIAL_SIZE));
+            } else if (chunks.size() == 1 && chunks.get(0).capacity() < CHUNK_SIZE) {
+                ByteBuffer chunk = allocate(chunks.get(0).capacity() * 2);
+                chunk.put(0, chunks.get(0), 0, chunks.get(0).capacity());
+                chunks.set(0, chunk);
+            } else {
+                chunks.add(allocate(CHUNK_SIZE));
+            }
+        }
+    }
+
+    /**
+     * Gives the memory back, the buffers are freed when they are collected.
+     */
+    void release() {
+        chunks.clear();
+    }
+
+    long getLong(long offset) {
+        return chunkOf(offset).getLong((int) (offset & CHUNK_MASK));
+    }
+
+    void putLong(long offset, long value) {
+        chunkOf(offset).putLong((int) (offset & CHUNK_MASK), value);
+    }
+
+    int getInt(long offset) {
+        return chunkOf(offset).getInt((int) (offset & CHUNK_MASK));
+    }
+
+    void putInt(long offset, int value) {
+        chunkOf(offset).putInt((int) (offset & CHUNK_MASK), value);
+    }
+
+    float getFloat(long offset) {
+        return chunkOf(offset).getFloat((int) (offset & CHUNK_MASK));
+    }
+
+    void putFloat(long offset, float value) {
+        chunkOf(offset).putFloat((int) (offset & CHUNK_MASK), value);
+    }
+
+    double getDouble(long offset) {
+        return chunkOf(offset).getDouble((int) (offset & CHUNK_MASK));
+    }
+
+    void putDouble(long offset, double value) {
+        chunkOf(offset).putDouble((int) (offset & CHUNK_MASK), value);
+    }
+
+    byte getByte(long offset) {
+        return chunkOf(offset).get((int) (offset & CHUNK_MASK));
+    }
+
+    void putByte(long offset, byte value) {
+        chunkOf(offset).put((int) (offset & CHUNK_MASK), value);
+    }
+
+    void getBytes(long offset, byte[] bytes) {
+        chunkOf(offset).get((int) (offset & CHUNK_MASK), bytes);
+    }
+
+    void putBytes(long offset, byte[] bytes) {
+        chunkOf(offset).put((int) (offset & CHUNK_MASK), bytes);
+    }
+
+    /**
+     * Copies bytes from other memory, the bytes must lie inside one chunk in both.
+     */
+    void copyFrom(OffHeapMemory source, long sourceOffset, long offset, int length) {
+        chunkOf(offset).put((int) (offset & CHUNK_MASK),
+                source.chunkOf(sourceOffset), (int) (sourceOffset & CHUNK_MASK), length);
+    }
+
+    private ByteBuffer chunkOf(long offset) {
+        return chunks.get((int) (offset >>> CHUNK_SHIFT));
+    }
+
+    private static ByteBuffer allocate(int size) {
+        return ByteBuffer.allocateDirect(size).order(ByteOrder.nativeOrder());
+    }
+}
@@ -0,0 +1,387 @@
+package data;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.LongConsumer;
+
+/**
+ * Keeps the elements outside the heap, so a large collection costs the garbage collector almost nothing.
+ * Every element is a record of {@link #RECORD_SIZE} bytes in {@link OffHeapMemory},
+ * records stay dense: the last record is moved into the place of a removed one.
+ * Names are appended to an arena outside the heap, the record keeps the offset of its name;
+ * names that are no longer used are dropped by compacting the arena when they take more than half of it.
+ * Keys are found by an open addressing hash table outside the heap.
+ * Elements are built only when they are asked for by {@link #get(long)} or {@link #inKeyOrder()}.
+ * The direct memory is limited by the JVM option {@code -XX:MaxDirectMemorySize}.
+ * Not synchronized: the collection is changed only while no command reads it.
+ */
+public class OffHeapVehicleStore implements VehicleStore {
+    private static final int RECORD_SIZE = 64;
+    private static final int KEY = 0;
+    private static final int ID = 8;
+    private static final int NAME = 16;
+    private static final int X = 24;
+    private static final int ENGINE_POWER = 28;
+    private static final int Y = 32;
+    private static final int CREATION_DATE = 40;
+    private static final int DISTANCE_TRAVELLED = 48;
+    private static final int TYPE = 56;
+    private static final int FUEL_TYPE = 57;
+    private static final int NULL_NAME = -1;
+    private static final long MIN_GARBAGE_TO_COMPACT = 1 << 20;
+    private static final VehicleType[] VEHICLE_TYPES = VehicleType.values();
+    private static final FuelType[] FUEL_TYPES = FuelType.values();
+
+    private final OffHeapMemory records = new OffHeapMemory();
+    private int countOfRecords;
+    private final KeyTable recordsByKey = new KeyTable();
+    private OffHeapMemory names = new OffHeapMemory();
+    private long endOfNames;
+    private long garbageOfNames;
+    private final CreationDates packedDates = new CreationDates();
+    private final Map<Long, String> creationDatesNotPacked = new HashMap<>(); // by key, dates in other formats
+
+    @Override
+    public Vehicle get(long key) {
+        int record = recordsByKey.get(key);
+        if (record < 0)
+            return null;
+        long offset = offsetOf(record);
+        byte type = records.getByte(offset + TYPE);
+        byte fuelType = records.getByte(offset + FUEL_TYPE);
+        return new Vehicle(records.getLong(offset + ID), nameAt(records.getLong(offset + NAME)),
+                new Coordinates(records.getFloat(offset + X), records.getDouble(offset + Y)),
+                creationDateOf(key, records.getLong(offset + CREATION_DATE)),
+                records.getInt(offset + ENGINE_POWER), records.getLong(offset + DISTANCE_TRAVELLED),
+                type < 0 ? null : VEHICLE_TYPES[type], fuelType < 0 ? null : FUEL_TYPES[fuelType]);
+    }
+
+    @Override
+    public void put(long key, Vehicle vehicle) {
+        int record = recordsByKey.get(key);
+        long offset;
+        if (record < 0) {
+            record = countOfRecords++;
+            offset = offsetOf(record);
+            records.ensureCapacity(offset + RECORD_SIZE);
+            recordsByKey.put(key, record);
+            records.putLong(offset + KEY, key);
+        } else {
+            offset = offsetOf(record);
+            releaseName(records.getLong(offset + NAME));
+        }
+        records.putLong(offset + ID, vehicle.getId());
+        records.putLong(offset + NAME, appendName(vehicle.getName()));
+        records.putFloat(offset + X, vehicle.getCoordinates().getX());
+        records.putDouble(offset + Y, vehicle.getCoordinates().getY());
+        creationDatesNotPacked.remove(key);
+        long creationDate = packedDates.pack(vehicle.getCreationDate());
+        if (creationDate == CreationDates.NOT_PACKED)
+            creationDatesNotPacked.put(key, vehicle.getCreationDate());
+        records.putLong(offset + CREATION_DATE, creationDate);
+        records.putInt(offset + ENGINE_POWER, vehicle.getEnginePower());
+        records.putLong(offset + DISTANCE_TRAVELLED, vehicle.getDistanceTravelled());
+        records.putByte(offset + TYPE, (byte) (vehicle.getType() == null ? -1 : vehicle.getType().ordinal()));
+        records.putByte(offset + FUEL_TYPE,
+                (byte) (vehicle.getFuelType() == null ? -1 : vehicle.getFuelType().ordinal()));
+        compactNamesIfNeeded();
+    }
+
+    @Override
+    public boolean remove(long key) {
+        int record = recordsByKey.get(key);
+        if (record < 0)
+            return false;
+        removeRecord(record);
+        compactNamesIfNeeded();
+        return true;
+    }
+
+    @Override
+    public boolean containsKey(long key) {
+        return recordsByKey.get(key) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return countOfRecords;
+    }
+
+    /**
+     * Also gives back the memory of the names and of the hash table, the memory of records is kept for reuse.
+     */
+    @Override
+    public void clear() {
+        countOfRecords = 0;
+        recordsByKey.clear();
+        names.release();
+        endOfNames = 0;
+        garbageOfNames = 0;
+        packedDates.clear();
+        creationDatesNotPacked.clear();
+    }
+
+    @Override
+    public long getId(long key) {
+        return records.getLong(offsetOf(recordsByKey.get(key)) + ID);
+    }
+
+    @Override
+    public int getEnginePower(long key) {
+        return records.getInt(offsetOf(recordsByKey.get(key)) + ENGINE_POWER);
+    }
+
+    @Override
+    public long getDistanceTravelled(long key) {
+        return records.getLong(offsetOf(recordsByKey.get(key)) + DISTANCE_TRAVELLED);
+    }
+
+    @Override
+    public VehicleType getType(long key) {
+        byte ordinal = records.getByte(offsetOf(recordsByKey.get(key)) + TYPE);
+        return ordinal < 0 ? null : VEHICLE_TYPES[ordinal];
+    }
+
+    @Override
+    public FuelType getFuelType(long key) {
+        byte ordinal = records.getByte(offsetOf(recordsByKey.get(key)) + FUEL_TYPE);
+        return ordinal < 0 ? null : FUEL_TYPES[ordinal];
+    }
+
+    /**
+     * Scans the keys of all records once, keeping the smallest suitable keys in a bounded max-heap.
+     */
+    @Override
+    public long[] keysAfter(long key, int count) {
+        KeyHeap heap = new KeyHeap(Math.min(count, countOfRecords));
+        for (int record = 0; record < countOfRecords; record++) {
+            long recordKey = records.getLong(offsetOf(record) + KEY);
+            if (recordKey > key)
+                heap.offer(recordKey);
+        }
+        return heap.toSortedArray();
+    }
+
+    /**
+     * Scans the records from the last one, so the records moved into removed places have already been checked.
+     */
+    @Override
+    public int removeKeysAfter(long key, LongConsumer beforeRemove) {
+        int countOfRemoved = 0;
+        for (int record = countOfRecords - 1; record >= 0; record--) {
+            long recordKey = records.getLong(offsetOf(record) + KEY);
+            if (recordKey <= key)
+                continue;
+            beforeRemove.accept(recordKey);
+            removeRecord(record);
+            countOfRemoved++;
+        }
+        compactNamesIfNeeded();
+        return countOfRemoved;
+    }
+
+    @Override
+    public void forEachKey(LongConsumer action) {
+        for (int record = 0; record < countOfRecords; record++)
+            action.accept(records.getLong(offsetOf(record) + KEY));
+    }
+
+    /**
+     * Moves the last record into the place of the removed one.
+     */
+    private void removeRecord(int record) {
+        long offset = offsetOf(record);
+        long key = records.getLong(offset + KEY);
+        recordsByKey.remove(key);
+        creationDatesNotPacked.remove(key);
+        releaseName(records.getLong(offset + NAME));
+        int lastRecord = --countOfRecords;
+        if (record == lastRecord)
+            return;
+        long lastOffset = offsetOf(lastRecord);
+        records.copyFrom(records, lastOffset, offset, RECORD_SIZE);
+        recordsByKey.put(records.getLong(offset + KEY), record);
+    }
+
+    private static long offsetOf(int record) {
+        return (long) record * RECORD_SIZE;
+    }
+
+    /**
+     * Appends the name to the arena as its length and its UTF-8 bytes, a name does not cross a chunk.
+     * @return Offset of the name in the arena.
+     */
+    private long appendName(String name) {
+        byte[] bytes = name == null ? new byte[0] : name.getBytes(StandardCharsets.UTF_8);
+        int size = Integer.BYTES + bytes.length;
+        if (size > OffHeapMemory.CHUNK_SIZE)
+            throw new IllegalArgumentException("Name is too long to be stored: " + bytes.length + " bytes");
+        long offsetInChunk = endOfNames & (OffHeapMemory.CHUNK_SIZE - 1);
+        if (offsetInChunk + size > OffHeapMemory.CHUNK_SIZE) {
+            garbageOfNames += OffHeapMemory.CHUNK_SIZE - offsetInChunk;
+            endOfNames += OffHeapMemory.CHUNK_SIZE - offsetInChunk;
+        }
+        long offset = endOfNames;
+        names.ensureCapacity(offset + size);
+        names.putInt(offset, name == null ? NULL_NAME : bytes.length);
+        names.putBytes(offset + Integer.BYTES, bytes);
+        endOfNames += size;
+        return offset;
+    }
+
+    private String nameAt(long offset) {
+        int length = names.getInt(offset);
+        if (length == NULL_NAME)
+            return null;
+        byte[] bytes = new byte[length];
+        names.getBytes(offset + Integer.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void releaseName(long offset) {
+        garbageOfNames += Integer.BYTES + Math.max(names.getInt(offset), 0);
+    }
+
+    /**
+     * Copies the names of all records to a new arena, when unused names take more than half of the arena.
+     */
+    private void compactNamesIfNeeded() {
+        if (garbageOfNames < MIN_GARBAGE_TO_COMPACT || garbageOfNames * 2 < endOfNames)
+            return;
+        OffHeapMemory oldNames = names;
+        names = new OffHeapMemory();
+        endOfNames = 0;
+        garbageOfNames = 0;
+        for (int record = 0; record < countOfRecords; record++) {
+            long offset = offsetOf(record);
+            long oldName = records.getLong(offset + NAME);
+            int length = Math.max(oldNames.getInt(oldName), 0);
+            long offsetInChunk = endOfNames & (OffHeapMemory.CHUNK_SIZE - 1);
+            if (offsetInChunk + Integer.BYTES + length > OffHeapMemory.CHUNK_SIZE) {
+                garbageOfNames += OffHeapMemory.CHUNK_SIZE - offsetInChunk;
+                endOfNames += OffHeapMemory.CHUNK_SIZE - offsetInChunk;
+            }
+            names.ensureCapacity(endOfNames + Integer.BYTES + length);
+            names.copyFrom(oldNames, oldName, endOfNames, Integer.BYTES + length);
+            records.putLong(offset + NAME, endOfNames);
+            endOfNames += Integer.BYTES + length;
+        }
+        oldNames.release();
+    }
+
+    private String creationDateOf(long key, long creationDate) {
+        if (creationDate == CreationDates.NOT_PACKED)
+            return creationDatesNotPacked.get(key);
+        return packedDates.unpack(creationDate);
+    }
+
+    /**
+     * Open addressing hash table from a key to its record, kept outside the heap.
+     * A slot holds the key and the number of the record plus one, zero marks an empty slot.
+     * Removal shifts the following entries of the cluster back, so no deleted marks are left.
+     */
+    private static class KeyTable {
+        private static final long INITIAL_CAPACITY = 1 << 12;
+        private OffHeapMemory slotKeys;
+        private OffHeapMemory slotRecords;
+        private long capacity;
+        private long countOfKeys;
+
+        KeyTable() {
+            clear();
+        }
+
+        /**
+         * @return Record of the key, or -1 if the key is absent.
+         */
+        int get(long key) {
+            long mask = capacity - 1;
+            for (long slot = slotOf(key, mask); ; slot = (slot + 1) & mask) {
+                int record = slotRecords.getInt(slot * Integer.BYTES) - 1;
+                if (record < 0 || slotKeys.getLong(slot * Long.BYTES) == key)
+                    return record;
+            }
+        }
+
+        void put(long key, int record) {
+            long slot = findSlot(key);
+            if (slotRecords.getInt(slot * Integer.BYTES) == 0)
+                countOfKeys++;
+            slotKeys.putLong(slot * Long.BYTES, key);
+            slotRecords.putInt(slot * Integer.BYTES, record + 1);
+            if (countOfKeys * 4 > capacity * 3)
+                resize(capacity * 2);
+        }
+
+        void remove(long key) {
+            long mask = capacity - 1;
+            long slot = findSlot(key);
+            if (slotRecords.getInt(slot * Integer.BYTES) == 0)
+                return;
+            countOfKeys--;
+            long next = slot;
+            while (true) {
+                next = (next + 1) & mask;
+                int nextRecord = slotRecords.getInt(next * Integer.BYTES);
+                if (nextRecord == 0)
+                    break;
+                long nextKey = slotKeys.getLong(next * Long.BYTES);
+                long home = slotOf(nextKey, mask);
+                if (((next - home) & mask) >= ((next - slot) & mask)) { // entry may fill the hole
+                    slotKeys.putLong(slot * Long.BYTES, nextKey);
+                    slotRecords.putInt(slot * Integer.BYTES, nextRecord);
+                    slot = next;
+                }
+            }
+            slotRecords.putInt(slot * Integer.BYTES, 0);
+        }
+
+        void clear() {
+            allocate(INITIAL_CAPACITY);
+            countOfKeys = 0;
+        }
+
+        /**
+         * @return Slot of the key, or the empty slot where it would be put.
+         */
+        private long findSlot(long key) {
+            long mask = capacity - 1;
+            long slot = slotOf(key, mask);
+            while (slotRecords.getInt(slot * Integer.BYTES) != 0 && slotKeys.getLong(slot * Long.BYTES) != key)
+                slot = (slot + 1) & mask;
+            return slot;
+        }
+
+        private void resize(long newCapacity) {
+            OffHeapMemory oldKeys = slotKeys;
+            OffHeapMemory oldRecords = slotRecords;
+            long oldCapacity = capacity;
+            allocate(newCapacity);
+            for (long oldSlot = 0; oldSlot < oldCapacity; oldSlot++) {
+                int record = oldRecords.getInt(oldSlot * Integer.BYTES);
+                if (record == 0)
+                    continue;
+                long key = oldKeys.getLong(oldSlot * Long.BYTES);
+                long slot = findSlot(key);
+                slotKeys.putLong(slot * Long.BYTES, key);
+                slotRecords.putInt(slot * Integer.BYTES, record);
+            }
+            oldKeys.release();
+            oldRecords.release();
+        }
+
+        private void allocate(long newCapacity) {
+            capacity = newCapacity;
+            slotKeys = new OffHeapMemory();
+            slotKeys.ensureCapacity(capacity * Long.BYTES);
+            slotRecords = new OffHeapMemory();
+            slotRecords.ensureCapacity(capacity * Integer.BYTES);
+        }
+
+        private static long slotOf(long key, long mask) {
+            long hash = key * 0x9E3779B97F4A7C15L;
+            return (hash ^ (hash >>> 32)) & mask;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package data;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongConsumer;
+
+/**
+ * Storage of the elements of the collection by key.
+ * Single fields can be read without building the element, so indexes and filters
+ * do not need the whole object.
+ * The implementation is chosen by the system property {@code vehicleStore}: {@code map} (default) keeps
+ * the objects in a sorted map, {@code columnar} keeps their fields in primitive arrays,
+ * {@code offheap} keeps them in records outside the heap.
+ */
+public interface VehicleStore {
+    /**
+     * @return The element built from the stored fields, or null if there is no element with the key.
+     */
+    Vehicle get(long key);
+
+    /**
+     * Puts the element by key, replacing the previous one.
+     */
+    void put(long key, Vehicle vehicle);
+
+    /**
+     * @return False, if there was no element with the key.
+     */
+    boolean remove(long key);
+
+    boolean containsKey(long key);
+
+    int size();
+
+    default boolean isEmpty() {
+        return size() == 0;
+    }
+
+    void clear();
+
+    /**
+     * Field getters read one field of the element, the key must be in the store.
+     */
+    long getId(long key);
+
+    int getEnginePower(long key);
+
+    long getDistanceTravelled(long key);
+
+    VehicleType getType(long key);
+
+    FuelType getFuelType(long key);
+
+    /**
+     * @return Up to count keys greater than the given one, in ascending order.
+     */
+    long[] keysAfter(long key, int count);
+
+    /**
+     * Removes the elements with keys greater than the given one.
+     * @param beforeRemove called with the key of every element while it is still in the store
+     * @return Count of removed elements.
+     */
+    int removeKeysAfter(long key, LongConsumer beforeRemove);
+
+    /**
+     * Calls the action for the key of every element, in no particular order.
+     */
+    void forEachKey(LongConsumer action);
+
+    /**
+     * @return Fields of the element with the key, read from the store when they are asked for.
+     */
+    default ElementFields fieldsOf(long key) {
+        KeyFields fields = new KeyFields(this);
+        fields.key = key;
+        return fields;
+    }
+
+    /**
+     * @return Keys of the elements, in ascending order, for which all ranges of at least one group hold.
+     */
+    default long[] keysInRanges(List<List<FieldRange>> alternatives) {
+        long[] keys = new long[size()];
+        int[] countOfKeys = {0};
+        KeyFields fields = new KeyFields(this);
+        forEachKey(key -> {
+            fields.key = key;
+            if (anyHolds(alternatives, fields))
+                keys[countOfKeys[0]++] = key;
+        });
+        long[] selected = Arrays.copyOf(keys, countOfKeys[0]);
+        Arrays.sort(selected);
+        return selected;
+    }
+
+    /**
+     * @return Count of the elements for which all ranges of at least one group hold.
+     */
+    default int countInRanges(List<List<FieldRange>> alternatives) {
+        return keysInRanges(alternatives).length;
+    }
+
+    /**
+     * @return True, if the fields are kept in columns that {@link #keysInRanges} scans in place,
+     * so the commands filter by scanning them instead of keeping indexes of the fields on the heap.
+     */
+    default boolean keepsColumns() {
+        return false;
+    }
+
+    private static boolean anyHolds(List<List<FieldRange>> alternatives, ElementFields fields) {
+        for (List<FieldRange> ranges : alternatives) {
+            if (allHold(ranges, fields))
+                return true;
+        }
+        return false;
+    }
+
+    private static boolean allHold(List<FieldRange> ranges, ElementFields fields) {
+        for (FieldRange range : ranges) {
+            if (!range.holdsFor(fields))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * View of the elements in key order, used to save the collection.
+     * Unless the store keeps objects, every element is built while the view is iterated and is not kept.
+     */
+    default Map<Long, Vehicle> inKeyOrder() {
+        return new KeyOrderView(this);
+    }
+
+    /**
+     * Creates an empty store chosen by the system property.
+     */
+    static VehicleStore create() {
+        String name = getStoreName();
+        return switch (name) {
+            case "map" -> new MapVehicleStore();
+            case "columnar" -> new ColumnarVehicleStore();
+            case "offheap" -> new OffHeapVehicleStore();
+            default -> throw new IllegalArgumentException("Unknown vehicle store: " + name);
+        };
+    }
+
+    /**
+     * @return Name of the store chosen by the system property.
+     */
+    static String getStoreName() {
+        return System.getProperty("vehicleStore", "map");
+    }
+}
@@ -2,5 +2,6 @@ package mods;
 
 public enum ClientRequestType {
     NEW_DATA,
-    COMMAND_EXECUTION;
+    COMMAND_EXECUTION,
+    BATCH; // carries a list of commands, answered by one answer per command
 }
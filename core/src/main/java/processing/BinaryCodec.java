@@ -0,0 +1,270 @@
+package processing;
+
+import data.Coordinates;
+import data.FuelType;
+import data.Vehicle;
+import data.VehicleType;
+import mods.AnswerType;
+import mods.ClientRequestType;
+import mods.ExecuteMode;
+import utility.CommandArguments;
+import utility.ServerAnswer;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+/**
+ * Compact field by field encoding of requests, answers and vehicles.
+ * The first byte of the encoded object is its tag, strings are written as their length and UTF-8 bytes,
+ * enums as their ordinals, null values as a length or ordinal of -1.
+ */
+public class BinaryCodec implements WireCodec {
+    public static final byte ID = 1;
+    public static final byte VERSION = 5;
+    private static final byte COMMAND_ARGUMENTS_TAG = 1;
+    private static final byte SERVER_ANSWER_TAG = 2;
+    private static final byte VEHICLE_TAG = 3;
+    private static final int NULL_LENGTH = -1;
+
+    @Override
+    public byte getId() {
+        return ID;
+    }
+
+    @Override
+    public byte getVersion() {
+        return VERSION;
+    }
+
+    @Override
+    public byte[] encode(Serializable object) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            if (object instanceof CommandArguments commandArguments) {
+                out.writeByte(COMMAND_ARGUMENTS_TAG);
+                writeCommandArguments(out, commandArguments);
+            } else if (object instanceof ServerAnswer serverAnswer) {
+                out.writeByte(SERVER_ANSWER_TAG);
+                writeServerAnswer(out, serverAnswer);
+            } else if (object instanceof Vehicle vehicle) {
+                out.writeByte(VEHICLE_TAG);
+                writeVehicle(out, vehicle);
+            } else {
+                throw new IllegalArgumentException(object.getClass().getName() + " cannot be encoded");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public Serializable decode(ByteBuffer in) throws IOException {
+        try {
+            byte tag = in.get();
+            return switch (tag) {
+                case COMMAND_ARGUMENTS_TAG -> readCommandArguments(in, false);
+                case SERVER_ANSWER_TAG -> readServerAnswer(in, false);
+                case VEHICLE_TAG -> readVehicle(in);
+                default -> throw new IOException("Unknown tag of encoded object: " + tag);
+            };
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Encoded object is truncated", e);
+        }
+    }
+
+    private static void writeCommandArguments(DataOutput out, CommandArguments commandArguments) throws IOException {
+        writeString(out, commandArguments.getCommandName());
+        writeStrings(out, commandArguments.getArguments());
+        writeStrings(out, commandArguments.getExtraArguments());
+        writeEnum(out, commandArguments.getClientRequestType());
+        writeEnum(out, commandArguments.getExecuteMode());
+        out.writeLong(commandArguments.getRequestId());
+        ArrayList<CommandArguments> batch = commandArguments.getBatch();
+        out.writeInt(batch == null ? NULL_LENGTH : batch.size());
+        if (batch != null) {
+            for (CommandArguments batchCommand : batch)
+                writeCommandArguments(out, batchCommand);
+        }
+        out.writeBoolean(commandArguments.isStoppingOnFailure());
+    }
+
+    /**
+     * @param isBatched if true, the command is read from a batch and cannot be a batch itself
+     */
+    private static CommandArguments readCommandArguments(ByteBuffer in, boolean isBatched) throws IOException {
+        String commandName = readString(in);
+        String[] arguments = readStrings(in);
+        String[] extraArguments = readStrings(in);
+        ClientRequestType clientRequestType = readEnum(in, ClientRequestType.values());
+        ExecuteMode executeMode = readEnum(in, ExecuteMode.values());
+        long requestId = in.getLong();
+        int batchSize = in.getInt();
+        if (batchSize < NULL_LENGTH || batchSize > in.remaining())
+            throw new IOException("Invalid count of batched commands: " + batchSize);
+        if (isBatched && (batchSize != NULL_LENGTH || clientRequestType == ClientRequestType.BATCH))
+            throw new IOException("Batched command cannot be a batch");
+        if (clientRequestType == ClientRequestType.BATCH && batchSize <= 0)
+            throw new IOException("Batch request has no commands");
+        ArrayList<CommandArguments> batch = batchSize == NULL_LENGTH ? null : new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++)
+            batch.add(readCommandArguments(in, true));
+        boolean isStoppingOnFailure = in.get() != 0;
+        CommandArguments commandArguments = new CommandArguments(commandName, arguments, extraArguments,
+                clientRequestType, executeMode);
+        commandArguments.setRequestId(requestId);
+        commandArguments.setBatch(batch);
+        commandArguments.setStoppingOnFailure(isStoppingOnFailure);
+        return commandArguments;
+    }
+
+    private static void writeServerAnswer(DataOutput out, ServerAnswer serverAnswer) throws IOException {
+        writeStringList(out, serverAnswer.outputInfo());
+        writeStringList(out, serverAnswer.userErrors());
+        out.writeBoolean(serverAnswer.commandExitStatus());
+        writeEnum(out, serverAnswer.answerType());
+        out.writeLong(serverAnswer.requestId());
+        ArrayList<ServerAnswer> batchAnswers = serverAnswer.batchAnswers();
+        out.writeInt(batchAnswers == null ? NULL_LENGTH : batchAnswers.size());
+        if (batchAnswers != null) {
+            for (ServerAnswer batchAnswer : batchAnswers)
+                writeServerAnswer(out, batchAnswer);
+        }
+        writeString(out, serverAnswer.continuationToken());
+    }
+
+    /**
+     * @param isBatched if true, the answer is read from a batch and cannot hold answers itself
+     */
+    private static ServerAnswer readServerAnswer(ByteBuffer in, boolean isBatched) throws IOException {
+        ArrayList<String> outputInfo = readStringList(in);
+        ArrayList<String> userErrors = readStringList(in);
+        boolean commandExitStatus = in.get() != 0;
+        AnswerType answerType = readEnum(in, AnswerType.values());
+        long requestId = in.getLong();
+        int batchSize = in.getInt();
+        if (batchSize < NULL_LENGTH || batchSize > in.remaining())
+            throw new IOException("Invalid count of batched answers: " + batchSize);
+        if (isBatched && batchSize != NULL_LENGTH)
+            throw new IOException("Batched answer cannot hold answers");
+        ArrayList<ServerAnswer> batchAnswers = batchSize == NULL_LENGTH ? null : new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++)
+            batchAnswers.add(readServerAnswer(in, true));
+        String continuationToken = readString(in);
+        return new ServerAnswer(outputInfo, userErrors, commandExitStatus, answerType, requestId,
+                batchAnswers, continuationToken);
+    }
+
+    /**
+     * Writes all fields of the vehicle.
+     */
+    public static void writeVehicle(DataOutput out, Vehicle vehicle) throws IOException {
+        out.writeLong(vehicle.getId());
+        writeString(out, vehicle.getName());
+        out.writeFloat(vehicle.getCoordinates().getX());
+        out.writeDouble(vehicle.getCoordinates().getY());
+        writeString(out, vehicle.getCreationDate());
+        out.writeInt(vehicle.getEnginePower());
+        out.writeLong(vehicle.getDistanceTravelled());
+        writeEnum(out, vehicle.getType());
+        writeEnum(out, vehicle.getFuelType());
+    }
+
+    /**
+     * Reads a vehicle written by {@link #writeVehicle(DataOutput, Vehicle)}.
+     */
+    public static Vehicle readVehicle(ByteBuffer in) throws IOException {
+        long id = in.getLong();
+        String name = readString(in);
+        float x = in.getFloat();
+        double y = in.getDouble();
+        String creationDate = readString(in);
+        int enginePower = in.getInt();
+        long distanceTravelled = in.getLong();
+        VehicleType type = readEnum(in, VehicleType.values());
+        FuelType fuelType = readEnum(in, FuelType.values());
+        return new Vehicle(id, name, new Coordinates(x, y), creationDate,
+                enginePower, distanceTravelled, type, fuelType);
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(NULL_LENGTH);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) throws IOException {
+        int length = in.getInt();
+        if (length == NULL_LENGTH)
+            return null;
+        if (length < 0 || length > in.remaining())
+            throw new IOException("Invalid length of string: " + length);
+        if (in.hasArray()) {
+            String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+            return value;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeStrings(DataOutput out, String[] values) throws IOException {
+        if (values == null) {
+            out.writeInt(NULL_LENGTH);
+            return;
+        }
+        out.writeInt(values.length);
+        for (String value : values)
+            writeString(out, value);
+    }
+
+    private static String[] readStrings(ByteBuffer in) throws IOException {
+        int length = in.getInt();
+        if (length == NULL_LENGTH)
+            return null;
+        if (length < 0 || length > in.remaining())
+            throw new IOException("Invalid count of strings: " + length);
+        String[] values = new String[length];
+        for (int i = 0; i < length; i++)
+            values[i] = readString(in);
+        return values;
+    }
+
+    private static void writeStringList(DataOutput out, ArrayList<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values)
+            writeString(out, value);
+    }
+
+    private static ArrayList<String> readStringList(ByteBuffer in) throws IOException {
+        int size = in.getInt();
+        if (size < 0 || size > in.remaining())
+            throw new IOException("Invalid count of strings: " + size);
+        ArrayList<String> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+            values.add(readString(in));
+        return values;
+    }
+
+    private static void writeEnum(DataOutput out, Enum<?> value) throws IOException {
+        out.writeByte(value == null ? NULL_LENGTH : value.ordinal());
+    }
+
+    private static <E extends Enum<E>> E readEnum(ByteBuffer in, E[] values) throws IOException {
+        byte ordinal = in.get();
+        if (ordinal == NULL_LENGTH)
+            return null;
+        if (ordinal < 0 || ordinal >= values.length)
+            throw new IOException("Unknown ordinal of enum: " + ordinal);
+        return values[ordinal];
+    }
+}
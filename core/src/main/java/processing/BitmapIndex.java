@@ -0,0 +1,179 @@
+package processing;
+
+import data.ElementFields;
+import data.KeyTable;
+import data.VehicleStore;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Bitmaps of the rows of elements for every value of the fuel type and the vehicle type
+ * and for every bucket of engine power and distance travelled.
+ * Every element gets a dense row number, rows of removed elements are given to new ones,
+ * so the bitmaps stay as short as the collection. The bitmaps are compressed by {@link RowBitmap},
+ * the rows are found by key in a {@link KeyTable} and the free rows are kept in an array, nothing is boxed.
+ * A filter is answered by joining bitmaps, only the elements in the buckets at the bounds of a numeric
+ * comparison are checked against the filter itself, by the fields kept in the store.
+ * Not synchronized: {@link BufferedDataBase} changes it only while no command reads the collection.
+ */
+public class BitmapIndex {
+    private final VehicleStore dataBase;
+    private static final int ENGINE_POWER_BUCKET_SHIFT = 6;
+    private static final int DISTANCE_TRAVELLED_BUCKET_SHIFT = 16;
+    private final KeyTable rowsByKey = new KeyTable();
+    private long[] keysByRow = new long[1024];
+    private int[] freeRows = new int[16];
+    private int countOfFreeRows;
+    private int countOfRows;
+    private final EnumMap<FilterExpression.Field, NavigableMap<Long, RowBitmap>> rowsByField =
+            new EnumMap<>(FilterExpression.Field.class);
+
+    /**
+     * @param dataBase elements to be indexed, their fields are read from it by key
+     */
+    public BitmapIndex(VehicleStore dataBase) {
+        this.dataBase = dataBase;
+        for (FilterExpression.Field field : FilterExpression.Field.values())
+            rowsByField.put(field, new TreeMap<>());
+        dataBase.forEachKey(this::add);
+    }
+
+    /**
+     * Called after the element is put in the store.
+     */
+    public void add(long key) {
+        int row = countOfFreeRows == 0 ? countOfRows++ : freeRows[--countOfFreeRows];
+        if (row == keysByRow.length)
+            keysByRow = Arrays.copyOf(keysByRow, keysByRow.length * 2);
+        keysByRow[row] = key;
+        rowsByKey.put(key, row);
+        ElementFields fields = dataBase.fieldsOf(key);
+        for (FilterExpression.Field field : FilterExpression.Field.values()) {
+            if (field.isSetIn(fields))
+                rowsByField.get(field).computeIfAbsent(bucketOf(field, field.valueOf(fields)),
+                        bucket -> new RowBitmap()).set(row);
+        }
+    }
+
+    /**
+     * Called while the element is still in the store.
+     */
+    public void remove(long key) {
+        int row = rowsByKey.get(key);
+        if (row == KeyTable.NO_ROW)
+            return;
+        rowsByKey.remove(key);
+        ElementFields fields = dataBase.fieldsOf(key);
+        for (FilterExpression.Field field : FilterExpression.Field.values()) {
+            if (!field.isSetIn(fields))
+                continue;
+            long bucket = bucketOf(field, field.valueOf(fields));
+            RowBitmap rows = rowsByField.get(field).get(bucket);
+            rows.clear(row);
+            if (rows.isEmpty())
+                rowsByField.get(field).remove(bucket);
+        }
+        if (countOfFreeRows == freeRows.length)
+            freeRows = Arrays.copyOf(freeRows, freeRows.length * 2);
+        freeRows[countOfFreeRows++] = row;
+    }
+
+    public void clear() {
+        rowsByKey.clear();
+        countOfFreeRows = 0;
+        countOfRows = 0;
+        rowsByField.values().forEach(Map::clear);
+    }
+
+    /**
+     * Selects the keys of elements that match the filter.
+     * @param filter condition of the filter
+     * @return Keys of matching elements in ascending order.
+     */
+    public long[] select(FilterExpression filter) {
+        RowBitmap sureRows = new RowBitmap();
+        RowBitmap possibleRows = new RowBitmap();
+        for (List<FilterExpression.Comparison> comparisons : filter.getAlternatives()) {
+            RowBitmap[] rows = rowsOf(comparisons.get(0));
+            RowBitmap sure = rows[0];
+            RowBitmap possible = rows[1];
+            for (FilterExpression.Comparison comparison : comparisons.subList(1, comparisons.size())) {
+                rows = rowsOf(comparison);
+                sure = sure.and(rows[0]);
+                possible = possible.and(rows[1]);
+            }
+            sureRows = sureRows.or(sure);
+            possibleRows = possibleRows.or(possible);
+        }
+        RowBitmap checkedRows = new RowBitmap();
+        possibleRows.andNot(sureRows).forEach(row -> {
+            if (filter.test(dataBase.fieldsOf(keysByRow[row])))
+                checkedRows.set(row);
+        });
+        RowBitmap selectedRows = sureRows.or(checkedRows);
+        long[] selected = new long[selectedRows.cardinality()];
+        int[] countOfSelected = {0};
+        selectedRows.forEach(row -> selected[countOfSelected[0]++] = keysByRow[row]);
+        Arrays.sort(selected);
+        return selected;
+    }
+
+    /**
+     * @return Bytes held by the bitmaps, without the maps of the buckets.
+     */
+    public long bitmapsSizeInBytes() {
+        long size = 0;
+        for (NavigableMap<Long, RowBitmap> buckets : rowsByField.values()) {
+            for (RowBitmap rows : buckets.values())
+                size += rows.sizeInBytes();
+        }
+        return size;
+    }
+
+    /**
+     * @return Rows that surely match the comparison and rows that may match it, the second includes the first.
+     */
+    private RowBitmap[] rowsOf(FilterExpression.Comparison comparison) {
+        NavigableMap<Long, RowBitmap> buckets = rowsByField.get(comparison.field());
+        long boundBucket = bucketOf(comparison.field(), comparison.value());
+        NavigableMap<Long, RowBitmap> sureBuckets = switch (comparison.operator()) {
+            case LESS, LESS_OR_EQUAL -> buckets.headMap(boundBucket, false);
+            case GREATER, GREATER_OR_EQUAL -> buckets.tailMap(boundBucket, false);
+            case EQUAL -> new TreeMap<>();
+        };
+        RowBitmap sure = new RowBitmap();
+        for (RowBitmap rows : sureBuckets.values())
+            sure = sure.or(rows);
+        RowBitmap possible = sure;
+        RowBitmap boundRows = buckets.get(boundBucket);
+        if (boundRows == null)
+            return new RowBitmap[] {sure, possible};
+        if (!hasExactBuckets(comparison.field())) {
+            possible = possible.or(boundRows);
+        } else if (comparison.operator().test(comparison.value(), comparison.value())) { // =, <= and >=
+            sure = sure.or(boundRows);
+            possible = sure;
+        }
+        return new RowBitmap[] {sure, possible};
+    }
+
+    /**
+     * Types have a bucket for every value, only numeric buckets hold several values.
+     */
+    private static boolean hasExactBuckets(FilterExpression.Field field) {
+        return field == FilterExpression.Field.FUEL_TYPE || field == FilterExpression.Field.VEHICLE_TYPE;
+    }
+
+    private static long bucketOf(FilterExpression.Field field, long value) {
+        return switch (field) {
+            case FUEL_TYPE, VEHICLE_TYPE -> value;
+            case ENGINE_POWER -> value >> ENGINE_POWER_BUCKET_SHIFT;
+            case DISTANCE_TRAVELLED -> value >> DISTANCE_TRAVELLED_BUCKET_SHIFT;
+        };
+    }
+}
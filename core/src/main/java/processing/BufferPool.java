@@ -0,0 +1,132 @@
+package processing;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded pool of direct buffers used for all socket reads and writes.
+ * Buffers are grouped into size classes of powers of two from 1 KiB up to the class of the maximum frame size,
+ * a request is served by the smallest class that fits it, frames larger than the maximum frame size are rejected.
+ * Free buffers hold at most the given number of bytes, a released buffer beyond it is dropped,
+ * so a class larger than that bound is allocated anew for every frame.
+ */
+public class BufferPool {
+    private static final int MIN_CLASS_SHIFT = 10; // 1 KiB
+    private final int maxFrameSize;
+    private final long maxBytesHeld;
+    private final List<ConcurrentLinkedQueue<ByteBuffer>> freeBuffers;
+    private final AtomicLong bytesHeld = new AtomicLong();
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder droppedBuffers = new LongAdder();
+    private final LongAdder rejectedFrames = new LongAdder();
+
+    /**
+     * @param maxFrameSize Largest frame in bytes that may be read or written.
+     * @param maxBytesHeld Largest number of bytes kept by free buffers, the rest are left to the garbage collector.
+     */
+    public BufferPool(int maxFrameSize, long maxBytesHeld) {
+        this.maxFrameSize = maxFrameSize;
+        this.maxBytesHeld = maxBytesHeld;
+        int countOfClasses = sizeClassOf(maxFrameSize) + 1;
+        freeBuffers = new ArrayList<>(countOfClasses);
+        for (int i = 0; i < countOfClasses; i++)
+            freeBuffers.add(new ConcurrentLinkedQueue<>());
+    }
+
+    /**
+     * Takes a free buffer of the fitting size class or allocates a new one.
+     *
+     * @param capacity required number of bytes
+     * @return cleared buffer with the limit set to the required number of bytes
+     * @throws IOException if the required number of bytes exceeds the maximum frame size
+     */
+    public ByteBuffer acquire(int capacity) throws IOException {
+        checkFrameSize(capacity);
+        acquisitions.increment();
+        int sizeClass = sizeClassOf(capacity);
+        ByteBuffer buffer = freeBuffers.get(sizeClass).poll();
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(1 << (sizeClass + MIN_CLASS_SHIFT));
+        } else {
+            hits.increment();
+            bytesHeld.addAndGet(-buffer.capacity());
+        }
+        buffer.clear().limit(capacity);
+        return buffer;
+    }
+
+    /**
+     * Returns the buffer to the pool, the buffer must not be used after that.
+     */
+    public void release(ByteBuffer buffer) {
+        if (bytesHeld.addAndGet(buffer.capacity()) > maxBytesHeld) {
+            bytesHeld.addAndGet(-buffer.capacity());
+            droppedBuffers.increment();
+            return;
+        }
+        freeBuffers.get(sizeClassOf(buffer.capacity())).add(buffer);
+    }
+
+    /**
+     * Rejects a frame before any buffer is allocated for it.
+     *
+     * @param size number of bytes of the frame
+     * @throws IOException if the frame exceeds the maximum frame size
+     */
+    public void checkFrameSize(int size) throws IOException {
+        if (size > maxFrameSize) {
+            rejectedFrames.increment();
+            throw new IOException(String.format(
+                    "Frame of %s bytes exceeds maximum frame size of %s bytes", size, maxFrameSize));
+        }
+    }
+
+    private static int sizeClassOf(int capacity) {
+        int shift = 32 - Integer.numberOfLeadingZeros(Math.max(capacity, 1) - 1);
+        return Math.max(shift, MIN_CLASS_SHIFT) - MIN_CLASS_SHIFT;
+    }
+
+    public int getMaxFrameSize() {
+        return maxFrameSize;
+    }
+
+    /**
+     * @return Share of acquisitions served by a free buffer.
+     */
+    public double getHitRate() {
+        long count = acquisitions.sum();
+        return count == 0 ? 0 : (double) hits.sum() / count;
+    }
+
+    public long getBytesHeld() {
+        return bytesHeld.get();
+    }
+
+    /**
+     * @return Number of released buffers that were left to the garbage collector because of the bound of held bytes.
+     */
+    public long getDroppedBuffers() {
+        return droppedBuffers.sum();
+    }
+
+    /**
+     * @return Current state of the pool in a human-readable form.
+     */
+    public String report() {
+        return String.format("""
+                Buffer pool metrics:
+                Acquisitions:         %s
+                Hit rate:             %.1f%%
+                Bytes held:           %s (max %s)
+                Dropped buffers:      %s
+                Rejected frames:      %s (max frame size %s)""",
+                acquisitions.sum(), getHitRate() * 100, getBytesHeld(), maxBytesHeld,
+                getDroppedBuffers(), rejectedFrames.sum(), maxFrameSize);
+    }
+}
@@ -2,15 +2,17 @@ package processing;
 
 import data.FuelType;
 import data.Vehicle;
+import data.VehicleStore;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 import commands.*;
 import mods.*;
@@ -19,20 +21,34 @@ import utility.*;
 /**
  * Stores a database that can be manipulated in real time using a commands.
  * All commands implemented here.
+ * Elements are kept in a {@link VehicleStore}, the ids are indexed by {@link IdentifierHandler},
+ * commands that select elements by other fields go through {@link FieldQueries}.
+ * Every change of the collection is appended to the {@link WriteAheadLog} and committed before it is applied,
+ * so a command whose changes were not logged leaves the collection as it was.
  */
 public class BufferedDataBase {
-    private final ConcurrentHashMap<Long, Vehicle> dataBase;
+    private final VehicleStore dataBase;
+    private final WriteAheadLog log;
     private final Set<String> scriptCounter = new HashSet<>();
     private CommandInvoker commandInvoker;
     private LocalDateTime lastInitTime;
     private LocalDateTime lastSaveTime;
     private final IdentifierHandler identifierHandler;
+    private final FieldQueries fieldQueries;
+    private static final int SHOW_PAGE_SIZE = 100;
     private static final String datePattern = "dd/MM/yyy - HH:mm:ss";
     private static final DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern(datePattern);
 
     public BufferedDataBase() {
-        dataBase = FileHandler.loadDataBase();
+        dataBase = VehicleStore.create();
+        FileHandler.loadDataBase(dataBase);
+        try {
+            log = WriteAheadLog.open(dataBase);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open the log of the collection", e);
+        }
         identifierHandler = new IdentifierHandler(dataBase);
+        fieldQueries = FieldQueries.create(dataBase);
         lastInitTime = dataBase.isEmpty() && lastInitTime == null ? null : LocalDateTime.now();
     }
 
@@ -67,29 +83,44 @@ public class BufferedDataBase {
         MessageHolder.putMessage(String.format("""
                 Information about collection:
                 Type of collection:  %s
+                Store of elements:   %s
                 Initialization date: %s
                 Last save time:      %s
-                Number of elements:  %s""", getCollectionType(), stringLastInitTime,
+                Number of elements:  %s""", getCollectionType(), VehicleStore.getStoreName(), stringLastInitTime,
                 stringLastSaveTime, getCollectionSize()), MessageType.OUTPUT_INFO);
         return true;
     }
 
     /**
-     * Displays all elements of the collection.
+     * Displays one page of elements of the collection in key order.
+     * If there are more elements, the key of the last shown element is put as the token of the next page.
      * @param commandArguments contains the name of the command, its arguments on a single line,
      *                        arguments that are characteristics of the collection class and execution mode.
+     *                        The optional argument is the token of the page: elements with greater keys are shown.
      * @return Command exit status.
      */
     public boolean show(CommandArguments commandArguments) {
-        MessageHolder.putCurrentCommand(ShowCommand.getName(), MessageType.OUTPUT_INFO);
-        if (dataBase.isEmpty()) {
+        String[] arguments = commandArguments.getArguments();
+        boolean isFirstPage = arguments == null || arguments.length == 0;
+        long afterKey = isFirstPage ? Long.MIN_VALUE : Long.parseLong(arguments[0]);
+        if (isFirstPage)
+            MessageHolder.putCurrentCommand(ShowCommand.getName(), MessageType.OUTPUT_INFO);
+        if (isFirstPage && dataBase.isEmpty()) {
             MessageHolder.putMessage("Collection is empty", MessageType.OUTPUT_INFO);
-           return true;
+            return true;
+        }
+        int countOfShown = 0;
+        long lastShownKey = afterKey;
+        for (long key : dataBase.keysAfter(afterKey, SHOW_PAGE_SIZE + 1)) {
+            if (countOfShown == SHOW_PAGE_SIZE) {
+                MessageHolder.putContinuation(String.valueOf(lastShownKey));
+                break;
+            }
+            MessageHolder.putMessage("key:                " + key +
+                    "\n" + dataBase.get(key) + "", MessageType.OUTPUT_INFO);
+            lastShownKey = key;
+            countOfShown++;
         }
-        TreeMap<Long, Vehicle> treeMapData = new TreeMap<>(dataBase);
-        treeMapData.keySet().forEach(key ->
-                MessageHolder.putMessage("key:                " + key +
-                        "\n" + treeMapData.get(key) + "", MessageType.OUTPUT_INFO));
         return true;
     }
 
@@ -146,9 +177,11 @@ public class BufferedDataBase {
         }
         if (executeMode == ExecuteMode.SCRIPT_MODE && vehicleValues.length != Vehicle.getCountOfChangeableFields()) {
             MessageHolder.putCurrentCommand(commandName + " " + arguments[0], MessageType.USER_ERROR);
+            String scriptName = commandArguments.getScriptFile() == null ? // sent by the client without its file
+                    "" : String.format(" '%s'", commandArguments.getScriptFile().getName());
             MessageHolder.putMessage(String.format(
-                    "There are not enough lines in script '%s' for the '%s %s' command",
-                    commandArguments.getScriptFile().getName(), commandName, arguments[0]), MessageType.USER_ERROR);
+                    "There are not enough lines in script%s for the '%s %s' command",
+                    scriptName, commandName, arguments[0]), MessageType.USER_ERROR);
             return false;
         }
         if (executeMode == ExecuteMode.SCRIPT_MODE && 
@@ -156,7 +189,10 @@ public class BufferedDataBase {
             return false;
         }
         Vehicle vehicle = ValueHandler.getVehicle(id, creationDate, vehicleValues);
-        dataBase.put(key, vehicle);
+        log.logPut(key, vehicle);
+        if (!commitChanges())
+            return false;
+        putVehicle(key, vehicle);
         MessageHolder.putCurrentCommand(commandName + " " + arguments[0], MessageType.OUTPUT_INFO);
         MessageHolder.putMessage("Element was successfully " + addMode.getResultMessage(), MessageType.OUTPUT_INFO);
         return true;
@@ -174,7 +210,10 @@ public class BufferedDataBase {
                 RemoveKeyCommand.getName() + " " + arguments[0]))
             return false;
         long key = Long.parseLong(arguments[0]);
-        dataBase.remove(key);
+        log.logRemove(key);
+        if (!commitChanges())
+            return false;
+        removeVehicle(key);
         MessageHolder.putCurrentCommand(RemoveKeyCommand.getName() + " " + arguments[0], MessageType.OUTPUT_INFO);
         MessageHolder.putMessage(String.format(
                 "Element with key = %s was successfully removed", key), MessageType.OUTPUT_INFO);
@@ -192,20 +231,26 @@ public class BufferedDataBase {
         if (dataBase.isEmpty()) {
             MessageHolder.putMessage("Collection is already empty", MessageType.OUTPUT_INFO);
         } else {
-            dataBase.clear();
+            log.logClear();
+            if (!commitChanges())
+                return false;
+            clearVehicles();
             MessageHolder.putMessage("Collection successfully cleared", MessageType.OUTPUT_INFO);
         }
         return true;
     }
 
     /**
-     * Saves the collection to a Json file.
+     * Saves the collection to a Json file, the log written before it is dropped.
      * @param commandArguments contains the name of the command, its arguments on a single line,
      *                        arguments that are characteristics of the collection class and execution mode.
      * @return Command exit status.
      */
     public boolean save(CommandArguments commandArguments) {
-        FileHandler.saveDataBase(dataBase);
+        if (!log.saveSnapshot(() -> FileHandler.saveDataBase(dataBase.inKeyOrder()))) {
+            System.err.println("Collection was not saved");
+            return false;
+        }
         // MessageHolder.putCurrentCommand(SaveCommand.getName(), MessageType.OUTPUT_INFO);
         // MessageHolder.putMessage("Collection successfully saved", MessageType.OUTPUT_INFO);
         System.out.println("Command " + SaveCommand.getName());
@@ -214,6 +259,64 @@ public class BufferedDataBase {
         return true;
     }
 
+    /**
+     * Executes the commands of a script one by one, nested scripts are executed in place of their command.
+     * The lines of the script are uploaded by the client as extra arguments,
+     * without them the script is found by its name in the 'scripts' directory of the server.
+     * @param commandArguments contains the name of the command, its arguments on a single line,
+     *                        arguments that are characteristics of the collection class and execution mode.
+     * @return Command exit status.
+     */
+    public boolean executeScript(CommandArguments commandArguments) {
+        if (commandArguments.getExecuteMode() == ExecuteMode.COMMAND_MODE)
+            scriptCounter.clear();
+        String scriptName = commandArguments.getArguments()[0];
+        File scriptFile = commandArguments.getExtraArguments() == null ?
+                FileHandler.findScript(scriptName) : new File(scriptName);
+        if (scriptFile == null) {
+            MessageHolder.putMessage(String.format(
+                    "Script '%s' not found in 'scripts' directory", scriptName), MessageType.USER_ERROR);
+            return false;
+        }
+        if (scriptCounter.contains(scriptFile.getName())) {
+            MessageHolder.putMessage(String.format("Command '%s %s':",
+                    ExecuteScriptCommand.getName(), scriptFile.getName()), MessageType.USER_ERROR);
+            MessageHolder.putMessage(String.format(
+                    "Recursion on '%s' script noticed", scriptFile.getName()), MessageType.USER_ERROR);
+            return false;
+        }
+        List<String> scriptLines = commandArguments.getExtraArguments() == null ?
+                FileHandler.readScriptFile(scriptFile) : Arrays.asList(commandArguments.getExtraArguments());
+        scriptCounter.add(scriptFile.getName());
+        try {
+            for (CommandArguments scriptCommand : ScriptParser.parseScript(scriptLines, scriptFile)) {
+                executePages(scriptCommand);
+                if (scriptCommand.getCommandName().equals(ExitCommand.getName())) {
+                    MessageHolder.putMessage(String.format(
+                            "Script '%s' successfully completed", scriptFile.getName()), MessageType.OUTPUT_INFO);
+                    break;
+                }
+            }
+        } finally {
+            scriptCounter.remove(scriptFile.getName());
+        }
+        return true;
+    }
+
+    /**
+     * Executes the command of a script, a paged command is executed until its last page.
+     */
+    private void executePages(CommandArguments scriptCommand) {
+        commandInvoker.execute(scriptCommand);
+        String continuationToken;
+        while ((continuationToken = MessageHolder.getContinuation()) != null) {
+            MessageHolder.clearContinuation();
+            commandInvoker.execute(new CommandArguments(scriptCommand.getCommandName(),
+                    new String[] {continuationToken}, null,
+                    scriptCommand.getClientRequestType(), scriptCommand.getExecuteMode()));
+        }
+    }
+
     /**
      * Terminates a program or exits an executing script.
      * @param commandArguments contains the name of the command, its arguments on a single line,
@@ -258,14 +361,16 @@ public class BufferedDataBase {
                                                  String commandName, RemoveMode removeMode) {
         String[] arguments = commandArguments.getArguments();
         long userDistanceTravelled = Long.parseLong(arguments[0]);
-        Set<Long> filteredKeys = dataBase.keySet().stream()
-                .filter(key -> (removeMode == RemoveMode.REMOVE_GREATER ?
-                        dataBase.get(key).getDistanceTravelled() > userDistanceTravelled :
-                        dataBase.get(key).getDistanceTravelled() < userDistanceTravelled))
-                        .collect(Collectors.toSet());
+        List<Long> filteredKeys = removeMode == RemoveMode.REMOVE_GREATER ?
+                fieldQueries.keysWithDistanceGreaterThan(userDistanceTravelled) :
+                fieldQueries.keysWithDistanceLessThan(userDistanceTravelled);
+        for (Long key : filteredKeys)
+            log.logRemove(key);
+        if (!filteredKeys.isEmpty() && !commitChanges())
+            return false;
         int countOfRemoved = 0;
         for (Long key : filteredKeys) {
-            dataBase.remove(key);
+            removeVehicle(key);
             countOfRemoved++;
         }
         MessageHolder.putCurrentCommand(commandName, MessageType.OUTPUT_INFO);
@@ -290,12 +395,12 @@ public class BufferedDataBase {
     public boolean removeGreaterKey(CommandArguments commandArguments) {
         String[] arguments = commandArguments.getArguments();
         long userKey = Long.parseLong(arguments[0]);
-        int countOfRemovedKeys = 0;
-        Set<Long> filteredKeys = dataBase.keySet().stream().filter(key -> key > userKey).collect(Collectors.toSet());
-        for (Long key : filteredKeys) {
-            dataBase.remove(key);
-            countOfRemovedKeys++;
+        if (dataBase.keysAfter(userKey, 1).length > 0) {
+            log.logRemoveAfter(userKey);
+            if (!commitChanges())
+                return false;
         }
+        int countOfRemovedKeys = removeVehiclesAfter(userKey);
         MessageHolder.putCurrentCommand(RemoveGreaterKeyCommand.getName(), MessageType.OUTPUT_INFO);
         if (countOfRemovedKeys == 0)
             MessageHolder.putMessage("No matching keys to remove element", MessageType.OUTPUT_INFO);
@@ -314,12 +419,14 @@ public class BufferedDataBase {
     public boolean removeAllByEnginePower(CommandArguments commandArguments) {
         String[] arguments = commandArguments.getArguments();
         int userEnginePower = Integer.parseInt(arguments[0]);
+        List<Long> keys = fieldQueries.keysWithEnginePower(userEnginePower);
+        for (Long key : keys)
+            log.logRemove(key);
+        if (!keys.isEmpty() && !commitChanges())
+            return false;
         int countOfRemoved = 0;
-        Set<Long> filteredKeys = dataBase.keySet().stream()
-                .filter(key -> dataBase.get(key).getEnginePower() == userEnginePower)
-                .collect(Collectors.toSet());
-        for (Long key : filteredKeys) {
-            dataBase.remove(key);
+        for (Long key : keys) {
+            removeVehicle(key);
             countOfRemoved++;
         }
         MessageHolder.putCurrentCommand(RemoveAllByEnginePowerCommand.getName(), MessageType.OUTPUT_INFO);
@@ -343,9 +450,7 @@ public class BufferedDataBase {
         String[] arguments = commandArguments.getArguments();
         FuelType fuelType = ValueTransformer.SET_FUEL_TYPE.apply(
                 ValueHandler.TYPE_CORRECTION.correct(arguments[0]));
-        long count = dataBase.keySet().stream()
-                .filter(key -> fuelType.equals(dataBase.get(key).getFuelType()))
-                .count();
+        long count = fieldQueries.countWithFuelType(fuelType);
         MessageHolder.putCurrentCommand(CountByFuelTypeCommand.getName(), MessageType.OUTPUT_INFO);
         MessageHolder.putMessage(String.format("%s elements with fuel type = %s (%s)",
                 count, fuelType.getSerialNumber(), fuelType), MessageType.OUTPUT_INFO);
@@ -362,17 +467,16 @@ public class BufferedDataBase {
         String[] arguments = commandArguments.getArguments();
         FuelType fuelType = ValueTransformer.SET_FUEL_TYPE.apply(
                 ValueHandler.TYPE_CORRECTION.correct(arguments[0]));
-        AtomicBoolean hasSuchElements = new AtomicBoolean(false);
         MessageHolder.putCurrentCommand(FilterLessThanFuelTypeCommand.getName(), MessageType.OUTPUT_INFO);
-        TreeMap<Long, Vehicle> treeMapData = new TreeMap<>(dataBase);
-        treeMapData.keySet().stream()
-                .filter(key -> treeMapData.get(key).getFuelType().getSerialNumber() <= fuelType.getSerialNumber())
-                .forEach(key -> {
-                    MessageHolder.putMessage("key:                " + key +
-                        "\n" + treeMapData.get(key) + "", MessageType.OUTPUT_INFO);
-                    hasSuchElements.set(true);
-                });
-        if (!hasSuchElements.get()) {
+        List<FuelType> lessFuelTypes = Arrays.stream(FuelType.values())
+                .filter(value -> value.getSerialNumber() <= fuelType.getSerialNumber())
+                .toList();
+        List<Long> keys = fieldQueries.keysWithFuelTypes(lessFuelTypes);
+        for (Long key : keys) {
+            MessageHolder.putMessage("key:                " + key +
+                "\n" + dataBase.get(key) + "", MessageType.OUTPUT_INFO);
+        }
+        if (keys.isEmpty()) {
             MessageHolder.putMessage(String.format(
                     "No elements found with fuel type value less than %s (%s)",
                     fuelType.getSerialNumber(), fuelType), MessageType.OUTPUT_INFO);
@@ -380,8 +484,212 @@ public class BufferedDataBase {
         return true;
     }
 
+    /**
+     * Puts the element by key and keeps the indexes in sync.
+     */
+    private void putVehicle(long key, Vehicle vehicle) {
+        if (dataBase.containsKey(key))
+            removeFromIndexes(key);
+        dataBase.put(key, vehicle);
+        identifierHandler.addId(vehicle.getId(), key);
+        fieldQueries.add(key);
+    }
+
+    /**
+     * Removes the element by key and keeps the indexes in sync.
+     */
+    private void removeVehicle(long key) {
+        if (!dataBase.containsKey(key))
+            return;
+        removeFromIndexes(key);
+        dataBase.remove(key);
+    }
+
+    /**
+     * Removes the elements with keys greater than the given one as one range and keeps the indexes in sync.
+     * @return Count of removed elements.
+     */
+    private int removeVehiclesAfter(long key) {
+        return dataBase.removeKeysAfter(key, this::removeFromIndexes);
+    }
+
+    /**
+     * Drops the element from the indexes, its fields are read from the store, so it must still be there.
+     */
+    private void removeFromIndexes(long key) {
+        identifierHandler.removeId(dataBase.getId(key));
+        fieldQueries.remove(key);
+    }
+
+    /**
+     * Removes all elements and clears the indexes.
+     */
+    private void clearVehicles() {
+        dataBase.clear();
+        identifierHandler.clearIds();
+        fieldQueries.clear();
+    }
+
+    /**
+     * @return True, if changes applied to the collection failed to be forced to the log,
+     * the collection has to be restored by {@link #restoreDiscardedChanges()} before the next command.
+     */
+    public boolean hasDiscardedChanges() {
+        return log.hasDiscardedChanges();
+    }
+
+    /**
+     * Puts the collection and its indexes back to the changes kept in the log.
+     * Must be called while no other command uses the collection.
+     * @return False, if the collection could not be read back, it is then restored again later.
+     */
+    public boolean restoreDiscardedChanges() {
+        if (!log.hasDiscardedChanges())
+            return true;
+        clearVehicles();
+        boolean isRestored = log.restore(dataBase);
+        dataBase.forEachKey(this::addToIndexes);
+        System.err.printf("Changes that were not written to the disk were undone, %s elements in the collection%n",
+                dataBase.size());
+        return isRestored;
+    }
+
+    /**
+     * Adds the element that is already in the store to the indexes.
+     */
+    private void addToIndexes(long key) {
+        identifierHandler.addId(dataBase.getId(key), key);
+        fieldQueries.add(key);
+    }
+
+    WriteAheadLog getLog() {
+        return log;
+    }
+
+    /**
+     * Lets the caller acknowledge the changes made by its thread only when they are on the disk,
+     * waiting for them without holding the collection.
+     * @return Future completed with true when the changes are durable, or false if they were not forced.
+     */
+    public CompletableFuture<Boolean> durableChanges() {
+        return log.durableChanges();
+    }
+
+    /**
+     * Writes the changes of the command to the log, they are applied to the collection only after that.
+     * Called only when the command has logged changes, so a command that changes nothing does not wait for the disk.
+     * @return False, if they were not written, the command then fails without changing the collection.
+     */
+    private boolean commitChanges() {
+        if (log.commit())
+            return true;
+        MessageHolder.putMessage("Changes were not written to the log, " +
+                "they will be lost on restart unless the collection is saved", MessageType.USER_ERROR);
+        return false;
+    }
+
+    /**
+     * Prints the number of elements in the collection whose distance travelled lies between the given values.
+     * @param commandArguments contains the name of the command, its arguments on a single line,
+     *                        arguments that are characteristics of the collection class and execution mode.
+     * @return Command exit status.
+     */
+    public boolean countByDistanceTravelled(CommandArguments commandArguments) {
+        String[] arguments = commandArguments.getArguments();
+        long from = Long.parseLong(arguments[0]);
+        long to = Long.parseLong(arguments[1]);
+        MessageHolder.putCurrentCommand(CountByDistanceTravelledCommand.getName(), MessageType.OUTPUT_INFO);
+        MessageHolder.putMessage(String.format("%s elements with distance travelled from %s to %s",
+                fieldQueries.countWithDistanceBetween(from, to), from, to), MessageType.OUTPUT_INFO);
+        return true;
+    }
+
+    /**
+     * Prints all elements of the collection whose distance travelled lies between the given values,
+     * ordered by distance travelled.
+     * @param commandArguments contains the name of the command, its arguments on a single line,
+     *                        arguments that are characteristics of the collection class and execution mode.
+     * @return Command exit status.
+     */
+    public boolean filterByDistanceTravelled(CommandArguments commandArguments) {
+        String[] arguments = commandArguments.getArguments();
+        long from = Long.parseLong(arguments[0]);
+        long to = Long.parseLong(arguments[1]);
+        MessageHolder.putCurrentCommand(FilterByDistanceTravelledCommand.getName(), MessageType.OUTPUT_INFO);
+        List<Long> keys = fieldQueries.keysWithDistanceBetween(from, to);
+        for (Long key : keys) {
+            MessageHolder.putMessage("key:                " + key +
+                    "\n" + dataBase.get(key) + "", MessageType.OUTPUT_INFO);
+        }
+        if (keys.isEmpty()) {
+            MessageHolder.putMessage(String.format(
+                    "No elements found with distance travelled from %s to %s", from, to), MessageType.OUTPUT_INFO);
+        }
+        return true;
+    }
+
+    /**
+     * Prints the number of elements in the collection whose engine power is equal to the given value.
+     * @param commandArguments contains the name of the command, its arguments on a single line,
+     *                        arguments that are characteristics of the collection class and execution mode.
+     * @return Command exit status.
+     */
+    public boolean countByEnginePower(CommandArguments commandArguments) {
+        int userEnginePower = Integer.parseInt(commandArguments.getArguments()[0]);
+        MessageHolder.putCurrentCommand(CountByEnginePowerCommand.getName(), MessageType.OUTPUT_INFO);
+        MessageHolder.putMessage(String.format("%s elements with engine power = %s",
+                fieldQueries.countWithEnginePower(userEnginePower), userEnginePower), MessageType.OUTPUT_INFO);
+        return true;
+    }
+
+    /**
+     * Prints all elements of the collection whose engine power is equal to the given value.
+     * @param commandArguments contains the name of the command, its arguments on a single line,
+     *                        arguments that are characteristics of the collection class and execution mode.
+     * @return Command exit status.
+     */
+    public boolean filterByEnginePower(CommandArguments commandArguments) {
+        int userEnginePower = Integer.parseInt(commandArguments.getArguments()[0]);
+        MessageHolder.putCurrentCommand(FilterByEnginePowerCommand.getName(), MessageType.OUTPUT_INFO);
+        List<Long> keys = fieldQueries.keysWithEnginePower(userEnginePower);
+        for (Long key : keys) {
+            MessageHolder.putMessage("key:                " + key +
+                    "\n" + dataBase.get(key) + "", MessageType.OUTPUT_INFO);
+        }
+        if (keys.isEmpty()) {
+            MessageHolder.putMessage(String.format(
+                    "No elements found with engine power = %s", userEnginePower), MessageType.OUTPUT_INFO);
+        }
+        return true;
+    }
+
+    /**
+     * Prints all elements of the collection that match the condition of the filter.
+     * The condition is answered by the bitmap index or by a scan of the columns of the store,
+     * before any element is read.
+     * @param commandArguments contains the name of the command, its arguments on a single line,
+     *                        arguments that are characteristics of the collection class and execution mode.
+     *                        The arguments are the words of the condition.
+     * @return Command exit status.
+     */
+    public boolean filter(CommandArguments commandArguments) {
+        FilterExpression filter = FilterExpression.parse(commandArguments.getArguments());
+        MessageHolder.putCurrentCommand(FilterCommand.getName(), MessageType.OUTPUT_INFO);
+        long[] keys = fieldQueries.select(filter);
+        for (long key : keys) {
+            MessageHolder.putMessage("key:                " + key +
+                    "\n" + dataBase.get(key) + "", MessageType.OUTPUT_INFO);
+        }
+        if (keys.length == 0)
+            MessageHolder.putMessage("No elements found that match the filter", MessageType.OUTPUT_INFO);
+        return true;
+    }
+
+    /**
+     * @return Type of the collection as users see it, a concurrent map sorted by key, whichever store keeps it.
+     */
     public String getCollectionType() {
-        return dataBase.getClass().getName();
+        return ConcurrentSkipListMap.class.getName();
     }
 
     public int getCollectionSize() {
@@ -0,0 +1,209 @@
+package processing;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * State of one non-blocking connection, kept as the attachment of its selection key.
+ * Collects partial reads of a frame across selector wakeups, holds the codec chosen in the handshake,
+ * the frames that the channel has not accepted yet and the requests waiting to be executed.
+ * Pending frames are written by gathering writes, so several answers leave in one call.
+ * Requests of one connection are executed one after another, in the order they were read,
+ * and answered in the same order, even if an answer waits for its changes to reach the disk.
+ */
+public class ChannelSession {
+    private final ByteBuffer lengthBuffer = ByteBuffer.allocateDirect(NBChannelController.LENGTH_FIELD_SIZE);
+    private ByteBuffer objectBuffer;
+    private static final int MAX_GATHERED_BUFFERS = 64;
+    private final ArrayDeque<ByteBuffer> pendingBuffers = new ArrayDeque<>();
+    private final Queue<Runnable> pendingTasks = new ArrayDeque<>();
+    private boolean isExecuting;
+    private CompletableFuture<Void> lastAnswer = CompletableFuture.completedFuture(null);
+    private WireCodec codec;
+
+    /**
+     * Reads as many bytes of the current frame as the channel has available.
+     *
+     * @param channel channel to read from
+     * @return pooled buffer with the encoded object, or null if the frame is not complete yet
+     * @throws IOException if the channel was closed by the other side or failed to read
+     */
+    private ByteBuffer readFrame(SocketChannel channel) throws IOException {
+        if (objectBuffer == null) {
+            if (channel.read(lengthBuffer) == -1)
+                throw new IOException("Channel closed while reading length of object");
+            if (lengthBuffer.hasRemaining())
+                return null;
+            int length = NBChannelController.checkLength(lengthBuffer.getInt(0));
+            lengthBuffer.clear();
+            objectBuffer = NBChannelController.BUFFER_POOL.acquire(length);
+        }
+        if (channel.read(objectBuffer) == -1)
+            throw new IOException("Channel closed while reading object");
+        if (objectBuffer.hasRemaining())
+            return null;
+        ByteBuffer frame = objectBuffer.flip();
+        objectBuffer = null;
+        return frame;
+    }
+
+    /**
+     * Reads as many bytes of the current frame as the channel has available and decodes it by the codec
+     * of the connection.
+     *
+     * @param channel channel to read from
+     * @return object read from the channel, or null if the frame is not complete yet
+     * @throws IOException if the channel was closed by the other side, failed to read or to decode
+     */
+    public Serializable read(SocketChannel channel) throws IOException {
+        ByteBuffer frame = readFrame(channel);
+        if (frame == null)
+            return null;
+        try {
+            return codec.decode(frame);
+        } finally {
+            NBChannelController.BUFFER_POOL.release(frame);
+        }
+    }
+
+    /**
+     * Reads the handshake of the connection and chooses its codec.
+     *
+     * @param channel channel to read from
+     * @return codec of the connection, or null if the handshake is not complete yet
+     * @throws IOException if the channel was closed by the other side, failed to read or the handshake is invalid
+     */
+    public WireCodec readHandshake(SocketChannel channel) throws IOException {
+        ByteBuffer frame = readFrame(channel);
+        if (frame == null)
+            return null;
+        try {
+            byte[] request = new byte[frame.remaining()];
+            frame.get(request);
+            codec = CodecHandshake.accept(request);
+            return codec;
+        } finally {
+            NBChannelController.BUFFER_POOL.release(frame);
+        }
+    }
+
+    /**
+     * Puts one frame in the queue of pending writes.
+     *
+     * @param frame buffers made by {@link NBChannelController#toFrame(byte[])}
+     */
+    public void enqueue(ByteBuffer[] frame) {
+        Collections.addAll(pendingBuffers, frame);
+    }
+
+    /**
+     * Writes pending frames until the queue is empty or the channel stops accepting bytes,
+     * each call writes the buffers of up to {@value #MAX_GATHERED_BUFFERS} of them at once.
+     *
+     * @param channel channel to write to
+     * @return true, if all pending frames were written
+     * @throws IOException if failed to write to channel
+     */
+    public boolean flush(SocketChannel channel) throws IOException {
+        while (!pendingBuffers.isEmpty()) {
+            ByteBuffer[] buffers = new ByteBuffer[Math.min(pendingBuffers.size(), MAX_GATHERED_BUFFERS)];
+            Iterator<ByteBuffer> pending = pendingBuffers.iterator();
+            for (int i = 0; i < buffers.length; i++)
+                buffers[i] = pending.next();
+            channel.write(buffers);
+            int countOfWritten = 0;
+            while (countOfWritten < buffers.length && !buffers[countOfWritten].hasRemaining()) {
+                pendingBuffers.remove();
+                countOfWritten++;
+            }
+            if (countOfWritten < buffers.length)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Executes the task after all the tasks of this connection passed before it.
+     * Tasks that are waiting when a worker finishes one are executed by the same worker.
+     *
+     * @param task task to be executed
+     * @param executor executor that runs the tasks of the connection
+     */
+    public void execute(Runnable task, Executor executor) {
+        synchronized (this) {
+            pendingTasks.add(task);
+            if (isExecuting)
+                return;
+            isExecuting = true;
+        }
+        executor.execute(this::runPendingTasks);
+    }
+
+    private void runPendingTasks() {
+        while (true) {
+            Runnable task;
+            synchronized (this) {
+                task = pendingTasks.poll();
+                if (task == null) {
+                    isExecuting = false;
+                    return;
+                }
+            }
+            task.run();
+        }
+    }
+
+    /**
+     * Orders the answer after the answers to the previous requests of this connection.
+     * Called by the tasks of the connection, so the calls are made one after another.
+     *
+     * @param answer answer that may be completed later
+     * @return stage completed with the answer once it and all previous answers are completed
+     */
+    public <T> CompletableFuture<T> afterPreviousAnswers(CompletableFuture<T> answer) {
+        CompletableFuture<T> orderedAnswer = answer.thenCombine(lastAnswer, (value, previous) -> value);
+        lastAnswer = orderedAnswer.handle((value, error) -> null);
+        return orderedAnswer;
+    }
+
+    /**
+     * @return Count of tasks that are waiting to be executed.
+     */
+    public synchronized int countPendingTasks() {
+        return pendingTasks.size();
+    }
+
+    /**
+     * Returns the buffer of the partly read frame to the pool, drops the unwritten frames
+     * and the requests that have not been executed yet. Called when the connection is closed.
+     */
+    public void release() {
+        synchronized (this) {
+            pendingTasks.clear();
+        }
+        if (objectBuffer != null) {
+            NBChannelController.BUFFER_POOL.release(objectBuffer);
+            objectBuffer = null;
+        }
+        pendingBuffers.clear();
+    }
+
+    /**
+     * @return Codec chosen in the handshake, or null if the handshake has not happened yet.
+     */
+    public WireCodec getCodec() {
+        return codec;
+    }
+
+    public boolean hasPendingWrites() {
+        return !pendingBuffers.isEmpty();
+    }
+}
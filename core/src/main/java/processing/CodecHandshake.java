@@ -0,0 +1,60 @@
+package processing;
+
+import java.io.IOException;
+
+/**
+ * First exchange of every connection, chooses the codec of all the following frames.
+ * The client sends the identifier and version of the codec it prefers,
+ * the server answers with the codec it will use: the preferred one if it is supported,
+ * Java serialization otherwise.
+ */
+public class CodecHandshake {
+    private static final int HANDSHAKE_LENGTH = 2;
+
+    private CodecHandshake() {}
+
+    /**
+     * @return Frame with the codec preferred by the client.
+     */
+    public static byte[] request(WireCodec preferredCodec) {
+        return new byte[] {preferredCodec.getId(), preferredCodec.getVersion()};
+    }
+
+    /**
+     * Chooses the codec of the connection on the server side.
+     * @param request Frame made by {@link #request(WireCodec)}.
+     * @return Codec the server will use.
+     */
+    public static WireCodec accept(byte[] request) throws IOException {
+        checkLength(request);
+        if (request[0] == BinaryCodec.ID && request[1] == BinaryCodec.VERSION)
+            return new BinaryCodec();
+        return new JavaSerializationCodec();
+    }
+
+    /**
+     * @return Frame with the codec chosen by the server.
+     */
+    public static byte[] answer(WireCodec chosenCodec) {
+        return new byte[] {chosenCodec.getId(), chosenCodec.getVersion()};
+    }
+
+    /**
+     * Reads the codec chosen by the server on the client side.
+     * @param answer Frame made by {@link #answer(WireCodec)}.
+     * @return Codec of the connection.
+     */
+    public static WireCodec chosen(byte[] answer) throws IOException {
+        checkLength(answer);
+        if (answer[0] == BinaryCodec.ID && answer[1] == BinaryCodec.VERSION)
+            return new BinaryCodec();
+        if (answer[0] == JavaSerializationCodec.ID)
+            return new JavaSerializationCodec();
+        throw new IOException(String.format("Server chose unknown codec %s (version %s)", answer[0], answer[1]));
+    }
+
+    private static void checkLength(byte[] frame) throws IOException {
+        if (frame.length != HANDSHAKE_LENGTH)
+            throw new IOException("Invalid length of handshake: " + frame.length);
+    }
+}
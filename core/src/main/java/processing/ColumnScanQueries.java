@@ -0,0 +1,102 @@
+package processing;
+
+import data.FieldRange;
+import data.FieldRange.Column;
+import data.FuelType;
+import data.VehicleStore;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Answers the queries by scanning the columns of the store in place, so the fields are not indexed again
+ * on the heap and changes of the collection cost nothing here.
+ * A scan makes a pass over every compared column, about 2.5 ms for a count over 1000000 elements,
+ * where the heap indexes count in microseconds; a filter that combines several fields takes about as long
+ * as the bitmap index, see {@code bench.QueryBench} and {@code bench.BitmapBench}.
+ */
+class ColumnScanQueries implements FieldQueries {
+    private final VehicleStore dataBase;
+
+    ColumnScanQueries(VehicleStore dataBase) {
+        this.dataBase = dataBase;
+    }
+
+    @Override
+    public void add(long key) {
+    }
+
+    @Override
+    public void remove(long key) {
+    }
+
+    @Override
+    public void clear() {
+    }
+
+    @Override
+    public List<Long> keysWithDistanceGreaterThan(long distanceTravelled) {
+        return keysIn(FieldRange.greaterThan(Column.DISTANCE_TRAVELLED, distanceTravelled));
+    }
+
+    @Override
+    public List<Long> keysWithDistanceLessThan(long distanceTravelled) {
+        return keysIn(FieldRange.lessThan(Column.DISTANCE_TRAVELLED, distanceTravelled));
+    }
+
+    /**
+     * The keys come in ascending order, the stable sort keeps it among equal distances.
+     */
+    @Override
+    public List<Long> keysWithDistanceBetween(long from, long to) {
+        List<Long> keys = keysIn(new FieldRange(Column.DISTANCE_TRAVELLED, from, to));
+        keys.sort(Comparator.comparingLong(dataBase::getDistanceTravelled));
+        return keys;
+    }
+
+    @Override
+    public long countWithDistanceBetween(long from, long to) {
+        return dataBase.countInRanges(List.of(List.of(new FieldRange(Column.DISTANCE_TRAVELLED, from, to))));
+    }
+
+    @Override
+    public List<Long> keysWithEnginePower(int enginePower) {
+        return keysIn(FieldRange.of(Column.ENGINE_POWER, enginePower));
+    }
+
+    @Override
+    public long countWithEnginePower(int enginePower) {
+        return dataBase.countInRanges(List.of(List.of(FieldRange.of(Column.ENGINE_POWER, enginePower))));
+    }
+
+    @Override
+    public long countWithFuelType(FuelType fuelType) {
+        return dataBase.countInRanges(List.of(List.of(FieldRange.of(Column.FUEL_TYPE, fuelType.getSerialNumber()))));
+    }
+
+    @Override
+    public List<Long> keysWithFuelTypes(Collection<FuelType> fuelTypes) {
+        List<List<FieldRange>> alternatives = new ArrayList<>();
+        for (FuelType fuelType : fuelTypes)
+            alternatives.add(List.of(FieldRange.of(Column.FUEL_TYPE, fuelType.getSerialNumber())));
+        return boxed(dataBase.keysInRanges(alternatives));
+    }
+
+    @Override
+    public long[] select(FilterExpression filter) {
+        return dataBase.keysInRanges(filter.toRanges());
+    }
+
+    private List<Long> keysIn(FieldRange range) {
+        return boxed(dataBase.keysInRanges(List.of(List.of(range))));
+    }
+
+    private static List<Long> boxed(long[] keys) {
+        List<Long> boxedKeys = new ArrayList<>(keys.length);
+        for (long key : keys)
+            boxedKeys.add(key);
+        return boxedKeys;
+    }
+}
@@ -21,7 +21,10 @@ public class CommandInvoker {
                           Command clearCommand, Command saveCommand, Command executeScriptCommand,
                           Command exitCommand, Command removeGreaterCommand, Command removeLowerCommand,
                           Command removeGreaterKeyCommand, Command removeAllByEnginePowerCommand,
-                          Command countByFuelTypeCommand, Command filterLessThanFuelTypeCommand) {
+                          Command countByFuelTypeCommand, Command filterLessThanFuelTypeCommand,
+                          Command countByDistanceTravelledCommand, Command filterByDistanceTravelledCommand,
+                          Command countByEnginePowerCommand, Command filterByEnginePowerCommand,
+                          Command filterCommand) {
         commandMap.put(HelpCommand.getName(), helpCommand);
         commandMap.put(InfoCommand.getName(), infoCommand);
         commandMap.put(ShowCommand.getName(), showCommand);
@@ -38,6 +41,11 @@ public class CommandInvoker {
         commandMap.put(RemoveAllByEnginePowerCommand.getName(), removeAllByEnginePowerCommand);
         commandMap.put(CountByFuelTypeCommand.getName(), countByFuelTypeCommand);
         commandMap.put(FilterLessThanFuelTypeCommand.getName(), filterLessThanFuelTypeCommand);
+        commandMap.put(CountByDistanceTravelledCommand.getName(), countByDistanceTravelledCommand);
+        commandMap.put(FilterByDistanceTravelledCommand.getName(), filterByDistanceTravelledCommand);
+        commandMap.put(CountByEnginePowerCommand.getName(), countByEnginePowerCommand);
+        commandMap.put(FilterByEnginePowerCommand.getName(), filterByEnginePowerCommand);
+        commandMap.put(FilterCommand.getName(), filterCommand);
 
         setReferenceFile();
     }
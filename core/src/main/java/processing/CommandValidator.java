@@ -3,18 +3,17 @@ package processing;
 import commands.*;
 import exceptions.WrongAmountOfArgumentsException;
 import mods.AnswerType;
-import mods.ExecuteMode;
 import mods.MessageType;
 import utility.*;
 
 import java.io.File;
-import java.util.HashSet;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.Set;
 
+/**
+ * Checks the arguments of commands before they are executed.
+ * Used by the client for typed commands and by the server for the lines of scripts.
+ */
 public class CommandValidator {
     private final AnswerType answerType;
-    private static final Set<String> scriptCounter = new HashSet<>();
 
     public CommandValidator(AnswerType answerType) {
         this.answerType = answerType;
@@ -48,13 +47,48 @@ public class CommandValidator {
         return true;
     }
 
+    /**
+     * Checks the bounds of a range of distance travelled, the lower bound comes first.
+     */
+    private boolean validateDistanceRange(CommandArguments commandArguments) {
+        String commandName = commandArguments.getCommandName();
+        String[] arguments = commandArguments.getArguments();
+        if (!checkNumberOfArguments(commandArguments, 2))
+            return false;
+        for (String argument : arguments) {
+            CheckingResult checkingResult = ValueHandler.DISTANCE_TRAVELLED_CHECKER.check(argument);
+            if (!checkingResult.getStatus()) {
+                MessageHolder.putCurrentCommand(commandName + " " + argument, MessageType.USER_ERROR);
+                MessageHolder.putMessage(checkingResult.getMessage(), MessageType.USER_ERROR);
+                return false;
+            }
+        }
+        if (Long.parseLong(arguments[0]) > Long.parseLong(arguments[1])) {
+            MessageHolder.putCurrentCommand(commandName, MessageType.USER_ERROR);
+            MessageHolder.putMessage("Lower bound of the range cannot be greater than upper bound",
+                    MessageType.USER_ERROR);
+            return false;
+        }
+        return true;
+    }
+
+    private boolean validateFilter(CommandArguments commandArguments) {
+        CheckingResult checkingResult = FilterExpression.check(commandArguments.getArguments());
+        if (!checkingResult.getStatus()) {
+            MessageHolder.putCurrentCommand(commandArguments.getCommandName(), MessageType.USER_ERROR);
+            MessageHolder.putMessage(checkingResult.getMessage(), MessageType.USER_ERROR);
+            return false;
+        }
+        return true;
+    }
+
     private boolean validateEnginePower(CommandArguments commandArguments) {
         String[] arguments = commandArguments.getArguments();
         if (!checkNumberOfArguments(commandArguments, 1))
             return false;
         CheckingResult checkingResult = ValueHandler.ENGINE_POWER_CHECKER.check(arguments[0]);
         if (!checkingResult.getStatus()) {
-            MessageHolder.putCurrentCommand(RemoveAllByEnginePowerCommand.getName() + " " +
+            MessageHolder.putCurrentCommand(commandArguments.getCommandName() + " " +
                     arguments[0], MessageType.USER_ERROR);
             MessageHolder.putMessage(checkingResult.getMessage(), MessageType.USER_ERROR);
             return false;
@@ -76,8 +110,7 @@ public class CommandValidator {
         }
         if (!checkNumberOfArguments(commandArguments, 1))
             return false;
-        IdentifierHandler identifierHandler = new IdentifierHandler(new ConcurrentHashMap<>());
-        if (!identifierHandler.checkKey(arguments[0], commandName + " " + arguments[0]))
+        if (!IdentifierHandler.checkKey(arguments[0], commandName + " " + arguments[0]))
             return false;
         return true;
     }
@@ -105,33 +138,26 @@ public class CommandValidator {
         }
         if (!checkNumberOfArguments(commandArguments, 1))
             return false;
-        IdentifierHandler identifierHandler = new IdentifierHandler(new ConcurrentHashMap<>());//////////////
-        if (!identifierHandler.checkId(arguments[0], UpdateCommand.getName() + " " + arguments[0]))
+        if (!IdentifierHandler.checkId(arguments[0], UpdateCommand.getName() + " " + arguments[0]))
             return false;
         return true;
     }
 
+    /**
+     * Checks that the script exists in the 'scripts' directory of the side that validates it.
+     * Recursion of scripts is noticed when they are executed.
+     */
     private boolean validateExecuteScriptCommand(CommandArguments commandArguments) {
         String[] arguments = commandArguments.getArguments();
-        if (commandArguments.getExecuteMode() == ExecuteMode.COMMAND_MODE)
-            scriptCounter.clear();
         if (!checkNumberOfArguments(commandArguments, 1))
             return false;
-        File scriptFile = FileHandler.findFile(new File("../scripts"), arguments[0]);
+        File scriptFile = FileHandler.findScript(arguments[0]);
         if (scriptFile == null) {
             MessageHolder.putMessage(String.format(
                     "Script '%s' not found in 'scripts' directory", arguments[0]), MessageType.USER_ERROR);
             return false;
         }
         commandArguments.setScriptFile(scriptFile);
-        if (scriptCounter.contains(scriptFile.getAbsolutePath())) {
-            MessageHolder.putMessage(String.format("Command '%s %s':",
-                    ExecuteScriptCommand.getName(), scriptFile.getName()), MessageType.USER_ERROR);
-            MessageHolder.putMessage(String.format(
-                    "Recursion on '%s' script noticed", scriptFile.getName()), MessageType.USER_ERROR);
-            return false;
-        }
-        scriptCounter.add(scriptFile.getAbsolutePath());
         return true;
     }
 
@@ -146,13 +172,18 @@ public class CommandValidator {
     private boolean validateArguments(CommandArguments commandArguments) {
         boolean isCorrect;
         switch (commandArguments.getCommandName()) {
-            case "help", "info", "show", "clear", "exit" -> isCorrect = checkNumberOfArguments(commandArguments, 0);
+            case "help", "info", "clear", "exit" -> isCorrect = checkNumberOfArguments(commandArguments, 0);
+            case "show" -> isCorrect = commandArguments.getArguments().length == 0 || validateKey(commandArguments);
             case "insert", "remove_key", "remove_greater_key" -> isCorrect = validateKey(commandArguments);
             case "update" -> isCorrect = validateId(commandArguments);
             case "execute_script" -> isCorrect = validateExecuteScriptCommand(commandArguments);
             case "remove_greater", "remove_lower" -> isCorrect = validateDistanceTravelled(commandArguments);
-            case "remove_all_by_engine_power" -> isCorrect = validateEnginePower(commandArguments);
+            case "count_by_distance_travelled", "filter_by_distance_travelled" ->
+                    isCorrect = validateDistanceRange(commandArguments);
+            case "remove_all_by_engine_power", "count_by_engine_power", "filter_by_engine_power" ->
+                    isCorrect = validateEnginePower(commandArguments);
             case "count_by_fuel_type", "filter_less_than_fuel_type" -> isCorrect = validateFuelType(commandArguments);
+            case "filter" -> isCorrect = validateFilter(commandArguments);
             default -> {
                 MessageHolder.putMessage(String.format(
                         "'%s': No such command", commandArguments.getCommandName()), MessageType.USER_ERROR);
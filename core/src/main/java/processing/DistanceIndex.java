@@ -0,0 +1,62 @@
+package processing;
+
+import data.VehicleStore;
+
+import java.util.List;
+
+/**
+ * Sorted index of the keys of elements by their distance travelled.
+ * Elements with equal distance are kept in key order.
+ * The pairs of a distance and a key are kept in primitive arrays by {@link SortedPairs}.
+ * {@link BufferedDataBase} reports every change of the collection to it.
+ */
+public class DistanceIndex {
+    private final SortedPairs keysByDistance = new SortedPairs();
+
+    public DistanceIndex(VehicleStore dataBase) {
+        dataBase.forEachKey(key -> add(dataBase.getDistanceTravelled(key), key));
+    }
+
+    public void add(long distanceTravelled, long key) {
+        keysByDistance.add(distanceTravelled, key);
+    }
+
+    public void remove(long distanceTravelled, long key) {
+        keysByDistance.remove(distanceTravelled, key);
+    }
+
+    public void clear() {
+        keysByDistance.clear();
+    }
+
+    /**
+     * @return Keys of elements whose distance travelled is greater than the given one.
+     */
+    public List<Long> keysGreaterThan(long distanceTravelled) {
+        return distanceTravelled == Long.MAX_VALUE ? List.of() :
+                keysByDistance.keysBetween(distanceTravelled + 1, Long.MAX_VALUE);
+    }
+
+    /**
+     * @return Keys of elements whose distance travelled is less than the given one.
+     */
+    public List<Long> keysLessThan(long distanceTravelled) {
+        return distanceTravelled == Long.MIN_VALUE ? List.of() :
+                keysByDistance.keysBetween(Long.MIN_VALUE, distanceTravelled - 1);
+    }
+
+    /**
+     * @return Keys of elements whose distance travelled lies between the bounds inclusive, ordered by distance.
+     */
+    public List<Long> keysBetween(long from, long to) {
+        return keysByDistance.keysBetween(from, to);
+    }
+
+    /**
+     * Counts elements without collecting their keys.
+     * @return Count of elements whose distance travelled lies between the bounds inclusive.
+     */
+    public long countBetween(long from, long to) {
+        return keysByDistance.countBetween(from, to);
+    }
+}
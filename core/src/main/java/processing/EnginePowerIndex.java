@@ -0,0 +1,44 @@
+package processing;
+
+import data.VehicleStore;
+
+import java.util.List;
+
+/**
+ * Index of the keys of elements by their engine power, the keys of one engine power are kept in key order.
+ * The pairs of an engine power and a key are kept in primitive arrays by {@link SortedPairs}.
+ * {@link BufferedDataBase} reports every change of the collection to it.
+ */
+public class EnginePowerIndex {
+    private final SortedPairs keysByEnginePower = new SortedPairs();
+
+    public EnginePowerIndex(VehicleStore dataBase) {
+        dataBase.forEachKey(key -> add(dataBase.getEnginePower(key), key));
+    }
+
+    public void add(int enginePower, long key) {
+        keysByEnginePower.add(enginePower, key);
+    }
+
+    public void remove(int enginePower, long key) {
+        keysByEnginePower.remove(enginePower, key);
+    }
+
+    public void clear() {
+        keysByEnginePower.clear();
+    }
+
+    /**
+     * @return Keys of elements with the given engine power in ascending order.
+     */
+    public List<Long> keysOf(int enginePower) {
+        return keysByEnginePower.keysBetween(enginePower, enginePower);
+    }
+
+    /**
+     * @return Count of elements with the given engine power.
+     */
+    public int countOf(int enginePower) {
+        return (int) keysByEnginePower.countBetween(enginePower, enginePower);
+    }
+}
@@ -0,0 +1,80 @@
+package processing;
+
+import data.VehicleStore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.LongFunction;
+
+/**
+ * Index of the keys of elements by a field of an enum type.
+ * Keeps the pairs of the ordinal of a value and a key in primitive arrays by {@link SortedPairs},
+ * so the keys of every value are in key order, and a counter for every value of the enum.
+ * {@link BufferedDataBase} reports every change of the collection to it.
+ *
+ * @param <E> type of the field
+ */
+public class EnumIndex<E extends Enum<E>> {
+    private final SortedPairs keysByOrdinal = new SortedPairs();
+    private final long[] countsByOrdinal;
+
+    /**
+     * @param type class of the field
+     * @param dataBase elements to be indexed
+     * @param field gets the value of the field by the key of an element
+     */
+    public EnumIndex(Class<E> type, VehicleStore dataBase, LongFunction<E> field) {
+        countsByOrdinal = new long[type.getEnumConstants().length];
+        dataBase.forEachKey(key -> add(field.apply(key), key));
+    }
+
+    public void add(E value, long key) {
+        if (value != null && keysByOrdinal.add(value.ordinal(), key))
+            countsByOrdinal[value.ordinal()]++;
+    }
+
+    public void remove(E value, long key) {
+        if (value != null && keysByOrdinal.remove(value.ordinal(), key))
+            countsByOrdinal[value.ordinal()]--;
+    }
+
+    public void clear() {
+        keysByOrdinal.clear();
+        Arrays.fill(countsByOrdinal, 0);
+    }
+
+    /**
+     * @return Count of elements with the given value, without visiting them.
+     */
+    public long countOf(E value) {
+        return countsByOrdinal[value.ordinal()];
+    }
+
+    /**
+     * Merges the keys of the given values, every value has its keys in ascending order.
+     * @return Keys of elements with any of the given values in ascending order.
+     */
+    public List<Long> keysOf(Collection<E> values) {
+        List<Long> mergedKeys = new ArrayList<>();
+        for (E value : values) {
+            List<Long> keys = keysByOrdinal.keysBetween(value.ordinal(), value.ordinal());
+            mergedKeys = mergedKeys.isEmpty() ? keys : merge(mergedKeys, keys);
+        }
+        return mergedKeys;
+    }
+
+    private static List<Long> merge(List<Long> keys, List<Long> otherKeys) {
+        List<Long> mergedKeys = new ArrayList<>(keys.size() + otherKeys.size());
+        int i = 0;
+        int j = 0;
+        while (i < keys.size() || j < otherKeys.size()) {
+            if (j == otherKeys.size() || i < keys.size() && keys.get(i) < otherKeys.get(j))
+                mergedKeys.add(keys.get(i++));
+            else
+                mergedKeys.add(otherKeys.get(j++));
+        }
+        return mergedKeys;
+    }
+}
@@ -0,0 +1,70 @@
+package processing;
+
+import data.FuelType;
+import data.VehicleStore;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Selects elements by their fields for the commands of {@link BufferedDataBase}, which reports every change
+ * of the collection to it. A store that keeps its fields in columns is scanned in place,
+ * other stores are answered by indexes kept on the heap.
+ */
+interface FieldQueries {
+    /**
+     * Called after the element is put in the store.
+     */
+    void add(long key);
+
+    /**
+     * Called while the element is still in the store.
+     */
+    void remove(long key);
+
+    void clear();
+
+    /**
+     * @return Keys of elements whose distance travelled is greater than the given one.
+     */
+    List<Long> keysWithDistanceGreaterThan(long distanceTravelled);
+
+    /**
+     * @return Keys of elements whose distance travelled is less than the given one.
+     */
+    List<Long> keysWithDistanceLessThan(long distanceTravelled);
+
+    /**
+     * @return Keys of elements whose distance travelled lies between the bounds inclusive,
+     * ordered by distance and then by key.
+     */
+    List<Long> keysWithDistanceBetween(long from, long to);
+
+    long countWithDistanceBetween(long from, long to);
+
+    /**
+     * @return Keys of elements with the given engine power in ascending order.
+     */
+    List<Long> keysWithEnginePower(int enginePower);
+
+    long countWithEnginePower(int enginePower);
+
+    long countWithFuelType(FuelType fuelType);
+
+    /**
+     * @return Keys of elements with any of the given fuel types in ascending order.
+     */
+    List<Long> keysWithFuelTypes(Collection<FuelType> fuelTypes);
+
+    /**
+     * @return Keys of elements that match the filter in ascending order.
+     */
+    long[] select(FilterExpression filter);
+
+    /**
+     * Creates the queries fitting the store and fills them with its elements.
+     */
+    static FieldQueries create(VehicleStore dataBase) {
+        return dataBase.keepsColumns() ? new ColumnScanQueries(dataBase) : new IndexedQueries(dataBase);
+    }
+}
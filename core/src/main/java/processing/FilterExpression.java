@@ -0,0 +1,223 @@
+package processing;
+
+import data.ElementFields;
+import data.FieldRange;
+import utility.CheckingResult;
+import utility.ValueHandler;
+import utility.ValueTransformer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Condition of the 'filter' command: comparisons of fields joined by 'and' and 'or',
+ * 'and' binds tighter than 'or'. A comparison is written without spaces, for example
+ * {@code fuel_type<=2 and vehicle_type=CAR and engine_power>=100 and engine_power<=200}.
+ * Fuel and vehicle types are compared by their serial numbers.
+ */
+public class FilterExpression {
+    private final List<List<Comparison>> alternatives;
+
+    private FilterExpression(List<List<Comparison>> alternatives) {
+        this.alternatives = alternatives;
+    }
+
+    /**
+     * Fields that can be compared in a filter.
+     */
+    public enum Field {
+        FUEL_TYPE("fuel_type", FieldRange.Column.FUEL_TYPE),
+        VEHICLE_TYPE("vehicle_type", FieldRange.Column.VEHICLE_TYPE),
+        ENGINE_POWER("engine_power", FieldRange.Column.ENGINE_POWER),
+        DISTANCE_TRAVELLED("distance_travelled", FieldRange.Column.DISTANCE_TRAVELLED);
+        private final String name;
+        private final FieldRange.Column column;
+
+        Field(String name, FieldRange.Column column) {
+            this.name = name;
+            this.column = column;
+        }
+
+        /**
+         * @return False, if the element has no value of this field.
+         */
+        public boolean isSetIn(ElementFields fields) {
+            return switch (this) {
+                case FUEL_TYPE -> fields.getFuelType() != null;
+                case VEHICLE_TYPE -> fields.getType() != null;
+                case ENGINE_POWER, DISTANCE_TRAVELLED -> true;
+            };
+        }
+
+        public long valueOf(ElementFields fields) {
+            return switch (this) {
+                case FUEL_TYPE -> fields.getFuelType().getSerialNumber();
+                case VEHICLE_TYPE -> fields.getType().getSerialNumber();
+                case ENGINE_POWER -> fields.getEnginePower();
+                case DISTANCE_TRAVELLED -> fields.getDistanceTravelled();
+            };
+        }
+    }
+
+    /**
+     * Comparison operators, the longer ones come first so that they are matched before '<' and '>'.
+     */
+    public enum Operator {
+        LESS_OR_EQUAL("<="),
+        GREATER_OR_EQUAL(">="),
+        LESS("<"),
+        GREATER(">"),
+        EQUAL("=");
+        private final String symbol;
+
+        Operator(String symbol) {
+            this.symbol = symbol;
+        }
+
+        public boolean test(long fieldValue, long value) {
+            return switch (this) {
+                case LESS_OR_EQUAL -> fieldValue <= value;
+                case GREATER_OR_EQUAL -> fieldValue >= value;
+                case LESS -> fieldValue < value;
+                case GREATER -> fieldValue > value;
+                case EQUAL -> fieldValue == value;
+            };
+        }
+    }
+
+    public record Comparison(Field field, Operator operator, long value) {
+        public boolean test(ElementFields fields) {
+            return field.isSetIn(fields) && operator.test(field.valueOf(fields), value);
+        }
+
+        /**
+         * @return Range of the values of the field that pass the comparison, empty if none does.
+         */
+        public FieldRange toRange() {
+            return switch (operator) {
+                case LESS_OR_EQUAL -> new FieldRange(field.column, Long.MIN_VALUE, value);
+                case GREATER_OR_EQUAL -> new FieldRange(field.column, value, Long.MAX_VALUE);
+                case LESS -> FieldRange.lessThan(field.column, value);
+                case GREATER -> FieldRange.greaterThan(field.column, value);
+                case EQUAL -> FieldRange.of(field.column, value);
+            };
+        }
+    }
+
+    /**
+     * @return Groups of comparisons joined by 'and', the groups are joined by 'or'.
+     */
+    public List<List<Comparison>> getAlternatives() {
+        return alternatives;
+    }
+
+    /**
+     * @return Condition as groups of ranges of the fields, for the scans of a store.
+     */
+    public List<List<FieldRange>> toRanges() {
+        List<List<FieldRange>> ranges = new ArrayList<>();
+        for (List<Comparison> comparisons : alternatives)
+            ranges.add(comparisons.stream().map(Comparison::toRange).toList());
+        return ranges;
+    }
+
+    /**
+     * Checks the element against the whole condition, reading only the compared fields.
+     */
+    public boolean test(ElementFields fields) {
+        for (List<Comparison> comparisons : alternatives) {
+            if (allMatch(comparisons, fields))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Loop without a stream, a scan calls it for every row.
+     */
+    private static boolean allMatch(List<Comparison> comparisons, ElementFields fields) {
+        for (Comparison comparison : comparisons) {
+            if (!comparison.test(fields))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Checks the words of the condition without building it.
+     * @param arguments words of the condition
+     * @return Check status with a message for the user.
+     */
+    public static CheckingResult check(String[] arguments) {
+        try {
+            parse(arguments);
+        } catch (IllegalArgumentException e) {
+            return new CheckingResult(false, e.getMessage());
+        }
+        return new CheckingResult(true, "");
+    }
+
+    /**
+     * Builds the condition from its words.
+     * @param arguments words of the condition
+     * @return Condition of the filter.
+     * @throws IllegalArgumentException if the condition is not valid
+     */
+    public static FilterExpression parse(String[] arguments) {
+        if (arguments.length == 0)
+            throw new IllegalArgumentException("Condition of the filter cannot be empty");
+        List<List<Comparison>> alternatives = new ArrayList<>();
+        List<Comparison> comparisons = new ArrayList<>();
+        for (int i = 0; i < arguments.length; i++) {
+            if (i % 2 == 0) {
+                comparisons.add(parseComparison(arguments[i]));
+            } else if (arguments[i].equalsIgnoreCase("or")) {
+                alternatives.add(comparisons);
+                comparisons = new ArrayList<>();
+            } else if (!arguments[i].equalsIgnoreCase("and")) {
+                throw new IllegalArgumentException(String.format(
+                        "Expected 'and' or 'or' instead of '%s'", arguments[i]));
+            }
+        }
+        if (arguments.length % 2 == 0)
+            throw new IllegalArgumentException("Condition of the filter cannot end with 'and' or 'or'");
+        alternatives.add(comparisons);
+        return new FilterExpression(alternatives);
+    }
+
+    private static Comparison parseComparison(String word) {
+        for (Field field : Field.values()) {
+            if (!word.startsWith(field.name))
+                continue;
+            String rest = word.substring(field.name.length());
+            for (Operator operator : Operator.values()) {
+                if (rest.startsWith(operator.symbol))
+                    return new Comparison(field, operator,
+                            parseValue(field, rest.substring(operator.symbol.length())));
+            }
+            throw new IllegalArgumentException(String.format(
+                    "Expected one of <=, >=, <, >, = after '%s' in '%s'", field.name, word));
+        }
+        throw new IllegalArgumentException(String.format(
+                "Unknown field in '%s', expected fuel_type, vehicle_type, engine_power or distance_travelled", word));
+    }
+
+    private static long parseValue(Field field, String value) {
+        CheckingResult checkingResult = switch (field) {
+            case FUEL_TYPE -> ValueHandler.FUEL_TYPE_CHECKER.check(ValueHandler.TYPE_CORRECTION.correct(value));
+            case VEHICLE_TYPE -> ValueHandler.VEHICLE_TYPE_PROCESSING.getChecker().check(
+                    ValueHandler.TYPE_CORRECTION.correct(value));
+            case ENGINE_POWER -> ValueHandler.ENGINE_POWER_CHECKER.check(value);
+            case DISTANCE_TRAVELLED -> ValueHandler.DISTANCE_TRAVELLED_CHECKER.check(value);
+        };
+        if (!checkingResult.getStatus())
+            throw new IllegalArgumentException(checkingResult.getMessage());
+        return switch (field) {
+            case FUEL_TYPE -> ValueTransformer.SET_FUEL_TYPE.apply(
+                    ValueHandler.TYPE_CORRECTION.correct(value)).getSerialNumber();
+            case VEHICLE_TYPE -> ValueTransformer.SET_VEHICLE_TYPE.apply(
+                    ValueHandler.TYPE_CORRECTION.correct(value)).getSerialNumber();
+            case ENGINE_POWER, DISTANCE_TRAVELLED -> Long.parseLong(value);
+        };
+    }
+}
@@ -0,0 +1,102 @@
+package processing;
+
+import data.FuelType;
+import data.VehicleStore;
+import data.VehicleType;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Answers the queries by indexes of the fields kept on the heap, for stores that keep whole elements
+ * or records, where reading a field of every element costs a lookup by key.
+ */
+class IndexedQueries implements FieldQueries {
+    private final VehicleStore dataBase;
+    private final DistanceIndex distanceIndex;
+    private final EnginePowerIndex enginePowerIndex;
+    private final EnumIndex<FuelType> fuelTypeIndex;
+    private final EnumIndex<VehicleType> vehicleTypeIndex;
+    private final BitmapIndex bitmapIndex;
+
+    IndexedQueries(VehicleStore dataBase) {
+        this.dataBase = dataBase;
+        distanceIndex = new DistanceIndex(dataBase);
+        enginePowerIndex = new EnginePowerIndex(dataBase);
+        fuelTypeIndex = new EnumIndex<>(FuelType.class, dataBase, dataBase::getFuelType);
+        vehicleTypeIndex = new EnumIndex<>(VehicleType.class, dataBase, dataBase::getType);
+        bitmapIndex = new BitmapIndex(dataBase);
+    }
+
+    @Override
+    public void add(long key) {
+        distanceIndex.add(dataBase.getDistanceTravelled(key), key);
+        enginePowerIndex.add(dataBase.getEnginePower(key), key);
+        fuelTypeIndex.add(dataBase.getFuelType(key), key);
+        vehicleTypeIndex.add(dataBase.getType(key), key);
+        bitmapIndex.add(key);
+    }
+
+    @Override
+    public void remove(long key) {
+        distanceIndex.remove(dataBase.getDistanceTravelled(key), key);
+        enginePowerIndex.remove(dataBase.getEnginePower(key), key);
+        fuelTypeIndex.remove(dataBase.getFuelType(key), key);
+        vehicleTypeIndex.remove(dataBase.getType(key), key);
+        bitmapIndex.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        distanceIndex.clear();
+        enginePowerIndex.clear();
+        fuelTypeIndex.clear();
+        vehicleTypeIndex.clear();
+        bitmapIndex.clear();
+    }
+
+    @Override
+    public List<Long> keysWithDistanceGreaterThan(long distanceTravelled) {
+        return distanceIndex.keysGreaterThan(distanceTravelled);
+    }
+
+    @Override
+    public List<Long> keysWithDistanceLessThan(long distanceTravelled) {
+        return distanceIndex.keysLessThan(distanceTravelled);
+    }
+
+    @Override
+    public List<Long> keysWithDistanceBetween(long from, long to) {
+        return distanceIndex.keysBetween(from, to);
+    }
+
+    @Override
+    public long countWithDistanceBetween(long from, long to) {
+        return distanceIndex.countBetween(from, to);
+    }
+
+    @Override
+    public List<Long> keysWithEnginePower(int enginePower) {
+        return enginePowerIndex.keysOf(enginePower);
+    }
+
+    @Override
+    public long countWithEnginePower(int enginePower) {
+        return enginePowerIndex.countOf(enginePower);
+    }
+
+    @Override
+    public long countWithFuelType(FuelType fuelType) {
+        return fuelTypeIndex.countOf(fuelType);
+    }
+
+    @Override
+    public List<Long> keysWithFuelTypes(Collection<FuelType> fuelTypes) {
+        return fuelTypeIndex.keysOf(fuelTypes);
+    }
+
+    @Override
+    public long[] select(FilterExpression filter) {
+        return bitmapIndex.select(filter);
+    }
+}
@@ -0,0 +1,56 @@
+package processing;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+
+import org.apache.commons.lang3.SerializationUtils;
+
+/**
+ * Encodes objects by standard Java serialization.
+ * Used when the other side does not support the binary codec.
+ * Decoded objects may not be nested deeper than a batch request or answer is, so a crafted frame
+ * cannot exhaust the stack of the decoding thread.
+ */
+public class JavaSerializationCodec implements WireCodec {
+    public static final byte ID = 0;
+    private static final byte VERSION = 1;
+    private static final ObjectInputFilter DEPTH_FILTER = ObjectInputFilter.Config.createFilter("maxdepth=8");
+
+    @Override
+    public byte getId() {
+        return ID;
+    }
+
+    @Override
+    public byte getVersion() {
+        return VERSION;
+    }
+
+    @Override
+    public byte[] encode(Serializable object) {
+        return SerializationUtils.serialize(object);
+    }
+
+    @Override
+    public Serializable decode(ByteBuffer buffer) throws IOException {
+        InputStream bytes;
+        if (buffer.hasArray()) {
+            bytes = new ByteArrayInputStream(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        } else {
+            byte[] array = new byte[buffer.remaining()];
+            buffer.get(array);
+            bytes = new ByteArrayInputStream(array);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(bytes)) {
+            in.setObjectInputFilter(DEPTH_FILTER);
+            return (Serializable) in.readObject();
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Cannot deserialize object", e);
+        }
+    }
+}
@@ -2,92 +2,160 @@ package processing;
 
 import java.io.IOException;
 import java.io.Serializable;
-import java.net.SocketException;
 import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
 
-import org.apache.commons.lang3.ArrayUtils;
-import org.apache.commons.lang3.SerializationUtils;
+/**
+ * Reads and writes frames: the length of the encoded object as a plain int followed by the object bytes.
+ * Every object is read through a direct buffer taken from the shared pool, so the channel does not copy it
+ * into a temporary direct buffer of its own, the length before it goes into a 4-byte buffer of the reading thread.
+ * A frame is written by one gathering write of a 4-byte header and the encoded object wrapped as it is,
+ * so the object is not copied into a frame buffer first.
+ * The maximum frame size and the bytes kept by the pool are set by the system properties
+ * {@code maxFrameSize} and {@code maxPooledBytes}.
+ */
+public class NBChannelController {
+    static final int LENGTH_FIELD_SIZE = Integer.BYTES;
+    private static final int DEFAULT_MAX_FRAME_SIZE = 128 * 1024 * 1024;
+    private static final long DEFAULT_MAX_POOLED_BYTES = 64 * 1024 * 1024;
+    static final BufferPool BUFFER_POOL = new BufferPool(
+            Integer.getInteger("maxFrameSize", DEFAULT_MAX_FRAME_SIZE),
+            Long.getLong("maxPooledBytes", DEFAULT_MAX_POOLED_BYTES));
+    /**
+     * Length field of the blocking reads, a connection is served by one thread in the blocking server and the client.
+     */
+    private static final ThreadLocal<ByteBuffer> LENGTH_BUFFER =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(LENGTH_FIELD_SIZE));
+
+    /**
+     * Makes the buffers of a frame for a gathering write: the header with the length and the encoded object.
+     *
+     * @param objectBytes encoded object to be written, it is wrapped without copying
+     * @return header and object buffers ready to be written in this order
+     * @throws IOException if the frame exceeds the maximum frame size
+     */
+    public static ByteBuffer[] toFrame(byte[] objectBytes) throws IOException {
+        BUFFER_POOL.checkFrameSize(LENGTH_FIELD_SIZE + objectBytes.length);
+        ByteBuffer header = ByteBuffer.allocate(LENGTH_FIELD_SIZE).putInt(0, objectBytes.length);
+        return new ByteBuffer[] {header, ByteBuffer.wrap(objectBytes)};
+    }
 
-public class NBChannelController {    
-    private static final int LENGTH_FIELD_SIZE = SerializationUtils.serialize(Integer.MAX_VALUE).length;
+    /**
+     * @return Pool of the buffers used for socket reads and writes.
+     */
+    public static BufferPool getBufferPool() {
+        return BUFFER_POOL;
+    }
 
+    /**
+     * Agrees on the codec of a new connection on the client side.
+     *
+     * @param channel blocking channel connected to the server
+     * @param preferredCodec codec the client wants to use
+     * @return codec chosen by the server
+     * @throws IOException if failed to exchange the handshake
+     */
+    public static WireCodec clientHandshake(SocketChannel channel, WireCodec preferredCodec) throws IOException {
+        writeFrame(channel, CodecHandshake.request(preferredCodec));
+        return CodecHandshake.chosen(readFrame(channel));
+    }
 
     /**
-     * Reads one object from the channel and returns it.
+     * Reads one object from the blocking channel and returns it.
      *
      * @param channel channel to read from
+     * @param codec codec of the connection
      * @return object read from the channel
      * @throws IOException if failed to read from channel
      */
-    public static Serializable read(SocketChannel channel) throws IOException {
-        int readCnt;
-        ByteBuffer lengthBuffer = ByteBuffer.allocate(LENGTH_FIELD_SIZE);
-        readCnt = channel.read(lengthBuffer);
-        if (readCnt != LENGTH_FIELD_SIZE) {
-            throw new IOException(
-                "(1)Cannot read object from channel: " + readCnt + " != " + LENGTH_FIELD_SIZE
-            );
+    public static Serializable read(SocketChannel channel, WireCodec codec) throws IOException {
+        int length = readLength(channel);
+        ByteBuffer objectBuffer = BUFFER_POOL.acquire(length);
+        try {
+            readFully(channel, objectBuffer);
+            return codec.decode(objectBuffer.flip());
+        } finally {
+            BUFFER_POOL.release(objectBuffer);
         }
-        int length = SerializationUtils.deserialize(lengthBuffer.array());
-        ByteBuffer objectBuffer = ByteBuffer.allocate(length);
-        readCnt = channel.read(objectBuffer);
-        if (readCnt != length) {
-            throw new IOException (
-                "(2)Cannot read object from channel: " + readCnt + " != " + length
-            );
+    }
+
+    /**
+     * Reads one frame from the blocking channel.
+     *
+     * @param channel channel to read from
+     * @return bytes of the encoded object
+     * @throws IOException if failed to read from channel
+     */
+    public static byte[] readFrame(SocketChannel channel) throws IOException {
+        ByteBuffer objectBuffer = BUFFER_POOL.acquire(readLength(channel));
+        try {
+            readFully(channel, objectBuffer);
+            byte[] objectBytes = new byte[objectBuffer.flip().remaining()];
+            objectBuffer.get(objectBytes);
+            return objectBytes;
+        } finally {
+            BUFFER_POOL.release(objectBuffer);
         }
-        Serializable object = SerializationUtils.deserialize(objectBuffer.array());
-        return object;
+    }
+
+    private static int readLength(SocketChannel channel) throws IOException {
+        ByteBuffer lengthBuffer = LENGTH_BUFFER.get().clear();
+        readFully(channel, lengthBuffer);
+        return checkLength(lengthBuffer.getInt(0));
+    }
+
+    /**
+     * Checks the length read from the channel before any buffer is allocated for it.
+     *
+     * @param length length of the object
+     * @return the same length
+     * @throws IOException if the length is negative or exceeds the maximum frame size
+     */
+    static int checkLength(int length) throws IOException {
+        if (length < 0)
+            throw new IOException("Invalid length of object: " + length);
+        BUFFER_POOL.checkFrameSize(length);
+        return length;
     }
 
     /**
-     * Writes one object to the channel.
+     * Writes one object to the blocking channel.
      *
      * @param channel channel to write to
+     * @param codec codec of the connection
      * @param object object to be written
      * @throws IOException if failed to write to channel
      */
-    public static void write(SocketChannel channel, Serializable object) throws SocketException, IOException {
-        byte[] objectBytes = SerializationUtils.serialize(object);
-        int packages = (objectBytes.length + LENGTH_FIELD_SIZE - 1) / LENGTH_FIELD_SIZE;
-        int objectBytesLength = objectBytes.length;
-        byte[] objectPackagesCount = SerializationUtils.serialize(packages);
-        channel.write(ByteBuffer.wrap(objectPackagesCount));
-        for (int i = 0; i < packages; i++) {
-            byte[] bytePackage = new byte[Math.min(LENGTH_FIELD_SIZE, objectBytesLength - LENGTH_FIELD_SIZE * i)];
-            System.arraycopy(objectBytes,LENGTH_FIELD_SIZE * i, bytePackage, 0, bytePackage.length);
-            channel.write(ByteBuffer.wrap(bytePackage));
-        }
+    public static void write(SocketChannel channel, WireCodec codec, Serializable object) throws IOException {
+        writeFrame(channel, codec.encode(object));
     }
 
-
-    public static void clientWrite(SocketChannel channel, Serializable object) throws SocketException, IOException {
-        byte[] objectBytes = SerializationUtils.serialize(object);
-        byte[] objectLengthBytes = SerializationUtils.serialize(objectBytes.length);
-        channel.write(ByteBuffer.wrap(ArrayUtils.addAll(objectLengthBytes, objectBytes)));
+    /**
+     * Writes one frame to the blocking channel.
+     *
+     * @param channel channel to write to
+     * @param objectBytes encoded object to be written
+     * @throws IOException if failed to write to channel
+     */
+    public static void writeFrame(SocketChannel channel, byte[] objectBytes) throws IOException {
+        ByteBuffer[] frame = toFrame(objectBytes);
+        while (frame[0].hasRemaining() || frame[1].hasRemaining())
+            channel.write(frame);
     }
 
-    public static Serializable clientRead(SocketChannel channel) throws IOException {
-        int readCnt;
-        byte[] objectBytes = {};
-        ByteBuffer packegesBuffer = ByteBuffer.allocate(LENGTH_FIELD_SIZE);
-        readCnt = channel.read(packegesBuffer);
-        if (readCnt == -1) {
-            throw new IOException("Cannot read count of packages from server");
-        }
-        int packages = SerializationUtils.deserialize(packegesBuffer.array());
-        for (int i = 0; i < packages; i++) {
-            ByteBuffer packageBuffer = ByteBuffer.allocate(LENGTH_FIELD_SIZE);
-            readCnt = channel.read(packageBuffer);
-            if (readCnt == -1) {
-                throw new IOException(String.format("Cannot read package %s from server", i));
+    /**
+     * Reads from the blocking channel until the buffer is full.
+     *
+     * @param channel channel to read from
+     * @param buffer buffer to fill
+     * @throws IOException if the channel was closed before the buffer was filled
+     */
+    private static void readFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) == -1) {
+                throw new IOException("Channel closed after " + buffer.position() + " of " +
+                        buffer.limit() + " bytes");
             }
-            objectBytes = ArrayUtils.addAll(objectBytes, packageBuffer.array());
         }
-        Serializable object = SerializationUtils.deserialize(objectBytes);
-        return object;
     }
-    
-    
 }
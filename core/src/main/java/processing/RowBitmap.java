@@ -0,0 +1,329 @@
+package processing;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Set of rows compressed the way roaring bitmaps are: the rows are split into chunks of 65536 by their high bits,
+ * a chunk of up to 4096 rows keeps their low bits in a sorted array, two bytes a row,
+ * a denser chunk keeps a bitmap of 8 KB. A rare value costs its own rows only,
+ * not a bit for every row of the collection, and chunks without rows are not kept at all.
+ * The joins return new bitmaps and leave their operands as they are.
+ */
+class RowBitmap {
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK_MASK = (1 << CHUNK_BITS) - 1;
+    private static final int MAX_ARRAY_SIZE = 4096;
+    private static final int WORDS_IN_CHUNK = (1 << CHUNK_BITS) / Long.SIZE;
+    private Chunk[] chunks = new Chunk[0]; // sorted by their high bits
+    private int countOfChunks;
+
+    /**
+     * Rows of one chunk, either in the array of low bits or in the bitmap, the other is null.
+     */
+    private static class Chunk {
+        private final int high;
+        private int cardinality;
+        private char[] lows;
+        private long[] words;
+
+        private Chunk(int high) {
+            this.high = high;
+            lows = new char[4];
+        }
+
+        private Chunk(int high, long[] words) {
+            this.high = high;
+            this.words = words;
+            for (long word : words)
+                cardinality += Long.bitCount(word);
+            if (cardinality <= MAX_ARRAY_SIZE)
+                toArray();
+        }
+
+        private boolean contains(int low) {
+            if (words != null)
+                return (words[low >>> 6] & 1L << low) != 0;
+            return Arrays.binarySearch(lows, 0, cardinality, (char) low) >= 0;
+        }
+
+        private void set(int low) {
+            if (words != null) {
+                if ((words[low >>> 6] & 1L << low) == 0) {
+                    words[low >>> 6] |= 1L << low;
+                    cardinality++;
+                }
+                return;
+            }
+            int position = Arrays.binarySearch(lows, 0, cardinality, (char) low);
+            if (position >= 0)
+                return;
+            position = -position - 1;
+            if (cardinality == MAX_ARRAY_SIZE) {
+                toWords();
+                set(low);
+                return;
+            }
+            if (cardinality == lows.length)
+                lows = Arrays.copyOf(lows, Math.min(lows.length * 2, MAX_ARRAY_SIZE));
+            System.arraycopy(lows, position, lows, position + 1, cardinality - position);
+            lows[position] = (char) low;
+            cardinality++;
+        }
+
+        private void clear(int low) {
+            if (words != null) {
+                if ((words[low >>> 6] & 1L << low) != 0) {
+                    words[low >>> 6] &= ~(1L << low);
+                    if (--cardinality <= MAX_ARRAY_SIZE / 2) // not at the limit, so set and clear do not flip it
+                        toArray();
+                }
+                return;
+            }
+            int position = Arrays.binarySearch(lows, 0, cardinality, (char) low);
+            if (position < 0)
+                return;
+            System.arraycopy(lows, position + 1, lows, position, cardinality - position - 1);
+            cardinality--;
+        }
+
+        /**
+         * @return Bitmap of the chunk, its own or a new one.
+         */
+        private long[] words() {
+            if (words != null)
+                return words;
+            long[] chunkWords = new long[WORDS_IN_CHUNK];
+            for (int i = 0; i < cardinality; i++)
+                chunkWords[lows[i] >>> 6] |= 1L << lows[i];
+            return chunkWords;
+        }
+
+        private void toWords() {
+            words = words();
+            lows = null;
+        }
+
+        private void toArray() {
+            lows = new char[Math.max(cardinality, 4)];
+            int i = 0;
+            for (int word = 0; word < WORDS_IN_CHUNK; word++) {
+                for (long bits = words[word]; bits != 0; bits &= bits - 1)
+                    lows[i++] = (char) (word * Long.SIZE + Long.numberOfTrailingZeros(bits));
+            }
+            words = null;
+        }
+
+        private void forEach(IntConsumer action) {
+            int base = high << CHUNK_BITS;
+            if (words == null) {
+                for (int i = 0; i < cardinality; i++)
+                    action.accept(base | lows[i]);
+                return;
+            }
+            for (int word = 0; word < WORDS_IN_CHUNK; word++) {
+                for (long bits = words[word]; bits != 0; bits &= bits - 1)
+                    action.accept(base | word * Long.SIZE + Long.numberOfTrailingZeros(bits));
+            }
+        }
+
+        /**
+         * @return Chunk of the rows in both, or null if there are none.
+         */
+        private Chunk and(Chunk other) {
+            if (words == null && other.words == null) {
+                Chunk both = new Chunk(high);
+                both.lows = new char[Math.max(Math.min(cardinality, other.cardinality), 4)];
+                for (int i = 0, j = 0; i < cardinality && j < other.cardinality; ) {
+                    if (lows[i] < other.lows[j]) {
+                        i++;
+                    } else if (lows[i] > other.lows[j]) {
+                        j++;
+                    } else {
+                        both.lows[both.cardinality++] = lows[i];
+                        i++;
+                        j++;
+                    }
+                }
+                return both.cardinality == 0 ? null : both;
+            }
+            if (words == null || other.words == null) { // test the rows of the array against the bitmap
+                Chunk array = words == null ? this : other;
+                long[] bitmap = words == null ? other.words : words;
+                Chunk both = new Chunk(high);
+                both.lows = new char[Math.max(array.cardinality, 4)];
+                for (int i = 0; i < array.cardinality; i++) {
+                    if ((bitmap[array.lows[i] >>> 6] & 1L << array.lows[i]) != 0)
+                        both.lows[both.cardinality++] = array.lows[i];
+                }
+                return both.cardinality == 0 ? null : both;
+            }
+            long[] bothWords = new long[WORDS_IN_CHUNK];
+            for (int word = 0; word < WORDS_IN_CHUNK; word++)
+                bothWords[word] = words[word] & other.words[word];
+            Chunk both = new Chunk(high, bothWords);
+            return both.cardinality == 0 ? null : both;
+        }
+
+        private Chunk or(Chunk other) {
+            long[] eitherWords = Arrays.copyOf(words(), WORDS_IN_CHUNK);
+            long[] otherWords = other.words();
+            for (int word = 0; word < WORDS_IN_CHUNK; word++)
+                eitherWords[word] |= otherWords[word];
+            return new Chunk(high, eitherWords);
+        }
+
+        /**
+         * @return Chunk of the rows not in the other, or null if there are none.
+         */
+        private Chunk andNot(Chunk other) {
+            long[] onlyWords = Arrays.copyOf(words(), WORDS_IN_CHUNK);
+            long[] otherWords = other.words();
+            for (int word = 0; word < WORDS_IN_CHUNK; word++)
+                onlyWords[word] &= ~otherWords[word];
+            Chunk only = new Chunk(high, onlyWords);
+            return only.cardinality == 0 ? null : only;
+        }
+    }
+
+    public boolean contains(int row) {
+        int index = indexOf(row >>> CHUNK_BITS);
+        return index >= 0 && chunks[index].contains(row & CHUNK_MASK);
+    }
+
+    public void set(int row) {
+        int high = row >>> CHUNK_BITS;
+        int index = indexOf(high);
+        if (index < 0) {
+            index = -index - 1;
+            if (countOfChunks == chunks.length)
+                chunks = Arrays.copyOf(chunks, Math.max(chunks.length * 2, 4));
+            System.arraycopy(chunks, index, chunks, index + 1, countOfChunks - index);
+            chunks[index] = new Chunk(high);
+            countOfChunks++;
+        }
+        chunks[index].set(row & CHUNK_MASK);
+    }
+
+    public void clear(int row) {
+        int index = indexOf(row >>> CHUNK_BITS);
+        if (index < 0)
+            return;
+        chunks[index].clear(row & CHUNK_MASK);
+        if (chunks[index].cardinality == 0) {
+            System.arraycopy(chunks, index + 1, chunks, index, countOfChunks - index - 1);
+            chunks[--countOfChunks] = null;
+        }
+    }
+
+    public boolean isEmpty() {
+        return countOfChunks == 0;
+    }
+
+    public int cardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < countOfChunks; i++)
+            cardinality += chunks[i].cardinality;
+        return cardinality;
+    }
+
+    /**
+     * Calls the action for every row in ascending order.
+     */
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < countOfChunks; i++)
+            chunks[i].forEach(action);
+    }
+
+    public RowBitmap and(RowBitmap other) {
+        RowBitmap both = new RowBitmap();
+        for (int i = 0, j = 0; i < countOfChunks && j < other.countOfChunks; ) {
+            if (chunks[i].high < other.chunks[j].high) {
+                i++;
+            } else if (chunks[i].high > other.chunks[j].high) {
+                j++;
+            } else {
+                both.append(chunks[i++].and(other.chunks[j++]));
+            }
+        }
+        return both;
+    }
+
+    public RowBitmap or(RowBitmap other) {
+        RowBitmap either = new RowBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < countOfChunks || j < other.countOfChunks) {
+            if (j == other.countOfChunks || i < countOfChunks && chunks[i].high < other.chunks[j].high)
+                either.append(copyOf(chunks[i++]));
+            else if (i == countOfChunks || chunks[i].high > other.chunks[j].high)
+                either.append(copyOf(other.chunks[j++]));
+            else
+                either.append(chunks[i++].or(other.chunks[j++]));
+        }
+        return either;
+    }
+
+    public RowBitmap andNot(RowBitmap other) {
+        RowBitmap only = new RowBitmap();
+        for (int i = 0, j = 0; i < countOfChunks; i++) {
+            while (j < other.countOfChunks && other.chunks[j].high < chunks[i].high)
+                j++;
+            if (j < other.countOfChunks && other.chunks[j].high == chunks[i].high)
+                only.append(chunks[i].andNot(other.chunks[j]));
+            else
+                only.append(copyOf(chunks[i]));
+        }
+        return only;
+    }
+
+    /**
+     * @return Bytes held by the chunks, without the headers of the objects.
+     */
+    public long sizeInBytes() {
+        long size = (long) chunks.length * Integer.BYTES;
+        for (int i = 0; i < countOfChunks; i++) {
+            size += chunks[i].words != null ?
+                    (long) chunks[i].words.length * Long.BYTES : (long) chunks[i].lows.length * Character.BYTES;
+        }
+        return size;
+    }
+
+    private static Chunk copyOf(Chunk chunk) {
+        if (chunk.words != null)
+            return new Chunk(chunk.high, chunk.words.clone());
+        Chunk copy = new Chunk(chunk.high);
+        copy.lows = Arrays.copyOf(chunk.lows, Math.max(chunk.cardinality, 4));
+        copy.cardinality = chunk.cardinality;
+        return copy;
+    }
+
+    /**
+     * Adds a chunk after all the others, chunks without rows are skipped.
+     */
+    private void append(Chunk chunk) {
+        if (chunk == null)
+            return;
+        if (countOfChunks == chunks.length)
+            chunks = Arrays.copyOf(chunks, Math.max(chunks.length * 2, 4));
+        chunks[countOfChunks++] = chunk;
+    }
+
+    /**
+     * @return Index of the chunk with the high bits, or -(insertion point) - 1 if there is none.
+     */
+    private int indexOf(int high) {
+        int low = 0;
+        int top = countOfChunks - 1;
+        while (low <= top) {
+            int middle = (low + top) >>> 1;
+            if (chunks[middle].high < high)
+                low = middle + 1;
+            else if (chunks[middle].high > high)
+                top = middle - 1;
+            else
+                return middle;
+        }
+        return -low - 1;
+    }
+}
@@ -0,0 +1,80 @@
+package processing;
+
+import commands.ExitCommand;
+import commands.InsertCommand;
+import commands.UpdateCommand;
+import data.Vehicle;
+import mods.AnswerType;
+import mods.ClientRequestType;
+import mods.ExecuteMode;
+import utility.CommandArguments;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Turns typed lines and lines of scripts into commands.
+ * Nested 'execute_script' commands are left as they are, they are expanded when executed.
+ */
+public class ScriptParser {
+
+    /**
+     * Separates a command from its arguments.
+     * @param line line typed by the user or read from a script
+     * @param executeMode mode in which the command is executed
+     * @return Command without extra arguments, or null if the line is empty.
+     */
+    public static CommandArguments parseLine(String line, ExecuteMode executeMode) {
+        if (line.trim().equals(""))
+            return null;
+        String[] splitLine = line.trim().split("\\s+");
+        String[] arguments = new String[splitLine.length - 1];
+        System.arraycopy(splitLine, 1, arguments, 0, arguments.length);
+        return new CommandArguments(splitLine[0], arguments, null,
+                ClientRequestType.COMMAND_EXECUTION, executeMode);
+    }
+
+    /**
+     * Makes commands of the script lines. Incorrect commands are reported and skipped,
+     * lines after 'insert' and 'update' are used as the values of the element,
+     * commands after 'exit' are not read.
+     * @param scriptLines lines of the script
+     * @param scriptFile file of the script, used in messages
+     * @return Correct commands of the script in the order of the lines.
+     */
+    public static ArrayList<CommandArguments> parseScript(List<String> scriptLines, File scriptFile) {
+        CommandValidator commandValidator = new CommandValidator(AnswerType.EXECUTION_RESPONSE);
+        ArrayList<CommandArguments> scriptCommands = new ArrayList<>();
+        int countOfScriptLines = scriptLines.size();
+        for (int line = 0; line < countOfScriptLines; line++) {
+            CommandArguments commandArguments = parseLine(scriptLines.get(line), ExecuteMode.SCRIPT_MODE);
+            if (commandArguments == null)
+                continue;
+            commandArguments.setScriptFile(scriptFile); // nested scripts get their own file by the validator
+            if (!commandValidator.validate(commandArguments))
+                continue;
+            scriptCommands.add(commandArguments);
+            String commandName = commandArguments.getCommandName();
+            if (commandName.equals(ExitCommand.getName()))
+                break;
+            if (commandName.equals(InsertCommand.getName()) || commandName.equals(UpdateCommand.getName())) {
+                commandArguments.setExtraArguments(readExtraArguments(line, scriptLines));
+                line += Vehicle.getCountOfChangeableFields();
+            }
+        }
+        return scriptCommands;
+    }
+
+    /**
+     * Takes the lines following the command that are used as arguments to change the collection element.
+     */
+    private static String[] readExtraArguments(int currentLineIndex, List<String> scriptLines) {
+        int countOfExtraArguments = Math.min(Vehicle.getCountOfChangeableFields(),
+                scriptLines.size() - currentLineIndex - 1);
+        String[] extraArguments = new String[countOfExtraArguments];
+        for (int i = 0; i < countOfExtraArguments; i++)
+            extraArguments[i] = scriptLines.get(currentLineIndex + 1 + i).trim();
+        return extraArguments;
+    }
+}
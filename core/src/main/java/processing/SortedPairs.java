@@ -0,0 +1,193 @@
+package processing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Sorted set of pairs of a value of a field and the key of an element, ordered by value, then by key,
+ * kept in primitive arrays: blocks of up to 1024 pairs sorted in place. A full block is split in two,
+ * but a pair that comes after all the pairs of a full block starts a new one, so pairs added in order fill whole blocks.
+ * A change moves at most one block, a range of values is found by binary searches over the first pairs
+ * of the blocks and inside a block. 16 to 32 bytes a pair, where a skip list of boxed keys takes about 190.
+ * Not synchronized: {@link BufferedDataBase} changes it only while no command reads the collection.
+ */
+class SortedPairs {
+    private static final int MAX_BLOCK_SIZE = 1024;
+    private long[][] valueBlocks;
+    private long[][] keyBlocks;
+    private int[] blockSizes;
+    private int countOfBlocks;
+    private long countOfPairs;
+
+    SortedPairs() {
+        clear();
+    }
+
+    /**
+     * @return False, if the pair is already in the set.
+     */
+    boolean add(long value, long key) {
+        int block = blockOf(value, key);
+        int index = indexIn(block, value, key);
+        if (index < blockSizes[block] && valueBlocks[block][index] == value && keyBlocks[block][index] == key)
+            return false;
+        if (index == MAX_BLOCK_SIZE) {
+            split(block, 0);
+            block++;
+            index = 0;
+        } else if (blockSizes[block] == MAX_BLOCK_SIZE) {
+            split(block, MAX_BLOCK_SIZE / 2);
+            if (index > MAX_BLOCK_SIZE / 2) {
+                block++;
+                index -= MAX_BLOCK_SIZE / 2;
+            }
+        }
+        int size = blockSizes[block];
+        System.arraycopy(valueBlocks[block], index, valueBlocks[block], index + 1, size - index);
+        System.arraycopy(keyBlocks[block], index, keyBlocks[block], index + 1, size - index);
+        valueBlocks[block][index] = value;
+        keyBlocks[block][index] = key;
+        blockSizes[block]++;
+        countOfPairs++;
+        return true;
+    }
+
+    /**
+     * @return False, if there was no such pair.
+     */
+    boolean remove(long value, long key) {
+        int block = blockOf(value, key);
+        int index = indexIn(block, value, key);
+        int size = blockSizes[block];
+        if (index == size || valueBlocks[block][index] != value || keyBlocks[block][index] != key)
+            return false;
+        System.arraycopy(valueBlocks[block], index + 1, valueBlocks[block], index, size - index - 1);
+        System.arraycopy(keyBlocks[block], index + 1, keyBlocks[block], index, size - index - 1);
+        blockSizes[block]--;
+        countOfPairs--;
+        if (blockSizes[block] == 0 && countOfBlocks > 1)
+            removeBlock(block);
+        return true;
+    }
+
+    void clear() {
+        valueBlocks = new long[][] {new long[MAX_BLOCK_SIZE]};
+        keyBlocks = new long[][] {new long[MAX_BLOCK_SIZE]};
+        blockSizes = new int[1];
+        countOfBlocks = 1;
+        countOfPairs = 0;
+    }
+
+    long size() {
+        return countOfPairs;
+    }
+
+    /**
+     * @return Keys of the pairs whose values lie between the bounds inclusive, ordered by value, then by key.
+     */
+    List<Long> keysBetween(long from, long to) {
+        List<Long> keys = new ArrayList<>();
+        if (from > to)
+            return keys;
+        int block = blockOf(from, Long.MIN_VALUE);
+        int index = indexIn(block, from, Long.MIN_VALUE);
+        for (; block < countOfBlocks; block++, index = 0) {
+            for (; index < blockSizes[block]; index++) {
+                if (valueBlocks[block][index] > to)
+                    return keys;
+                keys.add(keyBlocks[block][index]);
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Counts whole blocks by their sizes, only the blocks at the bounds are searched.
+     * @return Count of the pairs whose values lie between the bounds inclusive.
+     */
+    long countBetween(long from, long to) {
+        if (from > to)
+            return 0;
+        int firstBlock = blockOf(from, Long.MIN_VALUE);
+        int firstIndex = indexIn(firstBlock, from, Long.MIN_VALUE);
+        int lastBlock = blockOf(to, Long.MAX_VALUE);
+        int endIndex = indexIn(lastBlock, to, Long.MAX_VALUE);
+        if (endIndex < blockSizes[lastBlock] && valueBlocks[lastBlock][endIndex] == to) // the pair (to, MAX) itself
+            endIndex++;
+        long count = endIndex - firstIndex;
+        for (int block = firstBlock; block < lastBlock; block++)
+            count += blockSizes[block];
+        return count;
+    }
+
+    /**
+     * @return Block where the pair is or would be put: the last one whose first pair is not greater.
+     */
+    private int blockOf(long value, long key) {
+        int low = 1;
+        int high = countOfBlocks - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (compare(valueBlocks[middle][0], keyBlocks[middle][0], value, key) <= 0)
+                low = middle + 1;
+            else
+                high = middle - 1;
+        }
+        return low - 1;
+    }
+
+    /**
+     * @return Index of the first pair in the block that is not less than the given one.
+     */
+    private int indexIn(int block, long value, long key) {
+        long[] values = valueBlocks[block];
+        long[] keys = keyBlocks[block];
+        int low = 0;
+        int high = blockSizes[block] - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (compare(values[middle], keys[middle], value, key) < 0)
+                low = middle + 1;
+            else
+                high = middle - 1;
+        }
+        return low;
+    }
+
+    private static int compare(long value, long key, long otherValue, long otherKey) {
+        int byValue = Long.compare(value, otherValue);
+        return byValue != 0 ? byValue : Long.compare(key, otherKey);
+    }
+
+    /**
+     * Moves the given count of the last pairs of the full block into a new block after it.
+     */
+    private void split(int block, int movedPairs) {
+        if (countOfBlocks == valueBlocks.length) {
+            valueBlocks = Arrays.copyOf(valueBlocks, countOfBlocks * 2);
+            keyBlocks = Arrays.copyOf(keyBlocks, countOfBlocks * 2);
+            blockSizes = Arrays.copyOf(blockSizes, countOfBlocks * 2);
+        }
+        System.arraycopy(valueBlocks, block + 1, valueBlocks, block + 2, countOfBlocks - block - 1);
+        System.arraycopy(keyBlocks, block + 1, keyBlocks, block + 2, countOfBlocks - block - 1);
+        System.arraycopy(blockSizes, block + 1, blockSizes, block + 2, countOfBlocks - block - 1);
+        countOfBlocks++;
+        int keptPairs = MAX_BLOCK_SIZE - movedPairs;
+        valueBlocks[block + 1] = new long[MAX_BLOCK_SIZE];
+        keyBlocks[block + 1] = new long[MAX_BLOCK_SIZE];
+        System.arraycopy(valueBlocks[block], keptPairs, valueBlocks[block + 1], 0, movedPairs);
+        System.arraycopy(keyBlocks[block], keptPairs, keyBlocks[block + 1], 0, movedPairs);
+        blockSizes[block] = keptPairs;
+        blockSizes[block + 1] = movedPairs;
+    }
+
+    private void removeBlock(int block) {
+        System.arraycopy(valueBlocks, block + 1, valueBlocks, block, countOfBlocks - block - 1);
+        System.arraycopy(keyBlocks, block + 1, keyBlocks, block, countOfBlocks - block - 1);
+        System.arraycopy(blockSizes, block + 1, blockSizes, block, countOfBlocks - block - 1);
+        countOfBlocks--;
+        valueBlocks[countOfBlocks] = null;
+        keyBlocks[countOfBlocks] = null;
+    }
+}
@@ -0,0 +1,28 @@
+package processing;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+
+/**
+ * Converts requests and answers to the bytes of a frame and back.
+ * The codec of a connection is chosen by {@link CodecHandshake} when the client connects.
+ */
+public interface WireCodec {
+    /**
+     * @return Identifier of the codec sent in the handshake.
+     */
+    byte getId();
+
+    /**
+     * @return Version of the format written by this codec.
+     */
+    byte getVersion();
+
+    byte[] encode(Serializable object);
+
+    /**
+     * Decodes the object from the bytes between the position and the limit of the buffer.
+     */
+    Serializable decode(ByteBuffer buffer) throws IOException;
+}
@@ -0,0 +1,807 @@
+package processing;
+
+import data.Vehicle;
+import data.VehicleStore;
+import utility.FileHandler;
+import utility.JsonWriter;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32C;
+
+/**
+ * Log of the changes of the collection, kept next to the Json file, so a change is kept on the disk
+ * by appending a record of it instead of saving the whole collection.
+ * The Json file is the snapshot, the log is split into segments '{@code <json file>.<generation>.wal'},
+ * loading replays them in order on top of the snapshot. When a segment grows over the compaction size,
+ * a new one is started and a background thread folds the snapshot and the finished segments into a new snapshot:
+ * it keeps only the last change of every key the segments touch and streams the snapshot past them into the new file,
+ * so the compaction holds the changes of the segments, not a second copy of the collection.
+ * Every record either sets a key to an element or removes keys, so records that are replayed
+ * on top of a snapshot that already has them give the same collection.
+ * <p>
+ * A record is its length, the CRC32C of its payload and the payload: a tag, a key and, for a put,
+ * the element encoded by {@link BinaryCodec}. Replay stops at the first damaged record of a segment,
+ * which is where the system stopped writing it.
+ * <p>
+ * Changes are appended by the owner of the collection one at a time, {@link #commit()} writes them to the segment
+ * and makes them durable by the sync policy, chosen by the system property {@code walSync}:
+ * {@code always} forces the segment on every commit, {@code periodic} (default) forces it
+ * every {@code walSyncInterval} milliseconds, so a crash of the system may lose the changes of the last interval.
+ * With {@code group} a commit does not wait: the thread that committed gets {@link #durableChanges()},
+ * and a separate thread forces the segment once for a group of such waiting threads. A group is forced
+ * when it has {@code walGroupSize} members or when its first member has waited {@code walGroupWindow} microseconds.
+ * The compaction size in bytes is set by {@code walCompactionSize}.
+ * <p>
+ * When a force fails, the records that were not forced are cut off the segment and the commits that wrote them
+ * are reported as not durable. With the group and periodic policies those changes are already applied to the
+ * collection, so its owner puts the collection back to the log by {@link #restore(VehicleStore)}.
+ */
+public class WriteAheadLog {
+    public enum SyncPolicy {
+        ALWAYS,
+        GROUP,
+        PERIODIC
+    }
+
+    private static final byte PUT_TAG = 1;
+    private static final byte REMOVE_TAG = 2;
+    private static final byte REMOVE_AFTER_TAG = 3;
+    private static final byte CLEAR_TAG = 4;
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+    private static final int MAX_RECORD_SIZE = 1 << 24;
+    private static final int WRITE_SIZE = 1 << 16;
+    private static final String SEGMENT_SUFFIX = ".wal";
+
+    private final Path snapshotPath;
+    private final Pattern segmentPattern;
+    private final SyncPolicy syncPolicy;
+    private final long compactionSize;
+    private final RecordBuffer pending = new RecordBuffer();
+    private final DataOutputStream pendingOut = new DataOutputStream(pending);
+    private final CRC32C checksum = new CRC32C();
+    private FileChannel segment;
+    private long generation;
+    private long segmentSize;
+    private long writtenPosition; // bytes written to all segments of this run
+    private boolean isBroken;
+    private final Object syncMonitor = new Object();
+    private long durablePosition;
+    private boolean isSyncing;
+    private final List<long[]> discardedRanges = new ArrayList<>(); // positions of records cut off the log
+    private volatile boolean hasDiscardedChanges;
+    private SegmentForcer segmentForcer = channel -> channel.force(false);
+    private final ThreadLocal<Long> positionsToAwait = new ThreadLocal<>(); // end of the changes of each thread
+    private final ArrayDeque<GroupMember> group = new ArrayDeque<>();
+    private final ReentrantLock groupLock = new ReentrantLock(); // its condition waits shorter than a millisecond
+    private final Condition groupChanged = groupLock.newCondition();
+    private final int groupSize;
+    private final long groupWindow;
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+    private volatile boolean isCompacting;
+    private final ScheduledExecutorService background = Executors.newScheduledThreadPool(2, task -> {
+        Thread thread = new Thread(task, "write-ahead-log");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private WriteAheadLog(Path snapshotPath, SyncPolicy syncPolicy, long syncInterval, long compactionSize,
+                          int groupSize, long groupWindow) {
+        this.snapshotPath = snapshotPath;
+        this.segmentPattern = Pattern.compile(Pattern.quote(snapshotPath.getFileName().toString())
+                + "\\.(\\d+)" + Pattern.quote(SEGMENT_SUFFIX));
+        this.syncPolicy = syncPolicy;
+        this.compactionSize = compactionSize;
+        this.groupSize = groupSize;
+        this.groupWindow = TimeUnit.MICROSECONDS.toNanos(groupWindow);
+        if (syncPolicy == SyncPolicy.PERIODIC)
+            background.scheduleWithFixedDelay(this::syncInBackground, syncInterval, syncInterval, TimeUnit.MILLISECONDS);
+        if (syncPolicy == SyncPolicy.GROUP)
+            background.execute(this::commitGroups);
+    }
+
+    /**
+     * Replays the segments left next to the Json file into the store and starts a new segment.
+     * @param dataBase Store that holds the collection loaded from the Json file.
+     * @throws IOException if a segment could not be read or the new one could not be created
+     */
+    public static WriteAheadLog open(VehicleStore dataBase) throws IOException {
+        String policyName = System.getProperty("walSync", "periodic");
+        SyncPolicy syncPolicy = switch (policyName) {
+            case "always" -> SyncPolicy.ALWAYS;
+            case "group" -> SyncPolicy.GROUP;
+            case "periodic" -> SyncPolicy.PERIODIC;
+            default -> throw new IllegalArgumentException("Unknown sync policy of the log: " + policyName);
+        };
+        WriteAheadLog log = new WriteAheadLog(FileHandler.getDataBasePath(), syncPolicy,
+                Long.getLong("walSyncInterval", 1000), Long.getLong("walCompactionSize", 64L << 20),
+                Integer.getInteger("walGroupSize", 64), Long.getLong("walGroupWindow", 200));
+        long lastGeneration = 0;
+        for (Path segmentPath : log.segmentsUpTo(Long.MAX_VALUE)) {
+            log.replay(segmentPath, dataBase);
+            lastGeneration = log.generationOf(segmentPath);
+        }
+        log.startSegment(lastGeneration + 1);
+        return log;
+    }
+
+    public synchronized void logPut(long key, Vehicle vehicle) {
+        int start = beginRecord(PUT_TAG, key);
+        try {
+            BinaryCodec.writeVehicle(pendingOut, vehicle);
+        } catch (IOException e) { // not thrown by a stream in memory
+            throw new UncheckedIOException(e);
+        }
+        endRecord(start);
+    }
+
+    public synchronized void logRemove(long key) {
+        endRecord(beginRecord(REMOVE_TAG, key));
+    }
+
+    /**
+     * Logs removal of all elements with keys greater than the given one.
+     */
+    public synchronized void logRemoveAfter(long key) {
+        endRecord(beginRecord(REMOVE_AFTER_TAG, key));
+    }
+
+    public synchronized void logClear() {
+        endRecord(beginRecord(CLEAR_TAG, 0));
+    }
+
+    /**
+     * Writes the logged changes to the segment and waits until they are durable by the sync policy,
+     * with the group policy they are awaited by {@link #durableChanges()}.
+     * Starts compaction if the segment has grown over the compaction size.
+     * @return False, if the changes could not be written or forced, they are then dropped from the log.
+     */
+    public boolean commit() {
+        long position;
+        try {
+            position = write();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+        try {
+            if (syncPolicy == SyncPolicy.ALWAYS)
+                awaitDurable(position);
+        } catch (IOException e) {
+            e.printStackTrace();
+            discardUnforced(false); // the commit fails, so the change is not applied
+            return false;
+        }
+        if (syncPolicy == SyncPolicy.GROUP)
+            positionsToAwait.set(position);
+        startCompaction();
+        return true;
+    }
+
+    /**
+     * Saves the whole collection as a new snapshot and drops the segments it replaces.
+     * Must be called while the collection is not changed, waits for a running compaction.
+     * @param save Writes the snapshot, returns false if it was not written.
+     * @return False, if the snapshot was not written, the log is then kept as it was.
+     */
+    public boolean saveSnapshot(BooleanSupplier save) {
+        snapshotLock.lock();
+        try {
+            long lastSealedGeneration = rotate();
+            if (!save.getAsBoolean())
+                return false;
+            deleteSegmentsUpTo(lastSealedGeneration);
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    /**
+     * Called without holding the lock of the collection, so other threads commit meanwhile and join the group.
+     * @return Future completed when the changes committed by this thread since the previous call are forced,
+     * with false if forcing failed. It is completed at once if there is nothing to wait for.
+     */
+    public CompletableFuture<Boolean> durableChanges() {
+        Long position = positionsToAwait.get();
+        if (position == null)
+            return CompletableFuture.completedFuture(true);
+        positionsToAwait.remove();
+        synchronized (syncMonitor) {
+            if (isDiscarded(position))
+                return CompletableFuture.completedFuture(false);
+            if (durablePosition >= position)
+                return CompletableFuture.completedFuture(true);
+        }
+        GroupMember member = new GroupMember(position, System.nanoTime(), new CompletableFuture<>());
+        groupLock.lock();
+        try {
+            group.add(member);
+            if (group.size() == 1 || group.size() >= groupSize)
+                groupChanged.signal();
+        } finally {
+            groupLock.unlock();
+        }
+        return member.isDurable();
+    }
+
+    /**
+     * @return True, if changes applied to the collection were cut off the log after a failed force
+     * and the collection was not restored since.
+     */
+    public boolean hasDiscardedChanges() {
+        return hasDiscardedChanges;
+    }
+
+    /**
+     * Rebuilds the collection from the snapshot and the segments, so it holds only the changes kept in the log.
+     * Must be called while the collection is not changed, waits for a running compaction.
+     * @param dataBase Store of the collection, it is cleared first.
+     * @return False, if the snapshot or a segment could not be read, the restore is then needed again.
+     */
+    public boolean restore(VehicleStore dataBase) {
+        snapshotLock.lock();
+        try {
+            hasDiscardedChanges = false;
+            dataBase.clear();
+            if (!FileHandler.loadDataBase(dataBase)) {
+                hasDiscardedChanges = true;
+                return false;
+            }
+            for (Path segmentPath : segmentsUpTo(Long.MAX_VALUE))
+                replay(segmentPath, dataBase);
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            hasDiscardedChanges = true;
+            return false;
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    /**
+     * Replaces the way segments are forced, lets tests make forcing fail.
+     */
+    synchronized void setSegmentForcer(SegmentForcer segmentForcer) {
+        this.segmentForcer = segmentForcer;
+    }
+
+    private int beginRecord(byte tag, long key) {
+        int start = pending.size();
+        try {
+            pendingOut.writeLong(0); // place of the header
+            pendingOut.writeByte(tag);
+            pendingOut.writeLong(key);
+        } catch (IOException e) { // not thrown by a stream in memory
+            throw new UncheckedIOException(e);
+        }
+        return start;
+    }
+
+    private void endRecord(int start) {
+        pending.putHeader(start, checksum);
+    }
+
+    /**
+     * Writes the pending records to the segment, a segment that failed a write is replaced first,
+     * so no record follows a damaged one.
+     * @return Position of the end of the written records in the log.
+     */
+    private synchronized long write() throws IOException {
+        if (isBroken)
+            rotate();
+        try {
+            writePending();
+        } catch (IOException e) {
+            isBroken = true;
+            pending.reset();
+            throw e;
+        }
+        return writtenPosition;
+    }
+
+    /**
+     * Cuts the records that failed to be forced off the segment, so neither a replay nor a compaction
+     * applies them, and remembers their positions, so the commits that wrote them are not reported as durable.
+     * The segment is replaced before the next write.
+     * @param isApplied true, if the changes of the cut records may already be applied to the collection
+     */
+    private synchronized void discardUnforced(boolean isApplied) {
+        long forcedPosition;
+        synchronized (syncMonitor) {
+            forcedPosition = durablePosition;
+            if (writtenPosition > forcedPosition)
+                discardedRanges.add(new long[] {forcedPosition, writtenPosition});
+        }
+        long unforcedSize = writtenPosition - forcedPosition;
+        if (unforcedSize > 0 && unforcedSize <= segmentSize) {
+            try {
+                segment.truncate(segmentSize - unforcedSize);
+                segmentSize -= unforcedSize;
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        if (unforcedSize > 0 && isApplied)
+            hasDiscardedChanges = true;
+        isBroken = true;
+    }
+
+    /**
+     * Positions of the log only grow, so a position that was cut off is not covered by a later force.
+     * Called holding the sync monitor.
+     */
+    private boolean isDiscarded(long position) {
+        for (long[] range : discardedRanges)
+            if (position > range[0] && position <= range[1])
+                return true;
+        return false;
+    }
+
+    /**
+     * Forces the segment unless it is already forced up to the position,
+     * the commits that wait meanwhile are covered by the same force.
+     */
+    private void awaitDurable(long position) throws IOException {
+        synchronized (syncMonitor) {
+            while (durablePosition < position && isSyncing) {
+                try {
+                    syncMonitor.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for the log to be forced");
+                }
+            }
+            if (durablePosition >= position)
+                return;
+            isSyncing = true;
+        }
+        long forcedPosition = -1;
+        try {
+            forcedPosition = force();
+        } finally {
+            synchronized (syncMonitor) {
+                isSyncing = false;
+                durablePosition = Math.max(durablePosition, forcedPosition);
+                syncMonitor.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * @return Position up to which the log is forced.
+     */
+    private long force() throws IOException {
+        FileChannel channel;
+        long position;
+        SegmentForcer forcer;
+        synchronized (this) {
+            channel = segment;
+            position = writtenPosition;
+            forcer = segmentForcer;
+        }
+        try {
+            forcer.force(channel);
+        } catch (ClosedChannelException e) {
+            // the segment was finished, it is forced before it is closed
+        }
+        return position;
+    }
+
+    /**
+     * Forces the segment for each group of waiting threads, the threads that start waiting
+     * while a group is forced form the next one.
+     */
+    private void commitGroups() {
+        while (true) {
+            List<GroupMember> members;
+            groupLock.lock();
+            try {
+                while (group.isEmpty())
+                    groupChanged.await();
+                long deadline = group.peek().waitingSince() + groupWindow;
+                long now;
+                while (group.size() < groupSize && (now = System.nanoTime()) < deadline)
+                    groupChanged.awaitNanos(deadline - now);
+                members = new ArrayList<>(group);
+                group.clear();
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                groupLock.unlock();
+            }
+            boolean isForced;
+            try {
+                long forcedPosition = force(); // not less than the position of any member, they wrote before waiting
+                synchronized (syncMonitor) {
+                    durablePosition = Math.max(durablePosition, forcedPosition);
+                }
+                isForced = true;
+            } catch (IOException e) {
+                e.printStackTrace();
+                discardUnforced(true);
+                isForced = false;
+            }
+            for (GroupMember member : members) {
+                boolean isDurable;
+                synchronized (syncMonitor) {
+                    isDurable = isForced && !isDiscarded(member.position());
+                }
+                member.isDurable().complete(isDurable);
+            }
+        }
+    }
+
+    private void syncInBackground() {
+        try {
+            long position;
+            synchronized (this) {
+                position = writtenPosition;
+            }
+            awaitDurable(position);
+        } catch (IOException e) {
+            e.printStackTrace();
+            discardUnforced(true);
+        }
+    }
+
+    /**
+     * Finishes the current segment and starts the next one.
+     * @return Generation of the finished segment.
+     */
+    private synchronized long rotate() throws IOException {
+        long lastGeneration = generation;
+        if (!isBroken)
+            writePending();
+        try {
+            segmentForcer.force(segment); // records written before a failed write are kept
+            synchronized (syncMonitor) {
+                durablePosition = Math.max(durablePosition, writtenPosition);
+            }
+        } catch (IOException e) {
+            if (!isBroken)
+                throw e;
+            e.printStackTrace();
+            discardUnforced(true);
+        }
+        segment.close();
+        startSegment(lastGeneration + 1);
+        isBroken = false;
+        return lastGeneration;
+    }
+
+    private void writePending() throws IOException {
+        pending.writeTo(segment);
+        segmentSize += pending.size();
+        writtenPosition += pending.size();
+        pending.reset();
+    }
+
+    private void startSegment(long newGeneration) throws IOException {
+        generation = newGeneration;
+        segment = FileChannel.open(segmentPath(newGeneration), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        segmentSize = 0;
+        FileHandler.forceDirectory(snapshotPath.getParent());
+    }
+
+    /**
+     * Finishes the current segment and folds it into a new snapshot in the background, if it has grown enough.
+     */
+    private void startCompaction() {
+        long lastSealedGeneration;
+        synchronized (this) {
+            if (segmentSize < compactionSize || isCompacting)
+                return;
+            try {
+                lastSealedGeneration = rotate();
+            } catch (IOException e) {
+                e.printStackTrace();
+                return;
+            }
+            isCompacting = true;
+        }
+        background.execute(() -> compact(lastSealedGeneration));
+    }
+
+    /**
+     * Folds the finished segments into their last changes and streams the snapshot with them into the new snapshot.
+     */
+    private void compact(long lastSealedGeneration) {
+        snapshotLock.lock();
+        try {
+            List<Path> sealedSegments = segmentsUpTo(lastSealedGeneration);
+            if (sealedSegments.isEmpty()) // already folded by a save
+                return;
+            FoldedChanges changes = new FoldedChanges();
+            for (Path segmentPath : sealedSegments)
+                replay(segmentPath, changes);
+            if (FileHandler.saveDataBase(elements -> changes.applyTo(FileHandler::readDataBase, elements)))
+                deleteSegmentsUpTo(lastSealedGeneration);
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+        } finally {
+            isCompacting = false;
+            snapshotLock.unlock();
+        }
+    }
+
+    /**
+     * Applies the records of the segment to the store, up to the first damaged one.
+     */
+    private void replay(Path segmentPath, VehicleStore dataBase) throws IOException {
+        replay(segmentPath, new StoreChanges(dataBase));
+    }
+
+    /**
+     * Applies the records of the segment to the changes, up to the first damaged one.
+     */
+    private void replay(Path segmentPath, Changes changes) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(segmentPath), WRITE_SIZE))) {
+            CRC32C recordChecksum = new CRC32C(); // compaction replays while records are logged
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    return;
+                }
+                int expectedChecksum = in.readInt();
+                if (length <= 0 || length > MAX_RECORD_SIZE)
+                    throw new StreamCorruptedException("Invalid length of record: " + length);
+                byte[] payload = in.readNBytes(length);
+                recordChecksum.reset();
+                recordChecksum.update(payload);
+                if (payload.length < length || (int) recordChecksum.getValue() != expectedChecksum)
+                    throw new StreamCorruptedException("Damaged record");
+                apply(ByteBuffer.wrap(payload), changes);
+            }
+        } catch (EOFException | StreamCorruptedException e) {
+            System.err.printf("Log segment '%s' is cut off, %s: the rest of it is skipped%n",
+                    segmentPath.getFileName(), e.getMessage());
+        }
+    }
+
+    private static void apply(ByteBuffer record, Changes changes) throws IOException {
+        byte tag = record.get();
+        long key = record.getLong();
+        switch (tag) {
+            case PUT_TAG -> changes.put(key, BinaryCodec.readVehicle(record));
+            case REMOVE_TAG -> changes.remove(key);
+            case REMOVE_AFTER_TAG -> changes.removeKeysAfter(key);
+            case CLEAR_TAG -> changes.clear();
+            default -> throw new StreamCorruptedException("Unknown tag of record: " + tag);
+        }
+    }
+
+    /**
+     * @return Segments with generations up to the given one, in order of generations.
+     */
+    private List<Path> segmentsUpTo(long lastGeneration) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> directory = Files.newDirectoryStream(snapshotPath.getParent())) {
+            for (Path path : directory) {
+                if (segmentPattern.matcher(path.getFileName().toString()).matches() &&
+                        generationOf(path) <= lastGeneration)
+                    segments.add(path);
+            }
+        }
+        segments.sort((first, second) -> Long.compare(generationOf(first), generationOf(second)));
+        return segments;
+    }
+
+    private void deleteSegmentsUpTo(long lastGeneration) throws IOException {
+        for (Path segmentPath : segmentsUpTo(lastGeneration))
+            Files.deleteIfExists(segmentPath);
+    }
+
+    private long generationOf(Path segmentPath) {
+        Matcher matcher = segmentPattern.matcher(segmentPath.getFileName().toString());
+        if (!matcher.matches())
+            throw new IllegalArgumentException("Not a log segment: " + segmentPath);
+        return Long.parseLong(matcher.group(1));
+    }
+
+    private Path segmentPath(long segmentGeneration) {
+        return snapshotPath.resolveSibling(snapshotPath.getFileName() + "." + segmentGeneration + SEGMENT_SUFFIX);
+    }
+
+    /**
+     * Receiver of the changes of replayed records.
+     */
+    private interface Changes {
+        void put(long key, Vehicle vehicle);
+
+        void remove(long key);
+
+        /**
+         * Removes all elements with keys greater than the given one.
+         */
+        void removeKeysAfter(long key);
+
+        void clear();
+    }
+
+    private record StoreChanges(VehicleStore dataBase) implements Changes {
+        @Override
+        public void put(long key, Vehicle vehicle) {
+            dataBase.put(key, vehicle);
+        }
+
+        @Override
+        public void remove(long key) {
+            dataBase.remove(key);
+        }
+
+        @Override
+        public void removeKeysAfter(long key) {
+            dataBase.removeKeysAfter(key, removedKey -> {});
+        }
+
+        @Override
+        public void clear() {
+            dataBase.clear();
+        }
+    }
+
+    /**
+     * Last change of every key touched by the replayed segments, a removed key maps to null,
+     * and the part of the snapshot that the segments removed as a whole.
+     */
+    static class FoldedChanges implements Changes {
+        private final TreeMap<Long, Vehicle> lastChanges = new TreeMap<>();
+        private long lastSnapshotKey = Long.MAX_VALUE; // elements of the snapshot with greater keys are removed
+        private boolean isSnapshotCleared;
+
+        @Override
+        public void put(long key, Vehicle vehicle) {
+            lastChanges.put(key, vehicle);
+        }
+
+        @Override
+        public void remove(long key) {
+            lastChanges.put(key, null);
+        }
+
+        @Override
+        public void removeKeysAfter(long key) {
+            lastChanges.tailMap(key, false).clear();
+            lastSnapshotKey = Math.min(lastSnapshotKey, key);
+        }
+
+        @Override
+        public void clear() {
+            lastChanges.clear();
+            isSnapshotCleared = true;
+        }
+
+        /**
+         * Passes the elements of the snapshot that the changes kept, and the put elements, to the consumer.
+         * An element put by the changes replaces the one of the snapshot with its key; while the snapshot
+         * comes in key order, as a save writes it, the elements are passed in key order.
+         * @param snapshot Source of the elements of the snapshot, read once.
+         */
+        void applyTo(JsonWriter.Elements snapshot, BiConsumer<Long, Vehicle> consumer) throws IOException {
+            PutCursor puts = new PutCursor(lastChanges.entrySet().iterator(), consumer);
+            if (!isSnapshotCleared) {
+                snapshot.forEach((key, vehicle) -> {
+                    puts.passBefore(key);
+                    if (key <= lastSnapshotKey && !lastChanges.containsKey(key))
+                        consumer.accept(key, vehicle);
+                });
+            }
+            puts.passRest();
+        }
+    }
+
+    /**
+     * Passes the put elements of the folded changes in key order, skipping the removed keys.
+     */
+    private static class PutCursor {
+        private final Iterator<Map.Entry<Long, Vehicle>> changes;
+        private final BiConsumer<Long, Vehicle> consumer;
+        private Map.Entry<Long, Vehicle> next;
+
+        private PutCursor(Iterator<Map.Entry<Long, Vehicle>> changes, BiConsumer<Long, Vehicle> consumer) {
+            this.changes = changes;
+            this.consumer = consumer;
+            next = changes.hasNext() ? changes.next() : null;
+        }
+
+        /**
+         * Passes the put elements with keys less than the given one.
+         */
+        private void passBefore(long key) {
+            while (next != null && next.getKey() < key)
+                passNext();
+        }
+
+        private void passRest() {
+            while (next != null)
+                passNext();
+        }
+
+        private void passNext() {
+            if (next.getValue() != null)
+                consumer.accept(next.getKey(), next.getValue());
+            next = changes.hasNext() ? changes.next() : null;
+        }
+    }
+
+    /**
+     * Forces a segment to the disk.
+     */
+    interface SegmentForcer {
+        void force(FileChannel segment) throws IOException;
+    }
+
+    /**
+     * Thread waiting for its changes to be forced.
+     * @param position end of its changes in the log
+     */
+    private record GroupMember(long position, long waitingSince, CompletableFuture<Boolean> isDurable) {
+    }
+
+    /**
+     * Buffer of pending records that is written to a channel without copying.
+     */
+    private static class RecordBuffer extends ByteArrayOutputStream {
+        RecordBuffer() {
+            super(WRITE_SIZE);
+        }
+
+        /**
+         * Fills the header of the record that starts at the given place and ends at the end of the buffer.
+         */
+        void putHeader(int start, CRC32C checksum) {
+            int payloadStart = start + HEADER_SIZE;
+            checksum.reset();
+            checksum.update(buf, payloadStart, count - payloadStart);
+            ByteBuffer header = ByteBuffer.wrap(buf, start, HEADER_SIZE);
+            header.putInt(count - payloadStart);
+            header.putInt((int) checksum.getValue());
+        }
+
+        void writeTo(FileChannel channel) throws IOException {
+            ByteBuffer bytes = ByteBuffer.wrap(buf, 0, count);
+            while (bytes.hasRemaining())
+                channel.write(bytes);
+        }
+
+        /**
+         * Drops a grown array, so a large command does not keep its memory.
+         */
+        @Override
+        public synchronized void reset() {
+            super.reset();
+            if (buf.length > WRITE_SIZE * 16)
+                buf = new byte[WRITE_SIZE];
+        }
+    }
+}
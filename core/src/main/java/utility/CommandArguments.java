@@ -5,15 +5,20 @@ import mods.ExecuteMode;
 
 import java.io.File;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Arrays;
 
 public class CommandArguments implements Serializable {
+    public static final String BATCH_NAME = "batch";
     private final String commandName;
     private final String[] arguments;
     private String[] extraArguments;
     private ClientRequestType clientRequestType;
     private final ExecuteMode executeMode;
-    private File scriptFile;
+    private transient File scriptFile; // a path of one side, never sent to the other
+    private long requestId;
+    private ArrayList<CommandArguments> batch;
+    private boolean isStoppingOnFailure;
 
     public CommandArguments(String commandName, String[] arguments, String[] extraArguments,
                             ClientRequestType clientRequestType, ExecuteMode executeMode) {
@@ -48,6 +53,50 @@ public class CommandArguments implements Serializable {
         return scriptFile;
     }
 
+    /**
+     * @return Id given by the client to match the request with its answer.
+     */
+    public long getRequestId() {
+        return requestId;
+    }
+
+    public void setRequestId(long requestId) {
+        this.requestId = requestId;
+    }
+
+    /**
+     * Makes a request that carries several commands, they are executed one after another.
+     * @param batch commands of the request
+     * @param isStoppingOnFailure if true, commands after the first failed one are not executed
+     * @return Request of the type {@link ClientRequestType#BATCH}.
+     */
+    public static CommandArguments batchOf(ArrayList<CommandArguments> batch, boolean isStoppingOnFailure) {
+        CommandArguments batchRequest = new CommandArguments(BATCH_NAME, new String[0], null,
+                ClientRequestType.BATCH, ExecuteMode.SCRIPT_MODE);
+        batchRequest.setBatch(batch);
+        batchRequest.setStoppingOnFailure(isStoppingOnFailure);
+        return batchRequest;
+    }
+
+    /**
+     * @return Commands of a batch request, or null for a single command.
+     */
+    public ArrayList<CommandArguments> getBatch() {
+        return batch;
+    }
+
+    public void setBatch(ArrayList<CommandArguments> batch) {
+        this.batch = batch;
+    }
+
+    public boolean isStoppingOnFailure() {
+        return isStoppingOnFailure;
+    }
+
+    public void setStoppingOnFailure(boolean isStoppingOnFailure) {
+        this.isStoppingOnFailure = isStoppingOnFailure;
+    }
+
     public void setClientRequestType(ClientRequestType clientRequestType) {
         this.clientRequestType = clientRequestType;
     }
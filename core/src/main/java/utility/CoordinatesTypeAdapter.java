@@ -0,0 +1,54 @@
+package utility;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import data.Coordinates;
+
+import java.io.IOException;
+
+/**
+ * Converts coordinates to json and back without reflection, in the same format that Gson makes from the fields.
+ */
+class CoordinatesTypeAdapter extends TypeAdapter<Coordinates> {
+    @Override
+    public void write(JsonWriter out, Coordinates coordinates) throws IOException {
+        if (coordinates == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("x").value(Float.valueOf(coordinates.getX())); // written as a float, not widened to a double
+        out.name("y").value(coordinates.getY());
+        out.endObject();
+    }
+
+    /**
+     * Unknown fields are skipped, missing ones are left zero.
+     */
+    @Override
+    public Coordinates read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        float x = 0;
+        double y = 0;
+        in.beginObject();
+        while (in.hasNext()) {
+            String field = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (field) {
+                case "x" -> x = (float) in.nextDouble();
+                case "y" -> y = in.nextDouble();
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+        return new Coordinates(x, y);
+    }
+}
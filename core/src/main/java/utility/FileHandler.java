@@ -2,12 +2,23 @@ package utility;
 
 
 import data.Vehicle;
+import data.VehicleStore;
 import mods.FileType;
 import mods.MessageType;
 
 import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.regex.Pattern;
 
 
 /**
@@ -15,9 +26,12 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public class FileHandler {
     private static final String ENV_VARIABLE = "SAVE_PATH";
+    private static final int LOAD_BUFFER_SIZE = 1 << 16;
+    private static final int SAVE_BUFFER_SIZE = 1 << 16;
     private static final String REFERENCE_FILE_PATH = "../server/files/reference.txt";
     private static final String REFERENCE_FILE_ABSOLUTE_PATH =
             new File(REFERENCE_FILE_PATH).getAbsolutePath();
+    public static final File SCRIPTS_DIRECTORY = new File("../scripts");
     private static final String TEST_SCRIPT_FILE_ABSOLUTE_PATH = 
             new File("../scripts/test.txt").getAbsolutePath();
 
@@ -127,28 +141,158 @@ public class FileHandler {
     }
 
     /**
-     * Reads Json file and converts it to ConcurrentHashMap.
-     * @return Returns null, if file was empty, otherwise returns ConcurrentHashMap with data.
+     * @return Absolute path to the Json file of the collection.
      */
-    public static ConcurrentHashMap<Long, Vehicle> loadDataBase() {
-        String json = readFile(FileType.JSON);
-        JsonReader jsonReader = new JsonReader(json);
-        ConcurrentHashMap<Long, Vehicle> vehicleConcurrentHashMap = jsonReader.readDataBase();
-        if (vehicleConcurrentHashMap == null) {
-            return new ConcurrentHashMap<>();
+    public static Path getDataBasePath() {
+        return Path.of(filePathSelection(FileType.JSON)).toAbsolutePath();
+    }
+
+    /**
+     * Reads Json file as a stream and puts every element into the store as soon as it is read,
+     * so neither the text of the file nor a second collection is held in memory.
+     * @param dataBase Store to be filled, stays empty if the file was empty.
+     * @return False, if the file could not be read, the store may then hold a part of the collection.
+     */
+    public static boolean loadDataBase(VehicleStore dataBase) {
+        deleteTemporaryFiles();
+        try {
+            readDataBase(dataBase::put);
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Reads Json file as a stream and passes every element to the consumer as soon as it is read,
+     * in the order of the file. Leaves the temporary files of saves alone, so it may feed a running save.
+     * @throws IOException if the file could not be read
+     */
+    public static void readDataBase(BiConsumer<Long, Vehicle> consumer) throws IOException {
+        String absolutePath = filePathSelection(FileType.JSON);
+        try (Reader reader = new BufferedReader(
+                new FileReader(absolutePath, StandardCharsets.UTF_8), LOAD_BUFFER_SIZE)) {
+            new JsonReader(reader).readDataBase(consumer);
+        }
+    }
+
+    /**
+     * Deletes the temporary files left next to the Json file by saves that were interrupted before the rename.
+     * The collection is loaded at startup and under the lock of the log, so no save is running meanwhile.
+     */
+    private static void deleteTemporaryFiles() {
+        Path path = getDataBasePath();
+        try {
+            if (Files.exists(path))
+                path = path.toRealPath(); // temporary files are made next to the file a link points to
+            if (!Files.isDirectory(path.getParent()))
+                return;
+            try (DirectoryStream<Path> temporaryFiles =
+                         Files.newDirectoryStream(path.getParent(), path.getFileName() + ".*.tmp")) {
+                for (Path temporaryPath : temporaryFiles) {
+                    Files.deleteIfExists(temporaryPath);
+                    System.err.printf("Deleted '%s' left by an interrupted save%n", temporaryPath.getFileName());
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
         }
-        return vehicleConcurrentHashMap;
     }
 
     /**
-     * Converts ConcurrentHashMap data to Json format and writes it to Json file.
-     * @param dataBase User modified database.
+     * Converts the elements to Json format and streams them through a bounded buffer into a temporary file
+     * next to the Json file. The temporary file is forced to the disk and then atomically renamed
+     * over the Json file, so the file always holds either the previous or the new collection.
+     * @param dataBase User modified database in key order.
+     * @return False, if the collection was not saved, the Json file is left as it was.
      */
-    public static void saveDataBase(ConcurrentHashMap<Long, Vehicle> dataBase) {
-        JsonWriter jsonWriter = new JsonWriter(dataBase);
-        String json = jsonWriter.writeDataBase();
-        clearFile(FileType.JSON);
-        writeToFile(json, FileType.JSON);
+    public static boolean saveDataBase(Map<Long, Vehicle> dataBase) {
+        return saveDataBase(dataBase::forEach);
+    }
+
+    /**
+     * Saves the elements passed by the source the same way as a collection in a map,
+     * the source may read the Json file being replaced, it is renamed over only after the source is done.
+     * @param elements Source of the elements, they are written in the order it passes them.
+     * @return False, if the collection was not saved, the Json file is left as it was.
+     */
+    public static boolean saveDataBase(JsonWriter.Elements elements) {
+        Path path = getDataBasePath();
+        Path temporaryPath = null;
+        try {
+            if (Files.exists(path))
+                path = path.toRealPath(); // a link stays a link, the file it points to is replaced
+            temporaryPath = Files.createTempFile(path.getParent(), path.getFileName() + ".", ".tmp");
+            copyPermissions(path, temporaryPath);
+            try (FileChannel channel = FileChannel.open(temporaryPath, StandardOpenOption.WRITE);
+                 Writer writer = new BufferedWriter(
+                         Channels.newWriter(channel, StandardCharsets.UTF_8), SAVE_BUFFER_SIZE)) {
+                JsonWriter.writeDataBase(writer, elements);
+                writer.write(System.lineSeparator());
+                writer.flush();
+                channel.force(true);
+            }
+            Files.move(temporaryPath, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            forceDirectory(path.getParent());
+            return true;
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            if (temporaryPath != null) {
+                try {
+                    Files.deleteIfExists(temporaryPath);
+                } catch (IOException deleteException) {
+                    deleteException.printStackTrace();
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Gives the new file the permissions of the file it replaces, where the file system has them.
+     */
+    private static void copyPermissions(Path source, Path target) throws IOException {
+        if (!Files.exists(source))
+            return;
+        try {
+            Files.setPosixFilePermissions(target, Files.getPosixFilePermissions(source));
+        } catch (UnsupportedOperationException e) {
+            // not a POSIX file system
+        }
+    }
+
+    /**
+     * Forces the entries of a directory, such as a renamed or a new file, to the disk.
+     * Not every system can open a directory for it, then it is left to the system.
+     */
+    public static void forceDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // the change of the directory is still made, only its durability is left to the system
+        }
+    }
+
+    /**
+     * Finds the script with exactly this name in the 'scripts' directory.
+     * Names with a path and files that lead outside of the directory by links are not accepted.
+     * @param name Name of the script file.
+     * @return Returns null, if there is no such script in the directory, otherwise returns script file.
+     */
+    public static File findScript(String name) {
+        if (name == null || name.isEmpty() || name.contains("/") || name.contains(File.separator)
+                || name.equals(".") || name.equals(".."))
+            return null;
+        File scriptFile = findFile(SCRIPTS_DIRECTORY, Pattern.quote(name));
+        if (scriptFile == null)
+            return null;
+        try {
+            Path scriptsPath = SCRIPTS_DIRECTORY.getCanonicalFile().toPath();
+            return scriptFile.getCanonicalFile().toPath().startsWith(scriptsPath) ? scriptFile : null;
+        } catch (IOException e) {
+            return null;
+        }
     }
 
     /**
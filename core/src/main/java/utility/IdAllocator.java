@@ -0,0 +1,31 @@
+package utility;
+
+import java.util.function.LongPredicate;
+
+/**
+ * Allocates ids of new elements. An id always has ten digits without a leading zero.
+ * The implementation is chosen by the system property {@code idAllocator}: {@code sequential} (default) or {@code random}.
+ */
+public interface IdAllocator {
+    long MIN_ID = 1_000_000_000L;
+    long MAX_ID = 9_999_999_999L;
+
+    /**
+     * @param isUsed tells if the id already belongs to an element of the collection
+     * @return Id that is not used.
+     */
+    long nextId(LongPredicate isUsed);
+
+    /**
+     * Creates the allocator chosen by the system property.
+     * @param maxUsedId greatest id of the loaded elements, or 0 if the collection is empty
+     */
+    static IdAllocator create(long maxUsedId) {
+        String name = System.getProperty("idAllocator", "sequential");
+        return switch (name) {
+            case "sequential" -> new SequentialIdAllocator(maxUsedId);
+            case "random" -> new RandomIdAllocator();
+            default -> throw new IllegalArgumentException("Unknown id allocator: " + name);
+        };
+    }
+}
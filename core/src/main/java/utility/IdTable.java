@@ -0,0 +1,114 @@
+package utility;
+
+/**
+ * Open addressing hash table from the id of an element to its key, without boxing.
+ * A slot is taken if its bit in the bitmap of used slots is set, so every id and key can be kept.
+ * Removal shifts the following entries of the cluster back, so no deleted marks are left.
+ * Not synchronized: ids are changed only while no command reads the collection.
+ */
+class IdTable {
+    private static final int INITIAL_CAPACITY = 2048;
+    private long[] slotIds;
+    private long[] slotKeys;
+    private long[] usedSlots;
+    private int countOfIds;
+
+    IdTable() {
+        clear();
+    }
+
+    boolean containsId(long id) {
+        return slotOfId(id) >= 0;
+    }
+
+    /**
+     * @return Key of the element with the id, the id must be in the table.
+     */
+    long getKey(long id) {
+        return slotKeys[slotOfId(id)];
+    }
+
+    void put(long id, long key) {
+        int mask = slotIds.length - 1;
+        int slot = homeOf(id, mask);
+        while (isUsed(slot) && slotIds[slot] != id)
+            slot = (slot + 1) & mask;
+        if (!isUsed(slot)) {
+            usedSlots[slot >>> 6] |= 1L << slot;
+            countOfIds++;
+        }
+        slotIds[slot] = id;
+        slotKeys[slot] = key;
+        if (countOfIds * 2 > slotIds.length)
+            resize(slotIds.length * 2);
+    }
+
+    void remove(long id) {
+        int slot = slotOfId(id);
+        if (slot < 0)
+            return;
+        countOfIds--;
+        int mask = slotIds.length - 1;
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            if (!isUsed(next))
+                break;
+            int home = homeOf(slotIds[next], mask);
+            if (((next - home) & mask) >= ((next - slot) & mask)) { // entry may fill the hole
+                slotIds[slot] = slotIds[next];
+                slotKeys[slot] = slotKeys[next];
+                slot = next;
+            }
+        }
+        usedSlots[slot >>> 6] &= ~(1L << slot);
+    }
+
+    void clear() {
+        slotIds = new long[INITIAL_CAPACITY];
+        slotKeys = new long[INITIAL_CAPACITY];
+        usedSlots = new long[INITIAL_CAPACITY / Long.SIZE];
+        countOfIds = 0;
+    }
+
+    /**
+     * @return Slot of the id, or -1 if the id is absent.
+     */
+    private int slotOfId(long id) {
+        int mask = slotIds.length - 1;
+        for (int slot = homeOf(id, mask); isUsed(slot); slot = (slot + 1) & mask) {
+            if (slotIds[slot] == id)
+                return slot;
+        }
+        return -1;
+    }
+
+    private boolean isUsed(int slot) {
+        return (usedSlots[slot >>> 6] & 1L << slot) != 0;
+    }
+
+    private void resize(int capacity) {
+        long[] oldIds = slotIds;
+        long[] oldKeys = slotKeys;
+        long[] oldUsedSlots = usedSlots;
+        slotIds = new long[capacity];
+        slotKeys = new long[capacity];
+        usedSlots = new long[capacity / Long.SIZE];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldIds.length; i++) {
+            if ((oldUsedSlots[i >>> 6] & 1L << i) == 0)
+                continue;
+            int slot = homeOf(oldIds[i], mask);
+            while (isUsed(slot))
+                slot = (slot + 1) & mask;
+            usedSlots[slot >>> 6] |= 1L << slot;
+            slotIds[slot] = oldIds[i];
+            slotKeys[slot] = oldKeys[i];
+        }
+    }
+
+    private static int homeOf(long id, int mask) {
+        long hash = id * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
@@ -1,26 +1,37 @@
 package utility;
 
-import data.Vehicle;
+import data.VehicleStore;
 import exceptions.NoSuchIdException;
 import mods.MessageType;
 
-import java.util.Enumeration;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 /**
  * Performs identifiers validation or generation.
+ * Keeps an index from the id of every element to its key, the owner of the collection
+ * reports each change of the collection through {@link #addId(long, long)}, {@link #removeId(long)}
+ * and {@link #clearIds()}. The index is a primitive {@link IdTable}, changed only while no command reads it.
+ * New ids are given by the {@link IdAllocator} seeded from the collection.
  */
 public class IdentifierHandler {
-    ConcurrentHashMap<Long, Vehicle> dataBase;
+    private final VehicleStore dataBase;
+    private final IdTable keysById = new IdTable();
+    private final IdAllocator idAllocator;
     private static final int ID_LENGTH = 10;
     private static final int MAX_KEY_LENGTH = 10;
 
-    public IdentifierHandler(ConcurrentHashMap<Long, Vehicle> dataBase) {
+    public IdentifierHandler(VehicleStore dataBase) {
         this.dataBase = dataBase;
+        long[] maxId = {0};
+        dataBase.forEachKey(key -> {
+            long id = dataBase.getId(key);
+            keysById.put(id, key);
+            maxId[0] = Math.max(maxId[0], id);
+        });
+        idAllocator = IdAllocator.create(maxId[0]);
     }
 
-    private boolean hasNonNumericCharacters(String value, String valueName, String commandName) {
+    private static boolean hasNonNumericCharacters(String value, String valueName, String commandName) {
         String nonDigitValue = "-?\\d+";
         Pattern nonDigitValuePattern = Pattern.compile(nonDigitValue);
         if (nonDigitValuePattern.matcher(value).matches()) {
@@ -31,7 +42,7 @@ public class IdentifierHandler {
         return true;
     }
 
-    private boolean isNegativeValue(String value, String valueName, String commandName) {
+    private static boolean isNegativeValue(String value, String valueName, String commandName) {
         String nonPositiveValue = "-\\d+";
         Pattern nonPositiveValuePattern = Pattern.compile(nonPositiveValue);
         if (nonPositiveValuePattern.matcher(value).matches()) {
@@ -42,7 +53,7 @@ public class IdentifierHandler {
         return false;
     }
 
-    private boolean hasLeadingZeros(String value, String valueName, String commandName) {
+    private static boolean hasLeadingZeros(String value, String valueName, String commandName) {
         String leadingZeros = "^0+\\d+";
         Pattern leadingZerosPattern = Pattern.compile(leadingZeros);
         if (leadingZerosPattern.matcher(value).matches()) {
@@ -53,7 +64,10 @@ public class IdentifierHandler {
         return false;
     }
 
-    public boolean checkKey(String key, String commandName) {
+    /**
+     * Checks the form of the key, does not need the collection.
+     */
+    public static boolean checkKey(String key, String commandName) {
         if (hasNonNumericCharacters(key, "Key", commandName))
             return false;
         if (isNegativeValue(key, "Key", commandName))
@@ -69,7 +83,10 @@ public class IdentifierHandler {
         return true;
     }
 
-    public boolean checkId(String id, String commandName) {
+    /**
+     * Checks the form of the id, does not need the collection.
+     */
+    public static boolean checkId(String id, String commandName) {
         if (hasNonNumericCharacters(id, "Id", commandName))
             return false;
         if (isNegativeValue(id, "Id", commandName))
@@ -89,14 +106,28 @@ public class IdentifierHandler {
      * Checks if the collection contains an element with the given id.
      */
     public boolean hasElementWithId(long id) {
-        Enumeration<Long> keys = dataBase.keys();
-        while (keys.hasMoreElements()) {
-            Long key = keys.nextElement();
-            if (id == dataBase.get(key).getId()) {
-                return true;
-            }
-        }
-        return false;
+        return keysById.containsId(id);
+    }
+
+    /**
+     * Remembers the key of the element with the given id.
+     */
+    public void addId(long id, long key) {
+        keysById.put(id, key);
+    }
+
+    /**
+     * Forgets the element with the given id.
+     */
+    public void removeId(long id) {
+        keysById.remove(id);
+    }
+
+    /**
+     * Forgets all elements, called when the collection is cleared.
+     */
+    public void clearIds() {
+        keysById.clear();
     }
 
     /**
@@ -118,19 +149,10 @@ public class IdentifierHandler {
     }
 
     /**
-     * Randomly fills in each digit of id until it becomes unique.
      * @return New unique id.
      */
     public Long generateId() {
-        StringBuilder newId;
-        do {
-            newId = new StringBuilder(ID_LENGTH);
-            newId.append((byte) (Math.random() * 9 + 1)); //skip leading zero
-            for (int i = 1; i < ID_LENGTH; i++) {
-                newId.append((byte) (Math.random() * 10));
-            }
-        } while (hasElementWithId(Long.parseLong(newId.toString())));
-        return Long.parseLong(newId.toString());
+        return idAllocator.nextId(this::hasElementWithId);
     }
 
     /**
@@ -138,19 +160,11 @@ public class IdentifierHandler {
      * @return Corresponding key.
      */
     public long getKeyById(long id) {
-        long key = -1;
-        Enumeration<Long> keys = dataBase.keys();
-        while (keys.hasMoreElements()) {
-            Long nextKey = keys.nextElement();
-            if (id == dataBase.get(nextKey).getId()) {
-                key = nextKey;
-            }
-        }
-        if (key == -1) {
+        if (!keysById.containsId(id)) {
             RuntimeException e = new NoSuchIdException(id);
             System.err.println(e.getMessage());
             throw e;
         }
-        return key;
+        return keysById.getKey(id);
     }
 }
@@ -0,0 +1,32 @@
+package utility;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import data.Coordinates;
+import data.Vehicle;
+
+/**
+ * Holds the Gson of the collection, made once with the hand-written adapters of elements and coordinates.
+ */
+final class JsonFormat {
+    private static final Gson GSON;
+
+    static {
+        CoordinatesTypeAdapter coordinatesAdapter = new CoordinatesTypeAdapter();
+        GSON = new GsonBuilder()
+                .registerTypeAdapter(Coordinates.class, coordinatesAdapter)
+                .registerTypeAdapter(Vehicle.class, new VehicleTypeAdapter(coordinatesAdapter))
+                .create();
+    }
+
+    private JsonFormat() {
+
+    }
+
+    /**
+     * @return Shared Gson, it is thread-safe.
+     */
+    static Gson gson() {
+        return GSON;
+    }
+}
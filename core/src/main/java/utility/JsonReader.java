@@ -1,21 +1,52 @@
 package utility;
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
 import data.Vehicle;
 
-import java.util.concurrent.ConcurrentHashMap;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.function.BiConsumer;
 
 /**
- * Converts database from json to ConcurrentHashMap collection.
+ * Reads database from json element by element, without building the whole collection or holding the whole text.
  */
 public class JsonReader {
-    private final String json;
-    public JsonReader(String json) {
-        this.json = json;
+    private final Reader reader;
+    public JsonReader(Reader reader) {
+        this.reader = reader;
     }
 
-    public ConcurrentHashMap<Long, Vehicle> readDataBase() {
-        Gson gson = new Gson();
-        return gson.fromJson(json, new TypeToken<ConcurrentHashMap<Long, Vehicle>>(){}.getType());
+    /**
+     * Passes every element to the consumer as soon as it is read, in the order of the file.
+     * An empty file or 'null' gives no elements.
+     * @param consumer takes the key and the element
+     * @throws IOException if failed to read
+     * @throws JsonSyntaxException if the text is not a json object of elements or is cut off
+     */
+    public void readDataBase(BiConsumer<Long, Vehicle> consumer) throws IOException {
+        TypeAdapter<Vehicle> vehicleAdapter = JsonFormat.gson().getAdapter(Vehicle.class);
+        com.google.gson.stream.JsonReader jsonReader = new com.google.gson.stream.JsonReader(reader);
+        jsonReader.setLenient(true);
+        try {
+            JsonToken firstToken;
+            try {
+                firstToken = jsonReader.peek();
+            } catch (EOFException e) { // empty file
+                return;
+            }
+            if (firstToken == JsonToken.NULL)
+                return;
+            jsonReader.beginObject();
+            while (jsonReader.hasNext()) {
+                long key = Long.parseLong(jsonReader.nextName());
+                consumer.accept(key, vehicleAdapter.read(jsonReader));
+            }
+            jsonReader.endObject();
+        } catch (MalformedJsonException | EOFException | IllegalStateException | NumberFormatException e) {
+            throw new JsonSyntaxException(e);
+        }
     }
 }
@@ -1,21 +1,64 @@
 package utility;
 
-import java.util.concurrent.ConcurrentHashMap;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.function.BiConsumer;
 
 import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
 import data.Vehicle;
 
 /**
- * Converts collection from ConcurrentHashMap to json.
+ * Converts collection from a map in key order to json, element by element.
  */
 public class JsonWriter {
-    private final ConcurrentHashMap<Long, Vehicle> dataBase;
-    public JsonWriter(ConcurrentHashMap<Long, Vehicle> dataBase) {
+    private final Map<Long, Vehicle> dataBase;
+    public JsonWriter(Map<Long, Vehicle> dataBase) {
         this.dataBase = dataBase;
     }
 
-    public String writeDataBase() {
-        Gson gson = new Gson();
-        return gson.toJson(dataBase);
+    /**
+     * Writes the collection as one json object, each element is written as soon as it is taken from the map,
+     * so the whole document is never held in memory.
+     * @param writer Destination of the json, it is flushed but not closed.
+     * @throws IOException if failed to write
+     */
+    public void writeDataBase(Writer writer) throws IOException {
+        writeDataBase(writer, dataBase::forEach);
+    }
+
+    /**
+     * Source of the elements that passes them one by one, so they need not be kept in a map.
+     */
+    public interface Elements {
+        void forEach(BiConsumer<Long, Vehicle> consumer) throws IOException;
+    }
+
+    /**
+     * Writes the elements as one json object, each element is written as soon as the source passes it.
+     * @param writer Destination of the json, it is flushed but not closed.
+     * @throws IOException if failed to write or the source failed to read
+     */
+    public static void writeDataBase(Writer writer, Elements elements) throws IOException {
+        Gson gson = JsonFormat.gson();
+        TypeAdapter<Vehicle> vehicleAdapter = gson.getAdapter(Vehicle.class);
+        com.google.gson.stream.JsonWriter jsonWriter = gson.newJsonWriter(writer);
+        jsonWriter.beginObject();
+        try {
+            elements.forEach((key, vehicle) -> {
+                try {
+                    jsonWriter.name(String.valueOf(key));
+                    vehicleAdapter.write(jsonWriter, vehicle);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        jsonWriter.endObject();
+        jsonWriter.flush();
     }
 }
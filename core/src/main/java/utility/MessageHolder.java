@@ -4,31 +4,54 @@ import mods.MessageType;
 
 import java.util.ArrayList;
 
+/**
+ * Collects messages of the command being executed and the token to continue its output, if it is paged.
+ * Each thread has its own messages, so commands can be executed by several threads at once.
+ */
 public class MessageHolder implements Cloneable {
-    private static final ArrayList<String> outputInfo = new ArrayList<>();
-    private static final ArrayList<String> userErrors = new ArrayList<>();
+    private static final ThreadLocal<ArrayList<String>> outputInfoHolder = ThreadLocal.withInitial(ArrayList::new);
+    private static final ThreadLocal<ArrayList<String>> userErrorsHolder = ThreadLocal.withInitial(ArrayList::new);
+    private static final ThreadLocal<String> continuationHolder = new ThreadLocal<>();
 
     public static void putMessage(String message, MessageType messageType) {
         if (messageType == MessageType.OUTPUT_INFO)
-            outputInfo.add(message);
+            outputInfoHolder.get().add(message);
         if (messageType == MessageType.USER_ERROR)
-            userErrors.add(message);
+            userErrorsHolder.get().add(message);
     }
 
     public static String getMessages(MessageType messageType) {
         StringBuilder messages = new StringBuilder();
         if (messageType == MessageType.OUTPUT_INFO)
-            outputInfo.forEach(line -> messages.append(line).append("\n"));
+            outputInfoHolder.get().forEach(line -> messages.append(line).append("\n"));
         if (messageType == MessageType.USER_ERROR)
-            userErrors.forEach(line -> messages.append(line).append("\n"));
+            userErrorsHolder.get().forEach(line -> messages.append(line).append("\n"));
         return messages.toString();
     }
 
     public static void clearMessages(MessageType messageType) {
         if (messageType == MessageType.OUTPUT_INFO)
-            outputInfo.clear();
+            outputInfoHolder.get().clear();
         if (messageType == MessageType.USER_ERROR)
-            userErrors.clear();
+            userErrorsHolder.get().clear();
+    }
+
+    /**
+     * Marks the output of the command as one page, the token is passed back to get the next one.
+     */
+    public static void putContinuation(String continuationToken) {
+        continuationHolder.set(continuationToken);
+    }
+
+    /**
+     * @return Token of the next page of the output, or null if the output is complete.
+     */
+    public static String getContinuation() {
+        return continuationHolder.get();
+    }
+
+    public static void clearContinuation() {
+        continuationHolder.remove();
     }
 
     public static void putCurrentCommand(String commandName, MessageType messageType){
@@ -37,11 +60,11 @@ public class MessageHolder implements Cloneable {
     }
 
     public static ArrayList<String> getOutputInfo() {
-        return outputInfo;
+        return outputInfoHolder.get();
     }
 
     public static ArrayList<String> getUserErrors() {
-        return userErrors;
+        return userErrorsHolder.get();
     }
 
     @Override
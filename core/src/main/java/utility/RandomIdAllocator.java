@@ -0,0 +1,31 @@
+package utility;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongPredicate;
+
+/**
+ * Gives out random ids, a used id is drawn again.
+ * Every given id is also kept in a concurrent set until the collection reports it as used,
+ * so concurrent calls never give the same id before its element is added.
+ * Ids that were given but never added stay in the set and are not given again.
+ */
+public class RandomIdAllocator implements IdAllocator {
+    private static final int MIN_PRUNED_SIZE = 1024;
+    private final Set<Long> givenIds = ConcurrentHashMap.newKeySet();
+    private volatile int prunedSize = MIN_PRUNED_SIZE;
+
+    @Override
+    public long nextId(LongPredicate isUsed) {
+        if (givenIds.size() >= prunedSize) {
+            givenIds.removeIf(isUsed::test);
+            prunedSize = Math.max(MIN_PRUNED_SIZE, 2 * givenIds.size());
+        }
+        long id;
+        do {
+            id = ThreadLocalRandom.current().nextLong(MIN_ID, MAX_ID + 1);
+        } while (isUsed.test(id) || !givenIds.add(id));
+        return id;
+    }
+}
@@ -0,0 +1,27 @@
+package utility;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongPredicate;
+
+/**
+ * Gives out ids in ascending order after the greatest id of the loaded collection,
+ * so ids are unique across restarts without looking into the collection.
+ * After the greatest possible id it starts from the smallest one again and skips the used ids.
+ */
+public class SequentialIdAllocator implements IdAllocator {
+    private final AtomicLong lastId;
+
+    public SequentialIdAllocator(long maxUsedId) {
+        lastId = new AtomicLong(Math.max(maxUsedId, MIN_ID - 1));
+    }
+
+    @Override
+    public long nextId(LongPredicate isUsed) {
+        for (long attempt = 0; attempt <= MAX_ID - MIN_ID; attempt++) {
+            long id = lastId.updateAndGet(previous -> previous >= MAX_ID ? MIN_ID : previous + 1);
+            if (!isUsed.test(id))
+                return id;
+        }
+        throw new IllegalStateException("All ids are used");
+    }
+}
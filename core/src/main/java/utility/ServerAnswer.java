@@ -5,8 +5,19 @@ import mods.AnswerType;
 import java.io.Serializable;
 import java.util.ArrayList;
 
+/**
+ * Answer to one request, carries the id of the request it answers.
+ * The answer to a batch request holds the answers to its commands in their order.
+ * A paged answer carries the token that the client sends back to get the next page.
+ */
 public record ServerAnswer(ArrayList<String> outputInfo, ArrayList<String> userErrors, boolean commandExitStatus,
-                           AnswerType answerType) implements Serializable {
+                           AnswerType answerType, long requestId,
+                           ArrayList<ServerAnswer> batchAnswers, String continuationToken) implements Serializable {
+
+    public ServerAnswer(ArrayList<String> outputInfo, ArrayList<String> userErrors, boolean commandExitStatus,
+                        AnswerType answerType, long requestId) {
+        this(outputInfo, userErrors, commandExitStatus, answerType, requestId, null, null);
+    }
 
     public String toString() {
         return String.format(
@@ -16,8 +27,9 @@ public record ServerAnswer(ArrayList<String> outputInfo, ArrayList<String> userE
                         User errors:         %s
                         Command exit status: %s
                         Answer type:         %s
+                        Request id:          %s
                         ___________________________________
                         """,
-                outputInfo, userErrors, commandExitStatus, answerType);
+                outputInfo, userErrors, commandExitStatus, answerType, requestId);
     }
 }
@@ -0,0 +1,119 @@
+package utility;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import data.Coordinates;
+import data.FuelType;
+import data.Vehicle;
+import data.VehicleType;
+
+import java.io.IOException;
+
+/**
+ * Converts elements to json and back without reflection, in the same format that Gson makes from the fields:
+ * fields in the order of declaration, null fields are not written, enums are written by their names.
+ * The last read creation date is remembered, so the elements created in a row share one string
+ * instead of holding equal copies; the field is read once per element, so reading in several threads is safe.
+ */
+class VehicleTypeAdapter extends TypeAdapter<Vehicle> {
+    private static final VehicleType[] VEHICLE_TYPES = VehicleType.values();
+    private static final FuelType[] FUEL_TYPES = FuelType.values();
+    private final TypeAdapter<Coordinates> coordinatesAdapter;
+    private String lastCreationDate;
+
+    VehicleTypeAdapter(TypeAdapter<Coordinates> coordinatesAdapter) {
+        this.coordinatesAdapter = coordinatesAdapter;
+    }
+
+    @Override
+    public void write(JsonWriter out, Vehicle vehicle) throws IOException {
+        if (vehicle == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("id").value(vehicle.getId());
+        if (vehicle.getName() != null)
+            out.name("name").value(vehicle.getName());
+        if (vehicle.getCoordinates() != null) {
+            out.name("coordinates");
+            coordinatesAdapter.write(out, vehicle.getCoordinates());
+        }
+        if (vehicle.getCreationDate() != null)
+            out.name("creationDate").value(vehicle.getCreationDate());
+        out.name("enginePower").value(vehicle.getEnginePower());
+        out.name("distanceTravelled").value(vehicle.getDistanceTravelled());
+        if (vehicle.getType() != null)
+            out.name("type").value(vehicle.getType().name());
+        if (vehicle.getFuelType() != null)
+            out.name("fuelType").value(vehicle.getFuelType().name());
+        out.endObject();
+    }
+
+    /**
+     * Unknown fields are skipped, missing ones and unknown names of enums are left zero or null.
+     */
+    @Override
+    public Vehicle read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        long id = 0;
+        String name = null;
+        Coordinates coordinates = null;
+        String creationDate = null;
+        int enginePower = 0;
+        long distanceTravelled = 0;
+        VehicleType type = null;
+        FuelType fuelType = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            String field = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (field) {
+                case "id" -> id = in.nextLong();
+                case "name" -> name = nextString(in);
+                case "coordinates" -> coordinates = coordinatesAdapter.read(in);
+                case "creationDate" -> creationDate = sharedCreationDate(nextString(in));
+                case "enginePower" -> enginePower = in.nextInt();
+                case "distanceTravelled" -> distanceTravelled = in.nextLong();
+                case "type" -> type = constantOf(VEHICLE_TYPES, nextString(in));
+                case "fuelType" -> fuelType = constantOf(FUEL_TYPES, nextString(in));
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+        return new Vehicle(id, name, coordinates, creationDate, enginePower, distanceTravelled, type, fuelType);
+    }
+
+    /**
+     * Takes booleans as strings too, like Gson does.
+     */
+    private static String nextString(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.BOOLEAN)
+            return Boolean.toString(in.nextBoolean());
+        return in.nextString();
+    }
+
+    private String sharedCreationDate(String creationDate) {
+        String last = lastCreationDate;
+        if (creationDate.equals(last))
+            return last;
+        lastCreationDate = creationDate;
+        return creationDate;
+    }
+
+    private static <E extends Enum<E>> E constantOf(E[] constants, String name) {
+        for (E constant : constants) {
+            if (constant.name().equals(name))
+                return constant;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,99 @@
+package data;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+/**
+ * Changes the columnar store and a sorted map the same random way and compares the keys in order
+ * and the keys found by scans of the columns.
+ */
+public class ColumnarVehicleStoreTest {
+    private static final int COUNT_OF_CHANGES = 20_000;
+    private static final int KEY_RANGE = 5_000;
+
+    @Test
+    public void keysInOrderFollowRandomChanges() {
+        ColumnarVehicleStore store = new ColumnarVehicleStore();
+        TreeMap<Long, Vehicle> expected = new TreeMap<>();
+        Random random = new Random(4);
+        for (int change = 0; change < COUNT_OF_CHANGES; change++) {
+            long key = random.nextInt(KEY_RANGE) - KEY_RANGE / 2;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key) != null, store.remove(key));
+            } else {
+                Vehicle vehicle = vehicle(random, change);
+                store.put(key, vehicle);
+                expected.put(key, vehicle);
+            }
+            if (change % 1000 == 0) {
+                long after = random.nextInt(KEY_RANGE) - KEY_RANGE / 2;
+                assertArrayEquals(keysOf(expected.tailMap(after, false).keySet(), 100), store.keysAfter(after, 100));
+            }
+        }
+        assertEquals(expected.size(), store.size());
+        assertArrayEquals(keysOf(expected.keySet(), expected.size()), store.keysAfter(Long.MIN_VALUE, store.size()));
+
+        List<Long> removed = new ArrayList<>();
+        assertEquals(expected.tailMap(0L, false).size(), store.removeKeysAfter(0, removed::add));
+        assertEquals(new ArrayList<>(expected.tailMap(0L, false).descendingKeySet()), removed);
+        expected.tailMap(0L, false).clear();
+        assertArrayEquals(keysOf(expected.keySet(), expected.size()), store.keysAfter(Long.MIN_VALUE, store.size()));
+        assertEquals(0, store.keysAfter(0, 10).length);
+    }
+
+    @Test
+    public void scanOfTheColumnsFindsTheRowsInRanges() {
+        ColumnarVehicleStore store = new ColumnarVehicleStore();
+        TreeMap<Long, Vehicle> expected = new TreeMap<>();
+        Random random = new Random(5);
+        for (int i = 0; i < KEY_RANGE; i++) {
+            long key = random.nextInt(KEY_RANGE);
+            if (i % 4 == 0) {
+                store.remove(key);
+                expected.remove(key);
+            } else {
+                Vehicle vehicle = vehicle(random, i);
+                store.put(key, vehicle);
+                expected.put(key, vehicle);
+            }
+        }
+        List<List<FieldRange>> alternatives = List.of(
+                List.of(new FieldRange(FieldRange.Column.ENGINE_POWER, Long.MIN_VALUE, 49),
+                        FieldRange.of(FieldRange.Column.FUEL_TYPE, FuelType.NUCLEAR.getSerialNumber())),
+                List.of(FieldRange.of(FieldRange.Column.VEHICLE_TYPE, VehicleType.BOAT.getSerialNumber()),
+                        FieldRange.greaterThan(FieldRange.Column.DISTANCE_TRAVELLED, 990_000)));
+        List<Long> matching = new ArrayList<>();
+        expected.forEach((key, vehicle) -> {
+            if (vehicle.getEnginePower() < 50 && vehicle.getFuelType() == FuelType.NUCLEAR
+                    || vehicle.getType() == VehicleType.BOAT && vehicle.getDistanceTravelled() > 990_000)
+                matching.add(key);
+        });
+        assertFalse(matching.isEmpty());
+        assertArrayEquals(matching.stream().mapToLong(Long::longValue).toArray(), store.keysInRanges(alternatives));
+        assertEquals(matching.size(), store.countInRanges(alternatives));
+    }
+
+    private static Vehicle vehicle(Random random, long id) {
+        return new Vehicle(1_000_000_000L + id, "vehicle-" + random.nextInt(100),
+                new Coordinates(random.nextFloat(), random.nextDouble()), "02/04/2023 - 13:30:07 MSK",
+                1 + random.nextInt(999), random.nextInt(1_000_000),
+                VehicleType.values()[random.nextInt(VehicleType.values().length)],
+                random.nextInt(10) == 0 ? null : FuelType.values()[random.nextInt(FuelType.values().length)]);
+    }
+
+    private static long[] keysOf(Iterable<Long> keys, int count) {
+        List<Long> firstKeys = new ArrayList<>();
+        for (long key : keys) {
+            if (firstKeys.size() == count)
+                break;
+            firstKeys.add(key);
+        }
+        return firstKeys.stream().mapToLong(Long::longValue).toArray();
+    }
+}
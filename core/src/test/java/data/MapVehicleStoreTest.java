@@ -0,0 +1,105 @@
+package data;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Changes the map store and a sorted map the same random way and compares the keys in order,
+ * then reads pages of keys while another thread changes the store.
+ */
+public class MapVehicleStoreTest {
+    private static final int COUNT_OF_CHANGES = 20_000;
+    private static final int KEY_RANGE = 5_000;
+
+    @Test
+    public void keysInOrderFollowRandomChanges() {
+        MapVehicleStore store = new MapVehicleStore();
+        TreeMap<Long, Vehicle> expected = new TreeMap<>();
+        Random random = new Random(7);
+        for (int change = 0; change < COUNT_OF_CHANGES; change++) {
+            long key = random.nextInt(KEY_RANGE) - KEY_RANGE / 2;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key) != null, store.remove(key));
+            } else {
+                Vehicle vehicle = vehicle(random, change);
+                store.put(key, vehicle);
+                expected.put(key, vehicle);
+            }
+            if (change % 1000 == 0) {
+                long after = random.nextInt(KEY_RANGE) - KEY_RANGE / 2;
+                assertArrayEquals(keysOf(expected.tailMap(after, false).keySet(), 100), store.keysAfter(after, 100));
+            }
+        }
+        assertEquals(expected.size(), store.size());
+        assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(store.inKeyOrder().keySet()));
+
+        List<Long> removed = new ArrayList<>();
+        assertEquals(expected.tailMap(0L, false).size(), store.removeKeysAfter(0, removed::add));
+        assertEquals(new ArrayList<>(expected.tailMap(0L, false).keySet()), removed);
+        expected.tailMap(0L, false).clear();
+        assertArrayEquals(keysOf(expected.keySet(), expected.size()), store.keysAfter(Long.MIN_VALUE, store.size()));
+        assertEquals(0, store.keysAfter(0, 10).length);
+    }
+
+    /**
+     * Reading commands share the lock of the collection, so pages are read while elements are put and removed.
+     */
+    @Test
+    public void pagesReadDuringChangesAreInKeyOrder() throws InterruptedException {
+        MapVehicleStore store = new MapVehicleStore();
+        Random random = new Random(8);
+        for (int i = 0; i < KEY_RANGE; i++)
+            store.put(random.nextInt(KEY_RANGE), vehicle(random, i));
+        AtomicBoolean isChanging = new AtomicBoolean(true);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            Random readerRandom = new Random(9);
+            try {
+                while (isChanging.get()) {
+                    long[] keys = store.keysAfter(readerRandom.nextInt(KEY_RANGE) - 1, 100);
+                    for (int i = 1; i < keys.length; i++)
+                        assertTrue(keys[i - 1] < keys[i]);
+                }
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        });
+        reader.start();
+        for (int change = 0; change < COUNT_OF_CHANGES * 10; change++) {
+            long key = random.nextInt(KEY_RANGE);
+            if (random.nextBoolean())
+                store.remove(key);
+            else
+                store.put(key, vehicle(random, change));
+        }
+        isChanging.set(false);
+        reader.join();
+        assertNull(failure.get());
+    }
+
+    private static Vehicle vehicle(Random random, long id) {
+        return new Vehicle(1_000_000_000L + id, "vehicle-" + random.nextInt(100),
+                new Coordinates(random.nextFloat(), random.nextDouble()), "02/04/2023 - 13:30:07 MSK",
+                1 + random.nextInt(999), random.nextInt(1_000_000),
+                VehicleType.values()[random.nextInt(VehicleType.values().length)],
+                FuelType.values()[random.nextInt(FuelType.values().length)]);
+    }
+
+    private static long[] keysOf(Iterable<Long> keys, int count) {
+        List<Long> firstKeys = new ArrayList<>();
+        for (long key : keys) {
+            if (firstKeys.size() == count)
+                break;
+            firstKeys.add(key);
+        }
+        return firstKeys.stream().mapToLong(Long::longValue).toArray();
+    }
+}
@@ -0,0 +1,93 @@
+package data;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+/**
+ * Changes the off-heap store and a sorted map the same random way and compares the elements built from the records.
+ * Long names are replaced often enough for the arena of names to be compacted several times.
+ */
+public class OffHeapVehicleStoreTest {
+    private static final int COUNT_OF_CHANGES = 30_000;
+    private static final int KEY_RANGE = 2_000;
+
+    @Test
+    public void elementsFollowRandomChanges() {
+        OffHeapVehicleStore store = new OffHeapVehicleStore();
+        TreeMap<Long, Vehicle> expected = new TreeMap<>();
+        Random random = new Random(20);
+        for (int change = 0; change < COUNT_OF_CHANGES; change++) {
+            long key = random.nextInt(KEY_RANGE) - KEY_RANGE / 2;
+            if (random.nextInt(4) == 0) {
+                assertEquals(expected.remove(key) != null, store.remove(key));
+            } else {
+                Vehicle vehicle = vehicle(random, change);
+                store.put(key, vehicle);
+                expected.put(key, vehicle);
+            }
+            if (change % 1000 == 0)
+                assertSameElements(expected, store);
+        }
+        assertSameElements(expected, store);
+
+        List<Long> removed = new ArrayList<>();
+        assertEquals(expected.tailMap(0L, false).size(), store.removeKeysAfter(0, removed::add));
+        removed.sort(null);
+        assertEquals(new ArrayList<>(expected.tailMap(0L, false).keySet()), removed);
+        expected.tailMap(0L, false).clear();
+        assertSameElements(expected, store);
+
+        store.clear();
+        assertEquals(0, store.size());
+        assertNull(store.get(expected.firstKey()));
+        assertEquals(0, store.keysAfter(Long.MIN_VALUE, 10).length);
+    }
+
+    private static void assertSameElements(TreeMap<Long, Vehicle> expected, OffHeapVehicleStore store) {
+        assertEquals(expected.size(), store.size());
+        for (Map.Entry<Long, Vehicle> element : expected.entrySet()) {
+            long key = element.getKey();
+            Vehicle vehicle = element.getValue();
+            assertEquals(fieldsOf(vehicle), fieldsOf(store.get(key)));
+            assertEquals(vehicle.getEnginePower(), store.getEnginePower(key));
+            assertEquals(vehicle.getDistanceTravelled(), store.getDistanceTravelled(key));
+            assertEquals(vehicle.getFuelType(), store.getFuelType(key));
+        }
+        long[] keys = expected.keySet().stream().mapToLong(Long::longValue).toArray();
+        assertArrayEquals(keys, store.keysAfter(Long.MIN_VALUE, store.size()));
+        assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(store.inKeyOrder().keySet()));
+    }
+
+    /**
+     * Fuel type may be null, which {@link Vehicle#toString()} does not print.
+     */
+    private static List<Object> fieldsOf(Vehicle vehicle) {
+        return List.of(vehicle.getId(), vehicle.getName(), vehicle.getCoordinates().getX(),
+                vehicle.getCoordinates().getY(), vehicle.getCreationDate(), vehicle.getEnginePower(),
+                vehicle.getDistanceTravelled(), vehicle.getType(), String.valueOf(vehicle.getFuelType()));
+    }
+
+    /**
+     * @return Element with a name of up to 300 characters, some of them outside ASCII,
+     * and a creation date either in the format of the collection or in another one.
+     */
+    private static Vehicle vehicle(Random random, long id) {
+        StringBuilder name = new StringBuilder("vehicle-" + id);
+        int countOfCharacters = random.nextInt(300);
+        for (int i = 0; i < countOfCharacters; i++)
+            name.append(random.nextInt(10) == 0 ? 'ж' : (char) ('a' + random.nextInt(26)));
+        String creationDate = random.nextBoolean() ? "02/04/2023 - 13:30:07 MSK" : "2023-04-02T13:30:07+03:00";
+        return new Vehicle(1_000_000_000L + id, name.toString(),
+                new Coordinates(random.nextFloat(), random.nextDouble()), creationDate,
+                1 + random.nextInt(999), random.nextInt(1_000_000),
+                VehicleType.values()[random.nextInt(VehicleType.values().length)],
+                random.nextInt(10) == 0 ? null : FuelType.values()[random.nextInt(FuelType.values().length)]);
+    }
+}
@@ -0,0 +1,116 @@
+package processing;
+
+import data.Coordinates;
+import data.FuelType;
+import data.Vehicle;
+import data.VehicleType;
+import mods.AnswerType;
+import mods.ClientRequestType;
+import mods.ExecuteMode;
+import org.junit.Test;
+import utility.CommandArguments;
+import utility.ServerAnswer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Encodes requests, answers and elements with the binary codec, decodes them back and compares every field,
+ * cuts the frames short and checks that the handshake falls back to Java serialization.
+ */
+public class BinaryCodecTest {
+    private final BinaryCodec codec = new BinaryCodec();
+
+    @Test
+    public void requestKeepsEveryField() throws IOException {
+        CommandArguments request = new CommandArguments("insert", new String[] {"10"},
+                new String[] {"car", "1.5", "2", "300", "400", "CAR", "DIESEL"},
+                ClientRequestType.COMMAND_EXECUTION, ExecuteMode.SCRIPT_MODE);
+        request.setRequestId(Long.MAX_VALUE);
+        assertSameRequest(request, (CommandArguments) codec.decode(ByteBuffer.wrap(codec.encode(request))));
+
+        CommandArguments withoutArguments = new CommandArguments("info", null, null,
+                ClientRequestType.COMMAND_EXECUTION, ExecuteMode.COMMAND_MODE);
+        assertSameRequest(withoutArguments,
+                (CommandArguments) codec.decode(ByteBuffer.wrap(codec.encode(withoutArguments))));
+    }
+
+    @Test
+    public void batchKeepsItsCommandsInOrder() throws IOException {
+        ArrayList<CommandArguments> commands = new ArrayList<>();
+        for (int i = 0; i < 3; i++)
+            commands.add(new CommandArguments("remove_key", new String[] {String.valueOf(i)}, null,
+                    ClientRequestType.COMMAND_EXECUTION, ExecuteMode.SCRIPT_MODE));
+        CommandArguments batch = CommandArguments.batchOf(commands, true);
+        CommandArguments decoded = (CommandArguments) codec.decode(ByteBuffer.wrap(codec.encode(batch)));
+        assertSameRequest(batch, decoded);
+        assertTrue(decoded.isStoppingOnFailure());
+        assertEquals(commands.size(), decoded.getBatch().size());
+        for (int i = 0; i < commands.size(); i++)
+            assertSameRequest(commands.get(i), decoded.getBatch().get(i));
+    }
+
+    @Test
+    public void answerKeepsEveryField() throws IOException {
+        ServerAnswer first = new ServerAnswer(new ArrayList<>(List.of("Command 'info':", "ключ")),
+                new ArrayList<>(), true, AnswerType.EXECUTION_RESPONSE, 7);
+        ServerAnswer second = new ServerAnswer(new ArrayList<>(), new ArrayList<>(List.of("No such element")),
+                false, AnswerType.DATA_REQUEST, 8);
+        ServerAnswer answer = new ServerAnswer(new ArrayList<>(), new ArrayList<>(), true,
+                AnswerType.EXECUTION_RESPONSE, 9, new ArrayList<>(List.of(first, second)), "show:100");
+        assertEquals(answer, codec.decode(ByteBuffer.wrap(codec.encode(answer))));
+        assertEquals(first, codec.decode(ByteBuffer.wrap(codec.encode(first))));
+    }
+
+    @Test
+    public void elementKeepsEveryField() throws IOException {
+        Vehicle vehicle = new Vehicle(1_234_567_890L, "vehicle", new Coordinates(-1.25f, 3.5),
+                "02/04/2023 - 13:30:07 MSK", 150, 4_000_000_000L, VehicleType.CHOPPER, FuelType.NUCLEAR);
+        assertEquals(vehicle.toString(), codec.decode(ByteBuffer.wrap(codec.encode(vehicle))).toString());
+    }
+
+    @Test
+    public void truncatedFramesAreRejected() {
+        ServerAnswer answer = new ServerAnswer(new ArrayList<>(List.of("output")), new ArrayList<>(List.of("error")),
+                true, AnswerType.EXECUTION_RESPONSE, 1);
+        byte[] frame = codec.encode(answer);
+        for (int length = 0; length < frame.length; length++) {
+            try {
+                codec.decode(ByteBuffer.wrap(Arrays.copyOf(frame, length)));
+                fail("frame cut to " + length + " of " + frame.length + " bytes was decoded");
+            } catch (IOException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void handshakeFallsBackToJavaSerialization() throws IOException {
+        WireCodec chosen = CodecHandshake.accept(CodecHandshake.request(codec));
+        assertTrue(chosen instanceof BinaryCodec);
+        assertTrue(CodecHandshake.chosen(CodecHandshake.answer(chosen)) instanceof BinaryCodec);
+
+        byte[] olderVersion = {BinaryCodec.ID, BinaryCodec.VERSION - 1};
+        WireCodec fallback = CodecHandshake.accept(olderVersion);
+        assertTrue(fallback instanceof JavaSerializationCodec);
+        assertTrue(CodecHandshake.chosen(CodecHandshake.answer(fallback)) instanceof JavaSerializationCodec);
+
+        ServerAnswer answer = new ServerAnswer(new ArrayList<>(List.of("output")), new ArrayList<>(), true,
+                AnswerType.EXECUTION_RESPONSE, 3);
+        assertEquals(answer, fallback.decode(ByteBuffer.wrap(fallback.encode(answer))));
+    }
+
+    private static void assertSameRequest(CommandArguments expected, CommandArguments actual) {
+        assertEquals(expected.getCommandName(), actual.getCommandName());
+        assertArrayEquals(expected.getArguments(), actual.getArguments());
+        assertArrayEquals(expected.getExtraArguments(), actual.getExtraArguments());
+        assertEquals(expected.getClientRequestType(), actual.getClientRequestType());
+        assertEquals(expected.getExecuteMode(), actual.getExecuteMode());
+        assertEquals(expected.getRequestId(), actual.getRequestId());
+    }
+}
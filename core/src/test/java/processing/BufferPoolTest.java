@@ -0,0 +1,47 @@
+package processing;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that frames of every size up to the maximum frame size are served by pooled direct buffers
+ * and that the free buffers never hold more than the bound.
+ */
+public class BufferPoolTest {
+    private static final int MAX_FRAME_SIZE = 16 * 1024 * 1024;
+
+    @Test
+    public void framesUpToTheMaximumSizeArePooled() throws IOException {
+        BufferPool bufferPool = new BufferPool(MAX_FRAME_SIZE, 2L * MAX_FRAME_SIZE);
+        for (int size : new int[] {1024, 1025, 4 * 1024 * 1024 + 1, MAX_FRAME_SIZE}) {
+            ByteBuffer buffer = bufferPool.acquire(size);
+            assertTrue(buffer.isDirect());
+            assertEquals(size, buffer.limit());
+            bufferPool.release(buffer);
+            assertSame("buffer of " + size + " bytes is reused", buffer, bufferPool.acquire(size));
+            bufferPool.release(buffer);
+        }
+        assertEquals(0.5, bufferPool.getHitRate(), 0);
+        assertEquals(0, bufferPool.getDroppedBuffers());
+    }
+
+    @Test
+    public void buffersBeyondTheBoundAreDropped() throws IOException {
+        BufferPool bufferPool = new BufferPool(MAX_FRAME_SIZE, 1024 * 1024);
+        ByteBuffer small = bufferPool.acquire(1024);
+        ByteBuffer large = bufferPool.acquire(MAX_FRAME_SIZE);
+        bufferPool.release(small);
+        bufferPool.release(large);
+        assertEquals(1024, bufferPool.getBytesHeld());
+        assertEquals(1, bufferPool.getDroppedBuffers());
+    }
+
+    @Test(expected = IOException.class)
+    public void framesAboveTheMaximumSizeAreRejected() throws IOException {
+        new BufferPool(MAX_FRAME_SIZE, MAX_FRAME_SIZE).acquire(MAX_FRAME_SIZE + 1);
+    }
+}
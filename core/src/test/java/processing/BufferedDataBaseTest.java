@@ -0,0 +1,432 @@
+package processing;
+
+import mods.ClientRequestType;
+import mods.ExecuteMode;
+import mods.MessageType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import utility.CommandArguments;
+import utility.FileHandler;
+import utility.MessageHolder;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs commands on a collection loaded from the file set by the 'SAVE_PATH' variable of the test run
+ * and checks what they write to the log next to it.
+ */
+public class BufferedDataBaseTest {
+    private BufferedDataBase bufferedDataBase;
+
+    @Before
+    public void openEmptyCollection() throws IOException {
+        Path dataBasePath = FileHandler.getDataBasePath();
+        Files.createDirectories(dataBasePath.getParent());
+        try (DirectoryStream<Path> logSegments =
+                     Files.newDirectoryStream(dataBasePath.getParent(), dataBasePath.getFileName() + ".*.wal")) {
+            for (Path logSegment : logSegments)
+                Files.delete(logSegment);
+        }
+        Files.writeString(dataBasePath, "{}");
+        bufferedDataBase = new BufferedDataBase();
+    }
+
+    @After
+    public void resetSyncPolicy() {
+        System.clearProperty("walSync");
+        System.clearProperty("walSyncInterval");
+        System.clearProperty("walCompactionSize");
+    }
+
+    @Test
+    public void commandsThatRemoveNothingDoNotWriteToTheLog() throws IOException {
+        assertTrue(bufferedDataBase.insert(insert("10")));
+        long logSize = logSize();
+        assertTrue(logSize > 0);
+
+        assertTrue(bufferedDataBase.removeGreaterKey(command("remove_greater_key", new String[] {"10"}, null)));
+        assertTrue(bufferedDataBase.removeGreater(command("remove_greater", new String[] {"400"}, null)));
+        assertTrue(bufferedDataBase.removeLower(command("remove_lower", new String[] {"400"}, null)));
+        assertTrue(bufferedDataBase.removeAllByEnginePower(
+                command("remove_all_by_engine_power", new String[] {"301"}, null)));
+        assertEquals(logSize, logSize());
+        assertEquals(1, bufferedDataBase.getCollectionSize());
+
+        assertTrue(bufferedDataBase.removeGreaterKey(command("remove_greater_key", new String[] {"9"}, null)));
+        assertTrue(logSize() > logSize);
+        assertEquals(0, bufferedDataBase.getCollectionSize());
+    }
+
+    @Test
+    public void changeThatFailedGroupForceIsUndone() throws IOException {
+        System.setProperty("walSync", "group");
+        bufferedDataBase = new BufferedDataBase();
+        assertTrue(bufferedDataBase.insert(insert("10")));
+        assertTrue(bufferedDataBase.durableChanges().join());
+
+        bufferedDataBase.getLog().setSegmentForcer(segment -> {
+            throw new IOException("Injected failure of force");
+        });
+        assertTrue(bufferedDataBase.insert(insert("20")));
+        assertFalse("change is not durable", bufferedDataBase.durableChanges().join());
+        assertTrue(bufferedDataBase.hasDiscardedChanges());
+        assertTrue(bufferedDataBase.restoreDiscardedChanges());
+        assertFalse(bufferedDataBase.hasDiscardedChanges());
+        assertEquals(1, bufferedDataBase.getCollectionSize());
+
+        bufferedDataBase.getLog().setSegmentForcer(segment -> segment.force(false));
+        assertTrue("key of the undone insert is free", bufferedDataBase.insert(insert("20")));
+        assertTrue(bufferedDataBase.durableChanges().join());
+        assertEquals(2, bufferedDataBase.getCollectionSize());
+        assertEquals(2, new BufferedDataBase().getCollectionSize());
+    }
+
+    @Test
+    public void changeThatFailedPeriodicForceIsUndone() throws Exception {
+        System.setProperty("walSync", "periodic");
+        System.setProperty("walSyncInterval", "10");
+        bufferedDataBase = new BufferedDataBase();
+        bufferedDataBase.getLog().setSegmentForcer(segment -> {
+            throw new IOException("Injected failure of force");
+        });
+        assertTrue(bufferedDataBase.insert(insert("10")));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!bufferedDataBase.hasDiscardedChanges() && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+        assertTrue(bufferedDataBase.hasDiscardedChanges());
+        assertTrue(bufferedDataBase.restoreDiscardedChanges());
+        assertEquals(0, bufferedDataBase.getCollectionSize());
+        assertEquals(0, new BufferedDataBase().getCollectionSize());
+    }
+
+    @Test
+    public void compactionFoldsTheLogIntoTheSnapshot() throws Exception {
+        System.setProperty("walCompactionSize", "1");
+        bufferedDataBase = new BufferedDataBase();
+        for (int key = 0; key < 100; key++)
+            assertTrue(bufferedDataBase.insert(insert(String.valueOf(key))));
+        assertTrue(bufferedDataBase.removeKey(command("remove_key", new String[] {"50"}, null)));
+        assertTrue(bufferedDataBase.removeGreaterKey(command("remove_greater_key", new String[] {"80"}, null)));
+        assertTrue(bufferedDataBase.insert(insert("90")));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (countOfSegments() > 1 && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+        assertEquals("only the current segment is left", 1, countOfSegments());
+
+        List<Long> snapshotKeys = new ArrayList<>();
+        FileHandler.readDataBase((key, vehicle) -> snapshotKeys.add(key));
+        assertFalse("the snapshot was rewritten", snapshotKeys.isEmpty());
+        for (int i = 1; i < snapshotKeys.size(); i++)
+            assertTrue("the snapshot is in key order", snapshotKeys.get(i - 1) < snapshotKeys.get(i));
+        assertEquals(81, new BufferedDataBase().getCollectionSize());
+    }
+
+    @Test
+    public void showPagesTheCollectionInKeyOrder() {
+        List<Long> keys = new ArrayList<>();
+        for (long key = 0; key < 250; key++)
+            keys.add(key * 3);
+        Collections.shuffle(keys, new Random(11));
+        for (long key : keys)
+            assertTrue(bufferedDataBase.insert(insert(String.valueOf(key))));
+
+        List<Long> shownKeys = new ArrayList<>();
+        String[] arguments = {};
+        int countOfPages = 0;
+        do {
+            MessageHolder.clearMessages(MessageType.OUTPUT_INFO);
+            MessageHolder.clearContinuation();
+            assertTrue(bufferedDataBase.show(command("show", arguments, null)));
+            countOfPages++;
+            int countOfElements = 0;
+            for (String message : MessageHolder.getOutputInfo()) {
+                if (!message.startsWith("key:"))
+                    continue;
+                shownKeys.add(Long.parseLong(message.substring("key:".length(), message.indexOf('\n')).trim()));
+                countOfElements++;
+            }
+            assertTrue("a page holds at most 100 elements", countOfElements <= 100);
+            String continuation = MessageHolder.getContinuation();
+            arguments = continuation == null ? null : new String[] {continuation};
+        } while (arguments != null);
+        MessageHolder.clearMessages(MessageType.OUTPUT_INFO);
+
+        assertEquals(3, countOfPages);
+        Collections.sort(keys);
+        assertEquals("every key once, in key order", keys, shownKeys);
+    }
+
+    @Test
+    public void distanceQueriesFollowTheChangesOfTheCollection() {
+        Random random = new Random(14);
+        TreeMap<Long, Long> distances = new TreeMap<>();
+        for (int i = 0; i < 400; i++) {
+            long key = random.nextInt(300);
+            if (distances.containsKey(key)) {
+                assertTrue(bufferedDataBase.removeKey(command("remove_key", new String[] {String.valueOf(key)}, null)));
+                distances.remove(key);
+            } else {
+                long distance = 1 + random.nextInt(1000);
+                assertTrue(bufferedDataBase.insert(command("insert", new String[] {String.valueOf(key)},
+                        new String[] {"car", "1", "2", "300", String.valueOf(distance), "1", "1"})));
+                distances.put(key, distance);
+            }
+        }
+        assertTrue(bufferedDataBase.removeGreaterKey(command("remove_greater_key", new String[] {"250"}, null)));
+        distances.tailMap(250L, false).clear();
+
+        assertEquals(List.of(String.format("%s elements were successfully removed with distance travelled > 900",
+                        countOfDistances(distances, 901, Long.MAX_VALUE))),
+                outputOf(() -> bufferedDataBase.removeGreater(command("remove_greater", new String[] {"900"}, null))));
+        distances.values().removeIf(distance -> distance > 900);
+        assertEquals(List.of(String.format("%s elements were successfully removed with distance travelled < 100",
+                        countOfDistances(distances, Long.MIN_VALUE, 99))),
+                outputOf(() -> bufferedDataBase.removeLower(command("remove_lower", new String[] {"100"}, null))));
+        distances.values().removeIf(distance -> distance < 100);
+
+        assertEquals(List.of(String.format("%s elements with distance travelled from 300 to 600",
+                        countOfDistances(distances, 300, 600))),
+                outputOf(() -> bufferedDataBase.countByDistanceTravelled(
+                        command("count_by_distance_travelled", new String[] {"300", "600"}, null))));
+        List<Long> expectedKeys = new ArrayList<>();
+        distances.entrySet().stream()
+                .filter(entry -> entry.getValue() >= 300 && entry.getValue() <= 600)
+                .sorted(Map.Entry.<Long, Long>comparingByValue().thenComparing(Map.Entry.comparingByKey()))
+                .forEach(entry -> expectedKeys.add(entry.getKey()));
+        List<Long> filteredKeys = new ArrayList<>();
+        for (String message : outputOf(() -> bufferedDataBase.filterByDistanceTravelled(
+                command("filter_by_distance_travelled", new String[] {"300", "600"}, null))))
+            filteredKeys.add(Long.parseLong(message.substring("key:".length(), message.indexOf('\n')).trim()));
+        assertFalse(expectedKeys.isEmpty());
+        assertEquals("keys ordered by distance, then by key", expectedKeys, filteredKeys);
+    }
+
+    @Test
+    public void enginePowerQueriesFollowTheChangesOfTheCollection() {
+        Random random = new Random(16);
+        TreeMap<Long, Integer> enginePowers = new TreeMap<>();
+        for (int i = 0; i < 400; i++) {
+            long key = random.nextInt(300);
+            if (enginePowers.containsKey(key)) {
+                assertTrue(bufferedDataBase.removeKey(command("remove_key", new String[] {String.valueOf(key)}, null)));
+                enginePowers.remove(key);
+            } else {
+                int enginePower = 1 + random.nextInt(10);
+                assertTrue(bufferedDataBase.insert(command("insert", new String[] {String.valueOf(key)},
+                        new String[] {"car", "1", "2", String.valueOf(enginePower), "400", "1", "1"})));
+                enginePowers.put(key, enginePower);
+            }
+        }
+        assertTrue(bufferedDataBase.removeGreaterKey(command("remove_greater_key", new String[] {"250"}, null)));
+        enginePowers.tailMap(250L, false).clear();
+
+        assertEquals(List.of(String.format("%s elements were successfully removed with engine power = 3",
+                        Collections.frequency(enginePowers.values(), 3))),
+                outputOf(() -> bufferedDataBase.removeAllByEnginePower(
+                        command("remove_all_by_engine_power", new String[] {"3"}, null))));
+        enginePowers.values().removeIf(enginePower -> enginePower == 3);
+        assertEquals(List.of("No elements found to remove with engine power = 3"),
+                outputOf(() -> bufferedDataBase.removeAllByEnginePower(
+                        command("remove_all_by_engine_power", new String[] {"3"}, null))));
+
+        for (int enginePower = 1; enginePower <= 10; enginePower++) {
+            String[] arguments = {String.valueOf(enginePower)};
+            assertEquals(List.of(String.format("%s elements with engine power = %s",
+                            Collections.frequency(enginePowers.values(), enginePower), enginePower)),
+                    outputOf(() -> bufferedDataBase.countByEnginePower(
+                            command("count_by_engine_power", arguments, null))));
+            List<Long> expectedKeys = new ArrayList<>();
+            for (Map.Entry<Long, Integer> element : enginePowers.entrySet())
+                if (element.getValue() == enginePower)
+                    expectedKeys.add(element.getKey());
+            List<Long> filteredKeys = new ArrayList<>();
+            for (String message : outputOf(() -> bufferedDataBase.filterByEnginePower(
+                    command("filter_by_engine_power", arguments, null)))) {
+                if (message.startsWith("key:"))
+                    filteredKeys.add(Long.parseLong(message.substring("key:".length(), message.indexOf('\n')).trim()));
+            }
+            assertEquals("keys of engine power " + enginePower + " in key order", expectedKeys, filteredKeys);
+        }
+    }
+
+    @Test
+    public void updateFindsTheElementsByIdAfterEveryKindOfRemove() {
+        Random random = new Random(12);
+        for (int key = 0; key < 300; key++) {
+            assertTrue(bufferedDataBase.insert(command("insert", new String[] {String.valueOf(key)}, new String[] {
+                    "car", "1", "2", String.valueOf(1 + random.nextInt(5)), String.valueOf(1 + random.nextInt(1000)),
+                    "1", "1"})));
+        }
+        Map<Long, Long> insertedKeysById = keysById();
+        assertEquals(300, insertedKeysById.size());
+        List<CommandArguments> removes = List.of(
+                command("remove_key", new String[] {"10"}, null),
+                command("remove_greater_key", new String[] {"280"}, null),
+                command("remove_greater", new String[] {"950"}, null),
+                command("remove_lower", new String[] {"50"}, null),
+                command("remove_all_by_engine_power", new String[] {"3"}, null),
+                command("clear", new String[] {}, null));
+        for (CommandArguments remove : removes) {
+            MessageHolder.clearMessages(MessageType.OUTPUT_INFO);
+            switch (remove.getCommandName()) {
+                case "remove_key" -> assertTrue(bufferedDataBase.removeKey(remove));
+                case "remove_greater_key" -> assertTrue(bufferedDataBase.removeGreaterKey(remove));
+                case "remove_greater" -> assertTrue(bufferedDataBase.removeGreater(remove));
+                case "remove_lower" -> assertTrue(bufferedDataBase.removeLower(remove));
+                case "remove_all_by_engine_power" -> assertTrue(bufferedDataBase.removeAllByEnginePower(remove));
+                default -> assertTrue(bufferedDataBase.clear(remove));
+            }
+            Map<Long, Long> keysById = keysById();
+            for (Map.Entry<Long, Long> inserted : insertedKeysById.entrySet()) {
+                long id = inserted.getKey();
+                MessageHolder.clearMessages(MessageType.USER_ERROR);
+                boolean isUpdated = bufferedDataBase.update(command("update", new String[] {String.valueOf(id)},
+                        new String[] {"updated", "1", "2", "7", "500", "2", "2"}));
+                assertEquals("update of id " + id + " after " + remove.getCommandName(),
+                        keysById.containsKey(id), isUpdated);
+                if (!isUpdated)
+                    assertTrue(MessageHolder.getUserErrors().contains("No such element with this id"));
+            }
+            MessageHolder.clearMessages(MessageType.USER_ERROR);
+            assertEquals("updates keep the key of every id", keysById, keysById());
+        }
+        assertTrue(keysById().isEmpty());
+    }
+
+    /**
+     * @return Keys of the elements of the collection by their ids, read from the pages of show.
+     */
+    private Map<Long, Long> keysById() {
+        Map<Long, Long> keysById = new TreeMap<>();
+        String[] arguments = {};
+        while (arguments != null) {
+            MessageHolder.clearMessages(MessageType.OUTPUT_INFO);
+            MessageHolder.clearContinuation();
+            assertTrue(bufferedDataBase.show(command("show", arguments, null)));
+            for (String message : MessageHolder.getOutputInfo()) {
+                if (!message.startsWith("key:"))
+                    continue;
+                String[] lines = message.split("\n");
+                keysById.put(Long.parseLong(lines[1].substring("id:".length()).trim()),
+                        Long.parseLong(lines[0].substring("key:".length()).trim()));
+            }
+            String continuation = MessageHolder.getContinuation();
+            arguments = continuation == null ? null : new String[] {continuation};
+        }
+        MessageHolder.clearMessages(MessageType.OUTPUT_INFO);
+        return keysById;
+    }
+
+    private static long countOfDistances(Map<Long, Long> distances, long from, long to) {
+        return distances.values().stream().filter(distance -> distance >= from && distance <= to).count();
+    }
+
+    /**
+     * @return Output of the command without the line naming the command.
+     */
+    private static List<String> outputOf(BooleanSupplier command) {
+        MessageHolder.clearMessages(MessageType.OUTPUT_INFO);
+        assertTrue(command.getAsBoolean());
+        List<String> output = new ArrayList<>(MessageHolder.getOutputInfo());
+        MessageHolder.clearMessages(MessageType.OUTPUT_INFO);
+        return output.subList(1, output.size());
+    }
+
+    @Test
+    public void temporaryFilesOfInterruptedSaveAreDeletedOnLoad() throws IOException {
+        Path dataBasePath = FileHandler.getDataBasePath();
+        Path temporaryPath = Files.createTempFile(dataBasePath.getParent(), dataBasePath.getFileName() + ".", ".tmp");
+        Files.writeString(temporaryPath, "{\"1\": ");
+        new BufferedDataBase();
+        assertFalse(Files.exists(temporaryPath));
+        assertTrue(Files.exists(dataBasePath));
+    }
+
+    @Test
+    public void columnarStoreAnswersQueriesAsTheIndexes() {
+        Random random = new Random(6);
+        for (int key = 0; key < 300; key++) {
+            assertTrue(bufferedDataBase.insert(command("insert", new String[] {String.valueOf(key)}, new String[] {
+                    "car", "1", "2", String.valueOf(1 + random.nextInt(20)), String.valueOf(1 + random.nextInt(1000)),
+                    String.valueOf(1 + random.nextInt(4)), String.valueOf(1 + random.nextInt(3))})));
+        }
+        assertTrue(bufferedDataBase.removeKey(command("remove_key", new String[] {"150"}, null)));
+        List<CommandArguments> queries = List.of(
+                command("count_by_fuel_type", new String[] {"2"}, null),
+                command("filter_less_than_fuel_type", new String[] {"2"}, null),
+                command("count_by_distance_travelled", new String[] {"100", "400"}, null),
+                command("filter_by_distance_travelled", new String[] {"100", "400"}, null),
+                command("count_by_engine_power", new String[] {"7"}, null),
+                command("filter_by_engine_power", new String[] {"7"}, null),
+                command("filter", new String[] {"fuel_type<=2", "and", "vehicle_type=1", "or", "engine_power>18"}, null));
+        List<String> indexedOutput = runQueries(bufferedDataBase, queries);
+
+        System.setProperty("vehicleStore", "columnar");
+        try {
+            assertEquals(indexedOutput, runQueries(new BufferedDataBase(), queries));
+        } finally {
+            System.clearProperty("vehicleStore");
+        }
+    }
+
+    private static List<String> runQueries(BufferedDataBase dataBase, List<CommandArguments> queries) {
+        MessageHolder.clearMessages(MessageType.OUTPUT_INFO);
+        assertTrue(dataBase.countByFuelType(queries.get(0)));
+        assertTrue(dataBase.filterLessThanFuelType(queries.get(1)));
+        assertTrue(dataBase.countByDistanceTravelled(queries.get(2)));
+        assertTrue(dataBase.filterByDistanceTravelled(queries.get(3)));
+        assertTrue(dataBase.countByEnginePower(queries.get(4)));
+        assertTrue(dataBase.filterByEnginePower(queries.get(5)));
+        assertTrue(dataBase.filter(queries.get(6)));
+        List<String> output = new ArrayList<>(MessageHolder.getOutputInfo());
+        MessageHolder.clearMessages(MessageType.OUTPUT_INFO);
+        return output;
+    }
+
+    private static CommandArguments insert(String key) {
+        return command("insert", new String[] {key}, new String[] {"car", "1", "2", "300", "400", "1", "1"});
+    }
+
+    static CommandArguments command(String commandName, String[] arguments, String[] extraArguments) {
+        return new CommandArguments(commandName, arguments, extraArguments,
+                ClientRequestType.COMMAND_EXECUTION, ExecuteMode.SCRIPT_MODE);
+    }
+
+    private static int countOfSegments() throws IOException {
+        Path dataBasePath = FileHandler.getDataBasePath();
+        int count = 0;
+        try (DirectoryStream<Path> logSegments =
+                     Files.newDirectoryStream(dataBasePath.getParent(), dataBasePath.getFileName() + ".*.wal")) {
+            for (Path ignored : logSegments)
+                count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return Bytes in all segments of the log.
+     */
+    static long logSize() throws IOException {
+        Path dataBasePath = FileHandler.getDataBasePath();
+        long size = 0;
+        try (DirectoryStream<Path> logSegments =
+                     Files.newDirectoryStream(dataBasePath.getParent(), dataBasePath.getFileName() + ".*.wal")) {
+            for (Path logSegment : logSegments)
+                size += Files.size(logSegment);
+        }
+        return size;
+    }
+}
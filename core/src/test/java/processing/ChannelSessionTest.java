@@ -0,0 +1,217 @@
+package processing;
+
+import mods.ClientRequestType;
+import mods.ExecuteMode;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import utility.CommandArguments;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Feeds the session frames split at every byte boundary through a real loopback connection,
+ * the server side of which is non-blocking as in the server.
+ */
+public class ChannelSessionTest {
+    private static final long TIMEOUT = TimeUnit.SECONDS.toMillis(5);
+    private SocketChannel clientChannel;
+    private SocketChannel serverChannel;
+    private Selector selector;
+    private ChannelSession session;
+
+    @Before
+    public void connect() throws IOException {
+        try (ServerSocketChannel serverSocket = ServerSocketChannel.open()) {
+            serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            clientChannel = SocketChannel.open();
+            clientChannel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            clientChannel.setOption(StandardSocketOptions.SO_RCVBUF, 8192); // so the server side cannot write everything
+            clientChannel.connect(serverSocket.getLocalAddress());
+            serverChannel = serverSocket.accept();
+        }
+        serverChannel.configureBlocking(false);
+        selector = Selector.open();
+        serverChannel.register(selector, SelectionKey.OP_READ);
+        session = new ChannelSession();
+    }
+
+    @After
+    public void disconnect() throws IOException {
+        session.release();
+        selector.close();
+        serverChannel.close();
+        clientChannel.close();
+    }
+
+    @Test
+    public void handshakeSplitAtEveryByteIsAccepted() throws IOException {
+        byte[] frame = frameOf(CodecHandshake.request(new BinaryCodec()));
+        for (int split = 1; split < frame.length; split++) {
+            session = new ChannelSession();
+            send(frame, 0, split);
+            awaitReadable();
+            assertNull("handshake is not complete after " + split + " bytes", session.readHandshake(serverChannel));
+            send(frame, split, frame.length - split);
+            WireCodec codec = null;
+            long deadline = System.currentTimeMillis() + TIMEOUT;
+            while (codec == null && System.currentTimeMillis() < deadline) {
+                awaitReadable();
+                codec = session.readHandshake(serverChannel);
+            }
+            assertTrue(codec instanceof BinaryCodec);
+        }
+    }
+
+    @Test
+    public void requestSplitAtEveryByteIsReadWhole() throws IOException {
+        acceptHandshake();
+        WireCodec codec = session.getCodec();
+        int frameLength = frameOf(codec.encode(request(0))).length; // the same for every request id
+        for (int split = 1; split < frameLength; split++) {
+            byte[] frame = frameOf(codec.encode(request(split)));
+            send(frame, 0, split);
+            awaitReadable();
+            assertNull("request is not complete after " + split + " bytes", session.read(serverChannel));
+            send(frame, split, frame.length - split);
+            assertRequest(split, readObject());
+        }
+    }
+
+    @Test
+    public void twoFramesSplitAtEveryByteAreReadInOrder() throws IOException {
+        acceptHandshake();
+        WireCodec codec = session.getCodec();
+        byte[] first = frameOf(codec.encode(request(1)));
+        byte[] second = frameOf(codec.encode(request(2)));
+        byte[] frames = new byte[first.length + second.length];
+        System.arraycopy(first, 0, frames, 0, first.length);
+        System.arraycopy(second, 0, frames, first.length, second.length);
+        for (int split = 1; split < frames.length; split++) {
+            send(frames, 0, split);
+            if (split >= first.length)
+                assertRequest(1, readObject());
+            send(frames, split, frames.length - split);
+            if (split < first.length)
+                assertRequest(1, readObject());
+            assertRequest(2, readObject());
+        }
+    }
+
+    @Test
+    public void pendingWritesAreKeptUntilTheChannelAcceptsThem() throws IOException {
+        serverChannel.setOption(StandardSocketOptions.SO_SNDBUF, 4096);
+        int objectLength = 64 * 1024;
+        int countOfFrames = 64;
+        for (int i = 0; i < countOfFrames; i++) {
+            byte[] objectBytes = new byte[objectLength]; // the frame wraps the bytes, so each frame has its own
+            objectBytes[0] = (byte) i;
+            session.enqueue(NBChannelController.toFrame(objectBytes));
+        }
+        assertFalse("channel accepted all frames at once", session.flush(serverChannel));
+        for (int i = 0; i < countOfFrames; i++) {
+            byte[] frame = readFrameFlushing(objectLength);
+            assertEquals(i, frame[0]);
+        }
+        assertFalse(session.hasPendingWrites());
+    }
+
+    @Test
+    public void framesAreWrittenTogetherWithEmptyObjects() throws IOException {
+        session.enqueue(NBChannelController.toFrame(new byte[0]));
+        session.enqueue(NBChannelController.toFrame(new byte[] {5}));
+        session.enqueue(NBChannelController.toFrame(new byte[0]));
+        assertTrue(session.flush(serverChannel));
+        assertFalse(session.hasPendingWrites());
+        assertEquals(0, readFrameFlushing(0).length);
+        assertArrayEquals(new byte[] {5}, readFrameFlushing(1));
+        assertEquals(0, readFrameFlushing(0).length);
+    }
+
+    private void acceptHandshake() throws IOException {
+        send(frameOf(CodecHandshake.request(new BinaryCodec())), 0, NBChannelController.LENGTH_FIELD_SIZE + 2);
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (session.getCodec() == null && System.currentTimeMillis() < deadline) {
+            awaitReadable();
+            session.readHandshake(serverChannel);
+        }
+        assertNotNull(session.getCodec());
+    }
+
+    /**
+     * Reads one frame on the client side, letting the session write more while the client waits.
+     */
+    private byte[] readFrameFlushing(int objectLength) throws IOException {
+        ByteBuffer frame = ByteBuffer.allocate(NBChannelController.LENGTH_FIELD_SIZE + objectLength);
+        clientChannel.configureBlocking(false);
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (frame.hasRemaining() && System.currentTimeMillis() < deadline) {
+            session.flush(serverChannel);
+            clientChannel.read(frame);
+        }
+        clientChannel.configureBlocking(true);
+        assertFalse("frame was not written in time", frame.hasRemaining());
+        frame.flip();
+        assertEquals(objectLength, frame.getInt());
+        byte[] objectBytes = new byte[objectLength];
+        frame.get(objectBytes);
+        return objectBytes;
+    }
+
+    private Serializable readObject() throws IOException {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (System.currentTimeMillis() < deadline) {
+            awaitReadable();
+            Serializable object = session.read(serverChannel);
+            if (object != null)
+                return object;
+        }
+        fail("frame was not read in time");
+        return null;
+    }
+
+    private void awaitReadable() throws IOException {
+        selector.select(TIMEOUT);
+        selector.selectedKeys().clear();
+    }
+
+    private void send(byte[] bytes, int offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, length);
+        while (buffer.hasRemaining())
+            clientChannel.write(buffer);
+    }
+
+    private static byte[] frameOf(byte[] objectBytes) {
+        return ByteBuffer.allocate(NBChannelController.LENGTH_FIELD_SIZE + objectBytes.length)
+                .putInt(objectBytes.length).put(objectBytes).array();
+    }
+
+    private static CommandArguments request(long requestId) {
+        CommandArguments request = new CommandArguments("insert", new String[] {"7"},
+                new String[] {"name", "1", "2", "3", "4", "car", "1"},
+                ClientRequestType.COMMAND_EXECUTION, ExecuteMode.COMMAND_MODE);
+        request.setRequestId(requestId);
+        return request;
+    }
+
+    private static void assertRequest(long requestId, Serializable object) {
+        assertTrue(object instanceof CommandArguments);
+        CommandArguments request = (CommandArguments) object;
+        assertEquals(requestId, request.getRequestId());
+        assertEquals("insert", request.getCommandName());
+        assertArrayEquals(new String[] {"7"}, request.getArguments());
+        assertEquals(7, request.getExtraArguments().length);
+    }
+}
@@ -0,0 +1,79 @@
+package processing;
+
+import data.Coordinates;
+import data.FuelType;
+import data.MapVehicleStore;
+import data.Vehicle;
+import data.VehicleType;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+/**
+ * Changes the fuel type index and a sorted map the same random way and compares the counters
+ * and the merged keys of every set of fuel types. Elements without a fuel type are not indexed.
+ */
+public class EnumIndexTest {
+    private static final int COUNT_OF_CHANGES = 20_000;
+    private static final int KEY_RANGE = 3_000;
+
+    @Test
+    public void countersAndKeysFollowRandomChanges() {
+        MapVehicleStore store = new MapVehicleStore();
+        Random random = new Random(17);
+        for (int i = 0; i < KEY_RANGE / 2; i++)
+            store.put(random.nextInt(KEY_RANGE), vehicle(random));
+        EnumIndex<FuelType> index = new EnumIndex<>(FuelType.class, store, store::getFuelType);
+        TreeMap<Long, FuelType> expected = new TreeMap<>();
+        store.forEachKey(key -> expected.put(key, store.getFuelType(key)));
+
+        for (int change = 0; change < COUNT_OF_CHANGES; change++) {
+            long key = random.nextInt(KEY_RANGE);
+            if (expected.containsKey(key)) {
+                index.remove(expected.remove(key), key);
+            } else {
+                FuelType fuelType = vehicle(random).getFuelType();
+                index.add(fuelType, key);
+                expected.put(key, fuelType);
+            }
+            if (change % 1000 == 0)
+                assertSameKeys(expected, index);
+        }
+        assertSameKeys(expected, index);
+
+        index.clear();
+        for (FuelType fuelType : FuelType.values()) {
+            assertEquals(0, index.countOf(fuelType));
+            assertTrue(index.keysOf(EnumSet.of(fuelType)).isEmpty());
+        }
+    }
+
+    private static void assertSameKeys(TreeMap<Long, FuelType> expected, EnumIndex<FuelType> index) {
+        List<EnumSet<FuelType>> valueSets = List.of(EnumSet.noneOf(FuelType.class),
+                EnumSet.of(FuelType.ALCOHOL), EnumSet.of(FuelType.MANPOWER, FuelType.NUCLEAR),
+                EnumSet.of(FuelType.ALCOHOL, FuelType.NUCLEAR), EnumSet.allOf(FuelType.class));
+        for (EnumSet<FuelType> values : valueSets) {
+            List<Long> keys = new ArrayList<>();
+            expected.forEach((key, fuelType) -> {
+                if (fuelType != null && values.contains(fuelType))
+                    keys.add(key);
+            });
+            assertEquals("keys of " + values + " in key order", keys, index.keysOf(values));
+        }
+        for (FuelType fuelType : FuelType.values())
+            assertEquals(expected.values().stream().filter(value -> value == fuelType).count(),
+                    index.countOf(fuelType));
+    }
+
+    private static Vehicle vehicle(Random random) {
+        return new Vehicle(1 + random.nextInt(1_000_000), "vehicle", new Coordinates(1, 2),
+                "02/04/2023 - 13:30:07 MSK", 300, 400, VehicleType.CAR,
+                random.nextInt(10) == 0 ? null : FuelType.values()[random.nextInt(FuelType.values().length)]);
+    }
+}
@@ -0,0 +1,82 @@
+package processing;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Changes compressed bitmaps and {@link BitSet}s the same random way, sparse and dense chunks mixed,
+ * and compares the rows they hold and the rows of their joins.
+ */
+public class RowBitmapTest {
+    private static final int COUNT_OF_ROWS = 300_000;
+
+    @Test
+    public void bitmapsHoldTheSameRowsAsBitSets() {
+        Random random = new Random(7);
+        List<RowBitmap> bitmaps = new ArrayList<>();
+        List<BitSet> bitSets = new ArrayList<>();
+        for (double density : new double[] {0.001, 0.03, 0.3, 0.9}) {
+            RowBitmap bitmap = new RowBitmap();
+            BitSet bitSet = new BitSet();
+            for (int row = 0; row < COUNT_OF_ROWS; row++) {
+                if (random.nextDouble() < density) {
+                    bitmap.set(row);
+                    bitSet.set(row);
+                }
+            }
+            for (int i = 0; i < COUNT_OF_ROWS / 2; i++) { // moves dense chunks back to arrays and sparse ones to bitmaps
+                int row = random.nextInt(COUNT_OF_ROWS);
+                if (random.nextBoolean()) {
+                    bitmap.clear(row);
+                    bitSet.clear(row);
+                } else {
+                    bitmap.set(row);
+                    bitSet.set(row);
+                }
+            }
+            assertSameRows(bitSet, bitmap);
+            bitmaps.add(bitmap);
+            bitSets.add(bitSet);
+        }
+        for (int i = 0; i < bitmaps.size(); i++) {
+            for (int j = 0; j < bitmaps.size(); j++) {
+                BitSet both = (BitSet) bitSets.get(i).clone();
+                both.and(bitSets.get(j));
+                assertSameRows(both, bitmaps.get(i).and(bitmaps.get(j)));
+                BitSet either = (BitSet) bitSets.get(i).clone();
+                either.or(bitSets.get(j));
+                assertSameRows(either, bitmaps.get(i).or(bitmaps.get(j)));
+                BitSet only = (BitSet) bitSets.get(i).clone();
+                only.andNot(bitSets.get(j));
+                assertSameRows(only, bitmaps.get(i).andNot(bitmaps.get(j)));
+            }
+            assertSameRows(bitSets.get(i), bitmaps.get(i)); // the joins did not change their operands
+        }
+    }
+
+    @Test
+    public void sparseRowsTakeLessSpaceThanABitForEveryRow() {
+        RowBitmap bitmap = new RowBitmap();
+        for (int row = 0; row < 1_000_000; row += 1000)
+            bitmap.set(row);
+        assertTrue(bitmap.sizeInBytes() < 1_000_000 / Byte.SIZE / 10);
+        for (int row = 0; row < 1_000_000; row += 1000)
+            bitmap.clear(row);
+        assertTrue(bitmap.isEmpty());
+    }
+
+    private static void assertSameRows(BitSet expected, RowBitmap bitmap) {
+        assertEquals(expected.cardinality(), bitmap.cardinality());
+        List<Integer> rows = new ArrayList<>();
+        bitmap.forEach(rows::add);
+        assertEquals(expected.stream().boxed().toList(), rows);
+        for (int row = 0; row < COUNT_OF_ROWS; row += 997)
+            assertEquals(expected.get(row), bitmap.contains(row));
+    }
+}
@@ -0,0 +1,70 @@
+package processing;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+/**
+ * Changes the pairs and a sorted set of them the same random way, many pairs share a value,
+ * so the blocks are split and emptied, and compares the keys and counts of ranges of values.
+ */
+public class SortedPairsTest {
+    private static final Comparator<long[]> BY_VALUE_AND_KEY =
+            Comparator.<long[]>comparingLong(pair -> pair[0]).thenComparingLong(pair -> pair[1]);
+
+    @Test
+    public void rangesFollowRandomChanges() {
+        SortedPairs pairs = new SortedPairs();
+        TreeSet<long[]> expected = new TreeSet<>(BY_VALUE_AND_KEY);
+        Random random = new Random(8);
+        for (int change = 0; change < 100_000; change++) {
+            long[] pair = {random.nextInt(50), random.nextInt(5000)};
+            if (random.nextInt(5) < 2)
+                assertEquals(expected.remove(pair), pairs.remove(pair[0], pair[1]));
+            else
+                assertEquals(expected.add(pair), pairs.add(pair[0], pair[1]));
+            if (change % 5000 == 0) {
+                long from = random.nextInt(60) - 5;
+                long to = from + random.nextInt(20);
+                assertRange(expected, pairs, from, to);
+            }
+        }
+        assertEquals(expected.size(), pairs.size());
+        assertRange(expected, pairs, Long.MIN_VALUE, Long.MAX_VALUE);
+        assertRange(expected, pairs, 7, 7);
+        assertRange(expected, pairs, 10, 9);
+        for (long[] pair : new ArrayList<>(expected))
+            assertTrue(pairs.remove(pair[0], pair[1]));
+        assertEquals(0, pairs.size());
+        assertEquals(0, pairs.countBetween(Long.MIN_VALUE, Long.MAX_VALUE));
+        assertTrue(pairs.add(3, 3));
+        assertEquals(List.of(3L), pairs.keysBetween(3, 3));
+    }
+
+    @Test
+    public void extremeKeysAreCountedAtTheBounds() {
+        SortedPairs pairs = new SortedPairs();
+        pairs.add(5, Long.MAX_VALUE);
+        pairs.add(5, Long.MIN_VALUE);
+        pairs.add(6, 0);
+        assertEquals(2, pairs.countBetween(5, 5));
+        assertEquals(List.of(Long.MIN_VALUE, Long.MAX_VALUE), pairs.keysBetween(5, 5));
+        assertEquals(3, pairs.countBetween(4, 6));
+    }
+
+    private static void assertRange(TreeSet<long[]> expected, SortedPairs pairs, long from, long to) {
+        List<Long> keys = new ArrayList<>();
+        for (long[] pair : expected) {
+            if (pair[0] >= from && pair[0] <= to)
+                keys.add(pair[1]);
+        }
+        assertEquals(keys, pairs.keysBetween(from, to));
+        assertEquals(keys.size(), pairs.countBetween(from, to));
+    }
+}
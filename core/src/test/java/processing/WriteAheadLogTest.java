@@ -0,0 +1,83 @@
+package processing;
+
+import data.Coordinates;
+import data.FuelType;
+import data.Vehicle;
+import data.VehicleType;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+/**
+ * Folds random changes the way a compaction does, streams a snapshot past them
+ * and compares the elements with the ones of a sorted map that took the same changes.
+ */
+public class WriteAheadLogTest {
+    private static final int KEY_RANGE = 2_000;
+
+    @Test
+    public void foldedChangesGiveTheCollectionOfTheReplay() throws IOException {
+        Random random = new Random(12);
+        for (int round = 0; round < 50; round++) {
+            TreeMap<Long, Vehicle> snapshot = new TreeMap<>();
+            for (int i = 0; i < 500; i++)
+                snapshot.put((long) random.nextInt(KEY_RANGE), vehicle(random));
+            TreeMap<Long, Vehicle> expected = new TreeMap<>(snapshot);
+            WriteAheadLog.FoldedChanges changes = new WriteAheadLog.FoldedChanges();
+            for (int change = 0; change < 300; change++) {
+                long key = random.nextInt(KEY_RANGE);
+                int kind = random.nextInt(100);
+                if (kind < 60) {
+                    Vehicle vehicle = vehicle(random);
+                    expected.put(key, vehicle);
+                    changes.put(key, vehicle);
+                } else if (kind < 95) {
+                    expected.remove(key);
+                    changes.remove(key);
+                } else if (kind < 99) {
+                    expected.tailMap(key, false).clear();
+                    changes.removeKeysAfter(key);
+                } else {
+                    expected.clear();
+                    changes.clear();
+                }
+            }
+            List<Map.Entry<Long, Vehicle>> folded = new ArrayList<>();
+            changes.applyTo(snapshot::forEach, (key, vehicle) -> folded.add(Map.entry(key, vehicle)));
+            assertEquals(new ArrayList<>(expected.entrySet()), folded);
+        }
+    }
+
+    @Test
+    public void snapshotOutOfKeyOrderKeepsItsChangedElementsOut() throws IOException {
+        Random random = new Random(13);
+        Vehicle first = vehicle(random);
+        Vehicle second = vehicle(random);
+        Vehicle put = vehicle(random);
+        WriteAheadLog.FoldedChanges changes = new WriteAheadLog.FoldedChanges();
+        changes.put(5, put);
+        changes.remove(1);
+        List<Long> keys = new ArrayList<>();
+        changes.applyTo(consumer -> {
+            consumer.accept(9L, first);
+            consumer.accept(5L, second);
+            consumer.accept(1L, second);
+        }, (key, vehicle) -> keys.add(key));
+        assertEquals(List.of(5L, 9L), keys);
+    }
+
+    private static Vehicle vehicle(Random random) {
+        return new Vehicle(1 + random.nextInt(1_000_000), "vehicle-" + random.nextInt(100),
+                new Coordinates(random.nextFloat(), random.nextDouble()), "02/04/2023 - 13:30:07 MSK",
+                1 + random.nextInt(999), 1 + random.nextInt(1_000_000),
+                VehicleType.values()[random.nextInt(VehicleType.values().length)],
+                FuelType.values()[random.nextInt(FuelType.values().length)]);
+    }
+}
@@ -0,0 +1,81 @@
+package utility;
+
+import data.Coordinates;
+import data.FuelType;
+import data.Vehicle;
+import data.VehicleType;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+/**
+ * Saves collections to the file of the 'SAVE_PATH' variable of the test run, reads them back
+ * and checks that a save that fails midway leaves the previous file and no temporary file behind.
+ */
+public class FileHandlerTest {
+    private Path dataBasePath;
+
+    @Before
+    public void writePreviousCollection() throws IOException {
+        dataBasePath = FileHandler.getDataBasePath();
+        Files.createDirectories(dataBasePath.getParent());
+        Files.writeString(dataBasePath, "{}");
+        assertTrue(FileHandler.saveDataBase(collection(0, 100)));
+    }
+
+    @Test
+    public void savedCollectionReplacesThePreviousOne() throws IOException {
+        TreeMap<Long, Vehicle> saved = collection(50, 3_000);
+        assertTrue(FileHandler.saveDataBase(saved));
+        Map<Long, Vehicle> read = new LinkedHashMap<>();
+        FileHandler.readDataBase(read::put);
+        assertEquals(saved.keySet().stream().toList(), read.keySet().stream().toList());
+        saved.forEach((key, vehicle) -> assertEquals(vehicle.toString(), read.get(key).toString()));
+        assertEquals(0, countOfTemporaryFiles());
+    }
+
+    @Test
+    public void failedSaveLeavesThePreviousFile() throws IOException {
+        String previous = Files.readString(dataBasePath);
+        TreeMap<Long, Vehicle> collection = collection(0, 3_000);
+        boolean isSaved = FileHandler.saveDataBase(consumer -> {
+            for (Map.Entry<Long, Vehicle> element : collection.entrySet()) {
+                if (element.getKey() == 2_000)
+                    throw new IOException("Injected failure of the source");
+                consumer.accept(element.getKey(), element.getValue());
+            }
+        });
+        assertFalse(isSaved);
+        assertEquals(previous, Files.readString(dataBasePath));
+        assertEquals(0, countOfTemporaryFiles());
+    }
+
+    private static TreeMap<Long, Vehicle> collection(int firstKey, int countOfElements) {
+        TreeMap<Long, Vehicle> collection = new TreeMap<>();
+        for (int key = firstKey; key < firstKey + countOfElements; key++) {
+            collection.put((long) key, new Vehicle(1_000_000_000L + key, "vehicle-" + key, new Coordinates(key, -key),
+                    "02/04/2023 - 13:30:07 MSK", 1 + key % 999, key * 10L, VehicleType.values()[key % 4],
+                    FuelType.values()[key % 3]));
+        }
+        return collection;
+    }
+
+    private int countOfTemporaryFiles() throws IOException {
+        int count = 0;
+        try (DirectoryStream<Path> temporaryFiles =
+                     Files.newDirectoryStream(dataBasePath.getParent(), dataBasePath.getFileName() + ".*.tmp")) {
+            for (Path ignored : temporaryFiles)
+                count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,45 @@
+package utility;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Changes the table and a hash map the same random way, with ids in a narrow range,
+ * so clusters form and removals shift them back, and compares every id.
+ */
+public class IdTableTest {
+    private static final int ID_RANGE = 20_000;
+
+    @Test
+    public void tableFollowsRandomChanges() {
+        IdTable table = new IdTable();
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(9);
+        for (int change = 0; change < 200_000; change++) {
+            long id = random.nextInt(ID_RANGE) * 1024L; // ids in the same home slots while the table is small
+            if (random.nextInt(3) == 0) {
+                table.remove(id);
+                expected.remove(id);
+            } else {
+                long key = random.nextLong();
+                table.put(id, key);
+                expected.put(id, key);
+            }
+        }
+        for (long i = 0; i < ID_RANGE; i++) {
+            long id = i * 1024;
+            assertEquals(expected.containsKey(id), table.containsId(id));
+            if (expected.containsKey(id))
+                assertEquals((long) expected.get(id), table.getKey(id));
+        }
+        table.clear();
+        assertFalse(table.containsId(0));
+        table.put(0, -1);
+        assertEquals(-1, table.getKey(0));
+    }
+}
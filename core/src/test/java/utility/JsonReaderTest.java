@@ -0,0 +1,103 @@
+package utility;
+
+import com.google.gson.JsonSyntaxException;
+import data.Coordinates;
+import data.FuelType;
+import data.MapVehicleStore;
+import data.Vehicle;
+import data.VehicleType;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Reads collections from json text element by element and loads a file of the 'SAVE_PATH' variable
+ * of the test run, larger than the buffer of the load, into a store.
+ */
+public class JsonReaderTest {
+    private static final String DOCUMENT = "{\"5\": {\"id\": 15, \"name\": \"five\", " +
+            "\"coordinates\": {\"x\": 1.5, \"y\": -2.25}, \"creationDate\": \"02/04/2023 - 13:30:07 MSK\", " +
+            "\"enginePower\": 150, \"distanceTravelled\": 5000, \"type\": \"BOAT\", \"fuelType\": \"NUCLEAR\"}, " +
+            "\"1\": {\"id\": 11, \"name\": \"one\", \"coordinates\": {\"x\": 0.0, \"y\": 0.0}, " +
+            "\"creationDate\": \"02/04/2023 - 13:30:07 MSK\", \"enginePower\": 1, \"distanceTravelled\": 1, " +
+            "\"type\": \"CAR\", \"fuelType\": null, \"unknownField\": [1, 2]}}";
+
+    @Test
+    public void elementsArePassedInTheOrderOfTheFile() throws IOException {
+        List<Long> keys = new ArrayList<>();
+        List<Vehicle> vehicles = new ArrayList<>();
+        new JsonReader(new StringReader(DOCUMENT)).readDataBase((key, vehicle) -> {
+            keys.add(key);
+            vehicles.add(vehicle);
+        });
+        assertEquals(List.of(5L, 1L), keys);
+        Vehicle five = vehicles.get(0);
+        assertEquals(15, five.getId());
+        assertEquals("five", five.getName());
+        assertEquals(1.5f, five.getCoordinates().getX(), 0);
+        assertEquals(-2.25, five.getCoordinates().getY(), 0);
+        assertEquals(150, five.getEnginePower());
+        assertEquals(5000, five.getDistanceTravelled());
+        assertEquals(VehicleType.BOAT, five.getType());
+        assertEquals(FuelType.NUCLEAR, five.getFuelType());
+        assertNull("null and unknown fields are skipped", vehicles.get(1).getFuelType());
+        assertEquals(VehicleType.CAR, vehicles.get(1).getType());
+    }
+
+    @Test
+    public void emptyTextGivesNoElements() throws IOException {
+        for (String text : List.of("", "  \n", "null")) {
+            new JsonReader(new StringReader(text)).readDataBase((key, vehicle) ->
+                    fail("element read from '" + text + "'"));
+        }
+    }
+
+    @Test
+    public void cutOffTextIsRejected() {
+        for (int length = 1; length < DOCUMENT.length(); length++) {
+            String text = DOCUMENT.substring(0, length);
+            try {
+                new JsonReader(new StringReader(text)).readDataBase((key, vehicle) -> { });
+                fail("text cut to " + length + " characters was read");
+            } catch (JsonSyntaxException | IOException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void fileIsLoadedIntoTheStore() throws IOException {
+        Path dataBasePath = FileHandler.getDataBasePath();
+        Files.createDirectories(dataBasePath.getParent());
+        Map<Long, Vehicle> expected = new LinkedHashMap<>();
+        Random random = new Random(21);
+        for (int i = 0; i < 5_000; i++) {
+            expected.put((long) random.nextInt(1_000_000), new Vehicle(1_000_000_000L + i, "vehicle-" + i,
+                    new Coordinates(random.nextFloat(), random.nextDouble()), "02/04/2023 - 13:30:07 MSK",
+                    1 + random.nextInt(999), random.nextInt(1_000_000),
+                    VehicleType.values()[random.nextInt(VehicleType.values().length)],
+                    FuelType.values()[random.nextInt(FuelType.values().length)]));
+        }
+        try (Writer writer = Files.newBufferedWriter(dataBasePath, StandardCharsets.UTF_8)) {
+            new JsonWriter(expected).writeDataBase(writer);
+        }
+        assertTrue(Files.size(dataBasePath) > 1 << 20);
+
+        MapVehicleStore store = new MapVehicleStore();
+        assertTrue(FileHandler.loadDataBase(store));
+        assertEquals(expected.size(), store.size());
+        expected.forEach((key, vehicle) -> assertEquals(vehicle.toString(), store.get(key).toString()));
+    }
+}
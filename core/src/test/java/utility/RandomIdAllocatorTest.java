@@ -0,0 +1,48 @@
+package utility;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.LongPredicate;
+
+import static org.junit.Assert.*;
+
+/**
+ * Draws ids from a few free ones in many threads, so that ids drawn by chance by two threads are certain
+ * and only the allocator keeps them apart.
+ */
+public class RandomIdAllocatorTest {
+    private static final int COUNT_OF_THREADS = 8;
+    private static final int IDS_PER_THREAD = 2000;
+    private static final LongPredicate EVERY_THOUSANDTH_IS_FREE = id -> id % 1000 != 0;
+
+    @Test
+    public void concurrentCallsGiveDifferentIds() throws Exception {
+        RandomIdAllocator idAllocator = new RandomIdAllocator();
+        ExecutorService threads = Executors.newFixedThreadPool(COUNT_OF_THREADS);
+        try {
+            List<Future<long[]>> results = new ArrayList<>();
+            for (int thread = 0; thread < COUNT_OF_THREADS; thread++)
+                results.add(threads.submit(() -> {
+                    long[] ids = new long[IDS_PER_THREAD];
+                    for (int i = 0; i < ids.length; i++)
+                        ids[i] = idAllocator.nextId(EVERY_THOUSANDTH_IS_FREE);
+                    return ids;
+                }));
+            Set<Long> ids = new HashSet<>();
+            for (Future<long[]> result : results)
+                for (long id : result.get()) {
+                    assertFalse("id is free", EVERY_THOUSANDTH_IS_FREE.test(id));
+                    assertTrue("id " + id + " is given once", ids.add(id));
+                }
+        } finally {
+            threads.shutdown();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package utility;
+
+import com.google.gson.Gson;
+import data.Coordinates;
+import data.FuelType;
+import data.Vehicle;
+import data.VehicleType;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Writes elements with the hand-written adapters and with the reflective binding of Gson,
+ * the texts have to be the same, and reads the text back with the adapters.
+ */
+public class VehicleTypeAdapterTest {
+    private final Gson adapters = JsonFormat.gson();
+    private final Gson reflection = new Gson();
+
+    @Test
+    public void adaptersWriteAndReadTheFormatOfTheReflectiveBinding() {
+        Random random = new Random(23);
+        for (int i = 0; i < 1_000; i++) {
+            Vehicle vehicle = vehicle(random, i);
+            String json = reflection.toJson(vehicle);
+            assertEquals(json, adapters.toJson(vehicle));
+            assertEquals(json, adapters.toJson(adapters.fromJson(json, Vehicle.class)));
+        }
+    }
+
+    @Test
+    public void looseValuesAreReadAsTheReflectiveBindingReadsThem() {
+        String json = "{\"id\": \"7\", \"name\": true, \"enginePower\": \"150\", \"distanceTravelled\": 12, " +
+                "\"type\": \"SUBMARINE\", \"fuelType\": \"ALCOHOL\", \"creationDate\": null, \"extra\": {\"a\": 1}}";
+        Vehicle read = adapters.fromJson(json, Vehicle.class);
+        Vehicle expected = reflection.fromJson(json, Vehicle.class);
+        assertEquals(expected.getId(), read.getId());
+        assertEquals("true", read.getName());
+        assertEquals(expected.getEnginePower(), read.getEnginePower());
+        assertEquals(expected.getDistanceTravelled(), read.getDistanceTravelled());
+        assertNull("unknown names of enums are left null", read.getType());
+        assertEquals(FuelType.ALCOHOL, read.getFuelType());
+        assertNull(read.getCoordinates());
+        assertNull(read.getCreationDate());
+    }
+
+    @Test
+    public void equalCreationDatesInARowShareOneString() {
+        List<String> creationDates = new ArrayList<>();
+        Random random = new Random(24);
+        for (int i = 0; i < 3; i++) {
+            String json = adapters.toJson(vehicle(random, i)).replaceAll(
+                    "\"creationDate\":\"[^\"]*\"", "\"creationDate\":\"02/04/2023 - 13:30:07 MSK\"");
+            creationDates.add(adapters.fromJson(json, Vehicle.class).getCreationDate());
+        }
+        assertSame(creationDates.get(0), creationDates.get(1));
+        assertSame(creationDates.get(1), creationDates.get(2));
+    }
+
+    /**
+     * @return Element whose name, coordinates and enums are sometimes left null.
+     */
+    private static Vehicle vehicle(Random random, long id) {
+        return new Vehicle(1_000_000_000L + id, random.nextInt(10) == 0 ? null : "vehicle \"" + id + "\"\n",
+                random.nextInt(10) == 0 ? null : new Coordinates(random.nextFloat() * 1000 - 500, random.nextDouble()),
+                random.nextBoolean() ? "02/04/2023 - 13:30:07 MSK" : "2023-04-02T13:30:07+03:00",
+                1 + random.nextInt(999), random.nextLong(),
+                random.nextInt(10) == 0 ? null : VehicleType.values()[random.nextInt(VehicleType.values().length)],
+                random.nextInt(10) == 0 ? null : FuelType.values()[random.nextInt(FuelType.values().length)]);
+    }
+}
@@ -0,0 +1,70 @@
+package host;
+
+import processing.CodecHandshake;
+import processing.NBChannelController;
+import processing.RequestHandler;
+import processing.WireCodec;
+import utility.CommandArguments;
+import utility.ServerAnswer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Alternative to the selector based server: blocking sockets, one virtual thread per client.
+ */
+public class BlockingServer {
+    private final String host;
+    private final int port;
+    private final RequestHandler requestHandler;
+
+    public BlockingServer(RequestHandler requestHandler, String host, int port) {
+        this.requestHandler = requestHandler;
+        this.host = host;
+        this.port = port;
+    }
+
+    public void run() {
+        try (ServerSocketChannel serverSocket = ServerSocketChannel.open();
+             ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            serverSocket.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            serverSocket.bind(new InetSocketAddress(host, port), Server.getConnectionBacklog());
+            System.out.println("Clients are served by virtual threads");
+            while (true) {
+                SocketChannel client = serverSocket.accept();
+                clients.execute(() -> serve(client));
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Reads requests of one client and answers them until the client disconnects.
+     */
+    private void serve(SocketChannel client) {
+        try (client) {
+            try {
+                WireCodec codec = CodecHandshake.accept(NBChannelController.readFrame(client));
+                NBChannelController.writeFrame(client, CodecHandshake.answer(codec));
+                while (true) {
+                    CommandArguments request = (CommandArguments) NBChannelController.read(client, codec);
+                    ServerAnswer serverAnswer = requestHandler.processRequest(request);
+                    NBChannelController.write(client, codec, serverAnswer);
+                }
+            } catch (IOException | ClassCastException e) {
+                System.out.println(String.format(
+                        "Not accepting client %s messages anymore", client.getRemoteAddress()));
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
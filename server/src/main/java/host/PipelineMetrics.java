@@ -0,0 +1,97 @@
+package host;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects queue depth and execution time of the commands passed through the server pipeline.
+ */
+public class PipelineMetrics {
+    private final ThreadPoolExecutor executor;
+    private final LongAdder answersWaitingForSelector = new LongAdder();
+    private final Map<String, CommandTimer> commandTimers = new ConcurrentHashMap<>();
+
+    public PipelineMetrics(ThreadPoolExecutor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Counts one executed command.
+     * @param commandName Name of the executed command.
+     * @param queueNanos Time the command spent in the executor queue.
+     * @param executionNanos Time the command was executed by a worker.
+     */
+    public void recordExecution(String commandName, long queueNanos, long executionNanos) {
+        commandTimers.computeIfAbsent(commandName, name -> new CommandTimer()).record(queueNanos, executionNanos);
+    }
+
+    public void answerQueued() {
+        answersWaitingForSelector.increment();
+    }
+
+    public void answerTaken() {
+        answersWaitingForSelector.decrement();
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public int getActiveWorkers() {
+        return executor.getActiveCount();
+    }
+
+    public long getAnswersWaitingForSelector() {
+        return answersWaitingForSelector.sum();
+    }
+
+    /**
+     * @return Current state of the pipeline in a human-readable form.
+     */
+    public String report() {
+        StringBuilder report = new StringBuilder(String.format("""
+                Pipeline metrics:
+                Workers:                     %s (%s active)
+                Requests waiting for worker: %s
+                Answers waiting for write:   %s
+                """, executor.getMaximumPoolSize(), getActiveWorkers(),
+                getQueueDepth(), getAnswersWaitingForSelector()));
+        report.append(String.format("%-28s %10s %14s %14s %14s%n",
+                "command", "count", "avg queue, us", "avg exec, us", "max exec, us"));
+        new TreeMap<>(commandTimers).forEach((commandName, timer) ->
+                report.append(String.format("%-28s %10s %14.1f %14.1f %14.1f%n", commandName, timer.count.sum(),
+                        timer.averageQueueMicros(), timer.averageExecutionMicros(), timer.maxExecutionNanos.get() / 1e3)));
+        return report.toString();
+    }
+
+    /**
+     * Accumulates timings of one command.
+     */
+    private static class CommandTimer {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalQueueNanos = new LongAdder();
+        private final LongAdder totalExecutionNanos = new LongAdder();
+        private final AtomicLong maxExecutionNanos = new AtomicLong();
+
+        private void record(long queueNanos, long executionNanos) {
+            count.increment();
+            totalQueueNanos.add(queueNanos);
+            totalExecutionNanos.add(executionNanos);
+            maxExecutionNanos.accumulateAndGet(executionNanos, Math::max);
+        }
+
+        private double averageQueueMicros() {
+            long executed = count.sum();
+            return executed == 0 ? 0 : totalQueueNanos.sum() / 1e3 / executed;
+        }
+
+        private double averageExecutionMicros() {
+            long executed = count.sum();
+            return executed == 0 ? 0 : totalExecutionNanos.sum() / 1e3 / executed;
+        }
+    }
+}
@@ -1,41 +1,70 @@
 package host;
 
 import commands.SaveCommand;
+import processing.ChannelSession;
+import processing.CodecHandshake;
 import processing.NBChannelController;
 import processing.RequestHandler;
+import processing.WireCodec;
 import utility.CommandArguments;
 import utility.ServerAnswer;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
 import java.nio.channels.*;
 import java.util.Iterator;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Accepts clients and exchanges data with them on a single selector thread.
+ * Decoded requests are executed by a pool of workers, encoded answers are passed back
+ * to the selector thread, which writes them to the clients.
+ * A client may send requests without waiting for the answers, they are executed in the order they were sent.
+ * Disconnecting clients do not save the collection: changes are durable in the log,
+ * the collection is saved on shutdown and when the log is compacted.
+ */
 public class Server {
     private final String host;
     private final int port;
     private Selector selector;
     private ServerSocketChannel serverSocket;
     private final RequestHandler requestHandler;
-    private static final CommandArguments SAVE_COMMAND = 
+    private final ThreadPoolExecutor workers;
+    private final PipelineMetrics metrics;
+    private final Queue<Runnable> selectorTasks = new ConcurrentLinkedQueue<>();
+    private static final int CONNECTION_BACKLOG = 1024;
+    private static final int MAX_PIPELINED_REQUESTS = 64;
+    private static final CommandArguments SAVE_COMMAND =
                 new CommandArguments(SaveCommand.getName(), null, null,
                         null, null);
-    private CommandArguments commandArguments;
 
     public Server(RequestHandler requestHandler, String host, int port) {
+        this(requestHandler, host, port, Runtime.getRuntime().availableProcessors());
+    }
+
+    public Server(RequestHandler requestHandler, String host, int port, int countOfWorkers) {
         this.requestHandler = requestHandler;
         this.host = host;
         this.port = port;
+        this.workers = new ThreadPoolExecutor(countOfWorkers, countOfWorkers,
+                0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+        this.metrics = new PipelineMetrics(workers);
     }
-    
+
     private void setup() {
         try {
             selector = Selector.open();
             serverSocket = ServerSocketChannel.open();
             serverSocket.setOption(StandardSocketOptions.SO_REUSEADDR, true);
-            serverSocket.bind(new InetSocketAddress(host, port));
+            serverSocket.bind(new InetSocketAddress(host, port), CONNECTION_BACKLOG);
             serverSocket.configureBlocking(false);
             serverSocket.register(selector, SelectionKey.OP_ACCEPT);
         } catch (IOException e) {
@@ -48,20 +77,27 @@ public class Server {
         while (true) {
             try {
                 selector.select();
+                runSelectorTasks();
                 Set<SelectionKey> selectedKeys = selector.selectedKeys();
                 Iterator<SelectionKey> iter = selectedKeys.iterator();
                 while (iter.hasNext()) {
                     SelectionKey key = iter.next();
-                    if (key.isAcceptable()) {
-                        register(selector, serverSocket);
-                    }
-                    if (key.isReadable()) {
-                        read(selector, key);
-                    }
-                    if (key.isValid() && key.isWritable()) {
-                        write(key);
-                    }
                     iter.remove();
+                    try {
+                        if (key.isAcceptable()) {
+                            register(selector, serverSocket);
+                        }
+                        if (key.isValid() && key.isReadable()) {
+                            read(key);
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            write(key);
+                        }
+                    } catch (RuntimeException e) { // only the client of the key is lost, not the server
+                        e.printStackTrace();
+                        if (key.channel() != serverSocket)
+                            disconnect(key);
+                    }
                 }
             } catch (IOException e) {
                 e.printStackTrace();
@@ -71,46 +107,169 @@ public class Server {
 
     private void register(Selector selector, ServerSocketChannel serverSocket) {
         try {
-            SocketChannel client = serverSocket.accept();
-            client.configureBlocking(false);
-            client.register(selector, SelectionKey.OP_READ);
+            SocketChannel client;
+            while ((client = serverSocket.accept()) != null) { // accept every client waiting in the backlog
+                client.configureBlocking(false);
+                client.setOption(StandardSocketOptions.TCP_NODELAY, true); // pipelined answers are not held back
+                client.register(selector, SelectionKey.OP_READ, new ChannelSession());
+            }
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
-    private void read(Selector selector, SelectionKey key) {
+    /**
+     * Reads every complete request the channel has, up to the limit of requests waiting for execution.
+     */
+    private void read(SelectionKey key) {
+        SocketChannel client = (SocketChannel) key.channel();
+        ChannelSession session = (ChannelSession) key.attachment();
         try {
-            SocketChannel client = (SocketChannel) key.channel();
-            try {
-                commandArguments = (CommandArguments) NBChannelController.read(client);
-                client.configureBlocking(false);
-                client.register(selector, SelectionKey.OP_WRITE);
-            } catch (IOException e) {
-                System.out.println(String.format(
-                        "Not accepting client %s messages anymore", client.getRemoteAddress()));
-                requestHandler.processRequest(SAVE_COMMAND);
-                client.close();
+            if (session.getCodec() == null) {
+                handshake(key, session);
                 return;
             }
+            CommandArguments request;
+            while (session.countPendingTasks() < MAX_PIPELINED_REQUESTS &&
+                    (request = (CommandArguments) session.read(client)) != null) {
+                execute(key, request);
+            }
+            updateInterestOps(key);
         } catch (IOException e) {
+            disconnect(key);
+        } catch (RuntimeException e) { // a frame the codec, the pool or the session cannot handle
+            e.printStackTrace();
+            disconnect(key);
+        }
+    }
+
+    /**
+     * Reads the first frame of the connection and answers with the codec of all the following frames.
+     */
+    private void handshake(SelectionKey key, ChannelSession session) throws IOException {
+        WireCodec codec = session.readHandshake((SocketChannel) key.channel());
+        if (codec == null)
+            return;
+        session.enqueue(NBChannelController.toFrame(CodecHandshake.answer(codec)));
+        write(key);
+    }
+
+    /**
+     * Passes the request to the workers after the previous requests of the connection.
+     * The worker does not wait for the changes of the request to reach the disk, the answer is encoded
+     * and returned to the selector thread when they do, after the answers to the previous requests.
+     */
+    private void execute(SelectionKey key, CommandArguments request) {
+        ChannelSession session = (ChannelSession) key.attachment();
+        WireCodec codec = session.getCodec();
+        long queuedTime = System.nanoTime();
+        session.execute(() -> {
+            long startTime = System.nanoTime();
+            CompletableFuture<ServerAnswer> serverAnswer;
+            try {
+                serverAnswer = requestHandler.processRequestAsync(request);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                runOnSelector(() -> disconnect(key));
+                return;
+            }
+            metrics.recordExecution(request.getCommandName(), startTime - queuedTime, System.nanoTime() - startTime);
+            session.afterPreviousAnswers(serverAnswer).whenComplete((answer, error) -> sendAnswer(key, codec, answer, error));
+        }, workers);
+    }
+
+    private void sendAnswer(SelectionKey key, WireCodec codec, ServerAnswer serverAnswer, Throwable error) {
+        ByteBuffer[] answerFrame;
+        try {
+            if (error != null)
+                throw new IOException("Failed to answer the request", error);
+            answerFrame = NBChannelController.toFrame(codec.encode(serverAnswer));
+        } catch (IOException | RuntimeException e) {
             e.printStackTrace();
+            runOnSelector(() -> disconnect(key));
+            return;
         }
+        runOnSelector(() -> {
+            if (!key.isValid()) // client was disconnected while its request was executed
+                return;
+            ChannelSession session = (ChannelSession) key.attachment();
+            session.enqueue(answerFrame);
+            write(key);
+        });
     }
 
     private void write(SelectionKey key) {
-        ServerAnswer serverAnswer = requestHandler.processRequest(commandArguments);
+        SocketChannel client = (SocketChannel) key.channel();
+        ChannelSession session = (ChannelSession) key.attachment();
+        try {
+            session.flush(client);
+            updateInterestOps(key);
+        } catch (IOException e) {
+            disconnect(key);
+        }
+    }
+
+    /**
+     * The key waits for reading while the connection has room for more requests
+     * and for writing while some of its frames are not written.
+     */
+    private void updateInterestOps(SelectionKey key) {
+        ChannelSession session = (ChannelSession) key.attachment();
+        int interestOps = 0;
+        if (session.countPendingTasks() < MAX_PIPELINED_REQUESTS)
+            interestOps |= SelectionKey.OP_READ;
+        if (session.hasPendingWrites())
+            interestOps |= SelectionKey.OP_WRITE;
+        key.interestOps(interestOps);
+    }
+
+    private void disconnect(SelectionKey key) {
+        if (!key.isValid()) // already disconnected
+            return;
         SocketChannel client = (SocketChannel) key.channel();
         try {
-            NBChannelController.write(client, serverAnswer);
-            client.configureBlocking(false);
-            client.register(selector, SelectionKey.OP_READ);
+            System.out.println(String.format(
+                    "Not accepting client %s messages anymore", client.getRemoteAddress()));
+            ((ChannelSession) key.attachment()).release();
+            key.cancel();
+            client.close();
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * Hands the task over to the selector thread and wakes it up.
+     */
+    private void runOnSelector(Runnable task) {
+        selectorTasks.add(task);
+        metrics.answerQueued();
+        selector.wakeup();
+    }
+
+    private void runSelectorTasks() {
+        Runnable task;
+        while ((task = selectorTasks.poll()) != null) {
+            metrics.answerTaken();
+            try {
+                task.run();
+            } catch (CancelledKeyException e) {
+                // client was disconnected while its request was executed
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    public PipelineMetrics getMetrics() {
+        return metrics;
+    }
+
+    public static int getConnectionBacklog() {
+        return CONNECTION_BACKLOG;
+    }
+
     public static CommandArguments getSaveCommand() {
         return SAVE_COMMAND;
     }
-}
\ No newline at end of file
+}
@@ -1,8 +1,8 @@
 package processing;
 
-import commands.InsertCommand;
-import commands.UpdateCommand;
+import commands.*;
 import mods.AnswerType;
+import mods.ClientRequestType;
 import mods.ExecuteMode;
 import mods.MessageType;
 import utility.CommandArguments;
@@ -10,22 +10,72 @@ import utility.MessageHolder;
 import utility.ServerAnswer;
 
 import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+/**
+ * Executes client requests and forms answers to them.
+ * Can be called from several threads: commands that only read the collection run at the same time,
+ * commands that change it or its file run one at a time.
+ * An answer is given only when the changes made by its request are on the disk, they are awaited
+ * after the collection is released, so the changes of concurrent requests reach the disk together.
+ * Changes that failed to reach the disk are undone before the next request is executed.
+ */
 public class RequestHandler {
     private CommandInvoker invoker;
+    private final BufferedDataBase dataBase;
+    private final ReadWriteLock collectionLock = new ReentrantReadWriteLock();
+    private static final Set<String> READING_COMMANDS = Set.of(HelpCommand.getName(), InfoCommand.getName(),
+            ShowCommand.getName(), ExitCommand.getName(), CountByFuelTypeCommand.getName(),
+            FilterLessThanFuelTypeCommand.getName(), CountByDistanceTravelledCommand.getName(),
+            FilterByDistanceTravelledCommand.getName(), CountByEnginePowerCommand.getName(),
+            FilterByEnginePowerCommand.getName(), FilterCommand.getName());
 
-    public RequestHandler(CommandInvoker invoker) {
+    public RequestHandler(CommandInvoker invoker, BufferedDataBase dataBase) {
         this.invoker = invoker;
+        this.dataBase = dataBase;
     }
 
+    /**
+     * Executes the request and waits until its changes are on the disk.
+     */
     public ServerAnswer processRequest(CommandArguments commandArguments) {
+        return processRequestAsync(commandArguments).join();
+    }
+
+    /**
+     * Executes the request in the calling thread, without waiting for its changes to reach the disk.
+     * @return Answer that is completed when the changes are on the disk.
+     */
+    public CompletableFuture<ServerAnswer> processRequestAsync(CommandArguments commandArguments) {
+        ServerAnswer serverAnswer = executeRequest(commandArguments);
+        return dataBase.durableChanges().thenApply(isDurable -> isDurable ? serverAnswer : notDurable(serverAnswer));
+    }
+
+    private ServerAnswer executeRequest(CommandArguments commandArguments) {
+        if (commandArguments.getClientRequestType() == ClientRequestType.BATCH)
+            return executeBatch(commandArguments);
         MessageHolder.clearMessages(MessageType.OUTPUT_INFO);
         MessageHolder.clearMessages(MessageType.USER_ERROR);
+        MessageHolder.clearContinuation();
 
-        boolean exitStatus = invoker.execute(commandArguments);
+        if (dataBase.hasDiscardedChanges())
+            restoreDiscardedChanges();
+        Lock lock = isReadingCommand(commandArguments) ?
+                collectionLock.readLock() : collectionLock.writeLock();
+        boolean exitStatus;
+        lock.lock();
+        try {
+            exitStatus = invoker.execute(commandArguments);
+        } finally {
+            lock.unlock();
+        }
 
-        ArrayList<String> outputInfo = MessageHolder.getOutputInfo();
-        ArrayList<String> userErrors = MessageHolder.getUserErrors();
+        ArrayList<String> outputInfo = new ArrayList<>(MessageHolder.getOutputInfo());
+        ArrayList<String> userErrors = new ArrayList<>(MessageHolder.getUserErrors());
 
         AnswerType answerType = AnswerType.EXECUTION_RESPONSE;
 
@@ -34,7 +84,67 @@ public class RequestHandler {
         if (isChangingCommand(commandArguments) && isExtraArgsNull(commandArguments) && isCommandMode(commandArguments)) {
                 answerType = AnswerType.DATA_REQUEST;
         }
-        return new ServerAnswer(outputInfo, userErrors, exitStatus, answerType); 
+        return new ServerAnswer(outputInfo, userErrors, exitStatus, answerType, commandArguments.getRequestId(),
+                null, MessageHolder.getContinuation());
+    }
+
+    /**
+     * Undoes the changes that were applied but failed to reach the disk, before the next command sees them.
+     */
+    private void restoreDiscardedChanges() {
+        Lock lock = collectionLock.writeLock();
+        lock.lock();
+        try {
+            dataBase.restoreDiscardedChanges();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Executes the commands of a batch request one after another, their changes are awaited together.
+     * A batch without commands is rejected, as well as a batch within a batch.
+     * @return Answer holding the answers to the executed commands, its exit status is true if all of them succeeded.
+     */
+    private ServerAnswer executeBatch(CommandArguments batchRequest) {
+        ArrayList<CommandArguments> batch = batchRequest.getBatch();
+        if (batch == null || batch.isEmpty())
+            return rejected(batchRequest.getRequestId(), "Batch request has no commands");
+        ArrayList<ServerAnswer> batchAnswers = new ArrayList<>(batch.size());
+        boolean exitStatus = true;
+        for (CommandArguments commandArguments : batch) {
+            ServerAnswer serverAnswer;
+            if (commandArguments == null || commandArguments.getClientRequestType() == ClientRequestType.BATCH)
+                serverAnswer = rejected(batchRequest.getRequestId(), "Batched command cannot be a batch");
+            else
+                serverAnswer = executeRequest(commandArguments);
+            batchAnswers.add(serverAnswer);
+            exitStatus &= serverAnswer.commandExitStatus();
+            if (!serverAnswer.commandExitStatus() && batchRequest.isStoppingOnFailure())
+                break;
+        }
+        return new ServerAnswer(new ArrayList<>(), new ArrayList<>(), exitStatus, AnswerType.EXECUTION_RESPONSE,
+                batchRequest.getRequestId(), batchAnswers, null);
+    }
+
+    /**
+     * @return Failed answer to a request that is not executed.
+     */
+    private static ServerAnswer rejected(long requestId, String userError) {
+        ArrayList<String> userErrors = new ArrayList<>();
+        userErrors.add(userError);
+        return new ServerAnswer(new ArrayList<>(), userErrors, false, AnswerType.EXECUTION_RESPONSE, requestId,
+                null, null);
+    }
+
+    /**
+     * @return Copy of the answer that fails, since the changes it reports were not forced to the disk.
+     */
+    private static ServerAnswer notDurable(ServerAnswer serverAnswer) {
+        ArrayList<String> userErrors = new ArrayList<>(serverAnswer.userErrors());
+        userErrors.add("Changes were not written to the disk, they may be lost on restart");
+        return new ServerAnswer(serverAnswer.outputInfo(), userErrors, false, serverAnswer.answerType(),
+                serverAnswer.requestId(), serverAnswer.batchAnswers(), serverAnswer.continuationToken());
     }
 
     public static boolean isChangingCommand(CommandArguments commandArguments) {
@@ -42,6 +152,10 @@ public class RequestHandler {
         commandArguments.getCommandName().equals(InsertCommand.getName());
     }
 
+    private boolean isReadingCommand(CommandArguments commandArguments) {
+        return READING_COMMANDS.contains(commandArguments.getCommandName());
+    }
+
     private boolean isCommandMode(CommandArguments commandArguments) {
         return commandArguments.getExecuteMode() == ExecuteMode.COMMAND_MODE;
     }
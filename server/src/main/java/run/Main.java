@@ -3,12 +3,15 @@
     import mods.MessageType;
     import processing.BufferedDataBase;
     import processing.Console;
+    import processing.NBChannelController;
     import processing.RequestHandler;
     import processing.CommandInvoker;
 
+    import java.util.Arrays;
     import java.util.Scanner;
 
     import commands.*;
+    import host.BlockingServer;
     import host.Server;
     import utility.FileHandler;
     import utility.MessageHolder;
@@ -18,16 +21,25 @@
      * The entry point to the program, declares and initializes all the necessary
      * classes.
      * Starts interactive mode for the user.
+     * Arguments: host, port, optional count of workers and optional '--blocking' flag,
+     * which serves each client by its own virtual thread instead of the selector.
      */
     public class Main {
+        private static final String METRICS_COMMAND = "metrics";
+        private static final String BLOCKING_MODE_FLAG = "--blocking";
+
         public static void main(String[] args) {
             // FileHandler.clearFile(FileType.TEST_SCRIPT);
             // ScriptGenerator scriptGenerator = new ScriptGenerator(50000);
             // scriptGenerator.generateInserts();
             
+            boolean isBlockingMode = Arrays.asList(args).contains(BLOCKING_MODE_FLAG);
+            args = Arrays.stream(args).filter(arg -> !arg.equals(BLOCKING_MODE_FLAG)).toArray(String[]::new);
             String[] hostAndPort = args[0].split("\\s+");
             String host = hostAndPort[0];
             int port = Integer.parseInt(args[1]);
+            int countOfWorkers = args.length > 2 ?
+                    Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
 
             if (!FileHandler.checkEnvVariable()) {
                 Console.printUserErrors();
@@ -45,13 +57,27 @@
                     new RemoveGreaterKeyCommand(bufferedDataBase),
                     new RemoveAllByEnginePowerCommand(bufferedDataBase),
                     new CountByFuelTypeCommand(bufferedDataBase),
-                    new FilterLessThanFuelTypeCommand(bufferedDataBase));
-            RequestHandler requestHandler = new RequestHandler(invoker);
-            Server server = new Server(requestHandler, host, port);
+                    new FilterLessThanFuelTypeCommand(bufferedDataBase),
+                    new CountByDistanceTravelledCommand(bufferedDataBase),
+                    new FilterByDistanceTravelledCommand(bufferedDataBase),
+                    new CountByEnginePowerCommand(bufferedDataBase),
+                    new FilterByEnginePowerCommand(bufferedDataBase),
+                    new FilterCommand(bufferedDataBase));
+            RequestHandler requestHandler = new RequestHandler(invoker, bufferedDataBase);
+            Server server = null;
+            Runnable serverLoop;
+            if (isBlockingMode) {
+                serverLoop = new BlockingServer(requestHandler, host, port)::run;
+            } else {
+                server = new Server(requestHandler, host, port, countOfWorkers);
+                serverLoop = server::run;
+            }
             bufferedDataBase.setCommandInvoker(invoker);
+            // changes are already durable in the log, the snapshot only shortens the replay of the next start
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> requestHandler.processRequest(Server.getSaveCommand())));
             Console.println("Server is running...");
 
-            Thread mainProggrammThread = new Thread(server::run);
+            Thread mainProggrammThread = new Thread(serverLoop);
             mainProggrammThread.start();
 
             Scanner scanner = new Scanner(System.in);
@@ -60,6 +86,11 @@
                 if (nextLine.equals(SaveCommand.getName())) {
                     requestHandler.processRequest(Server.getSaveCommand());
                 }
+                if (nextLine.equals(METRICS_COMMAND)) {
+                    if (server != null)
+                        Console.println(server.getMetrics().report());
+                    Console.println(NBChannelController.getBufferPool().report());
+                }
                 if (!mainProggrammThread.isAlive()) {
                     break;
                 }
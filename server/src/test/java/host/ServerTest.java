@@ -0,0 +1,336 @@
+package host;
+
+import commands.*;
+import mods.ClientRequestType;
+import mods.ExecuteMode;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import processing.BinaryCodec;
+import processing.BufferedDataBase;
+import processing.CommandInvoker;
+import processing.NBChannelController;
+import processing.RequestHandler;
+import processing.WireCodec;
+import utility.CommandArguments;
+import utility.FileHandler;
+import utility.ServerAnswer;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.channels.SocketChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the server on the loopback interface with many clients at once, every client pipelines its own commands
+ * and checks that each answer is the answer to its own request, in the order the requests were sent.
+ * The collection file is set by the 'SAVE_PATH' variable of the test run.
+ */
+public class ServerTest {
+    private static final int COUNT_OF_CLIENTS = 200;
+    private static final int COUNT_OF_ROUNDS = 10; // an insert and a remove of the key of the client per round
+    private static final long TIMEOUT_SECONDS = 60;
+    private static int port;
+    private static BufferedDataBase bufferedDataBase;
+    private static CommandInvoker invoker;
+
+    @BeforeClass
+    public static void startServer() throws IOException, InterruptedException {
+        Path dataBasePath = FileHandler.getDataBasePath();
+        Files.createDirectories(dataBasePath.getParent());
+        try (DirectoryStream<Path> logSegments =
+                     Files.newDirectoryStream(dataBasePath.getParent(), dataBasePath.getFileName() + ".*.wal")) {
+            for (Path logSegment : logSegments)
+                Files.delete(logSegment);
+        }
+        Files.writeString(dataBasePath, "{}");
+        Files.createDirectories(Path.of("../server/files")); // the reference file is written there
+
+        bufferedDataBase = new BufferedDataBase();
+        invoker = new CommandInvoker(new HelpCommand(bufferedDataBase),
+                new InfoCommand(bufferedDataBase), new ShowCommand(bufferedDataBase),
+                new InsertCommand(bufferedDataBase), new UpdateCommand(bufferedDataBase),
+                new RemoveKeyCommand(bufferedDataBase), new ClearCommand(bufferedDataBase),
+                new SaveCommand(bufferedDataBase), new ExecuteScriptCommand(bufferedDataBase),
+                new ExitCommand(bufferedDataBase), new RemoveGreaterCommand(bufferedDataBase),
+                new RemoveLowerCommand(bufferedDataBase),
+                new RemoveGreaterKeyCommand(bufferedDataBase),
+                new RemoveAllByEnginePowerCommand(bufferedDataBase),
+                new CountByFuelTypeCommand(bufferedDataBase),
+                new FilterLessThanFuelTypeCommand(bufferedDataBase),
+                new CountByDistanceTravelledCommand(bufferedDataBase),
+                new FilterByDistanceTravelledCommand(bufferedDataBase),
+                new CountByEnginePowerCommand(bufferedDataBase),
+                new FilterByEnginePowerCommand(bufferedDataBase),
+                new FilterCommand(bufferedDataBase));
+        bufferedDataBase.setCommandInvoker(invoker);
+        port = freePort();
+        startServer(new Server(new RequestHandler(invoker, bufferedDataBase),
+                InetAddress.getLoopbackAddress().getHostAddress(), port, 4)::run, port);
+    }
+
+    @Test
+    public void everyClientGetsAnswersToItsOwnRequests() throws Exception {
+        exchangeWithAllClients(port, 1_000_000L);
+    }
+
+    /**
+     * The blocking mode serves each connection by its own thread and must keep the answers apart the same way.
+     */
+    @Test
+    public void everyClientOfTheBlockingServerGetsAnswersToItsOwnRequests() throws Exception {
+        int blockingPort = freePort();
+        BlockingServer server = new BlockingServer(new RequestHandler(invoker, bufferedDataBase),
+                InetAddress.getLoopbackAddress().getHostAddress(), blockingPort);
+        startServer(server::run, blockingPort);
+        exchangeWithAllClients(blockingPort, 2_000_000L);
+    }
+
+    private static void exchangeWithAllClients(int port, long firstKey) throws Exception {
+        ExecutorService clients = Executors.newFixedThreadPool(COUNT_OF_CLIENTS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Void>> results = new ArrayList<>();
+        for (int client = 0; client < COUNT_OF_CLIENTS; client++) {
+            long key = firstKey + client;
+            results.add(clients.submit(() -> {
+                start.await();
+                exchange(port, key);
+                return null;
+            }));
+        }
+        start.countDown();
+        try {
+            for (Future<Void> result : results)
+                result.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    /**
+     * A worker is held inside a 'show' until the test releases it, an 'info' of another client
+     * must be answered meanwhile, and both commands must be counted by the metrics of the pipeline.
+     */
+    @Test
+    public void cheapCommandIsAnsweredWhileALongOneRuns() throws Exception {
+        CountDownLatch longCommandStarted = new CountDownLatch(1);
+        CountDownLatch longCommandReleased = new CountDownLatch(1);
+        RequestHandler slowShow = new RequestHandler(invoker, bufferedDataBase) {
+            @Override
+            public CompletableFuture<ServerAnswer> processRequestAsync(CommandArguments commandArguments) {
+                if (commandArguments.getCommandName().equals(ShowCommand.getName())) {
+                    longCommandStarted.countDown();
+                    try {
+                        longCommandReleased.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.processRequestAsync(commandArguments);
+            }
+        };
+        int slowPort = freePort();
+        Server server = new Server(slowShow, InetAddress.getLoopbackAddress().getHostAddress(), slowPort, 2);
+        startServer(server::run, slowPort);
+        try (SocketChannel showChannel = SocketChannel.open(
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), slowPort));
+             SocketChannel infoChannel = SocketChannel.open(
+                     new InetSocketAddress(InetAddress.getLoopbackAddress(), slowPort))) {
+            WireCodec showCodec = NBChannelController.clientHandshake(showChannel, new BinaryCodec());
+            WireCodec infoCodec = NBChannelController.clientHandshake(infoChannel, new BinaryCodec());
+            NBChannelController.write(showChannel, showCodec, command(ShowCommand.getName(), 1));
+            assertTrue(longCommandStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+            NBChannelController.write(infoChannel, infoCodec, command(InfoCommand.getName(), 1));
+            ServerAnswer infoAnswer = (ServerAnswer) NBChannelController.read(infoChannel, infoCodec);
+            assertTrue(infoAnswer.commandExitStatus());
+
+            longCommandReleased.countDown();
+            ServerAnswer showAnswer = (ServerAnswer) NBChannelController.read(showChannel, showCodec);
+            assertTrue(showAnswer.commandExitStatus());
+        } finally {
+            longCommandReleased.countDown();
+        }
+        String report = server.getMetrics().report();
+        assertTrue(report, report.contains(InfoCommand.getName()) && report.contains(ShowCommand.getName()));
+    }
+
+    /**
+     * A batch is one frame each way and holds an answer to every executed command, in the order of the commands.
+     * A failed command stops the rest of the batch only if the batch asks for it.
+     */
+    @Test
+    public void batchIsAnsweredCommandByCommandInOneFrame() throws Exception {
+        long key = 4_000_000L;
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), port))) {
+            WireCodec codec = NBChannelController.clientHandshake(channel, new BinaryCodec());
+            NBChannelController.write(channel, codec, batch(key, false, 1));
+            ServerAnswer answer = (ServerAnswer) NBChannelController.read(channel, codec);
+            assertEquals(1, answer.requestId());
+            assertFalse(answer.commandExitStatus());
+            assertEquals(List.of(true, true, false, true), exitStatuses(answer));
+
+            NBChannelController.write(channel, codec, batch(key + 1, true, 2));
+            answer = (ServerAnswer) NBChannelController.read(channel, codec);
+            assertEquals(2, answer.requestId());
+            assertEquals("the insert after the failed remove is not executed",
+                    List.of(true, true, false), exitStatuses(answer));
+        }
+        ServerAnswer empty = new RequestHandler(invoker, bufferedDataBase)
+                .processRequest(CommandArguments.batchOf(new ArrayList<>(), false));
+        assertFalse(empty.commandExitStatus());
+        assertEquals(List.of("Batch request has no commands"), empty.userErrors());
+    }
+
+    /**
+     * Inserts the key, removes it twice and inserts it again, the second remove fails.
+     * The key of the last insert is left in the collection.
+     */
+    private static CommandArguments batch(long key, boolean isStoppingOnFailure, long requestId) {
+        ArrayList<CommandArguments> commands = new ArrayList<>(List.of(insert(key, 0), removeKey(key, 0),
+                removeKey(key, 0), insert(key, 0)));
+        CommandArguments request = CommandArguments.batchOf(commands, isStoppingOnFailure);
+        request.setRequestId(requestId);
+        return request;
+    }
+
+    private static List<Boolean> exitStatuses(ServerAnswer batchAnswer) {
+        List<Boolean> exitStatuses = new ArrayList<>();
+        for (ServerAnswer answer : batchAnswer.batchAnswers())
+            exitStatuses.add(answer.commandExitStatus());
+        return exitStatuses;
+    }
+
+    /**
+     * A script uploaded with its request runs on the server and every command of it, nested scripts included,
+     * is reported in the single answer to the request. A script that was not uploaded is looked up
+     * in the scripts directory only.
+     */
+    @Test
+    public void uploadedScriptIsAnsweredInOneRoundTrip() throws Exception {
+        long key = 3_000_000L;
+        List<String> scriptLines = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            scriptLines.add(InsertCommand.getName() + " " + (key + i));
+            scriptLines.addAll(List.of("script" + i, "1", "2", "3", "4", "1", "1"));
+        }
+        scriptLines.add(RemoveKeyCommand.getName() + " " + (key + 1));
+        scriptLines.add(ExecuteScriptCommand.getName() + " recursive.txt");
+        Path scriptsPath = FileHandler.SCRIPTS_DIRECTORY.toPath();
+        Files.createDirectories(scriptsPath);
+        Files.writeString(scriptsPath.resolve("recursive.txt"),
+                InfoCommand.getName() + "\n" + ExecuteScriptCommand.getName() + " recursive.txt\n");
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), port))) {
+            WireCodec codec = NBChannelController.clientHandshake(channel, new BinaryCodec());
+            CommandArguments request = new CommandArguments(ExecuteScriptCommand.getName(),
+                    new String[] {"uploaded.txt"}, scriptLines.toArray(new String[0]),
+                    ClientRequestType.COMMAND_EXECUTION, ExecuteMode.COMMAND_MODE);
+            request.setRequestId(1);
+            NBChannelController.write(channel, codec, request);
+            ServerAnswer answer = (ServerAnswer) NBChannelController.read(channel, codec);
+            assertEquals(1, answer.requestId());
+            for (int i = 0; i < 3; i++) {
+                String insertOutput = String.format("Command '%s %s':", InsertCommand.getName(), key + i);
+                assertTrue(answer.outputInfo().toString(), answer.outputInfo().contains(insertOutput));
+            }
+            assertTrue(answer.outputInfo().toString(), answer.outputInfo().contains(
+                    String.format("Element with key = %s was successfully removed", key + 1)));
+            assertTrue(answer.userErrors().toString(),
+                    answer.userErrors().contains("Recursion on 'recursive.txt' script noticed"));
+
+            CommandArguments outsideScript = new CommandArguments(ExecuteScriptCommand.getName(),
+                    new String[] {"../server/files/reference.txt"}, null,
+                    ClientRequestType.COMMAND_EXECUTION, ExecuteMode.COMMAND_MODE);
+            outsideScript.setRequestId(2);
+            NBChannelController.write(channel, codec, outsideScript);
+            answer = (ServerAnswer) NBChannelController.read(channel, codec);
+            assertFalse(answer.commandExitStatus());
+            assertTrue(answer.userErrors().toString(), answer.userErrors().contains(
+                    "Script '../server/files/reference.txt' not found in 'scripts' directory"));
+        }
+    }
+
+    /**
+     * Sends all requests of the client before reading any answer.
+     * A remove succeeds only after the insert of the same round, so an answer taken from another client
+     * or a request executed out of order fails the check.
+     */
+    private static void exchange(int port, long key) throws IOException {
+        try (SocketChannel channel = SocketChannel.open(
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), port))) {
+            WireCodec codec = NBChannelController.clientHandshake(channel, new BinaryCodec());
+            long requestId = 0;
+            for (int round = 0; round < COUNT_OF_ROUNDS; round++) {
+                NBChannelController.write(channel, codec, insert(key, ++requestId));
+                NBChannelController.write(channel, codec, removeKey(key, ++requestId));
+            }
+            for (long expectedId = 1; expectedId <= requestId; expectedId++) {
+                ServerAnswer answer = (ServerAnswer) NBChannelController.read(channel, codec);
+                assertEquals("answer to another request of client " + key, expectedId, answer.requestId());
+                assertTrue(String.format("request %s of client %s failed: %s", expectedId, key, answer.userErrors()),
+                        answer.commandExitStatus());
+                String expectedOutput = expectedId % 2 == 1 ?
+                        String.format("Command '%s %s':", InsertCommand.getName(), key) :
+                        String.format("Element with key = %s was successfully removed", key);
+                assertTrue(String.format("client %s got %s", key, answer.outputInfo()),
+                        answer.outputInfo().contains(expectedOutput));
+            }
+        }
+    }
+
+    private static CommandArguments insert(long key, long requestId) {
+        CommandArguments request = new CommandArguments(InsertCommand.getName(), new String[] {String.valueOf(key)},
+                new String[] {"client" + key, "1", "2", "3", "4", "1", "1"},
+                ClientRequestType.COMMAND_EXECUTION, ExecuteMode.COMMAND_MODE);
+        request.setRequestId(requestId);
+        return request;
+    }
+
+    private static CommandArguments command(String commandName, long requestId) {
+        CommandArguments request = new CommandArguments(commandName, new String[] {}, null,
+                ClientRequestType.COMMAND_EXECUTION, ExecuteMode.COMMAND_MODE);
+        request.setRequestId(requestId);
+        return request;
+    }
+
+    private static CommandArguments removeKey(long key, long requestId) {
+        CommandArguments request = new CommandArguments(RemoveKeyCommand.getName(),
+                new String[] {String.valueOf(key)}, null, ClientRequestType.COMMAND_EXECUTION, ExecuteMode.COMMAND_MODE);
+        request.setRequestId(requestId);
+        return request;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket freePort = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            return freePort.getLocalPort();
+        }
+    }
+
+    private static void startServer(Runnable server, int port) throws InterruptedException {
+        Thread serverThread = new Thread(server, "server");
+        serverThread.setDaemon(true);
+        serverThread.start();
+        awaitServer(port);
+    }
+
+    private static void awaitServer(int port) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS);
+        while (System.currentTimeMillis() < deadline) {
+            try (SocketChannel channel = SocketChannel.open(
+                    new InetSocketAddress(InetAddress.getLoopbackAddress(), port))) {
+                return;
+            } catch (IOException e) {
+                Thread.sleep(50);
+            }
+        }
+        fail("server did not start");
+    }
+}